@@ -0,0 +1,63 @@
+package com.uv.backend.audio;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Selección del decodificador según la cabecera del archivo (no la extensión)
+ */
+public final class AudioDecoders {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private AudioDecoders() {
+    }
+
+    /**
+     * Abre un decodificador PCM: FLAC con el decodificador propio; WAV, AIFF y AU con javax.sound
+     */
+    public static PcmReader open(Path file) throws IOException, UnsupportedAudioFileException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE);
+        try {
+            byte[] magic = new byte[4];
+            in.mark(magic.length);
+            int read = in.readNBytes(magic, 0, magic.length);
+            in.reset();
+
+            if (read == 4 && startsWith(magic, "fLaC")) {
+                return new FlacPcmReader(in);
+            }
+            if (read == 4 && isSampledFormat(magic)) {
+                return new SampledPcmReader(in);
+            }
+            throw new UnsupportedAudioFileException("No PCM decoder for file: " + file.getFileName());
+        } catch (IOException | UnsupportedAudioFileException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Indica si hay decodificador para un archivo a partir de sus primeros 4 bytes
+     */
+    public static boolean canDecode(byte[] header) {
+        return header.length >= 4 && (startsWith(header, "fLaC") || isSampledFormat(header));
+    }
+
+    private static boolean isSampledFormat(byte[] magic) {
+        return startsWith(magic, "RIFF") || startsWith(magic, "FORM") || startsWith(magic, ".snd");
+    }
+
+    private static boolean startsWith(byte[] bytes, String ascii) {
+        for (int i = 0; i < ascii.length(); i++) {
+            if (bytes[i] != (byte) ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
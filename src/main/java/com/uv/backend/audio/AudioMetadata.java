@@ -0,0 +1,41 @@
+package com.uv.backend.audio;
+
+/**
+ * Datos técnicos de un archivo de audio obtenidos de sus cabeceras
+ */
+public class AudioMetadata {
+    private final String codec;
+    private final long durationMillis;
+    private final int bitrate; // kbps
+    private final int sampleRate;
+    private final int channels;
+
+    public AudioMetadata(String codec, long durationMillis, int bitrate, int sampleRate, int channels) {
+        this.codec = codec;
+        this.durationMillis = durationMillis;
+        this.bitrate = bitrate;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+    }
+
+    public String getCodec() { return codec; }
+    public long getDurationMillis() { return durationMillis; }
+    public int getBitrate() { return bitrate; }
+    public int getSampleRate() { return sampleRate; }
+    public int getChannels() { return channels; }
+
+    public int getDurationSeconds() {
+        return (int) Math.round(durationMillis / 1000.0);
+    }
+
+    @Override
+    public String toString() {
+        return "AudioMetadata{" +
+                "codec='" + codec + '\'' +
+                ", durationMillis=" + durationMillis +
+                ", bitrate=" + bitrate +
+                ", sampleRate=" + sampleRate +
+                ", channels=" + channels +
+                '}';
+    }
+}
@@ -0,0 +1,495 @@
+package com.uv.backend.audio;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lectura de metadatos técnicos a partir de las cabeceras del contenedor.
+ *
+ * Solo se leen bloques pequeños en posiciones concretas (cabecera RIFF, STREAMINFO,
+ * primera trama MPEG con Xing/VBRI, primera y última página Ogg, cajas moov de MP4);
+ * nunca se decodifica ni se recorre el archivo completo.
+ */
+public final class AudioMetadataReader {
+
+    private static final int MPEG_SCAN_SIZE = 64 * 1024;
+    private static final int OGG_TAIL_SIZE = 64 * 1024;
+    private static final int MAX_CHUNKS = 64;
+    private static final int MAX_BOXES = 512;
+    private static final int MAX_BOX_DEPTH = 8;
+
+    private static final int[][] MPEG1_BITRATES = {
+            {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448}, // Layer I
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},    // Layer II
+            {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320}      // Layer III
+    };
+    private static final int[][] MPEG2_BITRATES = {
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},    // Layer I
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160},         // Layer II
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}          // Layer III
+    };
+    private static final int[] MPEG1_SAMPLE_RATES = {44100, 48000, 32000};
+    private static final int[] AAC_SAMPLE_RATES = {
+            96000, 88200, 64000, 48000, 44100, 32000, 24000, 22050, 16000, 12000, 11025, 8000, 7350
+    };
+
+    private AudioMetadataReader() {
+    }
+
+    public static AudioMetadata read(Path file) throws IOException, UnsupportedAudioFileException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer head = readAt(channel, 0, 12);
+
+            if (matches(head, 0, "fLaC")) {
+                return readFlac(channel, size);
+            }
+            if (matches(head, 0, "RIFF") && matches(head, 8, "WAVE")) {
+                return readWav(channel, size);
+            }
+            if (matches(head, 0, "OggS")) {
+                return readOgg(channel, size);
+            }
+            if (matches(head, 4, "ftyp")) {
+                return readMp4(channel, size);
+            }
+            if (matches(head, 0, "ID3") || (head.limit() >= 2 && (head.get(0) & 0xFF) == 0xFF
+                    && (head.get(1) & 0xE0) == 0xE0)) {
+                return readMpeg(channel, size);
+            }
+            throw new UnsupportedAudioFileException("Unrecognized audio container");
+        }
+    }
+
+    // WAV: chunks "fmt " y "data" de la cabecera RIFF
+    private static AudioMetadata readWav(FileChannel channel, long size) throws IOException, UnsupportedAudioFileException {
+        long position = 12;
+        int formatTag = -1;
+        int channels = 0;
+        int sampleRate = 0;
+        long byteRate = 0;
+        long dataSize = -1;
+
+        for (int i = 0; i < MAX_CHUNKS && position + 8 <= size && (formatTag < 0 || dataSize < 0); i++) {
+            ByteBuffer header = readAt(channel, position, 8).order(ByteOrder.LITTLE_ENDIAN);
+            long chunkSize = header.getInt(4) & 0xFFFFFFFFL;
+
+            if (matches(header, 0, "fmt ")) {
+                ByteBuffer fmt = readAt(channel, position + 8, (int) Math.min(chunkSize, 40)).order(ByteOrder.LITTLE_ENDIAN);
+                if (fmt.limit() < 16) {
+                    break;
+                }
+                formatTag = fmt.getShort(0) & 0xFFFF;
+                channels = fmt.getShort(2) & 0xFFFF;
+                sampleRate = fmt.getInt(4);
+                byteRate = fmt.getInt(8) & 0xFFFFFFFFL;
+                if (formatTag == 0xFFFE && fmt.limit() >= 26) {
+                    // WAVE_FORMAT_EXTENSIBLE: el formato real está en el subformato
+                    formatTag = fmt.getShort(24) & 0xFFFF;
+                }
+            } else if (matches(header, 0, "data")) {
+                long available = size - position - 8;
+                dataSize = chunkSize == 0xFFFFFFFFL || chunkSize > available ? available : chunkSize;
+            }
+            position += 8 + chunkSize + (chunkSize & 1);
+        }
+
+        if (formatTag < 0 || dataSize < 0 || byteRate == 0) {
+            throw new UnsupportedAudioFileException("Incomplete WAV header");
+        }
+
+        String codec;
+        switch (formatTag) {
+            case 1: codec = "pcm"; break;
+            case 3: codec = "pcm_float"; break;
+            case 6: codec = "alaw"; break;
+            case 7: codec = "mulaw"; break;
+            case 0x55: codec = "mp3"; break;
+            default: codec = "wav";
+        }
+        long durationMillis = dataSize * 1000 / byteRate;
+        return new AudioMetadata(codec, durationMillis, (int) (byteRate * 8 / 1000), sampleRate, channels);
+    }
+
+    // FLAC: STREAMINFO es siempre el primer bloque de metadatos
+    private static AudioMetadata readFlac(FileChannel channel, long size) throws IOException, UnsupportedAudioFileException {
+        ByteBuffer block = readAt(channel, 4, 4 + 34);
+        if (block.limit() < 38 || (block.get(0) & 0x7F) != 0) {
+            throw new UnsupportedAudioFileException("FLAC stream without STREAMINFO");
+        }
+
+        long packed = block.getLong(4 + 10);
+        int sampleRate = (int) (packed >>> 44);
+        int channels = (int) ((packed >>> 41) & 0x7) + 1;
+        long totalSamples = packed & 0xFFFFFFFFFL;
+
+        if (sampleRate == 0 || totalSamples == 0) {
+            throw new UnsupportedAudioFileException("FLAC stream without length");
+        }
+        long durationMillis = totalSamples * 1000 / sampleRate;
+        return new AudioMetadata("flac", durationMillis, averageBitrate(size, durationMillis), sampleRate, channels);
+    }
+
+    // MPEG audio (MP3/MP2) y AAC ADTS: primera trama válida, con cabecera Xing/Info o VBRI si existe
+    private static AudioMetadata readMpeg(FileChannel channel, long size) throws IOException, UnsupportedAudioFileException {
+        long audioStart = 0;
+        ByteBuffer id3 = readAt(channel, 0, 10);
+        if (matches(id3, 0, "ID3") && id3.limit() == 10) {
+            int tagSize = ((id3.get(6) & 0x7F) << 21) | ((id3.get(7) & 0x7F) << 14)
+                    | ((id3.get(8) & 0x7F) << 7) | (id3.get(9) & 0x7F);
+            boolean footer = (id3.get(5) & 0x10) != 0;
+            audioStart = 10 + tagSize + (footer ? 10 : 0);
+        }
+
+        long audioEnd = size;
+        if (size >= 128 && matches(readAt(channel, size - 128, 3), 0, "TAG")) {
+            audioEnd -= 128; // ID3v1
+        }
+
+        ByteBuffer window = readAt(channel, audioStart, MPEG_SCAN_SIZE);
+        for (int i = 0; i + 4 <= window.limit(); i++) {
+            if ((window.get(i) & 0xFF) != 0xFF || (window.get(i + 1) & 0xE0) != 0xE0) {
+                continue;
+            }
+            if ((window.get(i + 1) & 0x06) == 0) {
+                AudioMetadata adts = parseAdts(window, i, audioEnd - audioStart - i);
+                if (adts != null) {
+                    return adts;
+                }
+                continue;
+            }
+            AudioMetadata mpeg = parseMpegFrame(window, i, audioEnd - audioStart - i);
+            if (mpeg != null) {
+                return mpeg;
+            }
+        }
+        throw new UnsupportedAudioFileException("No MPEG audio frame found");
+    }
+
+    private static AudioMetadata parseMpegFrame(ByteBuffer window, int offset, long audioSize) {
+        int b1 = window.get(offset + 1) & 0xFF;
+        int b2 = window.get(offset + 2) & 0xFF;
+        int b3 = window.get(offset + 3) & 0xFF;
+
+        int versionBits = (b1 >> 3) & 0x3;   // 3 = MPEG1, 2 = MPEG2, 0 = MPEG2.5
+        int layerBits = (b1 >> 1) & 0x3;     // 3 = Layer I, 2 = Layer II, 1 = Layer III
+        int bitrateIndex = b2 >> 4;
+        int sampleRateIndex = (b2 >> 2) & 0x3;
+        if (versionBits == 1 || layerBits == 0 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) {
+            return null;
+        }
+
+        boolean mpeg1 = versionBits == 3;
+        int layer = 4 - layerBits;
+        int bitrate = (mpeg1 ? MPEG1_BITRATES : MPEG2_BITRATES)[layer - 1][bitrateIndex];
+        int sampleRate = MPEG1_SAMPLE_RATES[sampleRateIndex] >> (mpeg1 ? 0 : versionBits == 2 ? 1 : 2);
+        int padding = (b2 >> 1) & 0x1;
+        boolean mono = (b3 >> 6) == 3;
+
+        int samplesPerFrame = layer == 1 ? 384 : (layer == 3 && !mpeg1) ? 576 : 1152;
+        int frameLength = layer == 1
+                ? (12 * bitrate * 1000 / sampleRate + padding) * 4
+                : samplesPerFrame / 8 * bitrate * 1000 / sampleRate + padding;
+
+        // Una sincronía falsa rara vez va seguida de otra cabecera válida
+        int next = offset + frameLength;
+        if (next + 2 <= window.limit()
+                && ((window.get(next) & 0xFF) != 0xFF || (window.get(next + 1) & 0xE0) != 0xE0)) {
+            return null;
+        }
+
+        String codec = layer == 3 ? "mp3" : layer == 2 ? "mp2" : "mp1";
+        int channels = mono ? 1 : 2;
+
+        // Cabecera Xing/Info (tras la información lateral) o VBRI (offset fijo)
+        int sideInfo = mpeg1 ? (mono ? 17 : 32) : (mono ? 9 : 17);
+        int xing = offset + 4 + sideInfo;
+        int vbri = offset + 4 + 32;
+        long frames = -1;
+        long bytes = -1;
+
+        if (xing + 16 <= window.limit() && (matches(window, xing, "Xing") || matches(window, xing, "Info"))) {
+            int flags = window.getInt(xing + 4);
+            int field = xing + 8;
+            if ((flags & 0x1) != 0) {
+                frames = window.getInt(field) & 0xFFFFFFFFL;
+                field += 4;
+            }
+            if ((flags & 0x2) != 0 && field + 4 <= window.limit()) {
+                bytes = window.getInt(field) & 0xFFFFFFFFL;
+            }
+        } else if (vbri + 18 <= window.limit() && matches(window, vbri, "VBRI")) {
+            bytes = window.getInt(vbri + 10) & 0xFFFFFFFFL;
+            frames = window.getInt(vbri + 14) & 0xFFFFFFFFL;
+        }
+
+        if (frames > 0) {
+            long durationMillis = frames * samplesPerFrame * 1000 / sampleRate;
+            long audioBytes = bytes > 0 ? bytes : audioSize;
+            return new AudioMetadata(codec, durationMillis, averageBitrate(audioBytes, durationMillis), sampleRate, channels);
+        }
+
+        // CBR: duración a partir del tamaño y el bitrate de la primera trama
+        long durationMillis = audioSize * 8 / bitrate;
+        return new AudioMetadata(codec, durationMillis, bitrate, sampleRate, channels);
+    }
+
+    // AAC en tramas ADTS: bitrate medio de las tramas de la ventana leída
+    private static AudioMetadata parseAdts(ByteBuffer window, int offset, long audioSize) {
+        int sampleRateIndex = (window.get(offset + 2) >> 2) & 0xF;
+        if (sampleRateIndex >= AAC_SAMPLE_RATES.length || offset + 7 > window.limit()) {
+            return null;
+        }
+        int sampleRate = AAC_SAMPLE_RATES[sampleRateIndex];
+        int channels = ((window.get(offset + 2) & 0x1) << 2) | ((window.get(offset + 3) & 0xC0) >> 6);
+
+        long frameBytes = 0;
+        int frameCount = 0;
+        int position = offset;
+        while (position + 7 <= window.limit()
+                && (window.get(position) & 0xFF) == 0xFF && (window.get(position + 1) & 0xF6) == 0xF0) {
+            int length = ((window.get(position + 3) & 0x3) << 11) | ((window.get(position + 4) & 0xFF) << 3)
+                    | ((window.get(position + 5) & 0xE0) >> 5);
+            if (length < 7) {
+                break;
+            }
+            frameBytes += length;
+            frameCount++;
+            position += length;
+        }
+        if (frameCount < 2) {
+            return null;
+        }
+
+        // 1024 muestras por trama
+        long bitsPerSecond = frameBytes * 8 * sampleRate / (frameCount * 1024L);
+        long durationMillis = audioSize * 8 * 1000 / Math.max(1, bitsPerSecond);
+        return new AudioMetadata("aac", durationMillis, (int) (bitsPerSecond / 1000), sampleRate, channels);
+    }
+
+    // Ogg: cabecera de identificación en la primera página y granule de la última
+    private static AudioMetadata readOgg(FileChannel channel, long size) throws IOException, UnsupportedAudioFileException {
+        ByteBuffer first = readAt(channel, 0, 27 + 255 + 32).order(ByteOrder.LITTLE_ENDIAN);
+        if (first.limit() < 28) {
+            throw new UnsupportedAudioFileException("Truncated Ogg page");
+        }
+        int serial = first.getInt(14);
+        int payload = 27 + (first.get(26) & 0xFF);
+
+        String codec;
+        int channels;
+        int sampleRate;
+        int granuleRate;
+        long preSkip = 0;
+        if (payload + 16 <= first.limit() && first.get(payload) == 0x01 && matches(first, payload + 1, "vorbis")) {
+            codec = "vorbis";
+            channels = first.get(payload + 11) & 0xFF;
+            sampleRate = first.getInt(payload + 12);
+            granuleRate = sampleRate;
+        } else if (payload + 16 <= first.limit() && matches(first, payload, "OpusHead")) {
+            codec = "opus";
+            channels = first.get(payload + 9) & 0xFF;
+            preSkip = first.getShort(payload + 10) & 0xFFFF;
+            sampleRate = first.getInt(payload + 12);
+            granuleRate = 48000; // Opus siempre cuenta a 48 kHz
+        } else {
+            throw new UnsupportedAudioFileException("Unsupported Ogg codec");
+        }
+        if (granuleRate <= 0) {
+            throw new UnsupportedAudioFileException("Invalid Ogg sample rate");
+        }
+
+        long tailStart = Math.max(0, size - OGG_TAIL_SIZE);
+        ByteBuffer tail = readAt(channel, tailStart, (int) (size - tailStart)).order(ByteOrder.LITTLE_ENDIAN);
+        long granule = -1;
+        for (int i = tail.limit() - 27; i >= 0 && granule < 0; i--) {
+            if (matches(tail, i, "OggS") && tail.getInt(i + 14) == serial) {
+                granule = tail.getLong(i + 6);
+            }
+        }
+        if (granule <= 0) {
+            throw new UnsupportedAudioFileException("Ogg stream without length");
+        }
+
+        long durationMillis = Math.max(0, granule - preSkip) * 1000 / granuleRate;
+        return new AudioMetadata(codec, durationMillis, averageBitrate(size, durationMillis), sampleRate, channels);
+    }
+
+    // MP4/M4A: se recorren solo las cabeceras de las cajas hasta moov/trak/mdia/minf/stbl
+    private static AudioMetadata readMp4(FileChannel channel, long size) throws IOException, UnsupportedAudioFileException {
+        Mp4Info info = new Mp4Info();
+        walkBoxes(channel, 0, size, info, 0);
+
+        Mp4Track audio = info.audio;
+        long durationMillis;
+        if (audio != null && audio.timescale > 0) {
+            durationMillis = audio.duration * 1000 / audio.timescale;
+        } else if (info.timescale > 0) {
+            durationMillis = info.duration * 1000 / info.timescale;
+        } else {
+            throw new UnsupportedAudioFileException("MP4 file without movie header");
+        }
+
+        String codec = audio != null && audio.format != null ? audio.format : "mp4";
+        int sampleRate = audio != null ? audio.sampleRate : 0;
+        int channels = audio != null ? audio.channels : 0;
+        return new AudioMetadata(codec, durationMillis, averageBitrate(size, durationMillis), sampleRate, channels);
+    }
+
+    private static void walkBoxes(FileChannel channel, long start, long end, Mp4Info info, int depth) throws IOException {
+        if (depth > MAX_BOX_DEPTH) {
+            return;
+        }
+        long position = start;
+        while (position + 8 <= end && info.boxes++ < MAX_BOXES) {
+            ByteBuffer header = readAt(channel, position, 16);
+            if (header.limit() < 8) {
+                return;
+            }
+            long boxSize = header.getInt(0) & 0xFFFFFFFFL;
+            String type = new String(new byte[]{header.get(4), header.get(5), header.get(6), header.get(7)},
+                    StandardCharsets.ISO_8859_1);
+            int headerSize = 8;
+            if (boxSize == 1 && header.limit() >= 16) {
+                boxSize = header.getLong(8);
+                headerSize = 16;
+            } else if (boxSize == 0) {
+                boxSize = end - position;
+            }
+            if (boxSize < headerSize) {
+                return;
+            }
+
+            long body = position + headerSize;
+            long bodySize = boxSize - headerSize;
+            switch (type) {
+                case "moov":
+                case "mdia":
+                case "minf":
+                case "stbl":
+                    walkBoxes(channel, body, position + boxSize, info, depth + 1);
+                    break;
+                case "trak":
+                    info.current = new Mp4Track();
+                    walkBoxes(channel, body, position + boxSize, info, depth + 1);
+                    if (info.audio == null && "soun".equals(info.current.handler)) {
+                        info.audio = info.current;
+                    }
+                    info.current = null;
+                    break;
+                case "mvhd":
+                case "mdhd": {
+                    ByteBuffer box = readAt(channel, body, (int) Math.min(bodySize, 32));
+                    boolean version1 = box.limit() > 0 && box.get(0) == 1;
+                    long timescale;
+                    long duration;
+                    if (version1 && box.limit() >= 32) {
+                        timescale = box.getInt(20) & 0xFFFFFFFFL;
+                        duration = box.getLong(24);
+                    } else if (!version1 && box.limit() >= 20) {
+                        timescale = box.getInt(12) & 0xFFFFFFFFL;
+                        duration = box.getInt(16) & 0xFFFFFFFFL;
+                    } else {
+                        break;
+                    }
+                    if ("mvhd".equals(type)) {
+                        info.timescale = timescale;
+                        info.duration = duration;
+                    } else if (info.current != null) {
+                        info.current.timescale = timescale;
+                        info.current.duration = duration;
+                    }
+                    break;
+                }
+                case "hdlr": {
+                    ByteBuffer box = readAt(channel, body, (int) Math.min(bodySize, 12));
+                    if (info.current != null && box.limit() >= 12) {
+                        info.current.handler = new String(new byte[]{box.get(8), box.get(9), box.get(10), box.get(11)},
+                                StandardCharsets.ISO_8859_1);
+                    }
+                    break;
+                }
+                case "stsd": {
+                    // Primera entrada de descripción de muestra (AudioSampleEntry)
+                    ByteBuffer box = readAt(channel, body, (int) Math.min(bodySize, 8 + 36));
+                    if (info.current != null && box.limit() >= 8 + 36) {
+                        String format = new String(new byte[]{box.get(12), box.get(13), box.get(14), box.get(15)},
+                                StandardCharsets.ISO_8859_1);
+                        info.current.format = codecName(format);
+                        info.current.channels = box.getShort(8 + 24) & 0xFFFF;
+                        info.current.sampleRate = (box.getInt(8 + 32) >>> 16);
+                    }
+                    break;
+                }
+                default:
+                    break;
+            }
+            position += boxSize;
+        }
+    }
+
+    private static String codecName(String format) {
+        switch (format) {
+            case "mp4a": return "aac";
+            case "alac": return "alac";
+            case "Opus": return "opus";
+            case "fLaC": return "flac";
+            case ".mp3": return "mp3";
+            case "ac-3": return "ac3";
+            case "ec-3": return "eac3";
+            default: return format.trim().toLowerCase();
+        }
+    }
+
+    private static int averageBitrate(long bytes, long durationMillis) {
+        return durationMillis > 0 ? (int) (bytes * 8 / durationMillis) : 0;
+    }
+
+    // Lectura posicional acotada (big-endian por defecto)
+    private static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(0, length));
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static boolean matches(ByteBuffer buffer, int offset, String ascii) {
+        if (offset < 0 || offset + ascii.length() > buffer.limit()) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length(); i++) {
+            if (buffer.get(offset + i) != (byte) ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class Mp4Info {
+        private long timescale;
+        private long duration;
+        private Mp4Track current;
+        private Mp4Track audio;
+        private int boxes;
+    }
+
+    private static class Mp4Track {
+        private String handler;
+        private String format;
+        private long timescale;
+        private long duration;
+        private int sampleRate;
+        private int channels;
+    }
+}
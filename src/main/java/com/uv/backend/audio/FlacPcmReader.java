@@ -0,0 +1,419 @@
+package com.uv.backend.audio;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodificador FLAC en Java puro (subframes constant, verbatim, fixed y LPC).
+ *
+ * Decodifica trama a trama, así la memoria usada depende del tamaño de bloque y no
+ * de la duración. No verifica los CRC ni el MD5: se usa para análisis, no para reproducir.
+ */
+class FlacPcmReader implements PcmReader {
+
+    private static final int STREAMINFO = 0;
+    private static final int FRAME_SYNC = 0x3FFE;
+
+    private static final int[][] FIXED_COEFFICIENTS = {
+            {},
+            {1},
+            {2, -1},
+            {3, -3, 1},
+            {4, -6, 4, -1}
+    };
+
+    private final InputStream in;
+    private long bitBuffer;
+    private int bitBufferLength;
+
+    private int sampleRate;
+    private int channels;
+    private int bitsPerSample;
+    private long totalFrames;
+
+    // Trama decodificada pendiente de entregar
+    private int[][] block = new int[0][];
+    private int blockSize;
+    private int blockPosition;
+    private int blockBitsPerSample;
+    private boolean finished;
+
+    FlacPcmReader(InputStream in) throws IOException, UnsupportedAudioFileException {
+        this.in = in;
+        readMetadata();
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int getChannels() {
+        return channels;
+    }
+
+    @Override
+    public int getBitsPerSample() {
+        return bitsPerSample;
+    }
+
+    @Override
+    public long getTotalFrames() {
+        return totalFrames > 0 ? totalFrames : -1;
+    }
+
+    @Override
+    public int read(float[] buffer) throws IOException {
+        int written = 0;
+        while (written < buffer.length) {
+            if (blockPosition >= blockSize) {
+                if (finished || !decodeFrame()) {
+                    finished = true;
+                    break;
+                }
+            }
+
+            double scale = 1.0 / (1L << (blockBitsPerSample - 1)) / block.length;
+            while (written < buffer.length && blockPosition < blockSize) {
+                long sum = 0;
+                for (int[] channel : block) {
+                    sum += channel[blockPosition];
+                }
+                buffer[written++] = (float) (sum * scale);
+                blockPosition++;
+            }
+        }
+        return written == 0 ? -1 : written;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // Cabecera "fLaC" y bloques de metadatos (solo interesa STREAMINFO)
+    private void readMetadata() throws IOException, UnsupportedAudioFileException {
+        if (readUint(32) != 0x664C6143) {
+            throw new UnsupportedAudioFileException("Not a FLAC stream");
+        }
+
+        boolean last = false;
+        boolean hasStreamInfo = false;
+        while (!last) {
+            last = readUint(1) == 1;
+            int type = readUint(7);
+            int length = readUint(24);
+
+            if (type == STREAMINFO) {
+                readUint(16); // tamaño de bloque mínimo
+                readUint(16); // tamaño de bloque máximo
+                readUint(24); // tamaño de trama mínimo
+                readUint(24); // tamaño de trama máximo
+                sampleRate = readUint(20);
+                channels = readUint(3) + 1;
+                bitsPerSample = readUint(5) + 1;
+                totalFrames = ((long) readUint(4) << 32) | (readUint(32) & 0xFFFFFFFFL);
+                skipBytes(16); // MD5
+                hasStreamInfo = true;
+            } else {
+                skipBytes(length);
+            }
+        }
+
+        if (!hasStreamInfo) {
+            throw new UnsupportedAudioFileException("FLAC stream without STREAMINFO");
+        }
+        if (bitsPerSample > 24) {
+            throw new UnsupportedAudioFileException("Unsupported FLAC bit depth: " + bitsPerSample);
+        }
+    }
+
+    // Decodifica la siguiente trama; false al final del flujo
+    private boolean decodeFrame() throws IOException {
+        int first = in.read();
+        if (first == -1) {
+            return false;
+        }
+        // Las tramas empiezan alineadas a byte
+        bitBuffer = first;
+        bitBufferLength = 8;
+
+        if (readUint(14) != FRAME_SYNC) {
+            throw new IOException("Invalid FLAC frame sync");
+        }
+        readUint(1); // reservado
+        readUint(1); // estrategia de bloque
+
+        int blockSizeCode = readUint(4);
+        int sampleRateCode = readUint(4);
+        int channelAssignment = readUint(4);
+        int sampleSizeCode = readUint(3);
+        readUint(1); // reservado
+        skipCodedNumber();
+
+        int size;
+        if (blockSizeCode == 1) {
+            size = 192;
+        } else if (blockSizeCode >= 2 && blockSizeCode <= 5) {
+            size = 576 << (blockSizeCode - 2);
+        } else if (blockSizeCode == 6) {
+            size = readUint(8) + 1;
+        } else if (blockSizeCode == 7) {
+            size = readUint(16) + 1;
+        } else if (blockSizeCode >= 8) {
+            size = 256 << (blockSizeCode - 8);
+        } else {
+            throw new IOException("Reserved FLAC block size");
+        }
+
+        if (sampleRateCode == 12) {
+            readUint(8);
+        } else if (sampleRateCode == 13 || sampleRateCode == 14) {
+            readUint(16);
+        }
+
+        int depth = frameBitsPerSample(sampleSizeCode);
+        readUint(8); // CRC-8 de la cabecera
+
+        int frameChannels = channelAssignment < 8 ? channelAssignment + 1 : 2;
+        if (channelAssignment > 10) {
+            throw new IOException("Reserved FLAC channel assignment");
+        }
+        if (block.length != frameChannels || block[0].length < size) {
+            block = new int[frameChannels][Math.max(size, block.length > 0 ? block[0].length : 0)];
+        }
+
+        for (int channel = 0; channel < frameChannels; channel++) {
+            // El canal lateral (side) lleva un bit más
+            boolean side = (channelAssignment == 8 && channel == 1)
+                    || (channelAssignment == 9 && channel == 0)
+                    || (channelAssignment == 10 && channel == 1);
+            decodeSubframe(block[channel], size, depth + (side ? 1 : 0));
+        }
+        decorrelate(channelAssignment, size);
+
+        alignToByte();
+        readUint(16); // CRC-16 de la trama
+
+        blockSize = size;
+        blockPosition = 0;
+        blockBitsPerSample = depth;
+        return true;
+    }
+
+    private int frameBitsPerSample(int code) throws IOException {
+        switch (code) {
+            case 0: return bitsPerSample;
+            case 1: return 8;
+            case 2: return 12;
+            case 4: return 16;
+            case 5: return 20;
+            case 6: return 24;
+            default: throw new IOException("Unsupported FLAC sample size code: " + code);
+        }
+    }
+
+    private void decodeSubframe(int[] samples, int size, int depth) throws IOException {
+        readUint(1); // relleno
+        int type = readUint(6);
+        int wasted = 0;
+        if (readUint(1) == 1) {
+            wasted = 1;
+            while (readUint(1) == 0) {
+                wasted++;
+            }
+        }
+        depth -= wasted;
+
+        if (type == 0) {
+            int value = readSigned(depth);
+            for (int i = 0; i < size; i++) {
+                samples[i] = value;
+            }
+        } else if (type == 1) {
+            for (int i = 0; i < size; i++) {
+                samples[i] = readSigned(depth);
+            }
+        } else if (type >= 8 && type <= 12) {
+            int order = type - 8;
+            for (int i = 0; i < order; i++) {
+                samples[i] = readSigned(depth);
+            }
+            readResidual(samples, size, order);
+            predict(samples, size, FIXED_COEFFICIENTS[order], 0);
+        } else if (type >= 32) {
+            int order = type - 31;
+            for (int i = 0; i < order; i++) {
+                samples[i] = readSigned(depth);
+            }
+            int precision = readUint(4) + 1;
+            if (precision == 16) {
+                throw new IOException("Invalid FLAC LPC precision");
+            }
+            int shift = readSigned(5);
+            if (shift < 0) {
+                throw new IOException("Invalid FLAC LPC shift");
+            }
+            int[] coefficients = new int[order];
+            for (int i = 0; i < order; i++) {
+                coefficients[i] = readSigned(precision);
+            }
+            readResidual(samples, size, order);
+            predict(samples, size, coefficients, shift);
+        } else {
+            throw new IOException("Reserved FLAC subframe type: " + type);
+        }
+
+        if (wasted > 0) {
+            for (int i = 0; i < size; i++) {
+                samples[i] <<= wasted;
+            }
+        }
+    }
+
+    // Residuo codificado con Rice, dividido en particiones
+    private void readResidual(int[] samples, int size, int order) throws IOException {
+        int method = readUint(2);
+        if (method > 1) {
+            throw new IOException("Reserved FLAC residual coding method");
+        }
+        int parameterBits = method == 0 ? 4 : 5;
+        int escape = method == 0 ? 0xF : 0x1F;
+
+        int partitionOrder = readUint(4);
+        int partitions = 1 << partitionOrder;
+        int partitionSize = size >>> partitionOrder;
+
+        int position = order;
+        for (int partition = 0; partition < partitions; partition++) {
+            int count = partitionSize - (partition == 0 ? order : 0);
+            int parameter = readUint(parameterBits);
+
+            if (parameter == escape) {
+                int bits = readUint(5);
+                for (int i = 0; i < count; i++) {
+                    samples[position++] = readSigned(bits);
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    samples[position++] = readRice(parameter);
+                }
+            }
+        }
+    }
+
+    private void predict(int[] samples, int size, int[] coefficients, int shift) {
+        int order = coefficients.length;
+        for (int i = order; i < size; i++) {
+            long sum = 0;
+            for (int j = 0; j < order; j++) {
+                sum += (long) coefficients[j] * samples[i - 1 - j];
+            }
+            samples[i] += (int) (sum >> shift);
+        }
+    }
+
+    private void decorrelate(int channelAssignment, int size) {
+        int[] left = block[0];
+        int[] right = block.length > 1 ? block[1] : null;
+
+        if (channelAssignment == 8) {
+            // izquierda / lateral
+            for (int i = 0; i < size; i++) {
+                right[i] = left[i] - right[i];
+            }
+        } else if (channelAssignment == 9) {
+            // lateral / derecha
+            for (int i = 0; i < size; i++) {
+                left[i] += right[i];
+            }
+        } else if (channelAssignment == 10) {
+            // medio / lateral
+            for (int i = 0; i < size; i++) {
+                int side = right[i];
+                int mid = (left[i] << 1) | (side & 1);
+                left[i] = (mid + side) >> 1;
+                right[i] = (mid - side) >> 1;
+            }
+        }
+    }
+
+    // Número de trama/muestra en codificación tipo UTF-8 (no se usa)
+    private void skipCodedNumber() throws IOException {
+        int first = readUint(8);
+        int leadingOnes = Integer.numberOfLeadingZeros(~first & 0xFF) - 24;
+        for (int i = 1; i < leadingOnes; i++) {
+            readUint(8);
+        }
+    }
+
+    // Lectura de bits
+
+    private int readUint(int bits) throws IOException {
+        if (bits == 0) {
+            return 0;
+        }
+        while (bitBufferLength < bits) {
+            int next = in.read();
+            if (next == -1) {
+                throw new EOFException("Unexpected end of FLAC stream");
+            }
+            bitBuffer = (bitBuffer << 8) | next;
+            bitBufferLength += 8;
+        }
+        bitBufferLength -= bits;
+        int value = (int) (bitBuffer >>> bitBufferLength);
+        return bits < 32 ? value & ((1 << bits) - 1) : value;
+    }
+
+    private int readSigned(int bits) throws IOException {
+        if (bits == 0) {
+            return 0;
+        }
+        int shift = 32 - bits;
+        return (readUint(bits) << shift) >> shift;
+    }
+
+    private int readRice(int parameter) throws IOException {
+        // Parte unaria: se cuentan los ceros de todos los bits disponibles de una vez
+        int quotient = 0;
+        while (true) {
+            if (bitBufferLength == 0) {
+                int next = in.read();
+                if (next == -1) {
+                    throw new EOFException("Unexpected end of FLAC stream");
+                }
+                bitBuffer = next;
+                bitBufferLength = 8;
+            }
+            int available = (int) (bitBuffer & ((1L << bitBufferLength) - 1));
+            if (available == 0) {
+                quotient += bitBufferLength;
+                bitBufferLength = 0;
+            } else {
+                int zeros = Integer.numberOfLeadingZeros(available) - (32 - bitBufferLength);
+                quotient += zeros;
+                bitBufferLength -= zeros + 1;
+                break;
+            }
+        }
+        int value = (quotient << parameter) | readUint(parameter);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private void alignToByte() {
+        bitBufferLength -= bitBufferLength % 8;
+    }
+
+    private void skipBytes(int count) throws IOException {
+        alignToByte();
+        while (count > 0 && bitBufferLength >= 8) {
+            bitBufferLength -= 8;
+            count--;
+        }
+        in.skipNBytes(count);
+    }
+}
@@ -0,0 +1,26 @@
+package com.uv.backend.audio;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Lectura secuencial de audio decodificado, mezclado a mono y normalizado a [-1, 1]
+ */
+public interface PcmReader extends Closeable {
+
+    int getSampleRate();
+
+    int getChannels();
+
+    int getBitsPerSample();
+
+    /**
+     * Número total de muestras por canal, o -1 si el contenedor no lo indica
+     */
+    long getTotalFrames();
+
+    /**
+     * Lee hasta buffer.length muestras; retorna -1 al llegar al final
+     */
+    int read(float[] buffer) throws IOException;
+}
@@ -0,0 +1,115 @@
+package com.uv.backend.audio;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * PCM entero o flotante leído con javax.sound (WAV, AIFF, AU)
+ */
+class SampledPcmReader implements PcmReader {
+
+    private final AudioInputStream stream;
+    private final AudioFormat format;
+    private final int bytesPerSample;
+    private final int channels;
+    private final boolean floatingPoint;
+    private final boolean signed;
+    private final double scale;
+    private byte[] bytes = new byte[0];
+
+    SampledPcmReader(InputStream in) throws IOException, UnsupportedAudioFileException {
+        this.stream = AudioSystem.getAudioInputStream(in);
+        this.format = stream.getFormat();
+
+        AudioFormat.Encoding encoding = format.getEncoding();
+        this.floatingPoint = AudioFormat.Encoding.PCM_FLOAT.equals(encoding);
+        this.signed = AudioFormat.Encoding.PCM_SIGNED.equals(encoding);
+        if (!floatingPoint && !signed && !AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding)) {
+            stream.close();
+            throw new UnsupportedAudioFileException("Unsupported audio encoding: " + encoding);
+        }
+
+        this.bytesPerSample = (format.getSampleSizeInBits() + 7) / 8;
+        this.channels = format.getChannels();
+        if (bytesPerSample < 1 || bytesPerSample > 4 || channels < 1
+                || (floatingPoint && bytesPerSample != 4)) {
+            stream.close();
+            throw new UnsupportedAudioFileException("Unsupported sample format: " + format);
+        }
+        this.scale = 1.0 / (1L << (bytesPerSample * 8 - 1));
+    }
+
+    @Override
+    public int getSampleRate() {
+        return (int) format.getSampleRate();
+    }
+
+    @Override
+    public int getChannels() {
+        return channels;
+    }
+
+    @Override
+    public int getBitsPerSample() {
+        return format.getSampleSizeInBits();
+    }
+
+    @Override
+    public long getTotalFrames() {
+        long frames = stream.getFrameLength();
+        return frames == AudioSystem.NOT_SPECIFIED ? -1 : frames;
+    }
+
+    @Override
+    public int read(float[] buffer) throws IOException {
+        int frameSize = bytesPerSample * channels;
+        int wanted = buffer.length * frameSize;
+        if (bytes.length < wanted) {
+            bytes = new byte[wanted];
+        }
+
+        int read = stream.readNBytes(bytes, 0, wanted);
+        int frames = read / frameSize;
+        if (frames == 0) {
+            return -1;
+        }
+
+        for (int frame = 0; frame < frames; frame++) {
+            double sum = 0;
+            int offset = frame * frameSize;
+            for (int channel = 0; channel < channels; channel++) {
+                sum += sample(offset + channel * bytesPerSample);
+            }
+            buffer[frame] = (float) (sum / channels);
+        }
+        return frames;
+    }
+
+    // Muestra en la posición indicada, normalizada a [-1, 1]
+    private double sample(int offset) {
+        int value = 0;
+        for (int i = 0; i < bytesPerSample; i++) {
+            int b = bytes[offset + (format.isBigEndian() ? i : bytesPerSample - 1 - i)] & 0xFF;
+            value = (value << 8) | b;
+        }
+
+        if (floatingPoint) {
+            return Float.intBitsToFloat(value);
+        }
+        int shift = 32 - bytesPerSample * 8;
+        if (signed) {
+            // Extender el signo
+            return ((value << shift) >> shift) * scale;
+        }
+        return (value - (1L << (bytesPerSample * 8 - 1))) * scale;
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+}
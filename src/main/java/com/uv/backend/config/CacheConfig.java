@@ -0,0 +1,107 @@
+package com.uv.backend.config;
+
+import org.ehcache.config.CacheConfiguration;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Regiones de la caché de segundo nivel de Hibernate (JCache sobre Ehcache, solo en heap).
+ *
+ * Cada región tiene un máximo de entradas y un TTL configurables en app.cache.*. El TTL acota
+ * lo que puede durar un valor obsoleto si alguna escritura se salta el desalojo.
+ */
+@Configuration
+public class CacheConfig {
+
+    // Regiones declaradas en las entidades con @Cache(region = ...)
+    public static final String USERS_REGION = "users";
+    public static final String TRACKS_REGION = "tracks";
+    public static final String TRACK_TAGS_REGION = "track_tags";
+    public static final String PLAYLISTS_REGION = "playlists";
+
+    public static final String QUERY_RESULTS_REGION = RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME;
+    public static final String UPDATE_TIMESTAMPS_REGION = RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME;
+
+    // Una entrada por tabla o query space
+    private static final long UPDATE_TIMESTAMPS_MAX_ENTRIES = 1000;
+
+    @Value("${app.cache.users.max-entries:20000}")
+    private long usersMaxEntries;
+
+    @Value("${app.cache.users.ttl-minutes:30}")
+    private long usersTtlMinutes;
+
+    @Value("${app.cache.tracks.max-entries:50000}")
+    private long tracksMaxEntries;
+
+    @Value("${app.cache.tracks.ttl-minutes:30}")
+    private long tracksTtlMinutes;
+
+    @Value("${app.cache.track-tags.max-entries:50000}")
+    private long trackTagsMaxEntries;
+
+    @Value("${app.cache.track-tags.ttl-minutes:30}")
+    private long trackTagsTtlMinutes;
+
+    @Value("${app.cache.playlists.max-entries:10000}")
+    private long playlistsMaxEntries;
+
+    @Value("${app.cache.playlists.ttl-minutes:30}")
+    private long playlistsTtlMinutes;
+
+    @Value("${app.cache.query-results.max-entries:10000}")
+    private long queryResultsMaxEntries;
+
+    @Value("${app.cache.query-results.ttl-minutes:10}")
+    private long queryResultsTtlMinutes;
+
+    // Hibernate cierra el CacheManager al cerrar la SessionFactory
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer() {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, createCacheManager());
+    }
+
+    private CacheManager createCacheManager() {
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(
+                EhcacheCachingProvider.class.getName());
+
+        org.ehcache.config.Configuration configuration = ConfigurationBuilder.newConfigurationBuilder()
+                .withCache(USERS_REGION, region(usersMaxEntries, usersTtlMinutes))
+                .withCache(TRACKS_REGION, region(tracksMaxEntries, tracksTtlMinutes))
+                .withCache(TRACK_TAGS_REGION, region(trackTagsMaxEntries, trackTagsTtlMinutes))
+                .withCache(PLAYLISTS_REGION, region(playlistsMaxEntries, playlistsTtlMinutes))
+                .withCache(QUERY_RESULTS_REGION, region(queryResultsMaxEntries, queryResultsTtlMinutes))
+                // Sin expiración: perder la marca de una tabla haría pasar por válidas consultas obsoletas
+                .withCache(UPDATE_TIMESTAMPS_REGION, CacheConfigurationBuilder
+                        .newCacheConfigurationBuilder(Object.class, Object.class,
+                                ResourcePoolsBuilder.heap(UPDATE_TIMESTAMPS_MAX_ENTRIES))
+                        .withExpiry(ExpiryPolicyBuilder.noExpiration())
+                        .build())
+                .build();
+
+        // URI propia por contexto: el proveedor reutiliza los CacheManager con la misma URI
+        return provider.getCacheManager(URI.create("urn:uv-backend:l2:" + UUID.randomUUID()), configuration);
+    }
+
+    private CacheConfiguration<Object, Object> region(long maxEntries, long ttlMinutes) {
+        return CacheConfigurationBuilder
+                .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(maxEntries))
+                .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofMinutes(ttlMinutes)))
+                .build();
+    }
+}
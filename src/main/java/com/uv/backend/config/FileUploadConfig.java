@@ -1,5 +1,6 @@
 package com.uv.backend.config;
 
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -8,6 +9,8 @@ import org.springframework.web.multipart.support.StandardServletMultipartResolve
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.Set;
+
 @Configuration
 public class FileUploadConfig implements WebMvcConfigurer {
 
@@ -26,13 +29,32 @@ public class FileUploadConfig implements WebMvcConfigurer {
     @Value("${app.upload.waveforms.dir:./uploads/waveforms}")
     private String waveformUploadDir;
 
+    @Value("${app.storage.type:local}")
+    private String storageType;
+
+    // Endpoints cuyo cuerpo multipart se lee en streaming desde StreamingUploadService
+    private static final Set<String> STREAMING_UPLOAD_PATHS = Set.of(
+            "/api/files/upload/audio", "/api/tracks/upload"
+    );
+
     @Bean
     public MultipartResolver multipartResolver() {
-        return new StandardServletMultipartResolver();
+        return new StandardServletMultipartResolver() {
+            @Override
+            public boolean isMultipart(HttpServletRequest request) {
+                String path = request.getRequestURI().substring(request.getContextPath().length());
+                return !STREAMING_UPLOAD_PATHS.contains(path) && super.isMultipart(request);
+            }
+        };
     }
 
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        // Con almacenamiento remoto estas rutas las atiende StorageRedirectController
+        if (!"local".equalsIgnoreCase(storageType.trim())) {
+            return;
+        }
+
         // General uploads
         registry.addResourceHandler("/uploads/**")
                 .addResourceLocations("file:" + uploadDir + "/");
@@ -0,0 +1,78 @@
+package com.uv.backend.config;
+
+import com.uv.backend.service.BlobStorageService;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Tamaños fijos de las versiones reducidas de imágenes (avatares, portadas, imágenes de posts).
+ *
+ * Las versiones se sirven en /images/derived/&lt;preset&gt;/&lt;hash&gt;[.&lt;formato&gt;] y solo existen para
+ * imágenes subidas (direccionadas por hash); las URLs externas no tienen derivados.
+ */
+public enum ImagePreset {
+
+    AVATAR_SMALL("avatar-sm", 48, true),
+    AVATAR("avatar", 128, true),
+    THUMBNAIL("thumb", 320, false),
+    MEDIUM("medium", 800, false),
+    LARGE("large", 1600, false);
+
+    public static final String URL_PREFIX = "/images/derived/";
+
+    private final String name;
+    private final int size;
+    private final boolean square;
+
+    ImagePreset(String name, int size, boolean square) {
+        this.name = name;
+        this.size = size;
+        this.square = square;
+    }
+
+    // Nombre en la URL
+    public String getName() { return name; }
+
+    // Lado máximo en píxeles (lado exacto si es cuadrado)
+    public int getSize() { return size; }
+
+    // Recorte centrado a cuadrado (avatares) o ajuste sin recortar
+    public boolean isSquare() { return square; }
+
+    public static ImagePreset fromName(String name) {
+        for (ImagePreset preset : values()) {
+            if (preset.name.equals(name.toLowerCase(Locale.ROOT))) {
+                return preset;
+            }
+        }
+        throw new IllegalArgumentException("Unknown image preset: " + name);
+    }
+
+    /**
+     * URL de la versión reducida; el formato se negocia con Accept
+     */
+    public String urlFor(String contentHash) {
+        return URL_PREFIX + name + "/" + contentHash;
+    }
+
+    /**
+     * URLs de todas las versiones de una imagen subida, o null si la imagen es externa
+     */
+    public static Map<String, String> derivativeUrls(String imageUrl) {
+        if (imageUrl == null || !imageUrl.startsWith("/images/")) {
+            return null;
+        }
+        String contentHash = BlobStorageService.hashFromUrl(imageUrl);
+        if (contentHash == null) {
+            return null;
+        }
+
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (ImagePreset preset : values()) {
+            urls.put(preset.name, preset.urlFor(contentHash));
+        }
+        return urls;
+    }
+}
@@ -4,6 +4,7 @@ import org.springframework.context.annotation.Configuration;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 @Configuration
 public class MediaTypeConfig {
@@ -43,6 +44,19 @@ public class MediaTypeConfig {
             ".mp4", ".avi", ".mov", ".wmv", ".flv", ".webm", ".mkv", ".m4v"
     );
 
+    // Content-Type por extensión de audio (evita Files.probeContentType en cada petición)
+    public static final Map<String, String> AUDIO_CONTENT_TYPES_BY_EXTENSION = Map.of(
+            ".mp3", "audio/mpeg",
+            ".wav", "audio/wav",
+            ".flac", "audio/flac",
+            ".aac", "audio/aac",
+            ".ogg", "audio/ogg",
+            ".wma", "audio/x-ms-wma",
+            ".m4a", "audio/mp4"
+    );
+
+    public static final String DEFAULT_AUDIO_CONTENT_TYPE = "audio/mpeg";
+
     // Métodos de validación
     public static boolean isValidImageType(String contentType) {
         return ALLOWED_IMAGE_TYPES.contains(contentType.toLowerCase());
@@ -82,4 +96,12 @@ public class MediaTypeConfig {
     public static boolean isValidVideoSize(long fileSize) {
         return fileSize <= MAX_VIDEO_SIZE;
     }
+
+    public static String getAudioContentType(String filename) {
+        if (filename == null || filename.lastIndexOf('.') == -1) {
+            return DEFAULT_AUDIO_CONTENT_TYPE;
+        }
+        String extension = filename.substring(filename.lastIndexOf('.')).toLowerCase();
+        return AUDIO_CONTENT_TYPES_BY_EXTENSION.getOrDefault(extension, DEFAULT_AUDIO_CONTENT_TYPE);
+    }
 }
\ No newline at end of file
@@ -107,6 +107,10 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.DELETE, "/api/media/**").authenticated()
                         .requestMatchers(HttpMethod.DELETE, "/api/files/**").authenticated()
 
+                        // Administración
+                        .requestMatchers(HttpMethod.PUT, "/api/users/*/enabled").hasRole("ADMIN")
+                        .requestMatchers("/api/cache/**").hasRole("ADMIN")
+
                         // Protected endpoints
                         .requestMatchers("/api/tracks/**").authenticated()
                         .requestMatchers("/api/users/**").authenticated()
@@ -0,0 +1,86 @@
+package com.uv.backend.config;
+
+import com.uv.backend.storage.LocalStorageBackend;
+import com.uv.backend.storage.S3StorageBackend;
+import com.uv.backend.storage.StorageBackend;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Selección del backend de almacenamiento (app.storage.type = local | s3)
+ */
+@Configuration
+public class StorageConfig {
+
+    @Value("${app.storage.type:local}")
+    private String storageType;
+
+    @Value("${app.upload.dir:./uploads}")
+    private String uploadDir;
+
+    @Value("${app.upload.audio.dir:./uploads/audio}")
+    private String audioUploadDir;
+
+    @Value("${app.upload.images.dir:./uploads/images}")
+    private String imageUploadDir;
+
+    @Value("${app.upload.videos.dir:./uploads/videos}")
+    private String videoUploadDir;
+
+    @Value("${app.upload.waveforms.dir:./uploads/waveforms}")
+    private String waveformUploadDir;
+
+    @Value("${app.storage.s3.endpoint:}")
+    private String s3Endpoint;
+
+    @Value("${app.storage.s3.public-endpoint:}")
+    private String s3PublicEndpoint;
+
+    @Value("${app.storage.s3.region:us-east-1}")
+    private String s3Region;
+
+    @Value("${app.storage.s3.bucket:}")
+    private String s3Bucket;
+
+    @Value("${app.storage.s3.access-key:}")
+    private String s3AccessKey;
+
+    @Value("${app.storage.s3.secret-key:}")
+    private String s3SecretKey;
+
+    @Value("${app.storage.s3.path-style:true}")
+    private boolean s3PathStyle;
+
+    @Value("${app.storage.s3.request-timeout-seconds:60}")
+    private long s3RequestTimeoutSeconds;
+
+    @Bean
+    public StorageBackend storageBackend() {
+        switch (storageType.trim().toLowerCase()) {
+            case "local":
+                return new LocalStorageBackend(Map.of(
+                        "audio", Paths.get(audioUploadDir),
+                        "images", Paths.get(imageUploadDir),
+                        "videos", Paths.get(videoUploadDir),
+                        "waveforms", Paths.get(waveformUploadDir)
+                ), Paths.get(uploadDir));
+            case "s3":
+                if (s3Endpoint.isBlank() || s3Bucket.isBlank()) {
+                    throw new IllegalStateException("app.storage.s3.endpoint and app.storage.s3.bucket are required for S3 storage");
+                }
+                return new S3StorageBackend(
+                        URI.create(s3Endpoint),
+                        s3PublicEndpoint.isBlank() ? null : URI.create(s3PublicEndpoint),
+                        s3Region, s3Bucket, s3AccessKey, s3SecretKey, s3PathStyle,
+                        Duration.ofSeconds(s3RequestTimeoutSeconds));
+            default:
+                throw new IllegalStateException("Unsupported storage type: " + storageType);
+        }
+    }
+}
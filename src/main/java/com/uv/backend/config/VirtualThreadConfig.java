@@ -0,0 +1,45 @@
+package com.uv.backend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Modo de hilos virtuales (spring.threads.virtual.enabled=true sobre Java 21 o superior).
+ *
+ * Spring Boot ya ejecuta en hilos virtuales las peticiones de Tomcat, el applicationTaskExecutor
+ * (@Async y respuestas asíncronas de MVC) y las tareas programadas, así que la E/S de
+ * FileStorageService y del streaming de audio no ocupa hilos de plataforma. Lo que deja de estar
+ * acotado es cuántas peticiones piden conexión a la vez: el DataSource se envuelve en un
+ * ConnectionLimitingDataSource del tamaño del pool de Hikari.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    @Bean
+    public static BeanPostProcessor connectionLimitingDataSourcePostProcessor(
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int maxConnections,
+            @Value("${spring.datasource.hikari.connection-timeout:30000}") long timeoutMs) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConnectionLimitingDataSource)) {
+                    logger.info("Virtual threads enabled: limiting DataSource '{}' to {} concurrent connections",
+                            beanName, maxConnections);
+                    return new ConnectionLimitingDataSource(dataSource, maxConnections, timeoutMs);
+                }
+                return bean;
+            }
+        };
+    }
+}
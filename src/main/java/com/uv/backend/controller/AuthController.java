@@ -7,7 +7,11 @@ import com.uv.backend.dto.response.ApiResponse;
 import com.uv.backend.dto.response.AuthResponse;
 import com.uv.backend.entity.User;
 import com.uv.backend.repository.UserRepository;
+import com.uv.backend.security.AuthenticatedUser;
 import com.uv.backend.security.JwtTokenProvider;
+import com.uv.backend.service.SearchIndexService;
+import com.uv.backend.service.SuggestionService;
+import io.jsonwebtoken.Claims;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -19,6 +23,8 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
+
 @RestController
 @RequestMapping("/api/auth")
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -36,6 +42,12 @@ public class AuthController {
     @Autowired
     private JwtTokenProvider tokenProvider;
 
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private SuggestionService suggestionService;
+
     @PostMapping("/login")
     public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
         try {
@@ -87,6 +99,8 @@ public class AuthController {
             );
 
             User savedUser = userRepository.save(user);
+            searchIndexService.indexUser(savedUser.getId(), false);
+            suggestionService.indexUser(savedUser);
 
             // Autenticar automáticamente después del registro
             Authentication authentication = authenticationManager.authenticate(
@@ -120,11 +134,18 @@ public class AuthController {
                 refreshToken = refreshToken.substring(7);
             }
 
-            if (tokenProvider.validateToken(refreshToken)) {
-                String username = tokenProvider.getUsernameFromToken(refreshToken);
-                User user = userRepository.findByUsername(username)
+            // Un solo parseo: validación y subject salen de los mismos claims
+            Claims claims = tokenProvider.parseValidClaims(refreshToken);
+            if (claims != null) {
+                User user = userRepository.findByUsername(claims.getSubject())
                         .orElseThrow(() -> new RuntimeException("User not found"));
 
+                // Igual que en el filtro: ni cuentas deshabilitadas ni tokens emitidos antes de invalidarlos
+                if (!user.isEnabled() || isIssuedBefore(claims, user.getTokensInvalidBefore())) {
+                    return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                            .body(ApiResponse.error("Invalid refresh token"));
+                }
+
                 // Crear nueva autenticación
                 Authentication authentication = new UsernamePasswordAuthenticationToken(
                         user, null, user.getAuthorities());
@@ -146,6 +167,12 @@ public class AuthController {
         }
     }
 
+    // Mismo criterio que UserDetailsServiceImpl.isInvalidatedSince (iat con precisión de segundos)
+    private static boolean isIssuedBefore(Claims claims, Instant invalidBefore) {
+        return invalidBefore != null
+                && (claims.getIssuedAt() == null || claims.getIssuedAt().getTime() <= invalidBefore.toEpochMilli());
+    }
+
     @PostMapping("/logout")
     public ResponseEntity<?> logoutUser() {
         // En una implementación real, aquí invalidarías el token en una blacklist
@@ -157,7 +184,10 @@ public class AuthController {
     public ResponseEntity<?> getCurrentUser(Authentication authentication) {
         try {
             if (authentication != null && authentication.isAuthenticated()) {
-                User user = (User) authentication.getPrincipal();
+                // El principal solo lleva los claims del token: el perfil completo se carga por id
+                AuthenticatedUser principal = (AuthenticatedUser) authentication.getPrincipal();
+                User user = userRepository.findById(principal.getId())
+                        .orElseThrow(() -> new RuntimeException("User not found"));
                 UserDto userDto = new UserDto(user);
                 return ResponseEntity.ok(ApiResponse.success(userDto));
             } else {
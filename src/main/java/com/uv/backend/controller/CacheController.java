@@ -0,0 +1,37 @@
+package com.uv.backend.controller;
+
+import com.uv.backend.dto.response.ApiResponse;
+import com.uv.backend.service.CacheStatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/cache")
+@CrossOrigin(origins = "*")
+public class CacheController {
+
+    @Autowired
+    private CacheStatsService cacheStatsService;
+
+    /**
+     * Aciertos y fallos de la caché de segundo nivel por región (solo administradores, ver SecurityConfig)
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<?> getCacheStats() {
+        try {
+            if (!cacheStatsService.isEnabled()) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .body(ApiResponse.error("Cache statistics are disabled (app.cache.stats.enabled)"));
+            }
+            return ResponseEntity.ok(ApiResponse.success(cacheStatsService.getStats()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Error getting cache stats: " + e.getMessage()));
+        }
+    }
+}
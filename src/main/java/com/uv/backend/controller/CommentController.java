@@ -3,9 +3,10 @@ package com.uv.backend.controller;
 import com.uv.backend.dto.CommentDto;
 import com.uv.backend.dto.request.CommentRequest;
 import com.uv.backend.dto.response.ApiResponse;
+import com.uv.backend.dto.response.KeysetCursor;
 import com.uv.backend.dto.response.PaginatedResponse;
 import com.uv.backend.entity.Comment;
-import com.uv.backend.entity.User;
+import com.uv.backend.security.AuthenticatedUser;
 import com.uv.backend.service.CommentService;
 import com.uv.backend.service.LikeService;
 import jakarta.validation.Valid;
@@ -13,12 +14,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -38,8 +41,8 @@ public class CommentController {
             @Valid @RequestBody CommentRequest commentRequest,
             Authentication authentication) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
-            Comment comment = commentService.createTrackComment(trackId, commentRequest, currentUser);
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+            Comment comment = commentService.createTrackComment(trackId, commentRequest, currentUser.getId());
             CommentDto commentDto = new CommentDto(comment);
             
             return ResponseEntity.status(HttpStatus.CREATED)
@@ -56,8 +59,8 @@ public class CommentController {
             @Valid @RequestBody CommentRequest commentRequest,
             Authentication authentication) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
-            Comment comment = commentService.createPostComment(postId, commentRequest, currentUser);
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+            Comment comment = commentService.createPostComment(postId, commentRequest, currentUser.getId());
             CommentDto commentDto = new CommentDto(comment);
             
             return ResponseEntity.status(HttpStatus.CREATED)
@@ -74,8 +77,8 @@ public class CommentController {
             @Valid @RequestBody CommentRequest commentRequest,
             Authentication authentication) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
-            Comment reply = commentService.createReply(parentId, commentRequest, currentUser);
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+            Comment reply = commentService.createReply(parentId, commentRequest, currentUser.getId());
             CommentDto commentDto = new CommentDto(reply);
             
             return ResponseEntity.status(HttpStatus.CREATED)
@@ -91,28 +94,28 @@ public class CommentController {
             @PathVariable Long trackId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
             Authentication authentication) {
         try {
+            if (cursor != null) {
+                Long currentUserId = authentication != null ? ((AuthenticatedUser) authentication.getPrincipal()).getId() : null;
+                Slice<Comment> commentSlice = commentService.getTrackComments(trackId, KeysetCursor.descending(cursor), size);
+                return ResponseEntity.ok(ApiResponse.success(toCursorResponse(commentSlice, cursor, size, currentUserId)));
+            }
+
             Pageable pageable = PageRequest.of(page, size);
             Page<Comment> commentPage = commentService.getTrackComments(trackId, pageable);
             
-            User currentUser = authentication != null ? (User) authentication.getPrincipal() : null;
-            List<CommentDto> commentDtos = commentPage.getContent().stream()
-                    .map(comment -> {
-                        CommentDto dto = new CommentDto(comment);
-                        if (currentUser != null) {
-                            boolean isLiked = likeService.isCommentLikedByUser(comment.getId(), currentUser.getId());
-                            dto.setIsLiked(isLiked);
-                        }
-                        return dto;
-                    })
-                    .collect(Collectors.toList());
+            Long currentUserId = authentication != null ? ((AuthenticatedUser) authentication.getPrincipal()).getId() : null;
+            List<CommentDto> commentDtos = toCommentDtos(commentPage.getContent(), currentUserId);
 
             PaginatedResponse<CommentDto> response = new PaginatedResponse<>(
                     commentDtos, commentPage.getTotalElements(), page, size,
                     commentPage.hasNext(), commentPage.hasPrevious());
 
             return ResponseEntity.ok(ApiResponse.success(response));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Error getting track comments: " + e.getMessage()));
@@ -124,28 +127,28 @@ public class CommentController {
             @PathVariable Long postId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
             Authentication authentication) {
         try {
+            if (cursor != null) {
+                Long currentUserId = authentication != null ? ((AuthenticatedUser) authentication.getPrincipal()).getId() : null;
+                Slice<Comment> commentSlice = commentService.getPostComments(postId, KeysetCursor.descending(cursor), size);
+                return ResponseEntity.ok(ApiResponse.success(toCursorResponse(commentSlice, cursor, size, currentUserId)));
+            }
+
             Pageable pageable = PageRequest.of(page, size);
             Page<Comment> commentPage = commentService.getPostComments(postId, pageable);
             
-            User currentUser = authentication != null ? (User) authentication.getPrincipal() : null;
-            List<CommentDto> commentDtos = commentPage.getContent().stream()
-                    .map(comment -> {
-                        CommentDto dto = new CommentDto(comment);
-                        if (currentUser != null) {
-                            boolean isLiked = likeService.isCommentLikedByUser(comment.getId(), currentUser.getId());
-                            dto.setIsLiked(isLiked);
-                        }
-                        return dto;
-                    })
-                    .collect(Collectors.toList());
+            Long currentUserId = authentication != null ? ((AuthenticatedUser) authentication.getPrincipal()).getId() : null;
+            List<CommentDto> commentDtos = toCommentDtos(commentPage.getContent(), currentUserId);
 
             PaginatedResponse<CommentDto> response = new PaginatedResponse<>(
                     commentDtos, commentPage.getTotalElements(), page, size,
                     commentPage.hasNext(), commentPage.hasPrevious());
 
             return ResponseEntity.ok(ApiResponse.success(response));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Error getting post comments: " + e.getMessage()));
@@ -157,28 +160,28 @@ public class CommentController {
             @PathVariable Long id,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor,
             Authentication authentication) {
         try {
+            if (cursor != null) {
+                Long currentUserId = authentication != null ? ((AuthenticatedUser) authentication.getPrincipal()).getId() : null;
+                Slice<Comment> commentSlice = commentService.getCommentReplies(id, KeysetCursor.ascending(cursor), size);
+                return ResponseEntity.ok(ApiResponse.success(toCursorResponse(commentSlice, cursor, size, currentUserId)));
+            }
+
             Pageable pageable = PageRequest.of(page, size);
             Page<Comment> repliesPage = commentService.getCommentReplies(id, pageable);
             
-            User currentUser = authentication != null ? (User) authentication.getPrincipal() : null;
-            List<CommentDto> commentDtos = repliesPage.getContent().stream()
-                    .map(comment -> {
-                        CommentDto dto = new CommentDto(comment);
-                        if (currentUser != null) {
-                            boolean isLiked = likeService.isCommentLikedByUser(comment.getId(), currentUser.getId());
-                            dto.setIsLiked(isLiked);
-                        }
-                        return dto;
-                    })
-                    .collect(Collectors.toList());
+            Long currentUserId = authentication != null ? ((AuthenticatedUser) authentication.getPrincipal()).getId() : null;
+            List<CommentDto> commentDtos = toCommentDtos(repliesPage.getContent(), currentUserId);
 
             PaginatedResponse<CommentDto> response = new PaginatedResponse<>(
                     commentDtos, repliesPage.getTotalElements(), page, size,
                     repliesPage.hasNext(), repliesPage.hasPrevious());
 
             return ResponseEntity.ok(ApiResponse.success(response));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Error getting comment replies: " + e.getMessage()));
@@ -188,7 +191,7 @@ public class CommentController {
     @PostMapping("/{id}/like")
     public ResponseEntity<?> likeComment(@PathVariable Long id, Authentication authentication) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
             boolean isLiked = likeService.toggleCommentLike(id, currentUser.getId());
             
             String message = isLiked ? "Comment liked successfully" : "Comment unliked successfully";
@@ -205,8 +208,8 @@ public class CommentController {
             @Valid @RequestBody CommentRequest commentRequest,
             Authentication authentication) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
-            Comment updatedComment = commentService.updateComment(id, commentRequest, currentUser);
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+            Comment updatedComment = commentService.updateComment(id, commentRequest, currentUser.getId());
             CommentDto commentDto = new CommentDto(updatedComment);
             
             return ResponseEntity.ok(ApiResponse.success(commentDto, "Comment updated successfully"));
@@ -222,8 +225,8 @@ public class CommentController {
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteComment(@PathVariable Long id, Authentication authentication) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
-            commentService.deleteComment(id, currentUser);
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+            commentService.deleteComment(id, currentUser.getId());
             
             return ResponseEntity.ok(ApiResponse.success(null, "Comment deleted successfully"));
         } catch (RuntimeException e) {
@@ -234,4 +237,25 @@ public class CommentController {
                     .body(ApiResponse.error("Error deleting comment: " + e.getMessage()));
         }
     }
+
+    // Convierte una página de comentarios resolviendo isLiked con una consulta por página
+    // Página por cursor: el siguiente cursor sale de la última fila de la página
+    private PaginatedResponse<CommentDto> toCursorResponse(Slice<Comment> slice, String cursor, int size, Long currentUserId) {
+        List<CommentDto> commentDtos = toCommentDtos(slice.getContent(), currentUserId);
+        return new PaginatedResponse<>(commentDtos, size,
+                KeysetCursor.next(slice, Comment::getCreatedAt, Comment::getId), !cursor.isBlank());
+    }
+
+    private List<CommentDto> toCommentDtos(List<Comment> comments, Long currentUserId) {
+        List<CommentDto> commentDtos = comments.stream()
+                .map(CommentDto::new)
+                .collect(Collectors.toList());
+
+        if (currentUserId != null && !comments.isEmpty()) {
+            List<Long> commentIds = comments.stream().map(Comment::getId).collect(Collectors.toList());
+            Set<Long> likedIds = likeService.getLikedCommentIds(currentUserId, commentIds);
+            commentDtos.forEach(dto -> dto.setIsLiked(likedIds.contains(dto.getId())));
+        }
+        return commentDtos;
+    }
 }
@@ -2,27 +2,25 @@ package com.uv.backend.controller;
 
 import com.uv.backend.dto.response.ApiResponse;
 import com.uv.backend.entity.MediaFile;
-import com.uv.backend.entity.MediaType;
-import com.uv.backend.entity.User;
+import com.uv.backend.exception.StorageQuotaExceededException;
+import com.uv.backend.security.AuthenticatedUser;
+import com.uv.backend.service.AudioStreamingService;
 import com.uv.backend.service.FileStorageService;
 import com.uv.backend.service.MediaFileService;
+import com.uv.backend.service.StreamingUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.InputStreamResource;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType as SpringMediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.net.URI;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/files")
@@ -35,22 +33,26 @@ public class FileController {
     @Autowired
     private MediaFileService mediaFileService;
 
-    @Value("${app.upload.audio.dir:./uploads/audio}")
-    private String audioUploadDir;
+    @Autowired
+    private AudioStreamingService audioStreamingService;
+
+    @Autowired
+    private StreamingUploadService streamingUploadService;
 
     /**
-     * Subir archivo de audio
+     * Subir archivo de audio (multipart procesado en streaming, sin archivo temporal)
      */
     @PostMapping("/upload/audio")
-    public ResponseEntity<?> uploadAudio(
-            @RequestParam("file") MultipartFile file,
-            @RequestParam(value = "description", required = false) String description,
-            Authentication authentication) {
+    public ResponseEntity<?> uploadAudio(HttpServletRequest request, Authentication authentication) {
 
         try {
-            User currentUser = (User) authentication.getPrincipal();
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+
+            StreamingUploadService.StreamedUpload upload =
+                    streamingUploadService.receiveAudio(request, "file", currentUser.getId());
 
-            MediaFile mediaFile = mediaFileService.uploadMediaFile(file, MediaType.AUDIO, currentUser);
+            MediaFile mediaFile = upload.getMediaFile();
+            String description = upload.getField("description");
             if (description != null) {
                 mediaFile.setDescription(description);
                 mediaFileService.saveMediaFile(mediaFile);
@@ -58,6 +60,9 @@ public class FileController {
 
             return ResponseEntity.status(HttpStatus.CREATED)
                     .body(ApiResponse.success(mediaFile, "Audio file uploaded successfully"));
+        } catch (StorageQuotaExceededException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Error uploading audio file: " + e.getMessage()));
@@ -65,52 +70,60 @@ public class FileController {
     }
 
     /**
-     * Streaming de archivo de audio
+     * Uso de almacenamiento y cuota del usuario actual
      */
-    @GetMapping("/stream/audio/{fileName}")
-    public ResponseEntity<Resource> streamAudio(@PathVariable String fileName) {
+    @GetMapping("/storage/stats")
+    public ResponseEntity<?> getStorageStats(Authentication authentication) {
         try {
-            Path filePath = Paths.get(audioUploadDir).resolve(fileName);
-
-            if (!Files.exists(filePath)) {
-                return ResponseEntity.notFound().build();
-            }
-
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (resource.exists() && resource.isReadable()) {
-                String contentType = Files.probeContentType(filePath);
-                if (contentType == null) {
-                    contentType = "audio/mpeg";
-                }
-
-                return ResponseEntity.ok()
-                        .contentType(SpringMediaType.parseMediaType(contentType))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileName + "\"")
-                        .header(HttpHeaders.CACHE_CONTROL, "public, max-age=3600")
-                        .header(HttpHeaders.ACCEPT_RANGES, "bytes")
-                        .body(resource);
-            } else {
-                return ResponseEntity.notFound().build();
-            }
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+            Map<String, Object> stats = mediaFileService.getStorageStats(currentUser.getId());
+            return ResponseEntity.ok(ApiResponse.success(stats));
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Error getting storage stats: " + e.getMessage()));
         }
     }
 
     /**
-     * Descargar archivo de audio
+     * Streaming de archivo de audio (soporta peticiones Range para seek)
+     */
+    @GetMapping("/stream/audio/{fileName}")
+    public void streamAudio(@PathVariable String fileName,
+                            HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        serveAudio(fileName, "inline; filename=\"" + fileName + "\"", request, response);
+    }
+
+    /**
+     * Descargar archivo de audio (soporta reanudación mediante Range)
      */
     @GetMapping("/download/audio/{fileName}")
-    public ResponseEntity<Resource> downloadAudio(@PathVariable String fileName) {
-        try {
-            Path filePath = Paths.get(audioUploadDir).resolve(fileName);
+    public void downloadAudio(@PathVariable String fileName,
+                              HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        serveAudio(fileName, "attachment; filename=\"" + fileName + "\"", request, response);
+    }
 
-            if (!Files.exists(filePath)) {
-                return ResponseEntity.notFound().build();
+    private void serveAudio(String fileName, String contentDisposition,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path filePath = audioStreamingService.resolveAudioFile(fileName);
+        if (filePath == null) {
+            // Almacenamiento remoto: el audio se descarga directamente desde allí
+            Optional<URI> presigned = audioStreamingService.presignAudio(fileName, contentDisposition);
+            if (presigned.isPresent()) {
+                response.sendRedirect(presigned.get().toString());
+            } else {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
             }
+            return;
+        }
 
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (resource.exists() && resource.isReadable()) {
-                String contentType = Files.probeContentType(filePath);
\ No newline at end of file
+        try {
+            audioStreamingService.streamAudio(filePath, contentDisposition, request, response);
+        } catch (IOException e) {
+            if (!response.isCommitted()) {
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+        }
+    }
+}
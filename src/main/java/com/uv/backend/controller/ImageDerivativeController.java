@@ -0,0 +1,114 @@
+package com.uv.backend.controller;
+
+import com.uv.backend.config.ImagePreset;
+import com.uv.backend.exception.ResourceNotFoundException;
+import com.uv.backend.service.ImageDerivativeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Versiones reducidas de imágenes subidas: /images/derived/&lt;preset&gt;/&lt;hash&gt;[.&lt;formato&gt;].
+ *
+ * Sin extensión el formato se negocia con Accept (WebP si está disponible, si no JPEG). El
+ * contenido de una URL no cambia nunca, así que se sirve con caché larga e inmutable y un ETag
+ * fuerte; If-None-Match responde 304 sin tocar la caché en disco, una vez comprobado que la
+ * imagen existe y el formato está disponible. Tiene prioridad sobre el manejador de recursos y
+ * la redirección a S3 de /images/**.
+ */
+@RestController
+@CrossOrigin(origins = "*")
+public class ImageDerivativeController {
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    @GetMapping(ImagePreset.URL_PREFIX + "{preset}/{file}")
+    public ResponseEntity<byte[]> getDerivative(
+            @PathVariable String preset,
+            @PathVariable String file,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        int dot = file.indexOf('.');
+        String contentHash = dot == -1 ? file : file.substring(0, dot);
+        boolean negotiated = dot == -1;
+
+        ImagePreset imagePreset;
+        try {
+            imagePreset = ImagePreset.fromName(preset);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+        String format = negotiated ? imageDerivativeService.negotiateFormat(accept) : file.substring(dot + 1);
+
+        // Un 304 solo vale para una versión que se podría servir: hash, formato e imagen se
+        // comprueban antes que If-None-Match
+        try {
+            imageDerivativeService.checkAvailable(contentHash, format);
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        String eTag = imageDerivativeService.getETag(contentHash, imagePreset, format);
+        CacheControl cacheControl = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+
+        if (matches(ifNoneMatch, eTag)) {
+            ResponseEntity.BodyBuilder notModified = ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(eTag)
+                    .cacheControl(cacheControl);
+            if (negotiated) {
+                notModified.varyBy(HttpHeaders.ACCEPT);
+            }
+            return notModified.build();
+        }
+
+        try {
+            byte[] content = imageDerivativeService.getDerivative(contentHash, imagePreset, format);
+            ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(ImageDerivativeService.contentType(format)))
+                    .contentLength(content.length)
+                    .eTag(eTag)
+                    .cacheControl(cacheControl);
+            if (negotiated) {
+                ok.varyBy(HttpHeaders.ACCEPT);
+            }
+            return ok.body(content);
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (RejectedExecutionException e) {
+            // Pool saturado: el cliente puede reintentar o usar la imagen original
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .build();
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    private boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .anyMatch(candidate -> candidate.equals("*") || candidate.equals(eTag));
+    }
+}
@@ -3,6 +3,7 @@ package com.uv.backend.controller;
 import com.uv.backend.dto.PlaylistDto;
 import com.uv.backend.dto.TrackDto;
 import com.uv.backend.dto.request.PlaylistRequest;
+import com.uv.backend.dto.request.PlaylistTracksRequest;
 import com.uv.backend.entity.User;
 import com.uv.backend.service.PlaylistService;
 import com.uv.backend.service.UserService;
@@ -117,6 +118,43 @@ public class PlaylistController {
         return ResponseEntity.ok(playlist);
     }
 
+    // Agregar tracks en bloque (hasta app.playlists.batch.max-size ids, en la posición indicada
+    // o al final); devuelve un resumen con los ids que no existen
+    @PostMapping("/{playlistId}/tracks")
+    public ResponseEntity<PlaylistService.TrackBatchResult> addTracksToPlaylist(
+            @PathVariable Long playlistId,
+            @Valid @RequestBody PlaylistTracksRequest request) {
+        try {
+            return ResponseEntity.ok(playlistService.addTracksToPlaylist(playlistId, request.getTrackIds(), request.getPosition()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Quitar tracks en bloque; devuelve un resumen
+    @DeleteMapping("/{playlistId}/tracks")
+    public ResponseEntity<PlaylistService.TrackBatchResult> removeTracksFromPlaylist(
+            @PathVariable Long playlistId,
+            @Valid @RequestBody PlaylistTracksRequest request) {
+        try {
+            return ResponseEntity.ok(playlistService.removeTracksFromPlaylist(playlistId, request.getTrackIds()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Reordenar: mover un bloque de tracks a la posición indicada (o al final)
+    @PutMapping("/{playlistId}/tracks/order")
+    public ResponseEntity<PlaylistDto> moveTracksInPlaylist(
+            @PathVariable Long playlistId,
+            @Valid @RequestBody PlaylistTracksRequest request) {
+        try {
+            return ResponseEntity.ok(playlistService.moveTracksInPlaylist(playlistId, request.getTrackIds(), request.getPosition()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     // Subir imagen de portada
     @PostMapping("/{id}/cover")
     public ResponseEntity<PlaylistDto> updateCoverImage(
@@ -2,22 +2,26 @@ package com.uv.backend.controller;
 import com.uv.backend.dto.PostDto;
 import com.uv.backend.dto.request.PostRequest;
 import com.uv.backend.dto.response.ApiResponse;
+import com.uv.backend.dto.response.KeysetCursor;
 import com.uv.backend.dto.response.PaginatedResponse;
 import com.uv.backend.entity.Post;
-import com.uv.backend.entity.User;
+import com.uv.backend.security.AuthenticatedUser;
 import com.uv.backend.service.LikeService;
 import com.uv.backend.service.PostService;
+import com.uv.backend.service.TimelineService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -31,13 +35,16 @@ public class PostController {
     @Autowired
     private LikeService likeService;
 
+    @Autowired
+    private TimelineService timelineService;
+
     @PostMapping
     public ResponseEntity<?> createPost(
             @Valid @RequestBody PostRequest postRequest,
             Authentication authentication) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
-            Post post = postService.createPost(postRequest, currentUser);
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+            Post post = postService.createPost(postRequest, currentUser.getId());
             PostDto postDto = new PostDto(post);
             
             return ResponseEntity.status(HttpStatus.CREATED)
@@ -59,7 +66,7 @@ public class PostController {
             PostDto postDto = new PostDto(post);
             
             if (authentication != null) {
-                User currentUser = (User) authentication.getPrincipal();
+                AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
                 boolean isLiked = likeService.isPostLikedByUser(id, currentUser.getId());
                 postDto.setIsLiked(isLiked);
             }
@@ -71,30 +78,33 @@ public class PostController {
         }
     }
 
+    /**
+     * Timeline del usuario: con cursor (opaco, el nextCursor de la página anterior) o, para los
+     * clientes que aún no lo usan, por número de página
+     */
     @GetMapping("/feed")
     public ResponseEntity<?> getFeed(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
             Authentication authentication) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
-            Pageable pageable = PageRequest.of(page, size);
-            Page<Post> postPage = postService.getFeedPosts(currentUser.getId(), pageable);
-            
-            List<PostDto> postDtos = postPage.getContent().stream()
-                    .map(post -> {
-                        PostDto dto = new PostDto(post);
-                        boolean isLiked = likeService.isPostLikedByUser(post.getId(), currentUser.getId());
-                        dto.setIsLiked(isLiked);
-                        return dto;
-                    })
-                    .collect(Collectors.toList());
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+            int limit = PaginatedResponse.clampLimit(size);
+            Slice<Post> timeline = cursor != null
+                    ? timelineService.getHomeTimeline(currentUser.getId(), KeysetCursor.descending(cursor), limit)
+                    : timelineService.getHomeTimeline(currentUser.getId(), Math.max(page, 0), limit);
 
-            PaginatedResponse<PostDto> response = new PaginatedResponse<>(
-                    postDtos, postPage.getTotalElements(), page, size,
-                    postPage.hasNext(), postPage.hasPrevious());
+            List<PostDto> postDtos = toPostDtos(timeline.getContent(), currentUser.getId());
+
+            PaginatedResponse<PostDto> response = new PaginatedResponse<>(postDtos, limit,
+                    KeysetCursor.next(timeline, Post::getCreatedAt, Post::getId),
+                    cursor != null ? !cursor.isBlank() : timeline.hasPrevious());
+            response.setPage(timeline.getNumber());
 
             return ResponseEntity.ok(ApiResponse.success(response));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Error getting feed: " + e.getMessage()));
@@ -106,28 +116,32 @@ public class PostController {
             @PathVariable Long userId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
             Authentication authentication) {
         try {
+            if (cursor != null) {
+                Long currentUserId = authentication != null ? ((AuthenticatedUser) authentication.getPrincipal()).getId() : null;
+                Slice<Post> postSlice = postService.getUserPosts(userId, KeysetCursor.descending(cursor), size);
+                List<PostDto> postDtos = toPostDtos(postSlice.getContent(), currentUserId);
+
+                PaginatedResponse<PostDto> response = new PaginatedResponse<>(postDtos, size,
+                        KeysetCursor.next(postSlice, Post::getCreatedAt, Post::getId), !cursor.isBlank());
+                return ResponseEntity.ok(ApiResponse.success(response));
+            }
+
             Pageable pageable = PageRequest.of(page, size);
             Page<Post> postPage = postService.getUserPosts(userId, pageable);
             
-            User currentUser = authentication != null ? (User) authentication.getPrincipal() : null;
-            List<PostDto> postDtos = postPage.getContent().stream()
-                    .map(post -> {
-                        PostDto dto = new PostDto(post);
-                        if (currentUser != null) {
-                            boolean isLiked = likeService.isPostLikedByUser(post.getId(), currentUser.getId());
-                            dto.setIsLiked(isLiked);
-                        }
-                        return dto;
-                    })
-                    .collect(Collectors.toList());
+            Long currentUserId = authentication != null ? ((AuthenticatedUser) authentication.getPrincipal()).getId() : null;
+            List<PostDto> postDtos = toPostDtos(postPage.getContent(), currentUserId);
 
             PaginatedResponse<PostDto> response = new PaginatedResponse<>(
                     postDtos, postPage.getTotalElements(), page, size,
                     postPage.hasNext(), postPage.hasPrevious());
 
             return ResponseEntity.ok(ApiResponse.success(response));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Error getting user posts: " + e.getMessage()));
@@ -137,7 +151,7 @@ public class PostController {
     @PostMapping("/{id}/like")
     public ResponseEntity<?> likePost(@PathVariable Long id, Authentication authentication) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
             boolean isLiked = likeService.togglePostLike(id, currentUser.getId());
             
             String message = isLiked ? "Post liked successfully" : "Post unliked successfully";
@@ -151,8 +165,8 @@ public class PostController {
     @PostMapping("/{id}/repost")
     public ResponseEntity<?> repost(@PathVariable Long id, Authentication authentication) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
-            Post repost = postService.repost(id, currentUser);
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+            Post repost = postService.repost(id, currentUser.getId());
             PostDto postDto = new PostDto(repost);
             
             return ResponseEntity.ok(ApiResponse.success(postDto, "Post reposted successfully"));
@@ -165,8 +179,8 @@ public class PostController {
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deletePost(@PathVariable Long id, Authentication authentication) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
-            postService.deletePost(id, currentUser);
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+            postService.deletePost(id, currentUser.getId());
             
             return ResponseEntity.ok(ApiResponse.success(null, "Post deleted successfully"));
         } catch (RuntimeException e) {
@@ -181,8 +195,8 @@ public class PostController {
     @DeleteMapping("/repost/{trackId}")
     public ResponseEntity<?> unrepostTrack(@PathVariable Long trackId, Authentication authentication) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
-            boolean removed = postService.removeRepost(trackId, currentUser);
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+            boolean removed = postService.removeRepost(trackId, currentUser.getId());
 
             String message = removed ? "Track unreposted successfully" : "Repost not found";
             return ResponseEntity.ok(ApiResponse.success(removed, message));
@@ -195,8 +209,8 @@ public class PostController {
     @DeleteMapping("/{id}/repost")
     public ResponseEntity<?> unrepostPost(@PathVariable Long id, Authentication authentication) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
-            boolean removed = postService.removePostRepost(id, currentUser);
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+            boolean removed = postService.removePostRepost(id, currentUser.getId());
 
             String message = removed ? "Post unreposted successfully" : "Repost not found";
             return ResponseEntity.ok(ApiResponse.success(removed, message));
@@ -205,4 +219,23 @@ public class PostController {
                     .body(ApiResponse.error("Error removing repost: " + e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    // Convierte una página de posts resolviendo isLiked/isReposted con una consulta por página
+    private List<PostDto> toPostDtos(List<Post> posts, Long currentUserId) {
+        List<PostDto> postDtos = posts.stream()
+                .map(PostDto::new)
+                .collect(Collectors.toList());
+
+        if (currentUserId != null && !posts.isEmpty()) {
+            List<Long> postIds = posts.stream().map(Post::getId).collect(Collectors.toList());
+            Set<Long> likedIds = likeService.getLikedPostIds(currentUserId, postIds);
+            Set<Long> repostedIds = postService.getRepostedPostIds(currentUserId, postIds);
+
+            postDtos.forEach(dto -> {
+                dto.setIsLiked(likedIds.contains(dto.getId()));
+                dto.setIsReposted(repostedIds.contains(dto.getId()));
+            });
+        }
+        return postDtos;
+    }
+}
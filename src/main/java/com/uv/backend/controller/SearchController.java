@@ -0,0 +1,32 @@
+package com.uv.backend.controller;
+
+import com.uv.backend.dto.SuggestionDto;
+import com.uv.backend.dto.response.ApiResponse;
+import com.uv.backend.service.SuggestionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/search")
+@CrossOrigin(origins = "*")
+public class SearchController {
+
+    @Autowired
+    private SuggestionService suggestionService;
+
+    /**
+     * Autocompletado: tracks, usuarios, géneros y etiquetas por prefijo
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggest(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "8") int limit) {
+        // Entre 1 y el top-k que guarda cada prefijo
+        int boundedLimit = Math.max(1, Math.min(limit, suggestionService.getMaxLimit()));
+        List<SuggestionDto> suggestions = suggestionService.suggest(query, boundedLimit);
+        return ResponseEntity.ok(ApiResponse.success(suggestions));
+    }
+}
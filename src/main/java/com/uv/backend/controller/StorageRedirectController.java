@@ -0,0 +1,50 @@
+package com.uv.backend.controller;
+
+import com.uv.backend.storage.StorageBackend;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Con almacenamiento S3 las URLs públicas de archivos (/audio/..., /images/...) redirigen a una
+ * URL firmada: el contenido se descarga directamente del almacenamiento, sin pasar por la JVM.
+ */
+@RestController
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "s3")
+public class StorageRedirectController {
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Value("${app.storage.presign-ttl-seconds:900}")
+    private long presignTtlSeconds;
+
+    @GetMapping({"/uploads/**", "/audio/**", "/images/**", "/avatars/**", "/covers/**", "/thumbnails/**",
+            "/videos/**", "/waveforms/**", "/media/**", "/static/**"})
+    public ResponseEntity<Void> redirect(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.contains("..")) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Optional<URI> presigned = storageBackend.presign(
+                StorageBackend.keyForUrl(path), Duration.ofSeconds(presignTtlSeconds), null);
+        if (presigned.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .header(HttpHeaders.LOCATION, presigned.get().toString())
+                .build();
+    }
+}
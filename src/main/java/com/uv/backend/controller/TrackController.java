@@ -1,13 +1,21 @@
 package com.uv.backend.controller;
 
+import com.uv.backend.dto.ProcessingJobDto;
 import com.uv.backend.dto.TrackDto;
 import com.uv.backend.dto.response.ApiResponse;
-import com.uv.backend.entity.User;
+import com.uv.backend.dto.response.KeysetCursor;
+import com.uv.backend.dto.response.PaginatedResponse;
+import com.uv.backend.exception.ResourceNotFoundException;
+import com.uv.backend.exception.StorageQuotaExceededException;
+import com.uv.backend.security.AuthenticatedUser;
+import com.uv.backend.service.StreamingUploadService;
 import com.uv.backend.service.TrackService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -15,6 +23,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
 
 @RestController
@@ -25,6 +34,9 @@ public class TrackController {
     @Autowired
     private TrackService trackService;
 
+    @Autowired
+    private StreamingUploadService streamingUploadService;
+
     /**
      * Crear track - Audio como archivo, imagen de portada como URL
      */
@@ -33,7 +45,7 @@ public class TrackController {
             @RequestParam("title") String title,
             @RequestParam("description") String description,
             @RequestParam("audioFile") MultipartFile audioFile,
-            @RequestParam("duration") Integer duration,
+            @RequestParam(value = "duration", required = false) Integer duration,
             @RequestParam(value = "genre", required = false) String genre,
             @RequestParam(value = "tags", required = false) String[] tags,
             @RequestParam(value = "isPublic", defaultValue = "true") Boolean isPublic,
@@ -41,17 +53,20 @@ public class TrackController {
             Authentication authentication) {
 
         try {
-            User currentUser = (User) authentication.getPrincipal();
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
 
             Set<String> tagSet = tags != null ?
                     Set.of(tags) : Set.of();
 
             TrackDto track = trackService.createTrack(
                     title, description, audioFile, duration,
-                    genre, tagSet, isPublic, coverImageUrl, currentUser);
+                    genre, tagSet, isPublic, coverImageUrl, currentUser.getId());
 
             return ResponseEntity.status(HttpStatus.CREATED)
                     .body(ApiResponse.success(track, "Track created successfully"));
+        } catch (StorageQuotaExceededException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Error creating track: " + e.getMessage()));
@@ -59,31 +74,55 @@ public class TrackController {
     }
 
     /**
-     * Subir track alternativo (manteniendo compatibilidad)
+     * Subir track alternativo (manteniendo compatibilidad).
+     * El cuerpo multipart se procesa en streaming: el audio se escribe una sola vez en disco.
      */
     @PostMapping("/upload")
-    public ResponseEntity<?> uploadTrack(
-            @RequestParam("audioFile") MultipartFile audioFile,
-            @RequestParam("title") String title,
-            @RequestParam(value = "description", required = false) String description,
-            @RequestParam("duration") Integer duration,
-            @RequestParam(value = "genre", required = false) String genre,
-            @RequestParam(value = "tags", required = false) String[] tags,
-            @RequestParam(value = "isPublic", defaultValue = "true") Boolean isPublic,
-            @RequestParam(value = "coverImageUrl", required = false) String coverImageUrl,
-            Authentication authentication) {
+    public ResponseEntity<?> uploadTrack(HttpServletRequest request, Authentication authentication) {
 
         try {
-            User currentUser = (User) authentication.getPrincipal();
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
 
-            Set<String> tagSet = tags != null ?
-                    Set.of(tags) : Set.of();
+            StreamingUploadService.StreamedUpload upload =
+                    streamingUploadService.receiveAudio(request, "audioFile", currentUser.getId());
 
-            TrackDto track = trackService.createTrack(
-                    title, description, audioFile, duration,
-                    genre, tagSet, isPublic, coverImageUrl, currentUser);
+            // Los campos pueden llegar después del archivo: si no son válidos se deshace la subida
+            String title = upload.getField("title");
+            if (title == null || title.isBlank()) {
+                streamingUploadService.discardUpload(upload, currentUser.getId());
+                return ResponseEntity.badRequest()
+                        .body(ApiResponse.error("Field 'title' is required"));
+            }
+
+            // La duración se mide en el servidor; la del cliente solo se usa si el formato no la indica
+            Integer duration;
+            try {
+                String value = upload.getField("duration");
+                duration = value != null ? Integer.valueOf(value.trim()) : null;
+            } catch (NumberFormatException e) {
+                streamingUploadService.discardUpload(upload, currentUser.getId());
+                return ResponseEntity.badRequest()
+                        .body(ApiResponse.error("Field 'duration' must be a number of seconds"));
+            }
+
+            String isPublic = upload.getField("isPublic");
+            Set<String> tagSet = Set.copyOf(upload.getFields("tags"));
+
+            TrackDto track;
+            try {
+                track = trackService.createTrack(
+                        title, upload.getField("description"), upload.getMediaFile(), duration,
+                        upload.getField("genre"), tagSet, isPublic == null || Boolean.parseBoolean(isPublic),
+                        upload.getField("coverImageUrl"), currentUser.getId());
+            } catch (RuntimeException e) {
+                streamingUploadService.discardUpload(upload, currentUser.getId());
+                throw e;
+            }
 
             return ResponseEntity.ok(ApiResponse.success(track, "Track uploaded successfully"));
+        } catch (StorageQuotaExceededException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Error uploading track: " + e.getMessage()));
@@ -101,10 +140,37 @@ public class TrackController {
         }
     }
 
+    /**
+     * Estado del procesamiento en segundo plano del track (waveform, etc.)
+     */
+    @GetMapping("/{id}/processing")
+    public ResponseEntity<?> getProcessingStatus(@PathVariable Long id) {
+        try {
+            List<ProcessingJobDto> jobs = trackService.getProcessingJobs(id);
+            return ResponseEntity.ok(ApiResponse.success(jobs));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponse.error("Track not found"));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Error getting processing status: " + e.getMessage()));
+        }
+    }
+
     @GetMapping("/public")
     public ResponseEntity<?> getPublicTracks(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor) {
+        if (cursor != null) {
+            try {
+                Slice<TrackDto> tracks = trackService.getPublicTracks(KeysetCursor.descending(cursor), size);
+                return ResponseEntity.ok(ApiResponse.success(toCursorResponse(tracks, cursor, size)));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+            }
+        }
+
         Pageable pageable = PageRequest.of(page, size);
         Page<TrackDto> tracks = trackService.getPublicTracks(pageable);
         return ResponseEntity.ok(ApiResponse.success(tracks));
@@ -133,7 +199,17 @@ public class TrackController {
     public ResponseEntity<?> getUserTracks(
             @PathVariable Long userId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor) {
+        if (cursor != null) {
+            try {
+                Slice<TrackDto> tracks = trackService.getUserTracks(userId, KeysetCursor.descending(cursor), size);
+                return ResponseEntity.ok(ApiResponse.success(toCursorResponse(tracks, cursor, size)));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+            }
+        }
+
         Pageable pageable = PageRequest.of(page, size);
         Page<TrackDto> tracks = trackService.getUserTracks(userId, pageable);
         return ResponseEntity.ok(ApiResponse.success(tracks));
@@ -243,4 +319,10 @@ public class TrackController {
                     .body(ApiResponse.error("Error updating waveform: " + e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    // Página por cursor: el siguiente cursor sale de la última fila de la página
+    private PaginatedResponse<TrackDto> toCursorResponse(Slice<TrackDto> tracks, String cursor, int size) {
+        return new PaginatedResponse<>(tracks.getContent(), size,
+                KeysetCursor.next(tracks, TrackDto::getCreatedAt, TrackDto::getId), !cursor.isBlank());
+    }
+}
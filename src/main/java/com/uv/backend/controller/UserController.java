@@ -3,18 +3,28 @@ package com.uv.backend.controller;
 import com.uv.backend.dto.UserDto;
 import com.uv.backend.dto.request.UpdateProfileRequest;
 import com.uv.backend.dto.response.ApiResponse;
+import com.uv.backend.dto.response.KeysetCursor;
+import com.uv.backend.dto.response.PaginatedResponse;
+import com.uv.backend.entity.Follow;
 import com.uv.backend.entity.User;
+import com.uv.backend.exception.ResourceNotFoundException;
+import com.uv.backend.security.AuthenticatedUser;
+import com.uv.backend.service.FollowService;
 import com.uv.backend.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/users")
@@ -24,11 +34,15 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private FollowService followService;
+
     @GetMapping("/profile")
     public ResponseEntity<?> getCurrentUserProfile(Authentication authentication) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
-            UserDto userDto = new UserDto(currentUser);
+            // El principal puede venir de la caché del filtro JWT: contadores actualizados desde la entidad
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
+            UserDto userDto = new UserDto(userService.getUserById(currentUser.getId()));
             return ResponseEntity.ok(ApiResponse.success(userDto));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -69,7 +83,7 @@ public class UserController {
             @Valid @RequestBody UpdateProfileRequest request,
             Authentication authentication) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
 
             // Verificar que el usuario solo pueda actualizar su propio perfil
             if (!currentUser.getId().equals(id)) {
@@ -94,7 +108,7 @@ public class UserController {
             @RequestParam("avatarUrl") String avatarUrl,
             Authentication authentication) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
 
             if (!currentUser.getId().equals(id)) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
@@ -118,7 +132,7 @@ public class UserController {
             @RequestParam("coverImageUrl") String coverImageUrl,
             Authentication authentication) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
 
             if (!currentUser.getId().equals(id)) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
@@ -183,7 +197,7 @@ public class UserController {
             @PathVariable Long id,
             Authentication authentication) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
 
             if (!currentUser.getId().equals(id)) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
@@ -206,7 +220,7 @@ public class UserController {
             @PathVariable Long id,
             Authentication authentication) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
 
             if (!currentUser.getId().equals(id)) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
@@ -221,10 +235,31 @@ public class UserController {
         }
     }
 
+    /**
+     * Habilitar o deshabilitar una cuenta (solo administradores, ver SecurityConfig). Los tokens
+     * ya emitidos para esa cuenta dejan de aceptarse
+     */
+    @PutMapping("/{id}/enabled")
+    public ResponseEntity<?> setUserEnabled(
+            @PathVariable Long id,
+            @RequestParam boolean enabled) {
+        try {
+            UserDto updatedUser = userService.setUserEnabled(id, enabled);
+            return ResponseEntity.ok(ApiResponse.success(updatedUser,
+                    enabled ? "User enabled successfully" : "User disabled successfully"));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Error updating user: " + e.getMessage()));
+        }
+    }
+
     @GetMapping("/storage")
     public ResponseEntity<?> getStorageUsage(Authentication authentication) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
             Long storageUsage = userService.getUserStorageUsage(currentUser.getId());
             return ResponseEntity.ok(ApiResponse.success(storageUsage));
         } catch (Exception e) {
@@ -262,7 +297,7 @@ public class UserController {
             @PathVariable Long id,
             Authentication authentication) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
 
             if (!currentUser.getId().equals(id)) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
@@ -285,7 +320,7 @@ public class UserController {
             @PathVariable Long id,
             Authentication authentication) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
 
             if (currentUser.getId().equals(id)) {
                 return ResponseEntity.badRequest()
@@ -308,7 +343,7 @@ public class UserController {
             @PathVariable Long id,
             Authentication authentication) {
         try {
-            User currentUser = (User) authentication.getPrincipal();
+            AuthenticatedUser currentUser = (AuthenticatedUser) authentication.getPrincipal();
 
             if (currentUser.getId().equals(id)) {
                 return ResponseEntity.badRequest()
@@ -322,4 +357,68 @@ public class UserController {
                     .body(ApiResponse.error("Error unfollowing user: " + e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Seguidores de un usuario (por página o por cursor con ?cursor=)
+     */
+    @GetMapping("/{id}/followers")
+    public ResponseEntity<?> getFollowers(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            Authentication authentication) {
+        try {
+            Long currentUserId = authentication != null ? ((AuthenticatedUser) authentication.getPrincipal()).getId() : null;
+            if (cursor != null) {
+                Slice<Follow> follows = followService.getFollowers(id, KeysetCursor.descending(cursor), size);
+                return ResponseEntity.ok(ApiResponse.success(
+                        toCursorResponse(follows, Follow::getFollower, cursor, size, currentUserId)));
+            }
+
+            Page<User> followers = followService.getFollowers(id, PageRequest.of(page, size));
+            return ResponseEntity.ok(ApiResponse.success(userService.convertToDtos(followers, currentUserId)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Error getting followers: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Usuarios a los que sigue un usuario (por página o por cursor con ?cursor=)
+     */
+    @GetMapping("/{id}/following")
+    public ResponseEntity<?> getFollowing(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            Authentication authentication) {
+        try {
+            Long currentUserId = authentication != null ? ((AuthenticatedUser) authentication.getPrincipal()).getId() : null;
+            if (cursor != null) {
+                Slice<Follow> follows = followService.getFollowing(id, KeysetCursor.descending(cursor), size);
+                return ResponseEntity.ok(ApiResponse.success(
+                        toCursorResponse(follows, Follow::getFollowing, cursor, size, currentUserId)));
+            }
+
+            Page<User> following = followService.getFollowing(id, PageRequest.of(page, size));
+            return ResponseEntity.ok(ApiResponse.success(userService.convertToDtos(following, currentUserId)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Error getting following: " + e.getMessage()));
+        }
+    }
+
+    // El cursor sale de la fecha del seguimiento, no del usuario
+    private PaginatedResponse<UserDto> toCursorResponse(Slice<Follow> follows, Function<Follow, User> side,
+                                                        String cursor, int size, Long currentUserId) {
+        List<User> users = follows.getContent().stream().map(side).collect(Collectors.toList());
+        return new PaginatedResponse<>(userService.convertToDtos(users, currentUserId), size,
+                KeysetCursor.next(follows, Follow::getCreatedAt, Follow::getId), !cursor.isBlank());
+    }
+}
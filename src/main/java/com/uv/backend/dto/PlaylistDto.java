@@ -1,15 +1,18 @@
 package com.uv.backend.dto;
 
+import com.uv.backend.config.ImagePreset;
 import com.uv.backend.entity.Playlist;
 import com.fasterxml.jackson.annotation.JsonFormat;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 public class PlaylistDto {
     private Long id;
     private String title;
     private String description;
     private String coverImageUrl; // CORREGIDO
+    private Map<String, String> coverImageDerivatives;
     private Boolean isPublic;
     private UserDto user;
 
@@ -32,6 +35,7 @@ public class PlaylistDto {
         this.title = playlist.getTitle();
         this.description = playlist.getDescription();
         this.coverImageUrl = playlist.getCoverImageUrl(); // CORREGIDO
+        this.coverImageDerivatives = ImagePreset.derivativeUrls(this.coverImageUrl);
         this.isPublic = playlist.getIsPublic();
         this.createdAt = playlist.getCreatedAt();
         this.updatedAt = playlist.getUpdatedAt();
@@ -47,6 +51,7 @@ public class PlaylistDto {
         this.title = playlist.getTitle();
         this.description = playlist.getDescription();
         this.coverImageUrl = playlist.getCoverImageUrl(); // CORREGIDO
+        this.coverImageDerivatives = ImagePreset.derivativeUrls(this.coverImageUrl);
         this.isPublic = playlist.getIsPublic();
         this.createdAt = playlist.getCreatedAt();
         this.updatedAt = playlist.getUpdatedAt();
@@ -69,6 +74,9 @@ public class PlaylistDto {
     public String getCoverImageUrl() { return coverImageUrl; }
     public void setCoverImageUrl(String coverImageUrl) { this.coverImageUrl = coverImageUrl; }
 
+    public Map<String, String> getCoverImageDerivatives() { return coverImageDerivatives; }
+    public void setCoverImageDerivatives(Map<String, String> coverImageDerivatives) { this.coverImageDerivatives = coverImageDerivatives; }
+
     public Boolean getIsPublic() { return isPublic; }
     public void setIsPublic(Boolean isPublic) { this.isPublic = isPublic; }
 
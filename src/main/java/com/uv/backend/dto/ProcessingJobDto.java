@@ -0,0 +1,66 @@
+package com.uv.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.uv.backend.entity.ProcessingJob;
+import com.uv.backend.entity.ProcessingJobStatus;
+import com.uv.backend.entity.ProcessingJobType;
+
+import java.time.LocalDateTime;
+
+public class ProcessingJobDto {
+    private Long id;
+    private ProcessingJobType type;
+    private ProcessingJobStatus status;
+    private Integer attempts;
+    private Integer maxAttempts;
+    private String lastError;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime nextRunAt;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime createdAt;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime finishedAt;
+
+    // Constructors
+    public ProcessingJobDto() {}
+
+    public ProcessingJobDto(ProcessingJob job) {
+        this.id = job.getId();
+        this.type = job.getType();
+        this.status = job.getStatus();
+        this.attempts = job.getAttempts();
+        this.maxAttempts = job.getMaxAttempts();
+        this.lastError = job.getLastError();
+        this.nextRunAt = job.getNextRunAt();
+        this.createdAt = job.getCreatedAt();
+        this.finishedAt = job.getFinishedAt();
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public ProcessingJobType getType() { return type; }
+    public void setType(ProcessingJobType type) { this.type = type; }
+
+    public ProcessingJobStatus getStatus() { return status; }
+    public void setStatus(ProcessingJobStatus status) { this.status = status; }
+
+    public Integer getAttempts() { return attempts; }
+    public void setAttempts(Integer attempts) { this.attempts = attempts; }
+
+    public Integer getMaxAttempts() { return maxAttempts; }
+    public void setMaxAttempts(Integer maxAttempts) { this.maxAttempts = maxAttempts; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public LocalDateTime getNextRunAt() { return nextRunAt; }
+    public void setNextRunAt(LocalDateTime nextRunAt) { this.nextRunAt = nextRunAt; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+}
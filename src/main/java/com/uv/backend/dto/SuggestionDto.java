@@ -0,0 +1,35 @@
+package com.uv.backend.dto;
+
+public class SuggestionDto {
+    private String type;
+    private Long id;
+    private String text;
+    private String subtitle;
+    private long popularity;
+
+    public SuggestionDto() {}
+
+    public SuggestionDto(String type, Long id, String text, String subtitle, long popularity) {
+        this.type = type;
+        this.id = id;
+        this.text = text;
+        this.subtitle = subtitle;
+        this.popularity = popularity;
+    }
+
+    // Getters and Setters
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+
+    public String getSubtitle() { return subtitle; }
+    public void setSubtitle(String subtitle) { this.subtitle = subtitle; }
+
+    public long getPopularity() { return popularity; }
+    public void setPopularity(long popularity) { this.popularity = popularity; }
+}
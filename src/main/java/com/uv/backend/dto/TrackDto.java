@@ -1,9 +1,11 @@
 package com.uv.backend.dto;
 
+import com.uv.backend.config.ImagePreset;
 import com.uv.backend.entity.Track;
 import com.fasterxml.jackson.annotation.JsonFormat;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.Set;
 
 public class TrackDto {
@@ -13,6 +15,7 @@ public class TrackDto {
     private String audioUrl;
     private String waveformUrl;
     private String coverImageUrl; // CORREGIDO
+    private Map<String, String> coverImageDerivatives;
     private Integer duration;
     private String genre;
     private Set<String> tags;
@@ -42,6 +45,7 @@ public class TrackDto {
         this.audioUrl = track.getAudioUrl();
         this.waveformUrl = track.getWaveformUrl();
         this.coverImageUrl = track.getCoverImageUrl(); // CORREGIDO
+        this.coverImageDerivatives = ImagePreset.derivativeUrls(this.coverImageUrl);
         this.duration = track.getDuration();
         this.genre = track.getGenre();
         this.tags = track.getTags();
@@ -75,6 +79,9 @@ public class TrackDto {
     public String getCoverImageUrl() { return coverImageUrl; }
     public void setCoverImageUrl(String coverImageUrl) { this.coverImageUrl = coverImageUrl; }
 
+    public Map<String, String> getCoverImageDerivatives() { return coverImageDerivatives; }
+    public void setCoverImageDerivatives(Map<String, String> coverImageDerivatives) { this.coverImageDerivatives = coverImageDerivatives; }
+
     public Integer getDuration() { return duration; }
     public void setDuration(Integer duration) { this.duration = duration; }
 
@@ -1,9 +1,11 @@
 package com.uv.backend.dto;
 
+import com.uv.backend.config.ImagePreset;
 import com.uv.backend.entity.User;
 import com.fasterxml.jackson.annotation.JsonFormat;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 public class UserDto {
     private Long id;
@@ -13,6 +15,7 @@ public class UserDto {
 
     // Campos multimedia actualizados
     private String avatarUrl;
+    private Map<String, String> avatarDerivatives;
     private String avatarFileName;
     private String avatarFileType;
     private Long avatarFileSize;
@@ -50,6 +53,7 @@ public class UserDto {
         this.displayName = user.getDisplayName();
         this.email = user.getEmail();
         this.avatarUrl = user.getAvatarUrl();
+        this.avatarDerivatives = ImagePreset.derivativeUrls(this.avatarUrl);
         this.avatarFileName = user.getAvatarFileName();
         this.avatarFileType = user.getAvatarFileType();
         this.avatarFileSize = user.getAvatarFileSize();
@@ -104,6 +108,9 @@ public class UserDto {
     public String getAvatarUrl() { return avatarUrl; }
     public void setAvatarUrl(String avatarUrl) { this.avatarUrl = avatarUrl; }
 
+    public Map<String, String> getAvatarDerivatives() { return avatarDerivatives; }
+    public void setAvatarDerivatives(Map<String, String> avatarDerivatives) { this.avatarDerivatives = avatarDerivatives; }
+
     public String getAvatarFileName() { return avatarFileName; }
     public void setAvatarFileName(String avatarFileName) { this.avatarFileName = avatarFileName; }
 
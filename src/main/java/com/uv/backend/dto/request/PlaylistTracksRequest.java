@@ -0,0 +1,30 @@
+package com.uv.backend.dto.request;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public class PlaylistTracksRequest {
+    @NotEmpty(message = "Track ids are required")
+    private List<Long> trackIds;
+
+    // Índice (desde 0) donde colocar los tracks; si falta, se añaden al final
+    @Min(value = 0, message = "Position must be zero or greater")
+    private Integer position;
+
+    // Constructors
+    public PlaylistTracksRequest() {}
+
+    public PlaylistTracksRequest(List<Long> trackIds, Integer position) {
+        this.trackIds = trackIds;
+        this.position = position;
+    }
+
+    // Getters and Setters
+    public List<Long> getTrackIds() { return trackIds; }
+    public void setTrackIds(List<Long> trackIds) { this.trackIds = trackIds; }
+
+    public Integer getPosition() { return position; }
+    public void setPosition(Integer position) { this.position = position; }
+}
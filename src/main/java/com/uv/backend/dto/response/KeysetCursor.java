@@ -0,0 +1,88 @@
+package com.uv.backend.dto.response;
+
+import org.springframework.data.domain.Slice;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Cursor opaco para paginación por keyset sobre (createdAt, id).
+ *
+ * La siguiente página se pide con la posición de la última fila recibida, así que el coste
+ * no depende de lo lejos que se esté del principio y no hace falta COUNT(*).
+ * Un cursor vacío (?cursor=) pide la primera página.
+ */
+public final class KeysetCursor {
+
+    // Posiciones anteriores/posteriores a cualquier fila real, para la primera página
+    private static final LocalDateTime MIN_CREATED_AT = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_CREATED_AT = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    private final LocalDateTime createdAt;
+    private final Long id;
+
+    private KeysetCursor(LocalDateTime createdAt, Long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public static KeysetCursor of(LocalDateTime createdAt, Long id) {
+        return new KeysetCursor(createdAt, id);
+    }
+
+    /**
+     * Cursor para un listado descendente (más recientes primero)
+     */
+    public static KeysetCursor descending(String cursor) {
+        return isFirstPage(cursor) ? new KeysetCursor(MAX_CREATED_AT, Long.MAX_VALUE) : decode(cursor);
+    }
+
+    /**
+     * Cursor para un listado ascendente (más antiguos primero)
+     */
+    public static KeysetCursor ascending(String cursor) {
+        return isFirstPage(cursor) ? new KeysetCursor(MIN_CREATED_AT, 0L) : decode(cursor);
+    }
+
+    /**
+     * Cursor de la página siguiente a partir de la última fila, o null si no hay más
+     */
+    public static <T> String next(Slice<T> slice, Function<T, LocalDateTime> createdAt, Function<T, Long> id) {
+        List<T> content = slice.getContent();
+        if (!slice.hasNext() || content.isEmpty()) {
+            return null;
+        }
+        T last = content.get(content.size() - 1);
+        return of(createdAt.apply(last), id.apply(last)).encode();
+    }
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public Long getId() { return id; }
+
+    private static boolean isFirstPage(String cursor) {
+        return cursor == null || cursor.isBlank();
+    }
+
+    private static KeysetCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new KeysetCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
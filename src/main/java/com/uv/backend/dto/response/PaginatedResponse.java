@@ -5,12 +5,15 @@ import org.springframework.data.domain.Page;
 import java.util.List;
 
 public class PaginatedResponse<T> {
+    public static final int MAX_LIMIT = 100;
+
     private List<T> data;
     private long total;
     private int page;
     private int limit;
     private boolean hasNext;
     private boolean hasPrevious;
+    private String nextCursor;
 
     public PaginatedResponse(Page<T> page) {
         this.data = page.getContent();
@@ -30,6 +33,21 @@ public class PaginatedResponse<T> {
         this.hasPrevious = hasPrevious;
     }
 
+    // Límite aceptado para el tamaño de página de los listados
+    public static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    // Página por cursor: sin total (no se ejecuta COUNT) ni número de página
+    public PaginatedResponse(List<T> data, int limit, String nextCursor, boolean hasPrevious) {
+        this.data = data;
+        this.total = data.size();
+        this.limit = limit;
+        this.hasNext = nextCursor != null;
+        this.hasPrevious = hasPrevious;
+        this.nextCursor = nextCursor;
+    }
+
     // Getters and Setters
     public List<T> getData() { return data; }
     public void setData(List<T> data) { this.data = data; }
@@ -48,4 +66,7 @@ public class PaginatedResponse<T> {
 
     public boolean isHasPrevious() { return hasPrevious; }
     public void setHasPrevious(boolean hasPrevious) { this.hasPrevious = hasPrevious; }
-}
\ No newline at end of file
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
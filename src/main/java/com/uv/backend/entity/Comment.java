@@ -2,6 +2,7 @@ package com.uv.backend.entity;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
@@ -10,7 +11,11 @@ import java.util.Objects;
 import java.util.Set;
 
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+        @Index(name = "idx_comments_track_created", columnList = "track_id, created_at, id"),
+        @Index(name = "idx_comments_post_created", columnList = "post_id, created_at, id"),
+        @Index(name = "idx_comments_parent_created", columnList = "parent_id, created_at, id")
+})
 public class Comment {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -20,6 +25,15 @@ public class Comment {
     @NotBlank(message = "Comment content is required")
     private String content;
 
+    // Contadores denormalizados (ver CounterReconciliationService)
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private Integer likesCount = 0;
+
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private Integer repliesCount = 0;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -83,13 +97,11 @@ public class Comment {
     public void setLikes(Set<Like> likes) { this.likes = likes; }
 
     // Helper methods
-    public int getLikesCount() {
-        return likes != null ? likes.size() : 0;
-    }
+    public int getLikesCount() { return likesCount != null ? likesCount : 0; }
+    public void setLikesCount(Integer likesCount) { this.likesCount = likesCount; }
 
-    public int getRepliesCount() {
-        return replies != null ? replies.size() : 0;
-    }
+    public int getRepliesCount() { return repliesCount != null ? repliesCount : 0; }
+    public void setRepliesCount(Integer repliesCount) { this.repliesCount = repliesCount; }
 
     @Override
     public boolean equals(Object o) {
@@ -8,6 +8,9 @@ import java.util.Objects;
 @Entity
 @Table(name = "follows", uniqueConstraints = {
         @UniqueConstraint(columnNames = {"follower_id", "following_id"})
+}, indexes = {
+        @Index(name = "idx_follows_following_created", columnList = "following_id, created_at, id"),
+        @Index(name = "idx_follows_follower_created", columnList = "follower_id, created_at, id")
 })
 public class Follow {
     @Id
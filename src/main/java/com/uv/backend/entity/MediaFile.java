@@ -1,5 +1,6 @@
 package com.uv.backend.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -9,7 +10,10 @@ import java.time.LocalDateTime;
 import java.util.Objects;
 
 @Entity
-@Table(name = "media_files")
+@Table(name = "media_files", indexes = {
+        @Index(name = "idx_media_files_file_url", columnList = "file_url"),
+        @Index(name = "idx_media_files_blob_id", columnList = "blob_id")
+})
 public class MediaFile {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -50,6 +54,16 @@ public class MediaFile {
     private String sampleRate;
     private String codec;
 
+    // Hash SHA-256 del contenido, calculado durante la subida
+    @Column(length = 64)
+    private String contentHash;
+
+    // Contenido almacenado (compartido entre subidas idénticas)
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "blob_id")
+    private StoredBlob blob;
+
     // Metadatos adicionales
     private String description;
     private String altText;
@@ -116,6 +130,12 @@ public class MediaFile {
     public String getCodec() { return codec; }
     public void setCodec(String codec) { this.codec = codec; }
 
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+
+    public StoredBlob getBlob() { return blob; }
+    public void setBlob(StoredBlob blob) { this.blob = blob; }
+
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
 
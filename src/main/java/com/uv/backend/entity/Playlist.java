@@ -1,7 +1,11 @@
 package com.uv.backend.entity;
 
+import com.uv.backend.config.CacheConfig;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -10,9 +14,18 @@ import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
+// En caché L2: los contadores se actualizan con UPDATE nativos que desalojan solo la fila (ver EntityCacheService)
 @Entity
-@Table(name = "playlists")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheConfig.PLAYLISTS_REGION)
+@Table(name = "playlists", indexes = {
+        @Index(name = "idx_playlists_cover_image_url", columnList = "cover_image_url")
+})
+// Listados: el autor llega en la misma consulta
+@NamedEntityGraph(name = Playlist.WITH_USER, attributeNodes = @NamedAttributeNode("user"))
 public class Playlist {
+    public static final String WITH_USER = "Playlist.withUser";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -33,6 +46,15 @@ public class Playlist {
     @Column(nullable = false)
     private Boolean isPublic = true;
 
+    // Contadores denormalizados (ver CounterReconciliationService)
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private Integer likesCount = 0;
+
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private Integer tracksCount = 0;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -44,13 +66,7 @@ public class Playlist {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @ManyToMany(fetch = FetchType.LAZY)
-    @JoinTable(
-            name = "playlist_tracks",
-            joinColumns = @JoinColumn(name = "playlist_id"),
-            inverseJoinColumns = @JoinColumn(name = "track_id")
-    )
-    private Set<Track> tracks = new HashSet<>();
+    // Los tracks (con su posición) están en PlaylistTrack y se leen paginados desde PlaylistService
 
     @OneToMany(mappedBy = "playlist", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Set<Like> likes = new HashSet<>();
@@ -98,57 +114,20 @@ public class Playlist {
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
 
-    public Set<Track> getTracks() { return tracks; }
-    public void setTracks(Set<Track> tracks) { this.tracks = tracks; }
-
     public Set<Like> getLikes() { return likes; }
     public void setLikes(Set<Like> likes) { this.likes = likes; }
 
     // Helper methods actualizados
-    public int getLikesCount() {
-        return likes != null ? likes.size() : 0;
-    }
-
-    public int getTracksCount() {
-        return tracks != null ? tracks.size() : 0;
-    }
+    public int getLikesCount() { return likesCount != null ? likesCount : 0; }
+    public void setLikesCount(Integer likesCount) { this.likesCount = likesCount; }
 
-    public void addTrack(Track track) {
-        tracks.add(track);
-        track.getPlaylists().add(this);
-    }
-
-    public void removeTrack(Track track) {
-        tracks.remove(track);
-        track.getPlaylists().remove(this);
-    }
+    public int getTracksCount() { return tracksCount != null ? tracksCount : 0; }
+    public void setTracksCount(Integer tracksCount) { this.tracksCount = tracksCount; }
 
     public boolean hasCoverImage() {
         return coverImageUrl != null && !coverImageUrl.trim().isEmpty();
     }
 
-    public Integer getTotalDuration() {
-        return tracks.stream()
-                .filter(track -> track.getDuration() != null)
-                .mapToInt(Track::getDuration)
-                .sum();
-    }
-
-    public String getFormattedTotalDuration() {
-        Integer totalDuration = getTotalDuration();
-        if (totalDuration == null || totalDuration == 0) return "0:00";
-
-        int hours = totalDuration / 3600;
-        int minutes = (totalDuration % 3600) / 60;
-        int seconds = totalDuration % 60;
-
-        if (hours > 0) {
-            return String.format("%d:%02d:%02d", hours, minutes, seconds);
-        } else {
-            return String.format("%d:%02d", minutes, seconds);
-        }
-    }
-
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,124 @@
+package com.uv.backend.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Track dentro de una playlist, con su posición.
+ *
+ * Las posiciones dejan huecos (ver PlaylistService) para insertar o mover tracks cambiando solo
+ * las filas afectadas; el orden es (position, track_id). Las relaciones son de solo lectura:
+ * las filas se crean y borran por ids sin cargar la playlist ni los tracks.
+ */
+@Entity
+@Table(name = "playlist_tracks", indexes = {
+        @Index(name = "idx_playlist_tracks_position", columnList = "playlist_id, position"),
+        @Index(name = "idx_playlist_tracks_track_id", columnList = "track_id")
+})
+@IdClass(PlaylistTrack.Key.class)
+public class PlaylistTrack implements Persistable<PlaylistTrack.Key> {
+    @Id
+    @Column(name = "playlist_id")
+    private Long playlistId;
+
+    @Id
+    @Column(name = "track_id")
+    private Long trackId;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long position = 0L;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime addedAt;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "playlist_id", insertable = false, updatable = false)
+    private Playlist playlist;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "track_id", insertable = false, updatable = false)
+    private Track track;
+
+    // Las filas nuevas se insertan sin consultar antes si existen (saveAll por lotes)
+    @Transient
+    private boolean isNew;
+
+    // Constructors
+    public PlaylistTrack() {}
+
+    public PlaylistTrack(Long playlistId, Long trackId, Long position) {
+        this.playlistId = playlistId;
+        this.trackId = trackId;
+        this.position = position;
+        this.isNew = true;
+    }
+
+    // Getters and Setters
+    public Long getPlaylistId() { return playlistId; }
+
+    public Long getTrackId() { return trackId; }
+
+    public Long getPosition() { return position; }
+    public void setPosition(Long position) { this.position = position; }
+
+    public LocalDateTime getAddedAt() { return addedAt; }
+
+    public Playlist getPlaylist() { return playlist; }
+
+    public Track getTrack() { return track; }
+
+    @Override
+    public Key getId() {
+        return new Key(playlistId, trackId);
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    /**
+     * Clave compuesta (playlist, track)
+     */
+    public static class Key implements Serializable {
+        private Long playlistId;
+        private Long trackId;
+
+        public Key() {}
+
+        public Key(Long playlistId, Long trackId) {
+            this.playlistId = playlistId;
+            this.trackId = trackId;
+        }
+
+        public Long getPlaylistId() { return playlistId; }
+        public Long getTrackId() { return trackId; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(playlistId, key.playlistId) && Objects.equals(trackId, key.trackId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(playlistId, trackId);
+        }
+    }
+}
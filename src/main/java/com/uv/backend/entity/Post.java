@@ -2,6 +2,7 @@ package com.uv.backend.entity;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -11,8 +12,26 @@ import java.util.Objects;
 import java.util.Set;
 
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+        @Index(name = "idx_posts_user_created", columnList = "user_id, created_at, id")
+})
+// Listados: todo lo que recorre PostDto (autor, track con su autor y post original) en una sola consulta
+@NamedEntityGraph(name = Post.WITH_DETAILS,
+        attributeNodes = {
+                @NamedAttributeNode("user"),
+                @NamedAttributeNode(value = "track", subgraph = "track"),
+                @NamedAttributeNode(value = "originalPost", subgraph = "originalPost")
+        },
+        subgraphs = {
+                @NamedSubgraph(name = "track", attributeNodes = @NamedAttributeNode("user")),
+                @NamedSubgraph(name = "originalPost", attributeNodes = {
+                        @NamedAttributeNode("user"),
+                        @NamedAttributeNode(value = "track", subgraph = "track")
+                })
+        })
 public class Post {
+    public static final String WITH_DETAILS = "Post.withDetails";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -25,13 +44,30 @@ public class Post {
     @Column(length = 1000)
     private String content;
 
+    // Contadores denormalizados (ver CounterReconciliationService)
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private Integer likesCount = 0;
+
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private Integer commentsCount = 0;
+
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private Integer repostsCount = 0;
+
     // Campos multimedia para posts
     @ElementCollection
-    @CollectionTable(name = "post_images", joinColumns = @JoinColumn(name = "post_id"))
+    @CollectionTable(name = "post_images", joinColumns = @JoinColumn(name = "post_id"),
+            indexes = @Index(name = "idx_post_images_image_url", columnList = "image_url"))
     private Set<PostImage> images = new HashSet<>();
 
     @ElementCollection
-    @CollectionTable(name = "post_videos", joinColumns = @JoinColumn(name = "post_id"))
+    @CollectionTable(name = "post_videos", joinColumns = @JoinColumn(name = "post_id"), indexes = {
+            @Index(name = "idx_post_videos_video_url", columnList = "video_url"),
+            @Index(name = "idx_post_videos_thumbnail_url", columnList = "thumbnail_url")
+    })
     private Set<PostVideo> videos = new HashSet<>();
 
     @CreationTimestamp
@@ -124,17 +160,14 @@ public class Post {
     public void setComments(Set<Comment> comments) { this.comments = comments; }
 
     // Helper methods actualizados
-    public int getLikesCount() {
-        return likes != null ? likes.size() : 0;
-    }
+    public int getLikesCount() { return likesCount != null ? likesCount : 0; }
+    public void setLikesCount(Integer likesCount) { this.likesCount = likesCount; }
 
-    public int getCommentsCount() {
-        return comments != null ? comments.size() : 0;
-    }
+    public int getCommentsCount() { return commentsCount != null ? commentsCount : 0; }
+    public void setCommentsCount(Integer commentsCount) { this.commentsCount = commentsCount; }
 
-    public int getRepostsCount() {
-        return reposts != null ? reposts.size() : 0;
-    }
+    public int getRepostsCount() { return repostsCount != null ? repostsCount : 0; }
+    public void setRepostsCount(Integer repostsCount) { this.repostsCount = repostsCount; }
 
     public boolean hasImages() {
         return images != null && !images.isEmpty();
@@ -0,0 +1,112 @@
+package com.uv.backend.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Trabajo de procesamiento en segundo plano (waveform, derivados de imágenes, timelines...).
+ *
+ * Se inserta en la misma transacción que crea o cambia el recurso, así que sobrevive a un reinicio;
+ * ProcessingJobService lo reclama, lo ejecuta y lo reintenta con espera exponencial.
+ */
+@Entity
+@Table(name = "processing_jobs", indexes = {
+        @Index(name = "idx_processing_jobs_due", columnList = "status, type, next_run_at"),
+        @Index(name = "idx_processing_jobs_track_id", columnList = "track_id")
+})
+public class ProcessingJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, columnDefinition = "varchar(32)")
+    private ProcessingJobType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ProcessingJobStatus status = ProcessingJobStatus.PENDING;
+
+    // Track al que pertenece (estado visible en /api/tracks/{id}/processing)
+    @Column(name = "track_id")
+    private Long trackId;
+
+    // Datos propios del tipo de trabajo (p. ej. la URL del archivo a procesar)
+    @Column(length = 1000)
+    private String payload;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(nullable = false)
+    private Integer maxAttempts;
+
+    @Column(name = "next_run_at", nullable = false)
+    private LocalDateTime nextRunAt;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public ProcessingJob() {}
+
+    public ProcessingJob(ProcessingJobType type, Long trackId, String payload, int maxAttempts) {
+        this.type = type;
+        this.trackId = trackId;
+        this.payload = payload;
+        this.maxAttempts = maxAttempts;
+        this.nextRunAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public ProcessingJobType getType() { return type; }
+    public void setType(ProcessingJobType type) { this.type = type; }
+
+    public ProcessingJobStatus getStatus() { return status; }
+    public void setStatus(ProcessingJobStatus status) { this.status = status; }
+
+    public Long getTrackId() { return trackId; }
+    public void setTrackId(Long trackId) { this.trackId = trackId; }
+
+    public String getPayload() { return payload; }
+    public void setPayload(String payload) { this.payload = payload; }
+
+    public Integer getAttempts() { return attempts; }
+    public void setAttempts(Integer attempts) { this.attempts = attempts; }
+
+    public Integer getMaxAttempts() { return maxAttempts; }
+    public void setMaxAttempts(Integer maxAttempts) { this.maxAttempts = maxAttempts; }
+
+    public LocalDateTime getNextRunAt() { return nextRunAt; }
+    public void setNextRunAt(LocalDateTime nextRunAt) { this.nextRunAt = nextRunAt; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+}
@@ -0,0 +1,8 @@
+package com.uv.backend.entity;
+
+public enum ProcessingJobStatus {
+    PENDING,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+}
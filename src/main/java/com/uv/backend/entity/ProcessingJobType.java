@@ -0,0 +1,11 @@
+package com.uv.backend.entity;
+
+/**
+ * Tipos de trabajo de la cola de procesamiento; cada uno tiene su límite de concurrencia
+ * (app.jobs.concurrency.<tipo en minúsculas>)
+ */
+public enum ProcessingJobType {
+    WAVEFORM,
+    IMAGE_DERIVATIVES,
+    TIMELINE_FOLLOW
+}
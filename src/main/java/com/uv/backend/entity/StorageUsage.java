@@ -0,0 +1,84 @@
+package com.uv.backend.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Uso de almacenamiento acumulado por usuario y tipo de media.
+ * Se actualiza con cada subida y borrado de MediaFile; no se calcula sumando media_files.
+ */
+@Entity
+@Table(name = "storage_usage")
+@IdClass(StorageUsage.Key.class)
+public class StorageUsage {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "media_type", length = 16)
+    private MediaType mediaType;
+
+    @Column(nullable = false)
+    private Long fileCount = 0L;
+
+    @Column(nullable = false)
+    private Long bytesUsed = 0L;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public StorageUsage() {}
+
+    // Getters and Setters
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public MediaType getMediaType() { return mediaType; }
+    public void setMediaType(MediaType mediaType) { this.mediaType = mediaType; }
+
+    public Long getFileCount() { return fileCount; }
+    public void setFileCount(Long fileCount) { this.fileCount = fileCount; }
+
+    public Long getBytesUsed() { return bytesUsed; }
+    public void setBytesUsed(Long bytesUsed) { this.bytesUsed = bytesUsed; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    /**
+     * Clave compuesta (usuario, tipo de media)
+     */
+    public static class Key implements Serializable {
+        private Long userId;
+        private MediaType mediaType;
+
+        public Key() {}
+
+        public Key(Long userId, MediaType mediaType) {
+            this.userId = userId;
+            this.mediaType = mediaType;
+        }
+
+        public Long getUserId() { return userId; }
+        public MediaType getMediaType() { return mediaType; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(userId, key.userId) && mediaType == key.mediaType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, mediaType);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.uv.backend.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Contenido almacenado una sola vez, identificado por su hash SHA-256.
+ * refCount cuenta las subidas que apuntan a él; el archivo se borra al llegar a cero.
+ */
+@Entity
+@Table(name = "stored_blobs")
+public class StoredBlob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 64)
+    private String contentHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private MediaType mediaType;
+
+    // Ruta relativa al directorio del tipo de media: ab/cd/<hash>.<ext>
+    @Column(nullable = false)
+    private String storagePath;
+
+    @Column(nullable = false)
+    private Long fileSize;
+
+    @Column(nullable = false)
+    private Integer refCount = 0;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // Última referencia tomada: la reconciliación no toca referencias de subidas aún en curso
+    @Column(name = "acquired_at", insertable = false, updatable = false)
+    private LocalDateTime acquiredAt;
+
+    // Constructors
+    public StoredBlob() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+
+    public MediaType getMediaType() { return mediaType; }
+    public void setMediaType(MediaType mediaType) { this.mediaType = mediaType; }
+
+    public String getStoragePath() { return storagePath; }
+    public void setStoragePath(String storagePath) { this.storagePath = storagePath; }
+
+    public Long getFileSize() { return fileSize; }
+    public void setFileSize(Long fileSize) { this.fileSize = fileSize; }
+
+    public Integer getRefCount() { return refCount; }
+    public void setRefCount(Integer refCount) { this.refCount = refCount; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getAcquiredAt() { return acquiredAt; }
+
+    // Nombre del archivo sin los directorios de reparto
+    public String getFileName() {
+        return storagePath.substring(storagePath.lastIndexOf('/') + 1);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StoredBlob that = (StoredBlob) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return "StoredBlob{" +
+                "id=" + id +
+                ", contentHash='" + contentHash + '\'' +
+                ", storagePath='" + storagePath + '\'' +
+                ", refCount=" + refCount +
+                '}';
+    }
+}
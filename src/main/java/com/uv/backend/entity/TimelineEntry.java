@@ -0,0 +1,67 @@
+package com.uv.backend.entity;
+
+import jakarta.persistence.*;
+import java.util.Objects;
+
+/**
+ * Entrada del timeline materializado de un usuario (fan-out on write).
+ * Guarda solo ids para que la inserción masiva y la lectura por cursor sean baratas.
+ */
+@Entity
+@Table(name = "timeline_entries", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"user_id", "post_id"})
+}, indexes = {
+        @Index(name = "idx_timeline_user_author", columnList = "user_id, author_id"),
+        @Index(name = "idx_timeline_post", columnList = "post_id")
+})
+public class TimelineEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Dueño del timeline
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "post_id", nullable = false)
+    private Long postId;
+
+    // Autor del post (para limpiar el timeline al dejar de seguir)
+    @Column(name = "author_id", nullable = false)
+    private Long authorId;
+
+    // Constructors
+    public TimelineEntry() {}
+
+    public TimelineEntry(Long userId, Long postId, Long authorId) {
+        this.userId = userId;
+        this.postId = postId;
+        this.authorId = authorId;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public Long getPostId() { return postId; }
+    public void setPostId(Long postId) { this.postId = postId; }
+
+    public Long getAuthorId() { return authorId; }
+    public void setAuthorId(Long authorId) { this.authorId = authorId; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TimelineEntry that = (TimelineEntry) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+}
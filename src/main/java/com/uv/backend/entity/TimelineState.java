@@ -0,0 +1,45 @@
+package com.uv.backend.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Marca de timeline materializado: si falta, el timeline del usuario se reconstruye al leerlo.
+ * No basta con mirar si hay entradas: un timeline puede estar vacío o tener solo las que dejó
+ * el fan-out antes de materializarse.
+ */
+@Entity
+@Table(name = "timeline_states")
+public class TimelineState {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "built_at", nullable = false)
+    private LocalDateTime builtAt;
+
+    // Constructors
+    public TimelineState() {}
+
+    // Getters and Setters
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public LocalDateTime getBuiltAt() { return builtAt; }
+    public void setBuiltAt(LocalDateTime builtAt) { this.builtAt = builtAt; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TimelineState that = (TimelineState) o;
+        return Objects.equals(userId, that.userId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId);
+    }
+}
@@ -1,9 +1,13 @@
 package com.uv.backend.entity;
 
+import com.uv.backend.config.CacheConfig;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -12,9 +16,22 @@ import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
+// En caché L2: los contadores se actualizan con UPDATE nativos que desalojan solo la fila (ver EntityCacheService)
 @Entity
-@Table(name = "tracks")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheConfig.TRACKS_REGION)
+@Table(name = "tracks", indexes = {
+        @Index(name = "idx_tracks_audio_url", columnList = "audio_url"),
+        @Index(name = "idx_tracks_cover_image_url", columnList = "cover_image_url"),
+        @Index(name = "idx_tracks_waveform_url", columnList = "waveform_url"),
+        @Index(name = "idx_tracks_public_created", columnList = "is_public, created_at, id"),
+        @Index(name = "idx_tracks_user_created", columnList = "user_id, created_at, id")
+})
+// Listados: el autor llega en la misma consulta (los tags se cargan por lotes, ver default_batch_fetch_size)
+@NamedEntityGraph(name = Track.WITH_USER, attributeNodes = @NamedAttributeNode("user"))
 public class Track {
+    public static final String WITH_USER = "Track.withUser";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -56,13 +73,28 @@ public class Track {
     private String genre;
 
     @ElementCollection
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheConfig.TRACK_TAGS_REGION)
     @CollectionTable(name = "track_tags", joinColumns = @JoinColumn(name = "track_id"))
     @Column(name = "tag")
     private Set<String> tags = new HashSet<>();
 
-    @Column(nullable = false)
+    // Solo se modifica con UPDATE atómicos (ver PlayCountService)
+    @Column(nullable = false, updatable = false)
     private Integer playsCount = 0;
 
+    // Contadores denormalizados (ver CounterReconciliationService)
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private Integer likesCount = 0;
+
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private Integer commentsCount = 0;
+
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private Integer repostsCount = 0;
+
     @Column(nullable = false)
     private Boolean isPublic = true;
 
@@ -87,9 +119,6 @@ public class Track {
     @OneToMany(mappedBy = "track", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Set<Post> posts = new HashSet<>();
 
-    @ManyToMany(mappedBy = "tracks", fetch = FetchType.LAZY)
-    private Set<Playlist> playlists = new HashSet<>();
-
     // Constructors
     public Track() {}
 
@@ -186,25 +215,15 @@ public class Track {
     public Set<Post> getPosts() { return posts; }
     public void setPosts(Set<Post> posts) { this.posts = posts; }
 
-    public Set<Playlist> getPlaylists() { return playlists; }
-    public void setPlaylists(Set<Playlist> playlists) { this.playlists = playlists; }
-
     // Helper methods actualizados
-    public int getLikesCount() {
-        return likes != null ? likes.size() : 0;
-    }
+    public int getLikesCount() { return likesCount != null ? likesCount : 0; }
+    public void setLikesCount(Integer likesCount) { this.likesCount = likesCount; }
 
-    public int getCommentsCount() {
-        return comments != null ? comments.size() : 0;
-    }
-
-    public int getRepostsCount() {
-        return posts != null ? (int) posts.stream().filter(p -> p.getType() == PostType.REPOST).count() : 0;
-    }
+    public int getCommentsCount() { return commentsCount != null ? commentsCount : 0; }
+    public void setCommentsCount(Integer commentsCount) { this.commentsCount = commentsCount; }
 
-    public void incrementPlaysCount() {
-        this.playsCount++;
-    }
+    public int getRepostsCount() { return repostsCount != null ? repostsCount : 0; }
+    public void setRepostsCount(Integer repostsCount) { this.repostsCount = repostsCount; }
 
     // Métodos de conveniencia para archivos multimedia
     public boolean hasCoverImage() {
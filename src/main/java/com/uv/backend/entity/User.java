@@ -1,20 +1,31 @@
 package com.uv.backend.entity;
 
+import com.uv.backend.config.CacheConfig;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.*;
 
+// En caché L2: los contadores se actualizan con UPDATE nativos que desalojan solo la fila (ver EntityCacheService)
 @Entity
-@Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheConfig.USERS_REGION)
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_avatar_url", columnList = "avatar_url"),
+        @Index(name = "idx_users_cover_image_url", columnList = "cover_image_url")
+})
 public class User implements UserDetails {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -63,6 +74,27 @@ public class User implements UserDetails {
     @Column(nullable = false)
     private Boolean enabled = true;
 
+    // Administrador: añade ROLE_ADMIN (se asigna directamente en la base de datos)
+    @ColumnDefault("false")
+    @Column(nullable = false)
+    private Boolean admin = false;
+
+    // Los claims de los tokens emitidos hasta este momento dejan de darse por buenos (al deshabilitar la cuenta)
+    private Instant tokensInvalidBefore;
+
+    // Contadores denormalizados (ver CounterReconciliationService)
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private Integer followersCount = 0;
+
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private Integer followingCount = 0;
+
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private Integer tracksCount = 0;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -95,6 +127,9 @@ public class User implements UserDetails {
     // UserDetails implementation (sin cambios)
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
+        if (Boolean.TRUE.equals(admin)) {
+            return List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN"));
+        }
         return List.of(new SimpleGrantedAuthority("ROLE_USER"));
     }
 
@@ -194,6 +229,12 @@ public class User implements UserDetails {
     public Boolean getEnabled() { return enabled; }
     public void setEnabled(Boolean enabled) { this.enabled = enabled; }
 
+    public Boolean getAdmin() { return admin; }
+    public void setAdmin(Boolean admin) { this.admin = admin; }
+
+    public Instant getTokensInvalidBefore() { return tokensInvalidBefore; }
+    public void setTokensInvalidBefore(Instant tokensInvalidBefore) { this.tokensInvalidBefore = tokensInvalidBefore; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
@@ -222,17 +263,14 @@ public class User implements UserDetails {
     public void setComments(Set<Comment> comments) { this.comments = comments; }
 
     // Helper methods
-    public int getFollowersCount() {
-        return followers != null ? followers.size() : 0;
-    }
+    public int getFollowersCount() { return followersCount != null ? followersCount : 0; }
+    public void setFollowersCount(Integer followersCount) { this.followersCount = followersCount; }
 
-    public int getFollowingCount() {
-        return following != null ? following.size() : 0;
-    }
+    public int getFollowingCount() { return followingCount != null ? followingCount : 0; }
+    public void setFollowingCount(Integer followingCount) { this.followingCount = followingCount; }
 
-    public int getTracksCount() {
-        return tracks != null ? tracks.size() : 0;
-    }
+    public int getTracksCount() { return tracksCount != null ? tracksCount : 0; }
+    public void setTracksCount(Integer tracksCount) { this.tracksCount = tracksCount; }
 
     // Métodos de conveniencia para archivos multimedia
     public boolean hasAvatar() {
@@ -0,0 +1,7 @@
+package com.uv.backend.exception;
+
+public class StorageQuotaExceededException extends FileUploadException {
+    public StorageQuotaExceededException(String message) {
+        super(message);
+    }
+}
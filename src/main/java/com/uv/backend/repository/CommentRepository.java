@@ -1,12 +1,19 @@
 package com.uv.backend.repository;
 
 import com.uv.backend.entity.Comment;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
@@ -14,9 +21,56 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
     Page<Comment> findByTrackIdAndParentIsNullOrderByCreatedAtDesc(Long trackId, Pageable pageable);
     Page<Comment> findByParentIdOrderByCreatedAtAsc(Long parentId, Pageable pageable);
 
+    // Paginación por cursor (createdAt, id), sin COUNT: comentarios descendentes, respuestas ascendentes
+    @Query("SELECT c FROM Comment c WHERE c.track.id = :trackId AND c.parent IS NULL " +
+            "AND c.createdAt <= :createdAt AND (c.createdAt < :createdAt OR c.id < :id) ORDER BY c.createdAt DESC, c.id DESC")
+    Slice<Comment> findTrackCommentsBefore(@Param("trackId") Long trackId, @Param("createdAt") LocalDateTime createdAt,
+                                           @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT c FROM Comment c WHERE c.post.id = :postId AND c.parent IS NULL " +
+            "AND c.createdAt <= :createdAt AND (c.createdAt < :createdAt OR c.id < :id) ORDER BY c.createdAt DESC, c.id DESC")
+    Slice<Comment> findPostCommentsBefore(@Param("postId") Long postId, @Param("createdAt") LocalDateTime createdAt,
+                                          @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT c FROM Comment c WHERE c.parent.id = :parentId " +
+            "AND c.createdAt >= :createdAt AND (c.createdAt > :createdAt OR c.id > :id) ORDER BY c.createdAt ASC, c.id ASC")
+    Slice<Comment> findRepliesAfter(@Param("parentId") Long parentId, @Param("createdAt") LocalDateTime createdAt,
+                                    @Param("id") Long id, Pageable pageable);
+
     @Query("SELECT COUNT(c) FROM Comment c WHERE c.post.id = :postId")
     Long countByPostId(@Param("postId") Long postId);
 
     @Query("SELECT COUNT(c) FROM Comment c WHERE c.track.id = :trackId")
     Long countByTrackId(@Param("trackId") Long trackId);
+
+    // Contadores denormalizados (incrementos atómicos dentro de la transacción del servicio)
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Comment c SET c.likesCount = c.likesCount + :delta WHERE c.id = :commentId")
+    int adjustLikesCount(@Param("commentId") Long commentId, @Param("delta") int delta);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Comment c SET c.repliesCount = c.repliesCount + :delta WHERE c.id = :commentId")
+    int adjustRepliesCount(@Param("commentId") Long commentId, @Param("delta") int delta);
+
+    // Reconciliación de contadores por rangos de id
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM Comment c")
+    Long findMaxId();
+
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "comments"))
+    @Query(value = "UPDATE comments x SET likes_count = (SELECT COUNT(*) FROM likes l WHERE l.comment_id = x.id) " +
+            "WHERE x.id > :fromId AND x.id <= :toId " +
+            "AND x.likes_count <> (SELECT COUNT(*) FROM likes l WHERE l.comment_id = x.id)",
+            nativeQuery = true)
+    int reconcileLikesCount(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "comments"))
+    @Query(value = "UPDATE comments x SET replies_count = (SELECT COUNT(*) FROM comments r WHERE r.parent_id = x.id) " +
+            "WHERE x.id > :fromId AND x.id <= :toId " +
+            "AND x.replies_count <> (SELECT COUNT(*) FROM comments r WHERE r.parent_id = x.id)",
+            nativeQuery = true)
+    int reconcileRepliesCount(@Param("fromId") Long fromId, @Param("toId") Long toId);
 }
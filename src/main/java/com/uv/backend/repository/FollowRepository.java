@@ -3,12 +3,17 @@ import com.uv.backend.entity.Follow;
 import com.uv.backend.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface FollowRepository extends JpaRepository<Follow, Long> {
@@ -21,5 +26,26 @@ public interface FollowRepository extends JpaRepository<Follow, Long> {
     @Query("SELECT f.follower FROM Follow f WHERE f.following.id = :userId")
     Page<User> findFollowers(@Param("userId") Long userId, Pageable pageable);
 
+    // Paginación por cursor sobre (createdAt, id) del seguimiento, más recientes primero
+    @Query("SELECT f FROM Follow f JOIN FETCH f.follower WHERE f.following.id = :userId " +
+            "AND f.createdAt <= :createdAt AND (f.createdAt < :createdAt OR f.id < :id) ORDER BY f.createdAt DESC, f.id DESC")
+    Slice<Follow> findFollowersBefore(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                      @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT f FROM Follow f JOIN FETCH f.following WHERE f.follower.id = :userId " +
+            "AND f.createdAt <= :createdAt AND (f.createdAt < :createdAt OR f.id < :id) ORDER BY f.createdAt DESC, f.id DESC")
+    Slice<Follow> findFollowingBefore(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                      @Param("id") Long id, Pageable pageable);
+
     void deleteByFollowerIdAndFollowingId(Long followerId, Long followingId);
-}
\ No newline at end of file
+
+    // Resolución en bloque de "isFollowing" para una página de resultados
+    @Query("SELECT f.following.id FROM Follow f WHERE f.follower.id = :followerId AND f.following.id IN :userIds")
+    Set<Long> findFollowedUserIds(@Param("followerId") Long followerId, @Param("userIds") Collection<Long> userIds);
+
+    // Cuentas seguidas con demasiados seguidores para fan-out (se mezclan al leer el timeline)
+    @Query("SELECT f.following.id FROM Follow f WHERE f.follower.id = :followerId " +
+            "AND f.following.followersCount >= :minFollowers")
+    List<Long> findFollowedUserIdsWithMinFollowers(@Param("followerId") Long followerId,
+                                                   @Param("minFollowers") int minFollowers);
+}
@@ -5,7 +5,9 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface LikeRepository extends JpaRepository<Like, Long> {
@@ -36,4 +38,16 @@ public interface LikeRepository extends JpaRepository<Like, Long> {
     @Query("SELECT COUNT(l) FROM Like l WHERE l.playlist.id = :playlistId")
     Long countByPlaylistId(@Param("playlistId") Long playlistId);
 
+    // Resolución en bloque de "isLiked" para una página de resultados
+    @Query("SELECT l.post.id FROM Like l WHERE l.user.id = :userId AND l.post.id IN :postIds")
+    Set<Long> findLikedPostIds(@Param("userId") Long userId, @Param("postIds") Collection<Long> postIds);
+
+    @Query("SELECT l.track.id FROM Like l WHERE l.user.id = :userId AND l.track.id IN :trackIds")
+    Set<Long> findLikedTrackIds(@Param("userId") Long userId, @Param("trackIds") Collection<Long> trackIds);
+
+    @Query("SELECT l.comment.id FROM Like l WHERE l.user.id = :userId AND l.comment.id IN :commentIds")
+    Set<Long> findLikedCommentIds(@Param("userId") Long userId, @Param("commentIds") Collection<Long> commentIds);
+
+    @Query("SELECT l.playlist.id FROM Like l WHERE l.user.id = :userId AND l.playlist.id IN :playlistIds")
+    Set<Long> findLikedPlaylistIds(@Param("userId") Long userId, @Param("playlistIds") Collection<Long> playlistIds);
 }
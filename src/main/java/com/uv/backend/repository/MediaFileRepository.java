@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -68,19 +69,40 @@ public interface MediaFileRepository extends JpaRepository<MediaFile, Long> {
     // Contar archivos por tipo de media
     Long countByMediaType(MediaType mediaType);
 
-    // Buscar archivos huérfanos (no referenciados)
-    @Query("SELECT m FROM MediaFile m WHERE m.createdAt < :cutoffDate AND NOT EXISTS " +
-            "(SELECT 1 FROM User u WHERE u.avatarUrl = m.fileUrl OR u.coverImageUrl = m.fileUrl) AND NOT EXISTS " +
-            "(SELECT 1 FROM Track t WHERE t.audioUrl = m.fileUrl OR t.coverImageUrl = m.fileUrl OR t.waveformUrl = m.fileUrl) AND NOT EXISTS " +
-            "(SELECT 1 FROM Playlist p WHERE p.coverImageUrl = m.fileUrl)")
-    List<MediaFile> findOrphanedFiles(@Param("cutoffDate") LocalDateTime cutoffDate);
+    // Candidatos del barrido de huérfanos: [id, fileUrl, userId, mediaType, fileSize] por keyset sobre la clave primaria
+    @Query("SELECT m.id, m.fileUrl, m.uploadedBy.id, m.mediaType, m.fileSize FROM MediaFile m WHERE m.id > :afterId AND m.createdAt < :cutoffDate ORDER BY m.id")
+    List<Object[]> findSweepCandidates(@Param("afterId") Long afterId,
+                                       @Param("cutoffDate") LocalDateTime cutoffDate,
+                                       Pageable pageable);
+
+    // Referencias a las URLs del lote por dueño de la entidad: [url, ownerId, referencias]
+    // (una búsqueda por índice por columna)
+    @Query(value = "SELECT r.url, r.owner_id, COUNT(*) FROM (" +
+            "SELECT avatar_url AS url, id AS owner_id FROM users WHERE avatar_url IN (:urls) " +
+            "UNION ALL SELECT cover_image_url, id FROM users WHERE cover_image_url IN (:urls) " +
+            "UNION ALL SELECT audio_url, user_id FROM tracks WHERE audio_url IN (:urls) " +
+            "UNION ALL SELECT cover_image_url, user_id FROM tracks WHERE cover_image_url IN (:urls) " +
+            "UNION ALL SELECT waveform_url, user_id FROM tracks WHERE waveform_url IN (:urls) " +
+            "UNION ALL SELECT cover_image_url, user_id FROM playlists WHERE cover_image_url IN (:urls) " +
+            "UNION ALL SELECT i.image_url, p.user_id FROM post_images i JOIN posts p ON p.id = i.post_id WHERE i.image_url IN (:urls) " +
+            "UNION ALL SELECT v.video_url, p.user_id FROM post_videos v JOIN posts p ON p.id = v.post_id WHERE v.video_url IN (:urls) " +
+            "UNION ALL SELECT v.thumbnail_url, p.user_id FROM post_videos v JOIN posts p ON p.id = v.post_id WHERE v.thumbnail_url IN (:urls)" +
+            ") r GROUP BY r.url, r.owner_id",
+            nativeQuery = true)
+    List<Object[]> countReferencesByOwner(@Param("urls") Collection<String> urls);
+
+    // Todas las filas con alguna de las URLs (también fuera del lote): [id, fileUrl, userId]
+    @Query("SELECT m.id, m.fileUrl, m.uploadedBy.id FROM MediaFile m WHERE m.fileUrl IN :urls ORDER BY m.id DESC")
+    List<Object[]> findOwnersByFileUrlIn(@Param("urls") Collection<String> urls);
 
     // Buscar archivos recientes
     @Query("SELECT m FROM MediaFile m WHERE m.createdAt >= :since ORDER BY m.createdAt DESC")
     List<MediaFile> findRecentFiles(@Param("since") LocalDateTime since, Pageable pageable);
 
-    // Buscar archivos por URL
-    Optional<MediaFile> findByFileUrl(String fileUrl);
+    // Buscar archivos por URL (varias subidas idénticas comparten la misma URL)
+    List<MediaFile> findByFileUrl(String fileUrl);
+
+    Optional<MediaFile> findFirstByFileUrlAndUploadedByIdOrderByIdDesc(String fileUrl, Long userId);
 
     // Buscar archivos grandes (por encima de un tamaño específico)
     @Query("SELECT m FROM MediaFile m WHERE m.fileSize > :sizeThreshold ORDER BY m.fileSize DESC")
@@ -90,6 +112,9 @@ public interface MediaFileRepository extends JpaRepository<MediaFile, Long> {
     @Query("SELECT m FROM MediaFile m WHERE m.mediaType = :mediaType ORDER BY m.createdAt DESC")
     List<MediaFile> findPopularFilesByType(@Param("mediaType") MediaType mediaType, Pageable pageable);
 
+    // Buscar subidas del mismo contenido por usuario
+    List<MediaFile> findByContentHashAndUploadedById(String contentHash, Long userId);
+
     // Buscar archivos duplicados por nombre original
     @Query("SELECT m FROM MediaFile m WHERE m.originalFileName = :fileName AND m.uploadedBy.id = :userId")
     List<MediaFile> findDuplicatesByOriginalFileName(@Param("fileName") String fileName, @Param("userId") Long userId);
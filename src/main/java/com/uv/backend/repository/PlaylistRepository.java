@@ -1,22 +1,112 @@
 package com.uv.backend.repository;
 import com.uv.backend.entity.Playlist;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface PlaylistRepository extends JpaRepository<Playlist, Long> {
+    @EntityGraph(Playlist.WITH_USER)
     Page<Playlist> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
+
+    @EntityGraph(Playlist.WITH_USER)
     Page<Playlist> findByIsPublicTrueOrderByCreatedAtDesc(Pageable pageable);
 
-    @Query("SELECT p FROM Playlist p WHERE p.isPublic = true AND " +
-            "(p.title LIKE %:query% OR p.user.displayName LIKE %:query%)")
-    Page<Playlist> searchPlaylists(@Param("query") String query, Pageable pageable);
+    // Búsqueda de texto completo: prefijos sobre search_vector y tolerancia a errores con trigramas
+    @Query(value = "SELECT p.* FROM playlists p WHERE p.is_public = true AND " +
+            "(p.search_vector @@ to_tsquery('simple', :tsQuery) OR :query <% p.search_document) " +
+            "ORDER BY ts_rank(p.search_vector, to_tsquery('simple', :tsQuery)) + " +
+            "word_similarity(:query, p.search_document) DESC, p.id DESC",
+            countQuery = "SELECT COUNT(*) FROM playlists p WHERE p.is_public = true AND " +
+                    "(p.search_vector @@ to_tsquery('simple', :tsQuery) OR :query <% p.search_document)",
+            nativeQuery = true)
+    Page<Playlist> searchPlaylists(@Param("query") String query, @Param("tsQuery") String tsQuery, Pageable pageable);
+
+    @Query(value = "SELECT p.* FROM playlists p WHERE p.user_id = :userId AND " +
+            "(p.search_vector @@ to_tsquery('simple', :tsQuery) OR :query <% p.search_document) " +
+            "ORDER BY ts_rank(p.search_vector, to_tsquery('simple', :tsQuery)) + " +
+            "word_similarity(:query, p.search_document) DESC, p.id DESC",
+            countQuery = "SELECT COUNT(*) FROM playlists p WHERE p.user_id = :userId AND " +
+                    "(p.search_vector @@ to_tsquery('simple', :tsQuery) OR :query <% p.search_document)",
+            nativeQuery = true)
+    Page<Playlist> searchUserPlaylists(@Param("userId") Long userId, @Param("query") String query,
+                                       @Param("tsQuery") String tsQuery, Pageable pageable);
+
+    // Documento de búsqueda: título, descripción y autor
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = QuerySpaces.UNMAPPED_COLUMNS))
+    @Query(value = "UPDATE playlists p SET search_document = lower(concat_ws(' ', p.title, p.description, u.username, u.display_name)) " +
+            "FROM users u WHERE u.id = p.user_id AND p.id = :playlistId", nativeQuery = true)
+    int refreshSearchDocument(@Param("playlistId") Long playlistId);
+
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = QuerySpaces.UNMAPPED_COLUMNS))
+    @Query(value = "UPDATE playlists p SET search_document = lower(concat_ws(' ', p.title, p.description, u.username, u.display_name)) " +
+            "FROM users u WHERE u.id = p.user_id AND p.user_id = :userId", nativeQuery = true)
+    int refreshSearchDocumentsByUser(@Param("userId") Long userId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = QuerySpaces.UNMAPPED_COLUMNS))
+    @Query(value = "UPDATE playlists p SET search_document = lower(concat_ws(' ', p.title, p.description, u.username, u.display_name)) " +
+            "FROM users u WHERE u.id = p.user_id AND p.id IN " +
+            "(SELECT x.id FROM playlists x WHERE x.search_document IS NULL LIMIT :limit)", nativeQuery = true)
+    int backfillSearchDocuments(@Param("limit") int limit);
+
+    // Contadores denormalizados (incrementos atómicos dentro de la transacción del servicio).
+    // Nativos para no vaciar la región de Playlist en la caché L2; el servicio desaloja la fila
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = QuerySpaces.TARGETED_ROWS))
+    @Query(value = "UPDATE playlists SET likes_count = likes_count + :delta WHERE id = :playlistId", nativeQuery = true)
+    int adjustLikesCount(@Param("playlistId") Long playlistId, @Param("delta") int delta);
+
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = QuerySpaces.TARGETED_ROWS))
+    @Query(value = "UPDATE playlists SET tracks_count = tracks_count + :delta WHERE id = :playlistId", nativeQuery = true)
+    int adjustTracksCount(@Param("playlistId") Long playlistId, @Param("delta") int delta);
+
+    // Antes de borrar un track: descontarlo de las playlists que lo contienen (el servicio desaloja esas filas)
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = QuerySpaces.TARGETED_ROWS))
+    @Query(value = "UPDATE playlists SET tracks_count = tracks_count - 1 " +
+            "WHERE id IN (SELECT pt.playlist_id FROM playlist_tracks pt WHERE pt.track_id = :trackId)", nativeQuery = true)
+    int decrementTracksCountForTrack(@Param("trackId") Long trackId);
+
+    // Antes de borrar un usuario: descontar sus tracks de las playlists de otros usuarios
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "playlists"))
+    @Query(value = "UPDATE playlists p SET tracks_count = p.tracks_count - x.n FROM " +
+            "(SELECT pt.playlist_id, COUNT(*) AS n FROM playlist_tracks pt JOIN tracks t ON t.id = pt.track_id " +
+            "WHERE t.user_id = :userId GROUP BY pt.playlist_id) x " +
+            "WHERE p.id = x.playlist_id AND p.user_id <> :userId", nativeQuery = true)
+    int decrementTracksCountForUserTracks(@Param("userId") Long userId);
+
+    // Reconciliación de contadores por rangos de id
+    @Query("SELECT COALESCE(MAX(p.id), 0) FROM Playlist p")
+    Long findMaxId();
+
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "playlists"))
+    @Query(value = "UPDATE playlists x SET likes_count = (SELECT COUNT(*) FROM likes l WHERE l.playlist_id = x.id) " +
+            "WHERE x.id > :fromId AND x.id <= :toId " +
+            "AND x.likes_count <> (SELECT COUNT(*) FROM likes l WHERE l.playlist_id = x.id)",
+            nativeQuery = true)
+    int reconcileLikesCount(@Param("fromId") Long fromId, @Param("toId") Long toId);
 
-    @Query("SELECT p FROM Playlist p WHERE p.user.id = :userId AND " +
-            "(p.title LIKE %:query% OR p.description LIKE %:query%)")
-    Page<Playlist> searchUserPlaylists(@Param("userId") Long userId, @Param("query") String query, Pageable pageable);
-}
\ No newline at end of file
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "playlists"))
+    @Query(value = "UPDATE playlists x SET tracks_count = (SELECT COUNT(*) FROM playlist_tracks pt WHERE pt.playlist_id = x.id) " +
+            "WHERE x.id > :fromId AND x.id <= :toId " +
+            "AND x.tracks_count <> (SELECT COUNT(*) FROM playlist_tracks pt WHERE pt.playlist_id = x.id)",
+            nativeQuery = true)
+    int reconcileTracksCount(@Param("fromId") Long fromId, @Param("toId") Long toId);
+}
@@ -0,0 +1,76 @@
+package com.uv.backend.repository;
+
+import com.uv.backend.entity.PlaylistTrack;
+import com.uv.backend.entity.Track;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PlaylistTrackRepository extends JpaRepository<PlaylistTrack, PlaylistTrack.Key> {
+
+    // Página de tracks en orden, con su autor, directamente sobre (playlist_id, position); sin COUNT
+    @Query("SELECT t FROM PlaylistTrack pt JOIN pt.track t JOIN FETCH t.user " +
+            "WHERE pt.playlistId = :playlistId ORDER BY pt.position, pt.trackId")
+    List<Track> findTracksPage(@Param("playlistId") Long playlistId, Pageable pageable);
+
+    @Query("SELECT pt FROM PlaylistTrack pt WHERE pt.playlistId = :playlistId AND pt.trackId IN :trackIds")
+    List<PlaylistTrack> findByPlaylistIdAndTrackIdIn(@Param("playlistId") Long playlistId,
+                                                     @Param("trackIds") Collection<Long> trackIds);
+
+    @Query("SELECT pt.trackId FROM PlaylistTrack pt WHERE pt.playlistId = :playlistId AND pt.trackId IN :trackIds")
+    List<Long> findTrackIdsInPlaylist(@Param("playlistId") Long playlistId,
+                                      @Param("trackIds") Collection<Long> trackIds);
+
+    @Query("SELECT pt.playlistId FROM PlaylistTrack pt WHERE pt.trackId = :trackId")
+    List<Long> findPlaylistIdsByTrackId(@Param("trackId") Long trackId);
+
+    // Posiciones alrededor de un índice sin contar los tracks que se colocan (trackIds no puede ir vacío)
+    @Query(value = "SELECT pt.position FROM playlist_tracks pt " +
+            "WHERE pt.playlist_id = :playlistId AND pt.track_id NOT IN (:trackIds) " +
+            "ORDER BY pt.position, pt.track_id LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<Long> findPositionsExcluding(@Param("playlistId") Long playlistId,
+                                      @Param("trackIds") Collection<Long> trackIds,
+                                      @Param("offset") int offset, @Param("limit") int limit);
+
+    @Query(value = "SELECT MAX(pt.position) FROM playlist_tracks pt " +
+            "WHERE pt.playlist_id = :playlistId AND pt.track_id NOT IN (:trackIds)", nativeQuery = true)
+    Long findMaxPositionExcluding(@Param("playlistId") Long playlistId,
+                                  @Param("trackIds") Collection<Long> trackIds);
+
+    // Repartir de nuevo las posiciones con huecos de :gap cuando ya no caben más entre dos filas
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "playlist_tracks"))
+    @Query(value = "UPDATE playlist_tracks pt SET position = r.rn * :gap FROM " +
+            "(SELECT track_id, row_number() OVER (ORDER BY position, track_id) AS rn " +
+            "FROM playlist_tracks WHERE playlist_id = :playlistId) r " +
+            "WHERE pt.playlist_id = :playlistId AND pt.track_id = r.track_id", nativeQuery = true)
+    int renumber(@Param("playlistId") Long playlistId, @Param("gap") long gap);
+
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM PlaylistTrack pt WHERE pt.playlistId = :playlistId AND pt.trackId IN :trackIds")
+    int deleteByPlaylistIdAndTrackIdIn(@Param("playlistId") Long playlistId,
+                                       @Param("trackIds") Collection<Long> trackIds);
+
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM PlaylistTrack pt WHERE pt.playlistId = :playlistId")
+    int deleteByPlaylistId(@Param("playlistId") Long playlistId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM PlaylistTrack pt WHERE pt.trackId = :trackId")
+    int deleteByTrackId(@Param("trackId") Long trackId);
+
+    // Al eliminar un usuario: sus tracks en cualquier playlist y todo el contenido de sus playlists
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM PlaylistTrack pt WHERE pt.trackId IN (SELECT t.id FROM Track t WHERE t.user.id = :userId) " +
+            "OR pt.playlistId IN (SELECT p.id FROM Playlist p WHERE p.user.id = :userId)")
+    int deleteByUserId(@Param("userId") Long userId);
+}
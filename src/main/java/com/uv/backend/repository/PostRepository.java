@@ -2,29 +2,54 @@ package com.uv.backend.repository;
 
 import com.uv.backend.entity.Post;
 import com.uv.backend.entity.PostType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
+    @EntityGraph(Post.WITH_DETAILS)
     Page<Post> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
 
-    @Query("SELECT p FROM Post p WHERE p.user.id IN " +
-            "(SELECT f.following.id FROM Follow f WHERE f.follower.id = :userId) " +
-            "OR p.user.id = :userId ORDER BY p.createdAt DESC")
-    Page<Post> findFeedPosts(@Param("userId") Long userId, Pageable pageable);
-
+    // Paginación por cursor (createdAt, id) descendente, sin COUNT
+    @EntityGraph(Post.WITH_DETAILS)
+    @Query("SELECT p FROM Post p WHERE p.user.id = :userId " +
+            "AND p.createdAt <= :createdAt AND (p.createdAt < :createdAt OR p.id < :id) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Post> findByUserIdBefore(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                   @Param("id") Long id, Pageable pageable);
+
+    // Posts recientes de un conjunto de autores, por cursor (timeline: cuentas sin fan-out)
+    @Query("SELECT p.id FROM Post p WHERE p.user.id IN :userIds AND p.id < :cursor ORDER BY p.id DESC")
+    List<Long> findIdsByUserIdsBefore(@Param("userIds") Collection<Long> userIds,
+                                      @Param("cursor") Long cursor, Pageable pageable);
+
+    // Posts de una página del timeline con sus relaciones (el orden lo decide quien llama)
+    @EntityGraph(Post.WITH_DETAILS)
+    @Query("SELECT p FROM Post p WHERE p.id IN :ids")
+    List<Post> findAllWithDetailsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @EntityGraph(Post.WITH_DETAILS)
     Page<Post> findByTypeOrderByCreatedAtDesc(PostType type, Pageable pageable);
 
     @Query("SELECT COUNT(p) FROM Post p WHERE p.originalPost.id = :postId AND p.type = 'REPOST'")
     Long countReposts(@Param("postId") Long postId);
 
+    @EntityGraph(Post.WITH_DETAILS)
     @Query("SELECT p FROM Post p WHERE p.track.id = :trackId AND p.type = 'REPOST'")
     Page<Post> findRepostsByTrackId(@Param("trackId") Long trackId, Pageable pageable);
 
@@ -38,20 +63,30 @@ public interface PostRepository extends JpaRepository<Post, Long> {
                                                     @Param("originalPostId") Long originalPostId,
                                                     @Param("type") PostType type);
 
+    // Resolución en bloque de "isReposted" para una página de resultados
+    @Query("SELECT p.originalPost.id FROM Post p WHERE p.user.id = :userId AND p.type = 'REPOST' " +
+            "AND p.originalPost.id IN :postIds")
+    Set<Long> findRepostedPostIds(@Param("userId") Long userId, @Param("postIds") Collection<Long> postIds);
+
     // Nuevas consultas para posts multimedia
+    @EntityGraph(Post.WITH_DETAILS)
     @Query("SELECT p FROM Post p WHERE SIZE(p.images) > 0 ORDER BY p.createdAt DESC")
     Page<Post> findPostsWithImages(Pageable pageable);
 
+    @EntityGraph(Post.WITH_DETAILS)
     @Query("SELECT p FROM Post p WHERE SIZE(p.videos) > 0 ORDER BY p.createdAt DESC")
     Page<Post> findPostsWithVideos(Pageable pageable);
 
+    @EntityGraph(Post.WITH_DETAILS)
     @Query("SELECT p FROM Post p WHERE (SIZE(p.images) > 0 OR SIZE(p.videos) > 0) ORDER BY p.createdAt DESC")
     Page<Post> findPostsWithMultimedia(Pageable pageable);
 
     // Buscar posts por usuario con multimedia
+    @EntityGraph(Post.WITH_DETAILS)
     @Query("SELECT p FROM Post p WHERE p.user.id = :userId AND SIZE(p.images) > 0 ORDER BY p.createdAt DESC")
     Page<Post> findPostsWithImagesByUser(@Param("userId") Long userId, Pageable pageable);
 
+    @EntityGraph(Post.WITH_DETAILS)
     @Query("SELECT p FROM Post p WHERE p.user.id = :userId AND SIZE(p.videos) > 0 ORDER BY p.createdAt DESC")
     Page<Post> findPostsWithVideosByUser(@Param("userId") Long userId, Pageable pageable);
 
@@ -64,4 +99,53 @@ public interface PostRepository extends JpaRepository<Post, Long> {
 
     @Query("SELECT COUNT(p) FROM Post p WHERE (SIZE(p.images) > 0 OR SIZE(p.videos) > 0)")
     Long countPostsWithMultimedia();
-}
\ No newline at end of file
+
+    // Contadores denormalizados (incrementos atómicos dentro de la transacción del servicio)
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Post p SET p.likesCount = p.likesCount + :delta WHERE p.id = :postId")
+    int adjustLikesCount(@Param("postId") Long postId, @Param("delta") int delta);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Post p SET p.commentsCount = p.commentsCount + :delta WHERE p.id = :postId")
+    int adjustCommentsCount(@Param("postId") Long postId, @Param("delta") int delta);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Post p SET p.repostsCount = p.repostsCount + :delta WHERE p.id = :postId")
+    int adjustRepostsCount(@Param("postId") Long postId, @Param("delta") int delta);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Post p SET p.commentsCount = (SELECT COUNT(c) FROM Comment c WHERE c.post.id = :postId) " +
+            "WHERE p.id = :postId")
+    int refreshCommentsCount(@Param("postId") Long postId);
+
+    // Reconciliación de contadores por rangos de id
+    @Query("SELECT COALESCE(MAX(p.id), 0) FROM Post p")
+    Long findMaxId();
+
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "posts"))
+    @Query(value = "UPDATE posts x SET likes_count = (SELECT COUNT(*) FROM likes l WHERE l.post_id = x.id) " +
+            "WHERE x.id > :fromId AND x.id <= :toId " +
+            "AND x.likes_count <> (SELECT COUNT(*) FROM likes l WHERE l.post_id = x.id)",
+            nativeQuery = true)
+    int reconcileLikesCount(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "posts"))
+    @Query(value = "UPDATE posts x SET comments_count = (SELECT COUNT(*) FROM comments c WHERE c.post_id = x.id) " +
+            "WHERE x.id > :fromId AND x.id <= :toId " +
+            "AND x.comments_count <> (SELECT COUNT(*) FROM comments c WHERE c.post_id = x.id)",
+            nativeQuery = true)
+    int reconcileCommentsCount(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "posts"))
+    @Query(value = "UPDATE posts x SET reposts_count = (SELECT COUNT(*) FROM posts r WHERE r.original_post_id = x.id AND r.type = 'REPOST') " +
+            "WHERE x.id > :fromId AND x.id <= :toId " +
+            "AND x.reposts_count <> (SELECT COUNT(*) FROM posts r WHERE r.original_post_id = x.id AND r.type = 'REPOST')",
+            nativeQuery = true)
+    int reconcileRepostsCount(@Param("fromId") Long fromId, @Param("toId") Long toId);
+}
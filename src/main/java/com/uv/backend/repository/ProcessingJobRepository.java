@@ -0,0 +1,79 @@
+package com.uv.backend.repository;
+
+import com.uv.backend.entity.ProcessingJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProcessingJobRepository extends JpaRepository<ProcessingJob, Long> {
+
+    List<ProcessingJob> findByTrackIdOrderByCreatedAtDesc(Long trackId);
+
+    // Trabajos pendientes y vencidos de un tipo; SKIP LOCKED para que varias instancias no reclamen los mismos
+    @Query(value = "SELECT j.id FROM processing_jobs j WHERE j.status = 'PENDING' AND j.type = :type " +
+            "AND j.next_run_at <= :now ORDER BY j.next_run_at, j.id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<Long> findDueIdsForUpdate(@Param("type") String type, @Param("now") LocalDateTime now,
+                                   @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE ProcessingJob j SET j.status = com.uv.backend.entity.ProcessingJobStatus.RUNNING, " +
+            "j.attempts = j.attempts + 1, j.startedAt = :now, j.updatedAt = :now WHERE j.id IN :ids")
+    int markRunning(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE ProcessingJob j SET j.status = com.uv.backend.entity.ProcessingJobStatus.SUCCEEDED, " +
+            "j.lastError = NULL, j.finishedAt = :now, j.updatedAt = :now " +
+            "WHERE j.id = :id AND j.status = com.uv.backend.entity.ProcessingJobStatus.RUNNING")
+    int markSucceeded(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE ProcessingJob j SET j.status = com.uv.backend.entity.ProcessingJobStatus.PENDING, " +
+            "j.lastError = :error, j.nextRunAt = :nextRunAt, j.updatedAt = :now " +
+            "WHERE j.id = :id AND j.status = com.uv.backend.entity.ProcessingJobStatus.RUNNING")
+    int reschedule(@Param("id") Long id, @Param("error") String error,
+                   @Param("nextRunAt") LocalDateTime nextRunAt, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE ProcessingJob j SET j.status = com.uv.backend.entity.ProcessingJobStatus.FAILED, " +
+            "j.lastError = :error, j.finishedAt = :now, j.updatedAt = :now " +
+            "WHERE j.id = :id AND j.status = com.uv.backend.entity.ProcessingJobStatus.RUNNING")
+    int markFailed(@Param("id") Long id, @Param("error") String error, @Param("now") LocalDateTime now);
+
+    // Latido de los trabajos en curso: mientras se actualiza updatedAt no se dan por abandonados
+    @Modifying
+    @Query("UPDATE ProcessingJob j SET j.updatedAt = :now " +
+            "WHERE j.id IN :ids AND j.status = com.uv.backend.entity.ProcessingJobStatus.RUNNING")
+    int heartbeat(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // Trabajos en RUNNING sin latido (caída del proceso): vuelven a la cola o fallan si no quedan intentos
+    @Modifying
+    @Query("UPDATE ProcessingJob j SET j.status = com.uv.backend.entity.ProcessingJobStatus.PENDING, " +
+            "j.lastError = 'Interrupted', j.nextRunAt = :now, j.updatedAt = :now " +
+            "WHERE j.status = com.uv.backend.entity.ProcessingJobStatus.RUNNING AND j.updatedAt < :cutoff " +
+            "AND j.attempts < j.maxAttempts")
+    int requeueStale(@Param("cutoff") LocalDateTime cutoff, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE ProcessingJob j SET j.status = com.uv.backend.entity.ProcessingJobStatus.FAILED, " +
+            "j.lastError = 'Interrupted', j.finishedAt = :now, j.updatedAt = :now " +
+            "WHERE j.status = com.uv.backend.entity.ProcessingJobStatus.RUNNING AND j.updatedAt < :cutoff " +
+            "AND j.attempts >= j.maxAttempts")
+    int failStale(@Param("cutoff") LocalDateTime cutoff, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM ProcessingJob j WHERE j.finishedAt < :cutoff AND j.status IN " +
+            "(com.uv.backend.entity.ProcessingJobStatus.SUCCEEDED, com.uv.backend.entity.ProcessingJobStatus.FAILED)")
+    int deleteFinishedBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM ProcessingJob j WHERE j.trackId = :trackId")
+    int deleteByTrackId(@Param("trackId") Long trackId);
+}
@@ -0,0 +1,25 @@
+package com.uv.backend.repository;
+
+import org.hibernate.jpa.HibernateHints;
+
+/**
+ * Query spaces de las sentencias nativas de escritura.
+ *
+ * Hibernate no sabe qué tablas modifica una sentencia nativa y, si no se le indica, vacía todas
+ * las regiones de la caché L2 cada vez que se ejecuta una. Cada sentencia declara su espacio con
+ * {@code @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = ...))}:
+ * - el nombre de la tabla, si cambia columnas mapeadas en muchas filas (se vacía solo esa región);
+ * - TARGETED_ROWS, si cambia columnas mapeadas de filas concretas; el servicio desaloja esas
+ *   filas con EntityCacheService en lugar de vaciar la región;
+ * - UNMAPPED_COLUMNS, si solo toca columnas que no están en la entidad (search_document).
+ */
+public final class QuerySpaces {
+
+    public static final String HINT = HibernateHints.HINT_NATIVE_SPACES;
+
+    public static final String TARGETED_ROWS = "targeted_rows";
+    public static final String UNMAPPED_COLUMNS = "unmapped_columns";
+
+    private QuerySpaces() {
+    }
+}
@@ -0,0 +1,87 @@
+package com.uv.backend.repository;
+
+import com.uv.backend.entity.StorageUsage;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface StorageUsageRepository extends JpaRepository<StorageUsage, StorageUsage.Key> {
+
+    List<StorageUsage> findByUserId(Long userId);
+
+    // Sumar (o restar) archivos y bytes en una sola sentencia; nunca queda por debajo de cero
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "storage_usage"))
+    @Query(value = "INSERT INTO storage_usage (user_id, media_type, file_count, bytes_used, updated_at) " +
+            "VALUES (:userId, :mediaType, GREATEST(:files, 0), GREATEST(:bytes, 0), now()) " +
+            "ON CONFLICT (user_id, media_type) DO UPDATE SET " +
+            "file_count = GREATEST(storage_usage.file_count + :files, 0), " +
+            "bytes_used = GREATEST(storage_usage.bytes_used + :bytes, 0), " +
+            "updated_at = now()",
+            nativeQuery = true)
+    int adjust(@Param("userId") Long userId, @Param("mediaType") String mediaType,
+               @Param("files") long files, @Param("bytes") long bytes);
+
+    // Bloquear al usuario (su fila en users, que existe aunque aún no tenga uso): las subidas
+    // simultáneas de un mismo usuario se cobran de una en una. NO KEY no bloquea las claves ajenas
+    @Query(value = "SELECT u.id FROM users u WHERE u.id = :userId FOR NO KEY UPDATE", nativeQuery = true)
+    List<Long> lockUser(@Param("userId") Long userId);
+
+    // Sumar una subida solo si cabe en la cuota (0 = sin límite), contando el resto de tipos del
+    // usuario; 0 filas afectadas = cuota superada
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "storage_usage"))
+    @Query(value = "WITH other AS (SELECT COALESCE(SUM(o.file_count), 0) AS files, COALESCE(SUM(o.bytes_used), 0) AS bytes " +
+            "FROM storage_usage o WHERE o.user_id = :userId AND o.media_type <> :mediaType) " +
+            "INSERT INTO storage_usage (user_id, media_type, file_count, bytes_used, updated_at) " +
+            "SELECT :userId, :mediaType, :files, :bytes, now() FROM other " +
+            "WHERE (:maxFiles <= 0 OR other.files + :files <= :maxFiles) " +
+            "AND (:maxBytes <= 0 OR other.bytes + :bytes <= :maxBytes) " +
+            "ON CONFLICT (user_id, media_type) DO UPDATE SET " +
+            "file_count = storage_usage.file_count + :files, " +
+            "bytes_used = storage_usage.bytes_used + :bytes, " +
+            "updated_at = now() " +
+            "WHERE (:maxFiles <= 0 OR storage_usage.file_count + :files + (SELECT files FROM other) <= :maxFiles) " +
+            "AND (:maxBytes <= 0 OR storage_usage.bytes_used + :bytes + (SELECT bytes FROM other) <= :maxBytes)",
+            nativeQuery = true)
+    int chargeWithinQuota(@Param("userId") Long userId, @Param("mediaType") String mediaType,
+                          @Param("files") long files, @Param("bytes") long bytes,
+                          @Param("maxFiles") long maxFiles, @Param("maxBytes") long maxBytes);
+
+    // Recalcular desde media_files (reconciliación); solo reescribe las filas desviadas
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "storage_usage"))
+    @Query(value = "INSERT INTO storage_usage (user_id, media_type, file_count, bytes_used, updated_at) " +
+            "SELECT m.user_id, m.media_type, COUNT(*), COALESCE(SUM(m.file_size), 0), now() " +
+            "FROM media_files m GROUP BY m.user_id, m.media_type " +
+            "ON CONFLICT (user_id, media_type) DO UPDATE SET " +
+            "file_count = EXCLUDED.file_count, bytes_used = EXCLUDED.bytes_used, updated_at = now() " +
+            "WHERE storage_usage.file_count <> EXCLUDED.file_count OR storage_usage.bytes_used <> EXCLUDED.bytes_used",
+            nativeQuery = true)
+    int reconcileFromMediaFiles();
+
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "storage_usage"))
+    @Query(value = "UPDATE storage_usage s SET file_count = 0, bytes_used = 0, updated_at = now() " +
+            "WHERE (s.file_count <> 0 OR s.bytes_used <> 0) AND NOT EXISTS " +
+            "(SELECT 1 FROM media_files m WHERE m.user_id = s.user_id AND m.media_type = s.media_type)",
+            nativeQuery = true)
+    int resetWithoutMediaFiles();
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM StorageUsage s WHERE s.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
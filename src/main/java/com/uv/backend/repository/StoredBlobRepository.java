@@ -0,0 +1,91 @@
+package com.uv.backend.repository;
+
+import com.uv.backend.entity.StoredBlob;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, Long> {
+
+    Optional<StoredBlob> findByContentHash(String contentHash);
+
+    // SELECT ... FOR UPDATE: serializa guardado y borrado del mismo contenido entre instancias
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM StoredBlob b WHERE b.contentHash = :contentHash")
+    Optional<StoredBlob> lockByContentHash(@Param("contentHash") String contentHash);
+
+    // Alta o nueva referencia en una sola sentencia (sin carrera entre SELECT e INSERT)
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "stored_blobs"))
+    @Query(value = "INSERT INTO stored_blobs (content_hash, media_type, storage_path, file_size, ref_count, created_at, acquired_at) " +
+            "VALUES (:contentHash, :mediaType, :storagePath, :fileSize, 1, now(), now()) " +
+            "ON CONFLICT (content_hash) DO UPDATE SET ref_count = stored_blobs.ref_count + 1, acquired_at = now()",
+            nativeQuery = true)
+    int acquire(@Param("contentHash") String contentHash, @Param("mediaType") String mediaType,
+                @Param("storagePath") String storagePath, @Param("fileSize") Long fileSize);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE StoredBlob b SET b.refCount = b.refCount - 1 WHERE b.contentHash = :contentHash AND b.refCount > 0")
+    int release(@Param("contentHash") String contentHash);
+
+    // Varias referencias del mismo contenido en una sentencia (barrido de huérfanos)
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "stored_blobs"))
+    @Query(value = "UPDATE stored_blobs SET ref_count = GREATEST(ref_count - :count, 0) WHERE content_hash = :contentHash",
+            nativeQuery = true)
+    int releaseMany(@Param("contentHash") String contentHash, @Param("count") int count);
+
+    // Solo borra la fila si nadie ha vuelto a referenciar el contenido
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM StoredBlob b WHERE b.contentHash = :contentHash AND b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("contentHash") String contentHash);
+
+    // Reconciliación de referencias por rangos de id
+    @Query("SELECT COALESCE(MAX(b.id), 0) FROM StoredBlob b")
+    Long findMaxId();
+
+    // Referencias reales: filas de media_files del contenido o, si son más, columnas que apuntan a
+    // su URL (portadas subidas sin MediaFile). Se saltan las filas con una referencia reciente,
+    // cuya subida puede no haber confirmado todavía su MediaFile.
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "stored_blobs"))
+    @Query(value = "UPDATE stored_blobs x SET ref_count = r.refs FROM (" +
+            "SELECT b.id, GREATEST(" +
+            "(SELECT COUNT(*) FROM media_files m WHERE m.blob_id = b.id), " +
+            "(SELECT COUNT(*) FROM users t WHERE t.avatar_url = u.url) " +
+            "+ (SELECT COUNT(*) FROM users t WHERE t.cover_image_url = u.url) " +
+            "+ (SELECT COUNT(*) FROM tracks t WHERE t.audio_url = u.url) " +
+            "+ (SELECT COUNT(*) FROM tracks t WHERE t.cover_image_url = u.url) " +
+            "+ (SELECT COUNT(*) FROM playlists t WHERE t.cover_image_url = u.url) " +
+            "+ (SELECT COUNT(*) FROM post_images t WHERE t.image_url = u.url) " +
+            "+ (SELECT COUNT(*) FROM post_videos t WHERE t.video_url = u.url) " +
+            "+ (SELECT COUNT(*) FROM post_videos t WHERE t.thumbnail_url = u.url)) AS refs " +
+            "FROM stored_blobs b CROSS JOIN LATERAL (SELECT '/' || CASE b.media_type " +
+            "WHEN 'AUDIO' THEN 'audio' WHEN 'IMAGE' THEN 'images' ELSE 'videos' END || '/' || b.storage_path AS url) u " +
+            "WHERE b.id > :fromId AND b.id <= :toId) r " +
+            "WHERE x.id = r.id AND x.ref_count <> r.refs " +
+            "AND (x.acquired_at IS NULL OR x.acquired_at < :acquiredBefore)",
+            nativeQuery = true)
+    int reconcileRefCounts(@Param("fromId") Long fromId, @Param("toId") Long toId,
+                           @Param("acquiredBefore") LocalDateTime acquiredBefore);
+
+    @Query("SELECT b.contentHash FROM StoredBlob b WHERE b.id > :fromId AND b.id <= :toId AND b.refCount <= 0")
+    List<String> findUnreferencedHashes(@Param("fromId") Long fromId, @Param("toId") Long toId);
+}
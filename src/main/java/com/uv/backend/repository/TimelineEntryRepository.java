@@ -0,0 +1,81 @@
+package com.uv.backend.repository;
+
+import com.uv.backend.entity.TimelineEntry;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface TimelineEntryRepository extends JpaRepository<TimelineEntry, Long> {
+
+    // Lectura por cursor (ids de post descendentes)
+    @Query("SELECT e.postId FROM TimelineEntry e WHERE e.userId = :userId AND e.postId < :cursor " +
+            "ORDER BY e.postId DESC")
+    List<Long> findPostIds(@Param("userId") Long userId, @Param("cursor") Long cursor, Pageable pageable);
+
+    // Fan-out: una sola sentencia inserta el post en el timeline de todos los seguidores
+    @Modifying
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "timeline_entries"))
+    @Query(value = "INSERT INTO timeline_entries (user_id, post_id, author_id) " +
+            "SELECT f.follower_id, :postId, :authorId FROM follows f WHERE f.following_id = :authorId " +
+            "ON CONFLICT (user_id, post_id) DO NOTHING", nativeQuery = true)
+    int fanOutToFollowers(@Param("postId") Long postId, @Param("authorId") Long authorId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "timeline_entries"))
+    @Query(value = "INSERT INTO timeline_entries (user_id, post_id, author_id) " +
+            "VALUES (:userId, :postId, :authorId) " +
+            "ON CONFLICT (user_id, post_id) DO NOTHING", nativeQuery = true)
+    int insertEntry(@Param("userId") Long userId, @Param("postId") Long postId, @Param("authorId") Long authorId);
+
+    // Nuevo seguimiento: copia los posts recientes del autor al timeline del seguidor
+    @Modifying
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "timeline_entries"))
+    @Query(value = "INSERT INTO timeline_entries (user_id, post_id, author_id) " +
+            "SELECT :userId, p.id, p.user_id FROM posts p WHERE p.user_id = :authorId " +
+            "ORDER BY p.id DESC LIMIT :limit " +
+            "ON CONFLICT (user_id, post_id) DO NOTHING", nativeQuery = true)
+    int backfillFromAuthor(@Param("userId") Long userId, @Param("authorId") Long authorId, @Param("limit") int limit);
+
+    // Reconstrucción completa: posts propios y de cuentas seguidas por debajo del umbral de fan-out
+    @Modifying
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "timeline_entries"))
+    @Query(value = "INSERT INTO timeline_entries (user_id, post_id, author_id) " +
+            "SELECT :userId, p.id, p.user_id FROM posts p WHERE p.user_id = :userId OR p.user_id IN " +
+            "(SELECT f.following_id FROM follows f JOIN users u ON u.id = f.following_id " +
+            "WHERE f.follower_id = :userId AND u.followers_count < :fanOutThreshold) " +
+            "ORDER BY p.id DESC LIMIT :limit " +
+            "ON CONFLICT (user_id, post_id) DO NOTHING", nativeQuery = true)
+    int rebuild(@Param("userId") Long userId, @Param("fanOutThreshold") int fanOutThreshold, @Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM TimelineEntry e WHERE e.userId = :userId AND e.authorId = :authorId")
+    int deleteByUserIdAndAuthorId(@Param("userId") Long userId, @Param("authorId") Long authorId);
+
+    @Modifying
+    @Query("DELETE FROM TimelineEntry e WHERE e.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("DELETE FROM TimelineEntry e WHERE e.postId = :postId")
+    int deleteByPostId(@Param("postId") Long postId);
+
+    // Recorte de timelines que superan el tamaño máximo
+    @Query(value = "SELECT e.user_id FROM timeline_entries e GROUP BY e.user_id HAVING COUNT(*) > :maxSize",
+            nativeQuery = true)
+    List<Long> findUserIdsExceeding(@Param("maxSize") int maxSize);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "timeline_entries"))
+    @Query(value = "DELETE FROM timeline_entries e WHERE e.user_id = :userId AND e.post_id <= " +
+            "(SELECT t.post_id FROM timeline_entries t WHERE t.user_id = :userId " +
+            "ORDER BY t.post_id DESC OFFSET :maxSize LIMIT 1)", nativeQuery = true)
+    int trim(@Param("userId") Long userId, @Param("maxSize") int maxSize);
+}
@@ -0,0 +1,20 @@
+package com.uv.backend.repository;
+
+import com.uv.backend.entity.TimelineState;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TimelineStateRepository extends JpaRepository<TimelineState, Long> {
+
+    @Modifying
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "timeline_states"))
+    @Query(value = "INSERT INTO timeline_states (user_id, built_at) VALUES (:userId, now()) " +
+            "ON CONFLICT (user_id) DO UPDATE SET built_at = now()", nativeQuery = true)
+    int markBuilt(@Param("userId") Long userId);
+}
@@ -1,37 +1,133 @@
 package com.uv.backend.repository;
 
 import com.uv.backend.entity.Track;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface TrackRepository extends JpaRepository<Track, Long> {
+    @EntityGraph(Track.WITH_USER)
     Page<Track> findByUserIdAndIsPublicTrue(Long userId, Pageable pageable);
+
+    @EntityGraph(Track.WITH_USER)
     Page<Track> findByUserId(Long userId, Pageable pageable);
+
+    @EntityGraph(Track.WITH_USER)
     Page<Track> findByIsPublicTrueOrderByCreatedAtDesc(Pageable pageable);
 
-    @Query("SELECT t FROM Track t WHERE t.isPublic = true AND " +
-            "(t.title LIKE %:query% OR t.user.displayName LIKE %:query% OR " +
-            "EXISTS (SELECT tag FROM t.tags tag WHERE tag LIKE %:query%))")
-    Page<Track> searchTracks(@Param("query") String query, Pageable pageable);
+    // Paginación por cursor (createdAt, id) descendente, sin COUNT
+    @EntityGraph(Track.WITH_USER)
+    @Query("SELECT t FROM Track t WHERE t.isPublic = true " +
+            "AND t.createdAt <= :createdAt AND (t.createdAt < :createdAt OR t.id < :id) " +
+            "ORDER BY t.createdAt DESC, t.id DESC")
+    Slice<Track> findPublicBefore(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    @EntityGraph(Track.WITH_USER)
+    @Query("SELECT t FROM Track t WHERE t.user.id = :userId " +
+            "AND t.createdAt <= :createdAt AND (t.createdAt < :createdAt OR t.id < :id) " +
+            "ORDER BY t.createdAt DESC, t.id DESC")
+    Slice<Track> findByUserIdBefore(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                    @Param("id") Long id, Pageable pageable);
+
+    // Tracks por id con su autor (ranking de tendencias; el orden lo decide quien llama)
+    @EntityGraph(Track.WITH_USER)
+    @Query("SELECT t FROM Track t WHERE t.id IN :ids")
+    List<Track> findAllWithUserByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Cuáles de estos ids existen (altas en bloque en playlists)
+    @Query("SELECT t.id FROM Track t WHERE t.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Búsqueda de texto completo: prefijos sobre search_vector y tolerancia a errores con trigramas
+    @Query(value = "SELECT t.* FROM tracks t WHERE t.is_public = true AND " +
+            "(t.search_vector @@ to_tsquery('simple', :tsQuery) OR :query <% t.search_document) " +
+            "ORDER BY ts_rank(t.search_vector, to_tsquery('simple', :tsQuery)) + " +
+            "word_similarity(:query, t.search_document) DESC, t.id DESC",
+            countQuery = "SELECT COUNT(*) FROM tracks t WHERE t.is_public = true AND " +
+                    "(t.search_vector @@ to_tsquery('simple', :tsQuery) OR :query <% t.search_document)",
+            nativeQuery = true)
+    Page<Track> searchTracks(@Param("query") String query, @Param("tsQuery") String tsQuery, Pageable pageable);
+
+    // Documento de búsqueda: título, género, etiquetas y artista
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = QuerySpaces.UNMAPPED_COLUMNS))
+    @Query(value = "UPDATE tracks t SET search_document = lower(concat_ws(' ', t.title, t.genre, u.username, u.display_name, " +
+            "(SELECT string_agg(tt.tag, ' ') FROM track_tags tt WHERE tt.track_id = t.id))) " +
+            "FROM users u WHERE u.id = t.user_id AND t.id = :trackId", nativeQuery = true)
+    int refreshSearchDocument(@Param("trackId") Long trackId);
+
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = QuerySpaces.UNMAPPED_COLUMNS))
+    @Query(value = "UPDATE tracks t SET search_document = lower(concat_ws(' ', t.title, t.genre, u.username, u.display_name, " +
+            "(SELECT string_agg(tt.tag, ' ') FROM track_tags tt WHERE tt.track_id = t.id))) " +
+            "FROM users u WHERE u.id = t.user_id AND t.user_id = :userId", nativeQuery = true)
+    int refreshSearchDocumentsByUser(@Param("userId") Long userId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = QuerySpaces.UNMAPPED_COLUMNS))
+    @Query(value = "UPDATE tracks t SET search_document = lower(concat_ws(' ', t.title, t.genre, u.username, u.display_name, " +
+            "(SELECT string_agg(tt.tag, ' ') FROM track_tags tt WHERE tt.track_id = t.id))) " +
+            "FROM users u WHERE u.id = t.user_id AND t.id IN " +
+            "(SELECT x.id FROM tracks x WHERE x.search_document IS NULL LIMIT :limit)", nativeQuery = true)
+    int backfillSearchDocuments(@Param("limit") int limit);
+
+    // Datos para el índice de autocompletado
+    @Query("SELECT t.id, t.title, t.user.displayName, t.playsCount + t.likesCount FROM Track t " +
+            "WHERE t.isPublic = true ORDER BY t.playsCount + t.likesCount DESC")
+    List<Object[]> findSuggestionData(Pageable pageable);
+
+    @Query("SELECT t.genre, COUNT(t) FROM Track t WHERE t.isPublic = true AND t.genre IS NOT NULL GROUP BY t.genre")
+    List<Object[]> countTracksByGenre();
+
+    @Query("SELECT tag, COUNT(t) FROM Track t JOIN t.tags tag WHERE t.isPublic = true " +
+            "GROUP BY tag ORDER BY COUNT(t) DESC")
+    List<Object[]> countTracksByTag(Pageable pageable);
 
-    @Query("SELECT t FROM Track t WHERE t.isPublic = true ORDER BY t.playsCount DESC")
-    List<Track> findTrendingTracks(Pageable pageable);
+    // Actividad reciente por track y hora (arranque del ranking de tendencias)
+    @Query(value = "SELECT l.track_id, date_trunc('hour', l.created_at), COUNT(*) FROM likes l " +
+            "WHERE l.track_id IS NOT NULL AND l.created_at >= :since " +
+            "GROUP BY l.track_id, date_trunc('hour', l.created_at)", nativeQuery = true)
+    List<Object[]> countRecentLikesByHour(@Param("since") LocalDateTime since);
 
+    @Query(value = "SELECT c.track_id, date_trunc('hour', c.created_at), COUNT(*) FROM comments c " +
+            "WHERE c.track_id IS NOT NULL AND c.created_at >= :since " +
+            "GROUP BY c.track_id, date_trunc('hour', c.created_at)", nativeQuery = true)
+    List<Object[]> countRecentCommentsByHour(@Param("since") LocalDateTime since);
+
+    @Query(value = "SELECT p.track_id, date_trunc('hour', p.created_at), COUNT(*) FROM posts p " +
+            "WHERE p.track_id IS NOT NULL AND p.type = 'REPOST' AND p.created_at >= :since " +
+            "GROUP BY p.track_id, date_trunc('hour', p.created_at)", nativeQuery = true)
+    List<Object[]> countRecentRepostsByHour(@Param("since") LocalDateTime since);
+
+    @Query(value = "SELECT b.track_id, b.bucket, b.plays FROM track_play_buckets b " +
+            "WHERE b.bucket >= :since", nativeQuery = true)
+    List<Object[]> countRecentPlaysByHour(@Param("since") LocalDateTime since);
+
+    @EntityGraph(Track.WITH_USER)
     @Query("SELECT t FROM Track t WHERE t.isPublic = true AND t.user.id IN " +
             "(SELECT f.following.id FROM Follow f WHERE f.follower.id = :userId) " +
             "ORDER BY t.createdAt DESC")
     Page<Track> findTracksFromFollowedUsers(@Param("userId") Long userId, Pageable pageable);
 
+    @EntityGraph(Track.WITH_USER)
     @Query("SELECT t FROM Track t WHERE t.isPublic = true AND t.genre = :genre ORDER BY t.createdAt DESC")
     Page<Track> findByGenre(@Param("genre") String genre, Pageable pageable);
 
+    @EntityGraph(Track.WITH_USER)
     @Query("SELECT t FROM Track t WHERE t.isPublic = true AND " +
             "EXISTS (SELECT tag FROM t.tags tag WHERE tag = :tag) ORDER BY t.createdAt DESC")
     Page<Track> findByTag(@Param("tag") String tag, Pageable pageable);
@@ -46,10 +142,21 @@ public interface TrackRepository extends JpaRepository<Track, Long> {
     @Query("SELECT t FROM Track t WHERE t.waveformUrl = :waveformUrl")
     List<Track> findByWaveformUrl(@Param("waveformUrl") String waveformUrl);
 
+    // Waveform generado en segundo plano (no sustituye uno subido por el usuario)
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = QuerySpaces.TARGETED_ROWS))
+    @Query(value = "UPDATE tracks SET waveform_url = :waveformUrl, waveform_file_name = :fileName, " +
+            "waveform_file_type = :fileType WHERE id = :trackId AND waveform_url IS NULL", nativeQuery = true)
+    int setGeneratedWaveform(@Param("trackId") Long trackId, @Param("waveformUrl") String waveformUrl,
+                             @Param("fileName") String fileName, @Param("fileType") String fileType);
+
     // Buscar tracks con archivos multimedia específicos
+    @EntityGraph(Track.WITH_USER)
     @Query("SELECT t FROM Track t WHERE t.coverImageUrl IS NOT NULL AND t.isPublic = true ORDER BY t.createdAt DESC")
     Page<Track> findTracksWithCoverImage(Pageable pageable);
 
+    @EntityGraph(Track.WITH_USER)
     @Query("SELECT t FROM Track t WHERE t.waveformUrl IS NOT NULL AND t.isPublic = true ORDER BY t.createdAt DESC")
     Page<Track> findTracksWithWaveform(Pageable pageable);
 
@@ -59,4 +166,58 @@ public interface TrackRepository extends JpaRepository<Track, Long> {
 
     @Query("SELECT COUNT(t) FROM Track t WHERE t.waveformUrl IS NOT NULL")
     Long countTracksWithWaveform();
-}
\ No newline at end of file
+
+    // Contadores denormalizados (incrementos atómicos dentro de la transacción del servicio).
+    // Nativos para no vaciar la región de Track en la caché L2; el servicio desaloja la fila
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = QuerySpaces.TARGETED_ROWS))
+    @Query(value = "UPDATE tracks SET likes_count = likes_count + :delta WHERE id = :trackId", nativeQuery = true)
+    int adjustLikesCount(@Param("trackId") Long trackId, @Param("delta") int delta);
+
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = QuerySpaces.TARGETED_ROWS))
+    @Query(value = "UPDATE tracks SET comments_count = comments_count + :delta WHERE id = :trackId", nativeQuery = true)
+    int adjustCommentsCount(@Param("trackId") Long trackId, @Param("delta") int delta);
+
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = QuerySpaces.TARGETED_ROWS))
+    @Query(value = "UPDATE tracks SET reposts_count = reposts_count + :delta WHERE id = :trackId", nativeQuery = true)
+    int adjustRepostsCount(@Param("trackId") Long trackId, @Param("delta") int delta);
+
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = QuerySpaces.TARGETED_ROWS))
+    @Query(value = "UPDATE tracks SET comments_count = (SELECT COUNT(*) FROM comments c WHERE c.track_id = :trackId) " +
+            "WHERE id = :trackId", nativeQuery = true)
+    int refreshCommentsCount(@Param("trackId") Long trackId);
+
+    // Reconciliación de contadores por rangos de id
+    @Query("SELECT COALESCE(MAX(t.id), 0) FROM Track t")
+    Long findMaxId();
+
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "tracks"))
+    @Query(value = "UPDATE tracks x SET likes_count = (SELECT COUNT(*) FROM likes l WHERE l.track_id = x.id) " +
+            "WHERE x.id > :fromId AND x.id <= :toId " +
+            "AND x.likes_count <> (SELECT COUNT(*) FROM likes l WHERE l.track_id = x.id)",
+            nativeQuery = true)
+    int reconcileLikesCount(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "tracks"))
+    @Query(value = "UPDATE tracks x SET comments_count = (SELECT COUNT(*) FROM comments c WHERE c.track_id = x.id) " +
+            "WHERE x.id > :fromId AND x.id <= :toId " +
+            "AND x.comments_count <> (SELECT COUNT(*) FROM comments c WHERE c.track_id = x.id)",
+            nativeQuery = true)
+    int reconcileCommentsCount(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "tracks"))
+    @Query(value = "UPDATE tracks x SET reposts_count = (SELECT COUNT(*) FROM posts p WHERE p.track_id = x.id AND p.type = 'REPOST') " +
+            "WHERE x.id > :fromId AND x.id <= :toId " +
+            "AND x.reposts_count <> (SELECT COUNT(*) FROM posts p WHERE p.track_id = x.id AND p.type = 'REPOST')",
+            nativeQuery = true)
+    int reconcileRepostsCount(@Param("fromId") Long fromId, @Param("toId") Long toId);
+}
@@ -2,12 +2,17 @@
 package com.uv.backend.repository;
 
 import com.uv.backend.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -15,13 +20,26 @@ import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+    // Se consulta en cada petición autenticada: resultado en la caché de consultas y usuario en la región L2
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
     Boolean existsByUsername(String username);
     Boolean existsByEmail(String email);
 
-    @Query("SELECT u FROM User u WHERE u.username LIKE %:query% OR u.displayName LIKE %:query%")
-    Page<User> searchUsers(@Param("query") String query, Pageable pageable);
+    // Búsqueda de texto completo: prefijos sobre search_vector y tolerancia a errores con trigramas
+    @Query(value = "SELECT u.* FROM users u WHERE " +
+            "(u.search_vector @@ to_tsquery('simple', :tsQuery) OR :query <% u.search_document) " +
+            "ORDER BY ts_rank(u.search_vector, to_tsquery('simple', :tsQuery)) + " +
+            "word_similarity(:query, u.search_document) DESC, u.id DESC",
+            countQuery = "SELECT COUNT(*) FROM users u WHERE " +
+                    "(u.search_vector @@ to_tsquery('simple', :tsQuery) OR :query <% u.search_document)",
+            nativeQuery = true)
+    Page<User> searchUsers(@Param("query") String query, @Param("tsQuery") String tsQuery, Pageable pageable);
+
+    // Datos para el índice de autocompletado
+    @Query("SELECT u.id, u.username, u.displayName, u.followersCount FROM User u ORDER BY u.followersCount DESC")
+    List<Object[]> findSuggestionData(Pageable pageable);
 
     @Query("SELECT u FROM User u WHERE u.id NOT IN " +
             "(SELECT f.following.id FROM Follow f WHERE f.follower.id = :userId) " +
@@ -63,12 +81,12 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     // Buscar usuarios más seguidos con multimedia
     @Query("SELECT u FROM User u WHERE (u.avatarUrl IS NOT NULL OR u.coverImageUrl IS NOT NULL) " +
-            "ORDER BY SIZE(u.followers) DESC, u.createdAt DESC")
+            "ORDER BY u.followersCount DESC, u.createdAt DESC")
     Page<User> findPopularUsersWithMedia(Pageable pageable);
 
     // Buscar usuarios con más tracks y multimedia
     @Query("SELECT u FROM User u WHERE (u.avatarUrl IS NOT NULL OR u.coverImageUrl IS NOT NULL) " +
-            "ORDER BY SIZE(u.tracks) DESC, u.createdAt DESC")
+            "ORDER BY u.tracksCount DESC, u.createdAt DESC")
     Page<User> findActiveArtistsWithMedia(Pageable pageable);
 
     // Estadísticas de usuarios con multimedia
@@ -120,9 +138,29 @@ public interface UserRepository extends JpaRepository<User, Long> {
     List<User> findByMediaFileName(@Param("fileName") String fileName);
 
     // Búsqueda avanzada combinando texto y multimedia
-    @Query("SELECT u FROM User u WHERE (u.username LIKE %:query% OR u.displayName LIKE %:query% OR u.bio LIKE %:query%) " +
-            "AND (u.avatarUrl IS NOT NULL OR u.coverImageUrl IS NOT NULL) ORDER BY u.createdAt DESC")
-    Page<User> searchUsersWithMedia(@Param("query") String query, Pageable pageable);
+    @Query(value = "SELECT u.* FROM users u WHERE " +
+            "(u.search_vector @@ to_tsquery('simple', :tsQuery) OR :query <% u.search_document) " +
+            "AND (u.avatar_url IS NOT NULL OR u.cover_image_url IS NOT NULL) " +
+            "ORDER BY ts_rank(u.search_vector, to_tsquery('simple', :tsQuery)) + " +
+            "word_similarity(:query, u.search_document) DESC, u.id DESC",
+            countQuery = "SELECT COUNT(*) FROM users u WHERE " +
+                    "(u.search_vector @@ to_tsquery('simple', :tsQuery) OR :query <% u.search_document) " +
+                    "AND (u.avatar_url IS NOT NULL OR u.cover_image_url IS NOT NULL)",
+            nativeQuery = true)
+    Page<User> searchUsersWithMedia(@Param("query") String query, @Param("tsQuery") String tsQuery, Pageable pageable);
+
+    // Documento de búsqueda: username, nombre visible y biografía
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = QuerySpaces.UNMAPPED_COLUMNS))
+    @Query(value = "UPDATE users u SET search_document = lower(concat_ws(' ', u.username, u.display_name, u.bio)) " +
+            "WHERE u.id = :userId", nativeQuery = true)
+    int refreshSearchDocument(@Param("userId") Long userId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = QuerySpaces.UNMAPPED_COLUMNS))
+    @Query(value = "UPDATE users u SET search_document = lower(concat_ws(' ', u.username, u.display_name, u.bio)) " +
+            "WHERE u.id IN (SELECT x.id FROM users x WHERE x.search_document IS NULL LIMIT :limit)", nativeQuery = true)
+    int backfillSearchDocuments(@Param("limit") int limit);
 
     // Encontrar usuarios con problemas de archivos multimedia (URLs rotas)
     @Query("SELECT u FROM User u WHERE (u.avatarUrl IS NOT NULL AND u.avatarUrl = '') " +
@@ -138,6 +176,54 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u WHERE u.id NOT IN " +
             "(SELECT f.following.id FROM Follow f WHERE f.follower.id = :userId) " +
             "AND u.id != :userId AND (u.avatarUrl IS NOT NULL OR u.coverImageUrl IS NOT NULL) " +
-            "ORDER BY SIZE(u.followers) DESC, u.createdAt DESC")
+            "ORDER BY u.followersCount DESC, u.createdAt DESC")
     Page<User> findRecommendedUsersWithMedia(@Param("userId") Long userId, Pageable pageable);
-}
\ No newline at end of file
+
+    // Contadores denormalizados (incrementos atómicos dentro de la transacción del servicio).
+    // Nativos para no vaciar la región de User en la caché L2; el servicio desaloja la fila
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = QuerySpaces.TARGETED_ROWS))
+    @Query(value = "UPDATE users SET followers_count = followers_count + :delta WHERE id = :userId", nativeQuery = true)
+    int adjustFollowersCount(@Param("userId") Long userId, @Param("delta") int delta);
+
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = QuerySpaces.TARGETED_ROWS))
+    @Query(value = "UPDATE users SET following_count = following_count + :delta WHERE id = :userId", nativeQuery = true)
+    int adjustFollowingCount(@Param("userId") Long userId, @Param("delta") int delta);
+
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = QuerySpaces.TARGETED_ROWS))
+    @Query(value = "UPDATE users SET tracks_count = tracks_count + :delta WHERE id = :userId", nativeQuery = true)
+    int adjustTracksCount(@Param("userId") Long userId, @Param("delta") int delta);
+
+    // Reconciliación de contadores por rangos de id
+    @Query("SELECT COALESCE(MAX(u.id), 0) FROM User u")
+    Long findMaxId();
+
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "users"))
+    @Query(value = "UPDATE users x SET followers_count = (SELECT COUNT(*) FROM follows f WHERE f.following_id = x.id) " +
+            "WHERE x.id > :fromId AND x.id <= :toId " +
+            "AND x.followers_count <> (SELECT COUNT(*) FROM follows f WHERE f.following_id = x.id)",
+            nativeQuery = true)
+    int reconcileFollowersCount(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "users"))
+    @Query(value = "UPDATE users x SET following_count = (SELECT COUNT(*) FROM follows f WHERE f.follower_id = x.id) " +
+            "WHERE x.id > :fromId AND x.id <= :toId " +
+            "AND x.following_count <> (SELECT COUNT(*) FROM follows f WHERE f.follower_id = x.id)",
+            nativeQuery = true)
+    int reconcileFollowingCount(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = QuerySpaces.HINT, value = "users"))
+    @Query(value = "UPDATE users x SET tracks_count = (SELECT COUNT(*) FROM tracks t WHERE t.user_id = x.id) " +
+            "WHERE x.id > :fromId AND x.id <= :toId " +
+            "AND x.tracks_count <> (SELECT COUNT(*) FROM tracks t WHERE t.user_id = x.id)",
+            nativeQuery = true)
+    int reconcileTracksCount(@Param("fromId") Long fromId, @Param("toId") Long toId);
+}
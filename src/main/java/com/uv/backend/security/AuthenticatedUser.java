@@ -0,0 +1,68 @@
+package com.uv.backend.security;
+
+import com.uv.backend.entity.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Principal de las peticiones autenticadas por JWT.
+ *
+ * Solo lleva lo que viaja en los claims del token (id, username, roles y enabled), así que
+ * no es una entidad gestionada: los servicios reciben el id y cargan el User solo si lo necesitan.
+ */
+public class AuthenticatedUser implements UserDetails {
+
+    private final Long id;
+    private final String username;
+    private final List<String> roles;
+    private final boolean enabled;
+
+    public AuthenticatedUser(Long id, String username, List<String> roles, boolean enabled) {
+        this.id = id;
+        this.username = username;
+        this.roles = List.copyOf(roles);
+        this.enabled = enabled;
+    }
+
+    public static AuthenticatedUser from(User user) {
+        List<String> roles = user.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toList());
+        return new AuthenticatedUser(user.getId(), user.getUsername(), roles, user.isEnabled());
+    }
+
+    public Long getId() { return id; }
+
+    public List<String> getRoles() { return roles; }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return roles.stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toList());
+    }
+
+    // Las credenciales no forman parte del token
+    @Override
+    public String getPassword() { return null; }
+
+    @Override
+    public String getUsername() { return username; }
+
+    @Override
+    public boolean isAccountNonExpired() { return true; }
+
+    @Override
+    public boolean isAccountNonLocked() { return true; }
+
+    @Override
+    public boolean isCredentialsNonExpired() { return true; }
+
+    @Override
+    public boolean isEnabled() { return enabled; }
+}
@@ -2,21 +2,31 @@ package com.uv.backend.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.uv.backend.entity.User;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Component
 public class JwtTokenProvider {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtTokenProvider.class);
 
+    // Claims del usuario en el access token (el subject sigue siendo el username)
+    private static final String CLAIM_USER_ID = "uid";
+    private static final String CLAIM_ROLES = "roles";
+    private static final String CLAIM_ENABLED = "enabled";
+
     @Value("${bezkoder.app.jwtSecret:casacosapocacasacosapocacasacosapocacasacosapoca}")
     private String jwtSecret;
 
@@ -26,18 +36,44 @@ public class JwtTokenProvider {
     @Value("${jwt.refresh-expiration:604800000}")
     private int jwtRefreshExpirationInMs;
 
+    @Value("${app.security.jwt.embed-user-claims:true}")
+    private boolean embedUserClaims;
+
+    // La clave y el parser se construyen una sola vez (el parser es inmutable y thread-safe)
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        return signingKey;
     }
 
     public String generateToken(Authentication authentication) {
         UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
         Date expiryDate = new Date(System.currentTimeMillis() + jwtExpirationInMs);
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .setSubject(userPrincipal.getUsername())
                 .setIssuedAt(new Date())
-                .setExpiration(expiryDate)
+                .setExpiration(expiryDate);
+
+        Long userId = getUserId(userPrincipal);
+        if (embedUserClaims && userId != null) {
+            builder.claim(CLAIM_USER_ID, userId)
+                    .claim(CLAIM_ROLES, userPrincipal.getAuthorities().stream()
+                            .map(GrantedAuthority::getAuthority)
+                            .collect(Collectors.toList()))
+                    .claim(CLAIM_ENABLED, userPrincipal.isEnabled());
+        }
+
+        return builder
                 .signWith(getSigningKey(), SignatureAlgorithm.HS256)
                 .compact();
     }
@@ -54,24 +90,46 @@ public class JwtTokenProvider {
                 .compact();
     }
 
-    public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Principal construido solo con los claims del token; null si no los lleva
+     * (refresh tokens o tokens emitidos antes de embeberlos)
+     */
+    public AuthenticatedUser getAuthenticatedUser(Claims claims) {
+        Number userId = claims.get(CLAIM_USER_ID, Number.class);
+        if (userId == null) {
+            return null;
+        }
 
-        return claims.getSubject();
+        List<?> roles = claims.get(CLAIM_ROLES, List.class);
+        Boolean enabled = claims.get(CLAIM_ENABLED, Boolean.class);
+        return new AuthenticatedUser(
+                userId.longValue(),
+                claims.getSubject(),
+                roles != null ? roles.stream().map(String::valueOf).collect(Collectors.toList()) : List.of(),
+                enabled == null || enabled);
     }
 
-    public boolean validateToken(String authToken) {
+    private Long getUserId(UserDetails userPrincipal) {
+        if (userPrincipal instanceof AuthenticatedUser authenticatedUser) {
+            return authenticatedUser.getId();
+        }
+        if (userPrincipal instanceof User user) {
+            return user.getId();
+        }
+        return null;
+    }
+
+    public String getUsernameFromToken(String token) {
+        return jwtParser.parseClaimsJws(token).getBody().getSubject();
+    }
+
+    /**
+     * Validar el token y devolver sus claims con un solo parseo; null si no es válido
+     */
+    public Claims parseValidClaims(String authToken) {
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(authToken);
-            return true;
-        } catch (SecurityException ex) {
+            return jwtParser.parseClaimsJws(authToken).getBody();
+        } catch (io.jsonwebtoken.security.SecurityException ex) {
             logger.error("Invalid JWT signature");
         } catch (MalformedJwtException ex) {
             logger.error("Invalid JWT token");
@@ -82,17 +140,14 @@ public class JwtTokenProvider {
         } catch (IllegalArgumentException ex) {
             logger.error("JWT claims string is empty.");
         }
-        return false;
+        return null;
     }
 
-    public Date getExpirationDateFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    public boolean validateToken(String authToken) {
+        return parseValidClaims(authToken) != null;
+    }
 
-        return claims.getExpiration();
+    public Date getExpirationDateFromToken(String token) {
+        return jwtParser.parseClaimsJws(token).getBody().getExpiration();
     }
 }
-
@@ -0,0 +1,78 @@
+package com.uv.backend.service;
+
+import com.uv.backend.audio.AudioMetadata;
+import com.uv.backend.audio.AudioMetadataReader;
+import com.uv.backend.entity.MediaFile;
+import com.uv.backend.entity.Track;
+import com.uv.backend.exception.FileUploadException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.nio.file.Path;
+
+/**
+ * Etapa de ingesta: rellena duración, bitrate, frecuencia de muestreo y códec de un
+ * audio recién almacenado leyendo solo las cabeceras del contenedor.
+ */
+@Service
+public class AudioMetadataService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AudioMetadataService.class);
+
+    @Value("${app.audio.max-duration-seconds:14400}")
+    private int maxDurationSeconds;
+
+    /**
+     * Extraer metadatos del archivo almacenado y copiarlos al MediaFile
+     */
+    public void extract(MediaFile mediaFile, Path storedFile) {
+        AudioMetadata metadata;
+        try {
+            metadata = AudioMetadataReader.read(storedFile);
+        } catch (UnsupportedAudioFileException e) {
+            logger.info("No metadata for {}: {}", mediaFile.getOriginalFileName(), e.getMessage());
+            return;
+        } catch (Exception e) {
+            logger.warn("Error reading metadata for {}: {}", mediaFile.getOriginalFileName(), e.getMessage());
+            return;
+        }
+
+        if (metadata.getDurationMillis() <= 0) {
+            throw new FileUploadException("Audio file contains no playable audio");
+        }
+        if (metadata.getDurationSeconds() > maxDurationSeconds) {
+            throw new FileUploadException("Audio file too long. Maximum duration: " + maxDurationSeconds + " seconds");
+        }
+
+        mediaFile.setDuration(Math.max(1, metadata.getDurationSeconds()));
+        mediaFile.setCodec(metadata.getCodec());
+        if (metadata.getBitrate() > 0) {
+            mediaFile.setBitrate(metadata.getBitrate() + " kbps");
+        }
+        if (metadata.getSampleRate() > 0) {
+            mediaFile.setSampleRate(metadata.getSampleRate() + " Hz");
+        }
+    }
+
+    /**
+     * Copiar los datos técnicos al track; la duración real prevalece sobre la declarada por el cliente
+     */
+    public void applyToTrack(Track track, MediaFile audioFile, Integer declaredDuration) {
+        Integer duration = audioFile.getDuration() != null ? audioFile.getDuration() : declaredDuration;
+        if (duration == null || duration <= 0) {
+            throw new FileUploadException("Could not determine audio duration; field 'duration' is required");
+        }
+        if (declaredDuration != null && audioFile.getDuration() != null
+                && Math.abs(declaredDuration - audioFile.getDuration()) > 1) {
+            logger.debug("Declared duration {}s replaced by measured {}s for {}",
+                    declaredDuration, audioFile.getDuration(), audioFile.getOriginalFileName());
+        }
+
+        track.setDuration(duration);
+        track.setAudioBitrate(audioFile.getBitrate());
+        track.setAudioSampleRate(audioFile.getSampleRate());
+    }
+}
@@ -0,0 +1,219 @@
+package com.uv.backend.service;
+
+import com.uv.backend.config.MediaTypeConfig;
+import com.uv.backend.storage.StorageBackend;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Servicio de streaming de audio con soporte de peticiones HTTP Range.
+ * Con almacenamiento remoto (S3) el cliente se redirige a una URL firmada.
+ *
+ * Los rangos simples (y el archivo completo) desde 48 KB se delegan al sendfile de Tomcat
+ * cuando el conector lo soporta: es el único camino sin copia. En el resto de casos
+ * (segmentos pequeños, conector sin sendfile y respuestas multipart/byteranges) el segmento
+ * se copia con FileChannel.transferTo hacia el OutputStream de la respuesta, que es una
+ * copia normal por un buffer del heap.
+ */
+@Service
+public class AudioStreamingService {
+
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    // Por debajo de este tamaño no compensa el sendfile (mismo umbral que el DefaultServlet de Tomcat)
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Value("${app.storage.presign-ttl-seconds:900}")
+    private long presignTtlSeconds;
+
+    /**
+     * Resuelve el archivo de audio en disco (solo con almacenamiento local).
+     * Retorna null si no existe o si el nombre intenta salir del directorio.
+     */
+    public Path resolveAudioFile(String fileName) {
+        return storageBackend.resolveLocal(audioKey(fileName));
+    }
+
+    /**
+     * URL firmada para que el cliente descargue el audio directamente del almacenamiento
+     * (los Range los atiende el propio almacenamiento). Vacío con almacenamiento local.
+     */
+    public Optional<URI> presignAudio(String fileName, String contentDisposition) {
+        return storageBackend.presign(audioKey(fileName), Duration.ofSeconds(presignTtlSeconds), contentDisposition);
+    }
+
+    /**
+     * Envía el archivo completo (200) o los rangos solicitados (206 / 416)
+     */
+    public void streamAudio(Path filePath, String contentDisposition,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+        long fileLength = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String contentType = MediaTypeConfig.getAudioContentType(filePath.getFileName().toString());
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=3600");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        List<long[]> regions = rangeHeader != null && isIfRangeSatisfied(request, lastModified)
+                ? parseRegions(rangeHeader, fileLength)
+                : List.of();
+        if (regions == null) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileLength);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        // Sin Range (o Range que se ignora): archivo completo
+        if (regions.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType);
+            response.setContentLengthLong(fileLength);
+            sendRegion(filePath, 0, fileLength, request, response);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+
+        if (regions.size() == 1) {
+            long start = regions.get(0)[0];
+            long end = regions.get(0)[1];
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileLength);
+            response.setContentLengthLong(end - start + 1);
+            sendRegion(filePath, start, end - start + 1, request, response);
+            return;
+        }
+
+        sendMultipartRegions(filePath, regions, contentType, fileLength, response);
+    }
+
+    // Parseo de rangos (simples y múltiples). Retorna null si no son satisfacibles y una lista
+    // vacía si el Range se ignora y se sirve el archivo completo.
+    private List<long[]> parseRegions(String rangeHeader, long fileLength) {
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            List<long[]> regions = new ArrayList<>(ranges.size());
+            long total = 0;
+
+            for (HttpRange range : ranges) {
+                long start = range.getRangeStart(fileLength);
+                long end = range.getRangeEnd(fileLength);
+                // Un rango que empieza después del final no es satisfacible; si hay otros, se descarta
+                if (start >= fileLength || start > end) {
+                    continue;
+                }
+                regions.add(new long[]{start, end});
+                total += end - start + 1;
+            }
+
+            if (regions.isEmpty()) {
+                return null;
+            }
+            // Rangos solapados que suman más que el archivo: RFC 9110 permite ignorarlos, y una
+            // respuesta multipart mayor que el propio archivo no tiene sentido
+            if (regions.size() > 1 && total > fileLength) {
+                return List.of();
+            }
+            return regions;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private boolean isIfRangeSatisfied(HttpServletRequest request, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        try {
+            long ifRangeDate = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return ifRangeDate != -1 && lastModified / 1000 <= ifRangeDate / 1000;
+        } catch (IllegalArgumentException e) {
+            // If-Range con ETag: no generamos ETags, así que se sirve el archivo completo
+            return false;
+        }
+    }
+
+    // Los nombres de contenido direccionado por hash viven en subdirectorios ab/cd/
+    private String audioKey(String fileName) {
+        return "audio/" + BlobStorageService.toStoragePath(fileName);
+    }
+
+    private void sendRegion(Path filePath, long start, long count,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (count >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            // Tomcat envía el segmento con sendfile cuando la respuesta termina
+            request.setAttribute(SENDFILE_FILENAME_ATTR, filePath.toFile().getCanonicalPath());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, start + count);
+            return;
+        }
+
+        transferRegion(filePath, start, count, response.getOutputStream());
+    }
+
+    private void sendMultipartRegions(Path filePath, List<long[]> regions, String contentType,
+                                      long fileLength, HttpServletResponse response) throws IOException {
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+
+        ServletOutputStream out = response.getOutputStream();
+        for (long[] region : regions) {
+            String partHeader = "\r\n--" + boundary + "\r\n" +
+                    HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n" +
+                    HttpHeaders.CONTENT_RANGE + ": bytes " + region[0] + "-" + region[1] + "/" + fileLength + "\r\n\r\n";
+            out.write(partHeader.getBytes(StandardCharsets.US_ASCII));
+            transferRegion(filePath, region[0], region[1] - region[0] + 1, out);
+        }
+        out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void transferRegion(Path filePath, long start, long count, ServletOutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long remaining = count;
+
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+}
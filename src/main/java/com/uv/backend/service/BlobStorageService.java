@@ -0,0 +1,425 @@
+package com.uv.backend.service;
+
+import com.uv.backend.entity.MediaFile;
+import com.uv.backend.entity.MediaType;
+import com.uv.backend.entity.StoredBlob;
+import com.uv.backend.repository.StoredBlobRepository;
+import com.uv.backend.storage.StorageBackend;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Almacenamiento direccionado por contenido.
+ *
+ * Cada subida se escribe primero en un archivo temporal mientras se calcula su SHA-256 y
+ * después se guarda en el StorageBackend con la clave &lt;tipo&gt;/ab/cd/&lt;hash&gt;.&lt;ext&gt;. Si el contenido
+ * ya existe el temporal se descarta y solo se incrementa el contador de referencias. Al liberar
+ * la última referencia se borran la fila y el objeto.
+ *
+ * La colocación del archivo y el borrado final se serializan con SELECT ... FOR UPDATE sobre la
+ * fila de stored_blobs (también entre instancias); el borrado del objeto se hace con la fila
+ * bloqueada, antes del commit. El incremento se confirma en su propia transacción antes de que
+ * exista la fila que lo usa, de modo que ante un fallo sobra una referencia (el archivo se
+ * conserva) y nunca falta. Si la transacción exterior se revierte, la referencia se devuelve al
+ * terminar; reconcileRefCounts corrige las que aun así sobren (p. ej. por una caída).
+ */
+@Service
+public class BlobStorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobStorageService.class);
+
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final Pattern EXTENSION_PATTERN = Pattern.compile("[a-z0-9]{1,10}");
+
+    @Autowired
+    private StoredBlobRepository storedBlobRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // En el mismo disco que las subidas locales: el paso al almacenamiento es un renombrado
+    @Value("${app.storage.staging-dir:./uploads/.incoming}")
+    private String stagingDir;
+
+    // Margen para que una subida confirme su MediaFile antes de que se reconcilien sus referencias
+    @Value("${app.storage.blob-reconcile-grace-minutes:60}")
+    private long reconcileGraceMinutes;
+
+    /**
+     * Ruta para un archivo temporal nuevo en el directorio de recepción
+     */
+    public Path createTempFile() throws IOException {
+        Path incoming = Paths.get(stagingDir);
+        Files.createDirectories(incoming);
+        return incoming.resolve(UUID.randomUUID() + ".part");
+    }
+
+    /**
+     * Borrar temporales abandonados (subidas interrumpidas) más antiguos que maxAge
+     */
+    public int deleteStaleTempFiles(Duration maxAge) throws IOException {
+        Path incoming = Paths.get(stagingDir);
+        if (!Files.isDirectory(incoming)) {
+            return 0;
+        }
+
+        long cutoff = System.currentTimeMillis() - maxAge.toMillis();
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(incoming, "*.part")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toMillis() < cutoff && Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Copiar un flujo a un archivo temporal calculando el hash por el camino
+     */
+    public StagedBlob stage(InputStream in) throws IOException {
+        Path tempFile = createTempFile();
+        MessageDigest digest = newSha256();
+        try (DigestInputStream digestIn = new DigestInputStream(in, digest)) {
+            long size = Files.copy(digestIn, tempFile);
+            return new StagedBlob(tempFile, HexFormat.of().formatHex(digest.digest()), size);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
+
+    /**
+     * Guardar un flujo y registrar una referencia
+     */
+    public StoredBlob store(InputStream in, String extension, String contentType, MediaType mediaType) throws IOException {
+        return commit(stage(in), extension, contentType, mediaType);
+    }
+
+    /**
+     * Guardar el temporal en el almacenamiento (o descartarlo si el contenido ya existe)
+     * y sumar una referencia. La referencia queda confirmada al volver.
+     */
+    public StoredBlob commit(StagedBlob staged, String extension, String contentType, MediaType mediaType) throws IOException {
+        String contentHash = staged.getContentHash();
+        String prefix = keyPrefix(mediaType);
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        StoredBlob blob;
+        try {
+            blob = transactionTemplate.execute(status -> {
+                // Un borrado en curso del mismo contenido termina antes (objeto incluido)
+                Optional<StoredBlob> existing = storedBlobRepository.lockByContentHash(contentHash);
+
+                // Se conserva la ruta del primer archivo aunque cambie la extensión
+                String storagePath = existing
+                        .map(StoredBlob::getStoragePath)
+                        .orElseGet(() -> toStoragePath(contentHash + normalizeExtension(extension)));
+
+                // Si la fila es nueva, el INSERT la deja bloqueada hasta el commit
+                storedBlobRepository.acquire(contentHash, mediaType.name(), storagePath, staged.getSize());
+                place(staged.getPath(), prefix + "/" + storagePath, contentType);
+
+                return existing.orElseGet(() -> storedBlobRepository.findByContentHash(contentHash)
+                        .orElseThrow(() -> new IllegalStateException("Blob not found after insert: " + contentHash)));
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            Files.deleteIfExists(staged.getPath());
+        }
+
+        releaseOnRollback(contentHash);
+        return blob;
+    }
+
+    /**
+     * Descartar un temporal que no llegó a guardarse
+     */
+    public void discard(StagedBlob staged) {
+        try {
+            Files.deleteIfExists(staged.getPath());
+        } catch (IOException e) {
+            logger.warn("Could not delete staged file {}: {}", staged.getPath(), e.getMessage());
+        }
+    }
+
+    /**
+     * Enlazar un MediaFile con su contenido
+     */
+    public void attach(MediaFile mediaFile, StoredBlob blob) {
+        mediaFile.setBlob(blob);
+        mediaFile.setContentHash(blob.getContentHash());
+        mediaFile.setStoredFileName(blob.getFileName());
+        mediaFile.setFileUrl(getUrl(blob));
+    }
+
+    /**
+     * Liberar una referencia. El archivo se borra tras el commit si era la última.
+     * Retorna false si la URL no corresponde a contenido direccionado por hash.
+     */
+    public boolean release(String fileUrl) {
+        String contentHash = hashFromUrl(fileUrl);
+        if (contentHash == null) {
+            return false;
+        }
+
+        storedBlobRepository.release(contentHash);
+        purgeAfterCommit(List.of(contentHash));
+        return true;
+    }
+
+    /**
+     * Liberar una referencia por cada URL, agrupando las del mismo contenido en una sola sentencia.
+     * Retorna las URLs que no corresponden a contenido direccionado por hash.
+     */
+    public List<String> releaseAll(Collection<String> fileUrls) {
+        Map<String, Integer> counts = new HashMap<>();
+        List<String> unmanaged = new ArrayList<>();
+        for (String fileUrl : fileUrls) {
+            String contentHash = hashFromUrl(fileUrl);
+            if (contentHash == null) {
+                unmanaged.add(fileUrl);
+            } else {
+                counts.merge(contentHash, 1, Integer::sum);
+            }
+        }
+
+        counts.forEach(storedBlobRepository::releaseMany);
+        purgeAfterCommit(new ArrayList<>(counts.keySet()));
+        return unmanaged;
+    }
+
+    /**
+     * Ajustar ref_count a las referencias reales en un rango de ids y borrar el contenido que se
+     * ha quedado sin ninguna (referencias de subidas cuya transacción se revirtió)
+     */
+    public int reconcileRefCounts(Long fromId, Long toId) {
+        int repaired = storedBlobRepository.reconcileRefCounts(fromId, toId,
+                LocalDateTime.now().minusMinutes(reconcileGraceMinutes));
+        storedBlobRepository.findUnreferencedHashes(fromId, toId).forEach(this::purgeIfUnreferenced);
+        return repaired;
+    }
+
+    public String getUrl(StoredBlob blob) {
+        return "/" + getKey(blob);
+    }
+
+    public String getKey(StoredBlob blob) {
+        return keyPrefix(blob.getMediaType()) + "/" + blob.getStoragePath();
+    }
+
+    /**
+     * Hash contenido en una URL o nombre de archivo; null si no es contenido direccionado por hash
+     */
+    public static String hashFromUrl(String fileUrl) {
+        if (fileUrl == null) {
+            return null;
+        }
+        String name = fileUrl.substring(fileUrl.lastIndexOf('/') + 1);
+        int dot = name.indexOf('.');
+        String hash = dot == -1 ? name : name.substring(0, dot);
+        return HASH_PATTERN.matcher(hash).matches() ? hash : null;
+    }
+
+    /**
+     * Ruta repartida en dos niveles de directorio: ab/cd/abcd....ext
+     * Los nombres que no son hashes se devuelven sin cambios.
+     */
+    public static String toStoragePath(String fileName) {
+        if (hashFromUrl(fileName) == null || fileName.contains("/")) {
+            return fileName;
+        }
+        return fileName.substring(0, 2) + "/" + fileName.substring(2, 4) + "/" + fileName;
+    }
+
+    private void purgeAfterCommit(List<String> contentHashes) {
+        if (contentHashes.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    contentHashes.forEach(BlobStorageService.this::purgeIfUnreferenced);
+                }
+            });
+        } else {
+            contentHashes.forEach(this::purgeIfUnreferenced);
+        }
+    }
+
+    // Si la transacción que iba a guardar el MediaFile se revierte, la referencia ya confirmada se devuelve
+    private void releaseOnRollback(String contentHash) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+                transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                try {
+                    transactionTemplate.executeWithoutResult(s -> storedBlobRepository.release(contentHash));
+                    purgeIfUnreferenced(contentHash);
+                } catch (Exception e) {
+                    logger.error("Error releasing blob {} after rollback: {}", contentHash, e.getMessage());
+                }
+            }
+        });
+    }
+
+    // Borra fila y archivo si nadie ha vuelto a referenciar el contenido entretanto
+    private void purgeIfUnreferenced(String contentHash) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        try {
+            // El objeto se borra con la fila bloqueada: un guardado concurrente espera y lo vuelve a
+            // colocar; si el borrado falla, la fila se conserva y se reintenta en la reconciliación
+            StoredBlob deleted = transactionTemplate.execute(status -> storedBlobRepository.lockByContentHash(contentHash)
+                    .filter(blob -> blob.getRefCount() <= 0)
+                    .filter(blob -> storedBlobRepository.deleteIfUnreferenced(contentHash) == 1)
+                    .map(blob -> {
+                        deleteObject(getKey(blob));
+                        return blob;
+                    })
+                    .orElse(null));
+            if (deleted != null) {
+                eventPublisher.publishEvent(new BlobPurgedEvent(contentHash, deleted.getMediaType()));
+            }
+        } catch (Exception e) {
+            logger.error("Error removing blob {}: {}", contentHash, e.getMessage());
+        }
+    }
+
+    private void place(Path tempFile, String key, String contentType) {
+        try {
+            if (storageBackend.stat(key) == null) {
+                storageBackend.put(key, tempFile, contentType);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void deleteObject(String key) {
+        try {
+            storageBackend.delete(key);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String keyPrefix(MediaType mediaType) {
+        switch (mediaType) {
+            case AUDIO:
+                return "audio";
+            case IMAGE:
+                return "images";
+            case VIDEO:
+                return "videos";
+            default:
+                throw new IllegalArgumentException("Unsupported media type: " + mediaType);
+        }
+    }
+
+    private String normalizeExtension(String extension) {
+        if (extension == null || extension.isEmpty()) {
+            return "";
+        }
+        String normalized = extension.toLowerCase(Locale.ROOT);
+        if (normalized.startsWith(".")) {
+            normalized = normalized.substring(1);
+        }
+        // La extensión viene del nombre que envía el cliente: nada que pueda formar una ruta
+        return EXTENSION_PATTERN.matcher(normalized).matches() ? "." + normalized : "";
+    }
+
+    private MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Archivo temporal ya escrito, con su hash y tamaño
+     */
+    public static class StagedBlob {
+        private final Path path;
+        private final String contentHash;
+        private final long size;
+
+        public StagedBlob(Path path, String contentHash, long size) {
+            this.path = path;
+            this.contentHash = contentHash;
+            this.size = size;
+        }
+
+        public Path getPath() { return path; }
+        public String getContentHash() { return contentHash; }
+        public long getSize() { return size; }
+    }
+
+    /**
+     * Contenido eliminado del almacenamiento (para borrar lo que se haya derivado de él)
+     */
+    public static class BlobPurgedEvent {
+        private final String contentHash;
+        private final MediaType mediaType;
+
+        public BlobPurgedEvent(String contentHash, MediaType mediaType) {
+            this.contentHash = contentHash;
+            this.mediaType = mediaType;
+        }
+
+        public String getContentHash() { return contentHash; }
+        public MediaType getMediaType() { return mediaType; }
+    }
+}
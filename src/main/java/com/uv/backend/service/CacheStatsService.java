@@ -0,0 +1,102 @@
+package com.uv.backend.service;
+
+import com.uv.backend.config.CacheConfig;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Métricas de la caché de segundo nivel a partir de las estadísticas de Hibernate
+ * (hibernate.generate_statistics, activadas con app.cache.stats.enabled). Los contadores son
+ * acumulados desde el arranque.
+ */
+@Service
+public class CacheStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheStatsService.class);
+
+    private static final List<String> ENTITY_REGIONS = List.of(
+            CacheConfig.USERS_REGION,
+            CacheConfig.TRACKS_REGION,
+            CacheConfig.TRACK_TAGS_REGION,
+            CacheConfig.PLAYLISTS_REGION
+    );
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    public boolean isEnabled() {
+        return statistics().isStatisticsEnabled();
+    }
+
+    /**
+     * Aciertos, fallos y entradas por región (incluida la caché de consultas)
+     */
+    public Map<String, RegionStats> getStats() {
+        Statistics statistics = statistics();
+        Map<String, RegionStats> stats = new LinkedHashMap<>();
+        if (!statistics.isStatisticsEnabled()) {
+            return stats;
+        }
+
+        for (String region : ENTITY_REGIONS) {
+            CacheRegionStatistics regionStatistics = statistics.getDomainDataRegionStatistics(region);
+            if (regionStatistics != null) {
+                stats.put(region, new RegionStats(regionStatistics.getHitCount(), regionStatistics.getMissCount(),
+                        regionStatistics.getPutCount(), regionStatistics.getElementCountInMemory()));
+            }
+        }
+        stats.put(CacheConfig.QUERY_RESULTS_REGION, new RegionStats(statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(), statistics.getQueryCachePutCount(), -1));
+        return stats;
+    }
+
+    @Scheduled(fixedDelayString = "${app.cache.stats.log-interval-ms:300000}")
+    public void logStats() {
+        getStats().forEach((region, stats) -> {
+            if (stats.getRequests() > 0) {
+                logger.info("L2 cache region {}: hit ratio {}% ({} hits, {} misses, {} puts, {} entries)",
+                        region, String.format("%.1f", stats.getHitRatio() * 100), stats.getHits(),
+                        stats.getMisses(), stats.getPuts(), stats.getEntries());
+            }
+        });
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Contadores de una región (entries = -1 si no se conoce)
+     */
+    public static class RegionStats {
+        private final long hits;
+        private final long misses;
+        private final long puts;
+        private final long entries;
+
+        public RegionStats(long hits, long misses, long puts, long entries) {
+            this.hits = hits;
+            this.misses = misses;
+            this.puts = puts;
+            this.entries = entries;
+        }
+
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getPuts() { return puts; }
+        public long getEntries() { return entries; }
+        public long getRequests() { return hits + misses; }
+        public double getHitRatio() { return getRequests() > 0 ? (double) hits / getRequests() : 0; }
+    }
+}
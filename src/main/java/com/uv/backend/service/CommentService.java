@@ -1,15 +1,18 @@
 package com.uv.backend.service;
 import com.uv.backend.dto.request.CommentRequest;
+import com.uv.backend.dto.response.KeysetCursor;
 import com.uv.backend.entity.Comment;
 import com.uv.backend.entity.Post;
 import com.uv.backend.entity.Track;
-import com.uv.backend.entity.User;
 import com.uv.backend.repository.CommentRepository;
 import com.uv.backend.repository.PostRepository;
 import com.uv.backend.repository.TrackRepository;
+import com.uv.backend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,36 +29,49 @@ public class CommentService {
     @Autowired
     private PostRepository postRepository;
 
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private EntityCacheService entityCacheService;
 
-    public Comment createTrackComment(Long trackId, CommentRequest commentRequest, User user) {
+
+    public Comment createTrackComment(Long trackId, CommentRequest commentRequest, Long userId) {
         Track track = trackRepository.findById(trackId)
                 .orElseThrow(() -> new RuntimeException("Track not found"));
 
-        Comment comment = new Comment(commentRequest.getContent(), user);
+        Comment comment = new Comment(commentRequest.getContent(), userRepository.getReferenceById(userId));
         comment.setTrack(track);
 
         Comment savedComment = commentRepository.save(comment);
+        trackRepository.adjustCommentsCount(trackId, 1);
+        entityCacheService.evict(Track.class, trackId);
+        trendingService.recordComment(trackId);
 
         return savedComment;
     }
 
-    public Comment createPostComment(Long postId, CommentRequest commentRequest, User user) {
+    public Comment createPostComment(Long postId, CommentRequest commentRequest, Long userId) {
         Post post = postRepository.findById(postId)
                 .orElseThrow(() -> new RuntimeException("Post not found"));
 
-        Comment comment = new Comment(commentRequest.getContent(), user);
+        Comment comment = new Comment(commentRequest.getContent(), userRepository.getReferenceById(userId));
         comment.setPost(post);
 
         Comment savedComment = commentRepository.save(comment);
+        postRepository.adjustCommentsCount(postId, 1);
 
         return savedComment;
     }
 
-    public Comment createReply(Long parentId, CommentRequest commentRequest, User user) {
+    public Comment createReply(Long parentId, CommentRequest commentRequest, Long userId) {
         Comment parentComment = commentRepository.findById(parentId)
                 .orElseThrow(() -> new RuntimeException("Parent comment not found"));
 
-        Comment reply = new Comment(commentRequest.getContent(), user);
+        Comment reply = new Comment(commentRequest.getContent(), userRepository.getReferenceById(userId));
         reply.setParent(parentComment);
         
         // Heredar el contexto del comentario padre
@@ -68,6 +84,17 @@ public class CommentService {
 
         Comment savedReply = commentRepository.save(reply);
 
+        // Actualizar contadores del comentario padre y de su contexto
+        commentRepository.adjustRepliesCount(parentId, 1);
+        if (savedReply.getTrack() != null) {
+            trackRepository.adjustCommentsCount(savedReply.getTrack().getId(), 1);
+            entityCacheService.evict(Track.class, savedReply.getTrack().getId());
+            trendingService.recordComment(savedReply.getTrack().getId());
+        }
+        if (savedReply.getPost() != null) {
+            postRepository.adjustCommentsCount(savedReply.getPost().getId(), 1);
+        }
+
         return savedReply;
     }
 
@@ -83,11 +110,24 @@ public class CommentService {
         return commentRepository.findByParentIdOrderByCreatedAtAsc(commentId, pageable);
     }
 
-    public Comment updateComment(Long commentId, CommentRequest commentRequest, User user) {
+    // Variantes por cursor (sin COUNT)
+    public Slice<Comment> getTrackComments(Long trackId, KeysetCursor cursor, int size) {
+        return commentRepository.findTrackCommentsBefore(trackId, cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, size));
+    }
+
+    public Slice<Comment> getPostComments(Long postId, KeysetCursor cursor, int size) {
+        return commentRepository.findPostCommentsBefore(postId, cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, size));
+    }
+
+    public Slice<Comment> getCommentReplies(Long commentId, KeysetCursor cursor, int size) {
+        return commentRepository.findRepliesAfter(commentId, cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, size));
+    }
+
+    public Comment updateComment(Long commentId, CommentRequest commentRequest, Long userId) {
         Comment comment = commentRepository.findById(commentId)
                 .orElseThrow(() -> new RuntimeException("Comment not found"));
 
-        if (!comment.getUser().getId().equals(user.getId())) {
+        if (!comment.getUser().getId().equals(userId)) {
             throw new RuntimeException("You can only update your own comments");
         }
 
@@ -95,15 +135,31 @@ public class CommentService {
         return commentRepository.save(comment);
     }
 
-    public void deleteComment(Long commentId, User user) {
+    public void deleteComment(Long commentId, Long userId) {
         Comment comment = commentRepository.findById(commentId)
                 .orElseThrow(() -> new RuntimeException("Comment not found"));
 
-        if (!comment.getUser().getId().equals(user.getId())) {
+        if (!comment.getUser().getId().equals(userId)) {
             throw new RuntimeException("You can only delete your own comments");
         }
 
+        Track track = comment.getTrack();
+        Post post = comment.getPost();
+        Comment parent = comment.getParent();
+
         commentRepository.delete(comment);
+
+        // El borrado arrastra las respuestas en cascada: se recalcula el total del contexto
+        if (track != null) {
+            trackRepository.refreshCommentsCount(track.getId());
+            entityCacheService.evict(Track.class, track.getId());
+        }
+        if (post != null) {
+            postRepository.refreshCommentsCount(post.getId());
+        }
+        if (parent != null) {
+            commentRepository.adjustRepliesCount(parent.getId(), -1);
+        }
     }
 
     public Comment getCommentById(Long id) {
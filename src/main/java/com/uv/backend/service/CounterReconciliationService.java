@@ -0,0 +1,208 @@
+package com.uv.backend.service;
+
+import com.uv.backend.repository.CommentRepository;
+import com.uv.backend.repository.PlaylistRepository;
+import com.uv.backend.repository.PostRepository;
+import com.uv.backend.repository.StoredBlobRepository;
+import com.uv.backend.repository.TrackRepository;
+import com.uv.backend.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Reconciliación periódica de los contadores denormalizados.
+ *
+ * Los contadores (likes, comentarios, seguidores...) son columnas de la entidad mapeadas con
+ * updatable = false: un flush de la entidad no puede pisar con un valor leído antes los
+ * incrementos concurrentes, que se hacen siempre con UPDATE x = x + :delta en los repositorios,
+ * dentro de la transacción de la escritura. @ColumnDefault("0") rellena las filas existentes al
+ * añadir la columna con ddl-auto=update.
+ *
+ * Recalcula cada contador a partir de las tablas de origen por rangos de id
+ * (una transacción corta por rango) y solo reescribe las filas que se han desviado.
+ * counter_reconciliations guarda qué contadores se han reconciliado ya alguna vez.
+ */
+@Service
+public class CounterReconciliationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CounterReconciliationService.class);
+
+    private static final String SCHEMA_SCRIPT = "db/counter-reconciliation.sql";
+
+    private static final String MARK_RECONCILED_SQL = "INSERT INTO counter_reconciliations (counter, reconciled_at) " +
+            "VALUES (?, now()) ON CONFLICT (counter) DO UPDATE SET reconciled_at = EXCLUDED.reconciled_at";
+
+    @Autowired
+    private TrackRepository trackRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private PlaylistRepository playlistRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+
+    @Autowired
+    private StoredBlobRepository storedBlobRepository;
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${app.counters.reconcile.chunk-size:5000}")
+    private long chunkSize;
+
+    @Value("${app.counters.reconcile.on-startup:true}")
+    private boolean reconcileOnStartup;
+
+    private List<Counter> counters;
+
+    @FunctionalInterface
+    private interface RangeUpdate {
+        int apply(Long fromId, Long toId);
+    }
+
+    @PostConstruct
+    public void init() {
+        new ResourceDatabasePopulator(new ClassPathResource(SCHEMA_SCRIPT)).execute(dataSource);
+
+        counters = List.of(
+                new Counter("tracks.likes_count", trackRepository::findMaxId, trackRepository::reconcileLikesCount),
+                new Counter("tracks.comments_count", trackRepository::findMaxId, trackRepository::reconcileCommentsCount),
+                new Counter("tracks.reposts_count", trackRepository::findMaxId, trackRepository::reconcileRepostsCount),
+
+                new Counter("posts.likes_count", postRepository::findMaxId, postRepository::reconcileLikesCount),
+                new Counter("posts.comments_count", postRepository::findMaxId, postRepository::reconcileCommentsCount),
+                new Counter("posts.reposts_count", postRepository::findMaxId, postRepository::reconcileRepostsCount),
+
+                new Counter("comments.likes_count", commentRepository::findMaxId, commentRepository::reconcileLikesCount),
+                new Counter("comments.replies_count", commentRepository::findMaxId, commentRepository::reconcileRepliesCount),
+
+                new Counter("playlists.likes_count", playlistRepository::findMaxId, playlistRepository::reconcileLikesCount),
+                new Counter("playlists.tracks_count", playlistRepository::findMaxId, playlistRepository::reconcileTracksCount),
+
+                new Counter("users.followers_count", userRepository::findMaxId, userRepository::reconcileFollowersCount),
+                new Counter("users.following_count", userRepository::findMaxId, userRepository::reconcileFollowingCount),
+                new Counter("users.tracks_count", userRepository::findMaxId, userRepository::reconcileTracksCount),
+
+                new Counter("stored_blobs.ref_count", storedBlobRepository::findMaxId, blobStorageService::reconcileRefCounts));
+    }
+
+    /**
+     * Reconciliar todos los contadores
+     */
+    @Scheduled(cron = "${app.counters.reconcile.cron:0 30 4 * * *}")
+    public void reconcileAll() {
+        int repaired = 0;
+
+        for (Counter counter : counters) {
+            repaired += reconcile(counter);
+        }
+
+        try {
+            int storageRepaired = storageQuotaService.reconcile();
+            if (storageRepaired > 0) {
+                logger.warn("Repaired {} drifted rows in storage_usage", storageRepaired);
+            }
+            repaired += storageRepaired;
+        } catch (Exception e) {
+            logger.error("Error reconciling storage_usage: {}", e.getMessage());
+        }
+
+        logger.info("Counter reconciliation finished, {} rows repaired", repaired);
+    }
+
+    /**
+     * Al arrancar se reconcilian los contadores que nunca se han reconciliado: las columnas nuevas
+     * empiezan a 0 (@ColumnDefault) y, sin esto, mostrarían 0 hasta la ejecución nocturna
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileNeverReconciled() {
+        if (!reconcileOnStartup) {
+            return;
+        }
+        try {
+            Set<String> reconciled = new HashSet<>(
+                    jdbcTemplate.queryForList("SELECT counter FROM counter_reconciliations", String.class));
+            int pending = 0;
+            int repaired = 0;
+            for (Counter counter : counters) {
+                if (!reconciled.contains(counter.name)) {
+                    pending++;
+                    repaired += reconcile(counter);
+                }
+            }
+            if (pending > 0) {
+                logger.info("Initial reconciliation of {} counters finished, {} rows repaired", pending, repaired);
+            }
+        } catch (Exception e) {
+            logger.error("Error running initial counter reconciliation: {}", e.getMessage());
+        }
+    }
+
+    // Solo se anota como reconciliado si todos los rangos se han recalculado sin error
+    private int reconcile(Counter counter) {
+        long lastId = counter.maxId.get();
+        int repaired = 0;
+        boolean failed = false;
+
+        for (long fromId = 0; fromId < lastId; fromId += chunkSize) {
+            try {
+                repaired += counter.update.apply(fromId, Math.min(fromId + chunkSize, lastId));
+            } catch (Exception e) {
+                failed = true;
+                logger.error("Error reconciling {} for ids ({}, {}]: {}",
+                        counter.name, fromId, fromId + chunkSize, e.getMessage());
+            }
+        }
+
+        if (repaired > 0) {
+            logger.warn("Repaired {} drifted rows in {}", repaired, counter.name);
+        }
+        if (!failed) {
+            jdbcTemplate.update(MARK_RECONCILED_SQL, counter.name);
+        }
+        return repaired;
+    }
+
+    private static class Counter {
+        private final String name;
+        private final Supplier<Long> maxId;
+        private final RangeUpdate update;
+
+        Counter(String name, Supplier<Long> maxId, RangeUpdate update) {
+            this.name = name;
+            this.maxId = maxId;
+            this.update = update;
+        }
+    }
+}
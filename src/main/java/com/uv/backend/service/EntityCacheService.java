@@ -0,0 +1,50 @@
+package com.uv.backend.service;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Desalojo de filas concretas de la caché L2.
+ *
+ * Los contadores (y el waveform generado) se actualizan con UPDATE nativos que no pasan por la
+ * sesión (ver QuerySpaces.TARGETED_ROWS), así que Hibernate no sabe que la entrada en caché ha
+ * cambiado. Se desaloja al momento y otra vez al terminar la transacción, porque entre medias
+ * otra transacción puede haber vuelto a cargar el valor anterior.
+ */
+@Service
+public class EntityCacheService {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    public void evict(Class<?> entityClass, Object id) {
+        evictAll(entityClass, List.of(id));
+    }
+
+    public void evictAll(Class<?> entityClass, Collection<?> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        Cache cache = entityManagerFactory.getCache();
+        ids.forEach(id -> cache.evict(entityClass, id));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<?> pending = new ArrayList<>(ids);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    pending.forEach(id -> cache.evict(entityClass, id));
+                }
+            });
+        }
+    }
+}
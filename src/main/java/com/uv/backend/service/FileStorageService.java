@@ -3,36 +3,40 @@ package com.uv.backend.service;
 import com.uv.backend.config.MediaTypeConfig;
 import com.uv.backend.entity.MediaFile;
 import com.uv.backend.entity.MediaType;
+import com.uv.backend.entity.StoredBlob;
 import com.uv.backend.entity.User;
 import com.uv.backend.exception.FileUploadException;
 import com.uv.backend.repository.MediaFileRepository;
+import com.uv.backend.storage.StorageBackend;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.io.InputStream;
 
 @Service
 public class FileStorageService {
 
-    @Value("${app.upload.dir:./uploads}")
-    private String uploadDir;
-
-    @Value("${app.upload.audio.dir:./uploads/audio}")
-    private String audioUploadDir;
-
     @Value("${server.port:8080}")
     private String serverPort;
 
     @Autowired
     private MediaFileRepository mediaFileRepository;
 
+    @Autowired
+    private AudioMetadataService audioMetadataService;
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+
     /**
      * Guarda una imagen desde URL (para imágenes externas)
      */
@@ -54,89 +58,146 @@ public class FileStorageService {
      * Sube archivo de audio al servidor local
      */
     public String uploadAudioFile(MultipartFile file, User user) throws IOException {
+        return storeAudioFile(file, user).getFileUrl();
+    }
+
+    /**
+     * Sube archivo de audio y retorna su registro con los metadatos técnicos
+     */
+    public MediaFile storeAudioFile(MultipartFile file, User user) throws IOException {
         validateAudioFile(file);
+        storageQuotaService.checkQuota(user.getId(), file.getSize());
 
-        // Crear directorio si no existe
-        Path uploadPath = Paths.get(audioUploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+        BlobStorageService.StagedBlob staged;
+        try (InputStream in = file.getInputStream()) {
+            staged = blobStorageService.stage(in);
         }
 
-        // Generar nombre único para el archivo
         String originalFileName = file.getOriginalFilename();
-        String fileExtension = getFileExtension(originalFileName);
-        String storedFileName = UUID.randomUUID().toString() + fileExtension;
-
-        // Guardar archivo
-        Path filePath = uploadPath.resolve(storedFileName);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-        // Crear registro en base de datos
         MediaFile mediaFile = new MediaFile(
                 originalFileName,
-                storedFileName,
-                "/audio/" + storedFileName,
+                null,
+                null,
                 file.getContentType(),
-                file.getSize(),
+                staged.getSize(),
                 MediaType.AUDIO,
                 user
         );
 
-        mediaFileRepository.save(mediaFile);
+        // Los metadatos se leen antes de guardar: un archivo rechazado no llega a almacenarse
+        try {
+            audioMetadataService.extract(mediaFile, staged.getPath());
+        } catch (RuntimeException e) {
+            blobStorageService.discard(staged);
+            throw e;
+        }
 
-        // Retornar URL local del archivo
-        return "/audio/" + storedFileName;
+        StoredBlob blob = blobStorageService.commit(staged, getFileExtension(originalFileName),
+                MediaTypeConfig.getAudioContentType(originalFileName), MediaType.AUDIO);
+        blobStorageService.attach(mediaFile, blob);
+        return saveUpload(mediaFile);
     }
 
     /**
-     * Sube archivo de imagen al servidor (solo para casos especiales)
+     * Sube archivo de imagen y retorna su registro
+     */
+    public MediaFile storeImageFile(MultipartFile file, User user) throws IOException {
+        storageQuotaService.checkQuota(user.getId(), file.getSize());
+        StoredBlob blob = storeImageBlob(file);
+
+        MediaFile mediaFile = new MediaFile(
+                file.getOriginalFilename(),
+                null,
+                null,
+                file.getContentType(),
+                blob.getFileSize(),
+                MediaType.IMAGE,
+                user
+        );
+        blobStorageService.attach(mediaFile, blob);
+        return saveUpload(mediaFile);
+    }
+
+    /**
+     * Sube archivo de imagen al servidor (solo para casos especiales).
+     * El contenido se guarda por hash, así que la subcarpeta ya no forma parte de la ruta.
      */
     public String uploadImageFile(MultipartFile file, String subfolder) throws IOException {
-        validateImageFile(file);
+        return blobStorageService.getUrl(storeImageBlob(file));
+    }
 
-        String subDir = "images" + (subfolder != null ? "/" + subfolder : "");
-        Path uploadPath = Paths.get(uploadDir, subDir);
+    /**
+     * Elimina archivo del sistema
+     */
+    public boolean deleteFile(String fileUrl) {
+        return deleteFile(fileUrl, null);
+    }
 
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+    /**
+     * Elimina archivo del sistema. Con varias subidas del mismo contenido solo se elimina el
+     * registro del propietario indicado; si no tiene ninguno (o no se indica) solo se libera
+     * la referencia al contenido, sin tocar registros ni cuota de otros usuarios
+     */
+    public boolean deleteFile(String fileUrl, Long ownerId) {
+        if (fileUrl == null || fileUrl.trim().isEmpty()) {
+            return false;
         }
 
-        String originalFileName = file.getOriginalFilename();
-        String fileExtension = getFileExtension(originalFileName);
-        String storedFileName = UUID.randomUUID().toString() + fileExtension;
+        // Si es una URL externa, no hacer nada
+        if (fileUrl.startsWith("http://") || fileUrl.startsWith("https://")) {
+            return true;
+        }
 
-        Path filePath = uploadPath.resolve(storedFileName);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        if (BlobStorageService.hashFromUrl(fileUrl) != null) {
+            if (ownerId != null) {
+                mediaFileRepository.findFirstByFileUrlAndUploadedByIdOrderByIdDesc(fileUrl, ownerId)
+                        .ifPresent(this::deleteRecord);
+            }
+            return blobStorageService.release(fileUrl);
+        }
 
-        return "/" + subDir + "/" + storedFileName;
+        // Archivos anteriores al almacenamiento por hash: nombre único, se borran directamente
+        boolean deleted = deleteLegacyFile(fileUrl);
+        if (deleted) {
+            String storedFileName = extractStoredFileName(fileUrl);
+            mediaFileRepository.findByStoredFileName(storedFileName)
+                    .ifPresent(this::deleteRecord);
+        }
+        return deleted;
     }
 
     /**
-     * Elimina archivo del sistema
+     * Libera el archivo de un registro que el llamador ya elimina
      */
-    public boolean deleteFile(String fileUrl) {
-        try {
-            if (fileUrl == null || fileUrl.trim().isEmpty()) {
-                return false;
-            }
+    public boolean releaseFile(String fileUrl) {
+        if (fileUrl == null || fileUrl.startsWith("http://") || fileUrl.startsWith("https://")) {
+            return false;
+        }
+        return blobStorageService.release(fileUrl) || deleteLegacyFile(fileUrl);
+    }
 
-            // Si es una URL externa, no hacer nada
-            if (fileUrl.startsWith("http://") || fileUrl.startsWith("https://")) {
-                return true;
-            }
+    private MediaFile saveUpload(MediaFile mediaFile) {
+        MediaFile saved = mediaFileRepository.save(mediaFile);
+        storageQuotaService.recordUpload(saved);
+        return saved;
+    }
 
-            // Si es un archivo local, eliminarlo
-            Path filePath = getFilePathFromUrl(fileUrl);
-            if (Files.exists(filePath)) {
-                Files.delete(filePath);
+    private void deleteRecord(MediaFile mediaFile) {
+        mediaFileRepository.delete(mediaFile);
+        storageQuotaService.recordDelete(mediaFile);
+    }
 
-                // Eliminar también el registro de la base de datos si existe
-                String storedFileName = extractStoredFileName(fileUrl);
-                mediaFileRepository.findByStoredFileName(storedFileName)
-                        .ifPresent(mediaFileRepository::delete);
+    private StoredBlob storeImageBlob(MultipartFile file) throws IOException {
+        validateImageFile(file);
+        try (InputStream in = file.getInputStream()) {
+            return blobStorageService.store(in, getFileExtension(file.getOriginalFilename()),
+                    file.getContentType(), MediaType.IMAGE);
+        }
+    }
 
-                return true;
-            }
+    private boolean deleteLegacyFile(String fileUrl) {
+        try {
+            return storageBackend.delete(StorageBackend.keyForUrl(fileUrl));
         } catch (IOException e) {
             System.err.println("Error deleting file: " + fileUrl + " - " + e.getMessage());
         }
@@ -204,18 +265,6 @@ public class FileStorageService {
         return fileUrl.substring(fileUrl.lastIndexOf('/') + 1);
     }
 
-    private Path getFilePathFromUrl(String fileUrl) {
-        String relativePath = fileUrl.startsWith("/") ? fileUrl.substring(1) : fileUrl;
-
-        if (relativePath.startsWith("audio/")) {
-            return Paths.get(audioUploadDir).resolve(relativePath.substring("audio/".length()));
-        } else if (relativePath.startsWith("images/")) {
-            return Paths.get(uploadDir).resolve(relativePath);
-        } else {
-            return Paths.get(uploadDir).resolve(relativePath);
-        }
-    }
-
     private String formatFileSize(long fileSize) {
         String[] units = {"B", "KB", "MB", "GB"};
         int unitIndex = 0;
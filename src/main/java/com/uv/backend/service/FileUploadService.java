@@ -4,136 +4,109 @@ package com.uv.backend.service;
 import com.uv.backend.config.MediaTypeConfig;
 import com.uv.backend.entity.MediaFile;
 import com.uv.backend.entity.MediaType;
+import com.uv.backend.entity.StoredBlob;
 import com.uv.backend.entity.User;
 import com.uv.backend.exception.FileUploadException;
 import com.uv.backend.repository.MediaFileRepository;
+import com.uv.backend.storage.StorageBackend;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.io.InputStream;
 
 @Service
 public class FileUploadService {
 
-    @Value("${app.upload.dir:./uploads}")
-    private String uploadDir;
-
-    @Value("${app.upload.images.dir:./uploads/images}")
-    private String imageUploadDir;
-
-    @Value("${app.upload.audio.dir:./uploads/audio}")
-    private String audioUploadDir;
-
-    @Value("${app.upload.videos.dir:./uploads/videos}")
-    private String videoUploadDir;
-
     @Value("${server.servlet.context-path:}")
     private String contextPath;
 
     @Autowired
     private MediaFileRepository mediaFileRepository;
 
-    // Subir imagen
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+
+    // Subir imagen (el contenido se guarda por hash; la subcarpeta ya no forma parte de la ruta)
     public String uploadImage(MultipartFile file, String subfolder) throws IOException {
         validateImageFile(file);
-        return uploadFile(file, imageUploadDir, subfolder, MediaType.IMAGE);
+        return blobStorageService.getUrl(storeFile(file, MediaType.IMAGE));
     }
 
     // Subir audio
     public String uploadAudio(MultipartFile file) throws IOException {
         validateAudioFile(file);
-        return uploadFile(file, audioUploadDir, null, MediaType.AUDIO);
+        return blobStorageService.getUrl(storeFile(file, MediaType.AUDIO));
     }
 
     // Subir video
     public String uploadVideo(MultipartFile file) throws IOException {
         validateVideoFile(file);
-        return uploadFile(file, videoUploadDir, null, MediaType.VIDEO);
+        return blobStorageService.getUrl(storeFile(file, MediaType.VIDEO));
     }
 
-    // Método genérico para subir archivos
-    private String uploadFile(MultipartFile file, String baseDir, String subfolder, MediaType mediaType) throws IOException {
-        // Crear directorios si no existen
-        Path uploadPath = Paths.get(baseDir);
-        if (subfolder != null) {
-            uploadPath = uploadPath.resolve(subfolder);
-        }
-
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+    // Método genérico para subir archivos: una copia por contenido, con contador de referencias
+    private StoredBlob storeFile(MultipartFile file, MediaType mediaType) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return blobStorageService.store(in, getFileExtension(file.getOriginalFilename()),
+                    file.getContentType(), mediaType);
         }
-
-        // Generar nombre único para el archivo
-        String originalFileName = file.getOriginalFilename();
-        String fileExtension = getFileExtension(originalFileName);
-        String storedFileName = UUID.randomUUID().toString() + fileExtension;
-
-        // Guardar archivo
-        Path filePath = uploadPath.resolve(storedFileName);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-        // Construir URL del archivo
-        String fileUrl = buildFileUrl(baseDir, subfolder, storedFileName);
-
-        return fileUrl;
     }
 
-    // Método para guardar archivo con registro en base de datos
+    // Método para guardar archivo con registro en base de datos (si la cuota se llena entretanto
+    // se revierte todo, también la referencia al contenido)
+    @Transactional
     public MediaFile uploadAndSaveMediaFile(MultipartFile file, MediaType mediaType, User user) throws IOException {
-        String fileUrl;
-        String baseDir;
-
         switch (mediaType) {
             case IMAGE:
                 validateImageFile(file);
-                baseDir = imageUploadDir;
                 break;
             case AUDIO:
                 validateAudioFile(file);
-                baseDir = audioUploadDir;
                 break;
             case VIDEO:
                 validateVideoFile(file);
-                baseDir = videoUploadDir;
                 break;
             default:
                 throw new FileUploadException("Unsupported media type: " + mediaType);
         }
 
-        fileUrl = uploadFile(file, baseDir, null, mediaType);
+        storageQuotaService.checkQuota(user.getId(), file.getSize());
+        StoredBlob blob = storeFile(file, mediaType);
 
         // Crear registro en base de datos
-        String originalFileName = file.getOriginalFilename();
-        String storedFileName = extractStoredFileName(fileUrl);
-
         MediaFile mediaFile = new MediaFile(
-                originalFileName,
-                storedFileName,
-                fileUrl,
+                file.getOriginalFilename(),
+                null,
+                null,
                 file.getContentType(),
-                file.getSize(),
+                blob.getFileSize(),
                 mediaType,
                 user
         );
+        blobStorageService.attach(mediaFile, blob);
 
-        return mediaFileRepository.save(mediaFile);
+        MediaFile saved = mediaFileRepository.save(mediaFile);
+        storageQuotaService.recordUpload(saved);
+        return saved;
     }
 
-    // Eliminar archivo
+    // Eliminar archivo (resta una referencia; se borra del disco al llegar a cero)
     public boolean deleteFile(String fileUrl) {
+        if (blobStorageService.release(fileUrl)) {
+            return true;
+        }
         try {
-            Path filePath = getFilePathFromUrl(fileUrl);
-            if (Files.exists(filePath)) {
-                Files.delete(filePath);
-                return true;
-            }
+            return storageBackend.delete(StorageBackend.keyForUrl(fileUrl));
         } catch (IOException e) {
             // Log error but don't throw exception
             System.err.println("Error deleting file: " + fileUrl + " - " + e.getMessage());
@@ -213,48 +186,6 @@ public class FileUploadService {
         return fileName.substring(fileName.lastIndexOf('.'));
     }
 
-    private String buildFileUrl(String baseDir, String subfolder, String fileName) {
-        StringBuilder urlBuilder = new StringBuilder();
-
-        // Determinar el prefijo de URL basado en el directorio
-        if (baseDir.contains("images")) {
-            urlBuilder.append("/images");
-        } else if (baseDir.contains("audio")) {
-            urlBuilder.append("/audio");
-        } else if (baseDir.contains("videos")) {
-            urlBuilder.append("/videos");
-        } else {
-            urlBuilder.append("/uploads");
-        }
-
-        if (subfolder != null) {
-            urlBuilder.append("/").append(subfolder);
-        }
-
-        urlBuilder.append("/").append(fileName);
-
-        return urlBuilder.toString();
-    }
-
-    private String extractStoredFileName(String fileUrl) {
-        return fileUrl.substring(fileUrl.lastIndexOf('/') + 1);
-    }
-
-    private Path getFilePathFromUrl(String fileUrl) {
-        // Convertir URL a path del sistema de archivos
-        String relativePath = fileUrl.startsWith("/") ? fileUrl.substring(1) : fileUrl;
-
-        if (relativePath.startsWith("images")) {
-            return Paths.get(imageUploadDir).resolve(relativePath.substring("images/".length()));
-        } else if (relativePath.startsWith("audio")) {
-            return Paths.get(audioUploadDir).resolve(relativePath.substring("audio/".length()));
-        } else if (relativePath.startsWith("videos")) {
-            return Paths.get(videoUploadDir).resolve(relativePath.substring("videos/".length()));
-        } else {
-            return Paths.get(uploadDir).resolve(relativePath);
-        }
-    }
-
     private String formatFileSize(long fileSize) {
         String[] units = {"B", "KB", "MB", "GB"};
         int unitIndex = 0;
@@ -1,14 +1,20 @@
 package com.uv.backend.service;
+import com.uv.backend.dto.response.KeysetCursor;
 import com.uv.backend.entity.Follow;
+import com.uv.backend.entity.ProcessingJobType;
 import com.uv.backend.entity.User;
 import com.uv.backend.repository.FollowRepository;
 import com.uv.backend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 @Service
 @Transactional
 public class FollowService {
@@ -19,6 +25,12 @@ public class FollowService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ProcessingJobService processingJobService;
+
+    @Autowired
+    private EntityCacheService entityCacheService;
+
 
     public boolean toggleFollow(Long followerId, Long followingId) {
         User follower = userRepository.findById(followerId)
@@ -32,11 +44,21 @@ public class FollowService {
         if (existingFollow != null) {
             // Unfollow
             followRepository.delete(existingFollow);
+            userRepository.adjustFollowingCount(followerId, -1);
+            userRepository.adjustFollowersCount(followingId, -1);
+            entityCacheService.evictAll(User.class, List.of(followerId, followingId));
+            processingJobService.enqueue(ProcessingJobType.TIMELINE_FOLLOW, null,
+                    TimelineService.followChangePayload(followerId, followingId));
             return false;
         } else {
             // Follow
             Follow follow = new Follow(follower, following);
             followRepository.save(follow);
+            userRepository.adjustFollowingCount(followerId, 1);
+            userRepository.adjustFollowersCount(followingId, 1);
+            entityCacheService.evictAll(User.class, List.of(followerId, followingId));
+            processingJobService.enqueue(ProcessingJobType.TIMELINE_FOLLOW, null,
+                    TimelineService.followChangePayload(followerId, followingId));
 
             return true;
         }
@@ -53,4 +75,13 @@ public class FollowService {
     public Page<User> getFollowing(Long userId, Pageable pageable) {
         return followRepository.findFollowing(userId, pageable);
     }
+
+    // Variantes por cursor: se devuelve el seguimiento (su fecha es la del cursor) con el usuario ya cargado
+    public Slice<Follow> getFollowers(Long userId, KeysetCursor cursor, int size) {
+        return followRepository.findFollowersBefore(userId, cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, size));
+    }
+
+    public Slice<Follow> getFollowing(Long userId, KeysetCursor cursor, int size) {
+        return followRepository.findFollowingBefore(userId, cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, size));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,442 @@
+package com.uv.backend.service;
+
+import com.uv.backend.config.ImagePreset;
+import com.uv.backend.entity.MediaType;
+import com.uv.backend.entity.ProcessingJob;
+import com.uv.backend.entity.ProcessingJobType;
+import com.uv.backend.entity.StoredBlob;
+import com.uv.backend.exception.ResourceNotFoundException;
+import com.uv.backend.repository.StoredBlobRepository;
+import com.uv.backend.storage.DiskLruCache;
+import com.uv.backend.storage.StorageBackend;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Versiones reducidas de imágenes subidas (avatares, portadas, imágenes de posts).
+ *
+ * Cada versión se identifica por hash del original, preset y formato, así que su contenido no
+ * cambia nunca: se genera una vez con ImageIO en un pool acotado, se guarda en una caché en disco
+ * con expulsión LRU y se sirve con un ETag fuerte. Se generan al subir la imagen (trabajo
+ * IMAGE_DERIVATIVES de la cola de procesamiento) o en la primera petición; peticiones simultáneas
+ * de la misma versión comparten la generación. WebP solo está disponible si hay un plugin de
+ * ImageIO que lo escriba; si no, se sirve JPEG.
+ */
+@Service
+public class ImageDerivativeService implements ProcessingJobHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageDerivativeService.class);
+
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    public static final String FORMAT_JPEG = "jpg";
+    public static final String FORMAT_PNG = "png";
+    public static final String FORMAT_WEBP = "webp";
+
+    @Autowired
+    private StoredBlobRepository storedBlobRepository;
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Value("${app.images.derivatives.pregenerate:true}")
+    private boolean pregenerate;
+
+    @Value("${app.images.derivatives.cache-dir:./uploads/.derivatives}")
+    private String cacheDir;
+
+    @Value("${app.images.derivatives.cache-max-mb:512}")
+    private long cacheMaxMb;
+
+    @Value("${app.images.derivatives.threads:2}")
+    private int threads;
+
+    @Value("${app.images.derivatives.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${app.images.derivatives.timeout-ms:30000}")
+    private long timeoutMs;
+
+    @Value("${app.images.derivatives.quality:0.82}")
+    private float quality;
+
+    // Límite del original: evita decodificar imágenes enormes (bombas de descompresión)
+    @Value("${app.images.derivatives.max-source-pixels:50000000}")
+    private long maxSourcePixels;
+
+    private DiskLruCache cache;
+    private ThreadPoolExecutor executor;
+    private boolean webpSupported;
+
+    // Generaciones en curso por clave de caché
+    private final ConcurrentHashMap<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        ImageIO.setUseCache(false);
+        ImageIO.scanForPlugins();
+        webpSupported = ImageIO.getImageWritersByFormatName(FORMAT_WEBP).hasNext();
+
+        cache = new DiskLruCache(Paths.get(cacheDir), cacheMaxMb * 1024 * 1024);
+        cache.open();
+
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-derivatives-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+
+        logger.info("Image derivatives: {} cached entries ({} KB), WebP {}", cache.size(),
+                cache.getTotalBytes() / 1024, webpSupported ? "enabled" : "not available");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Si hay que generar las versiones de esta imagen al subirla (solo imágenes subidas, no URLs externas)
+     */
+    public boolean accepts(String imageUrl) {
+        return pregenerate && ImagePreset.derivativeUrls(imageUrl) != null;
+    }
+
+    @Override
+    public ProcessingJobType getType() {
+        return ProcessingJobType.IMAGE_DERIVATIVES;
+    }
+
+    /**
+     * Generar las versiones de una imagen recién subida en los formatos que se sirven por defecto,
+     * decodificando el original una sola vez
+     */
+    @Override
+    public void handle(ProcessingJob job) throws IOException {
+        String contentHash = BlobStorageService.hashFromUrl(job.getPayload());
+        if (contentHash == null) {
+            return;
+        }
+
+        List<String> formats = webpSupported ? List.of(FORMAT_JPEG, FORMAT_WEBP) : List.of(FORMAT_JPEG);
+        List<ImagePreset> missing = new ArrayList<>();
+        for (ImagePreset preset : ImagePreset.values()) {
+            if (formats.stream().anyMatch(format -> !cache.contains(cacheKey(contentHash, preset, format)))) {
+                missing.add(preset);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        BufferedImage source;
+        try {
+            source = loadSource(contentHash, missing);
+        } catch (ResourceNotFoundException e) {
+            // Imagen reemplazada o eliminada mientras esperaba en la cola
+            logger.info("Skipping derivatives for {}: image no longer exists", contentHash);
+            return;
+        } catch (IllegalArgumentException e) {
+            logger.info("Skipping derivatives for {}: {}", contentHash, e.getMessage());
+            return;
+        }
+
+        for (ImagePreset preset : missing) {
+            for (String format : formats) {
+                cache.write(cacheKey(contentHash, preset, format),
+                        encode(resize(source, preset, FORMAT_JPEG.equals(format)), format));
+            }
+        }
+    }
+
+    /**
+     * Formatos de salida: JPEG y PNG siempre, WebP si hay un escritor de ImageIO para él
+     */
+    public List<String> getSupportedFormats() {
+        List<String> formats = new ArrayList<>(Arrays.asList(FORMAT_JPEG, FORMAT_PNG));
+        if (webpSupported) {
+            formats.add(FORMAT_WEBP);
+        }
+        return formats;
+    }
+
+    /**
+     * Formato para una petición sin extensión: WebP si el cliente lo acepta y está disponible
+     */
+    public String negotiateFormat(String acceptHeader) {
+        if (webpSupported && acceptHeader != null && acceptHeader.contains("image/webp")) {
+            return FORMAT_WEBP;
+        }
+        return FORMAT_JPEG;
+    }
+
+    public static String contentType(String format) {
+        switch (format) {
+            case FORMAT_PNG:
+                return "image/png";
+            case FORMAT_WEBP:
+                return "image/webp";
+            default:
+                return "image/jpeg";
+        }
+    }
+
+    /**
+     * ETag fuerte de una versión: los mismos bytes mientras no cambien hash, preset, formato ni calidad
+     */
+    public String getETag(String contentHash, ImagePreset preset, String format) {
+        return "\"" + contentHash + "-" + preset.getName() + "-" + Math.round(quality * 100) + "." + format + "\"";
+    }
+
+    /**
+     * Comprueba que la petición es servible antes de responder nada (incluido un 304):
+     * ResourceNotFoundException si el hash no es válido o la imagen no existe,
+     * IllegalArgumentException si el formato no está disponible.
+     */
+    public void checkAvailable(String contentHash, String format) {
+        validateRequest(contentHash, format);
+        storedBlobRepository.findByContentHash(contentHash)
+                .filter(found -> found.getMediaType() == MediaType.IMAGE)
+                .orElseThrow(() -> new ResourceNotFoundException("Image not found: " + contentHash));
+    }
+
+    /**
+     * Contenido de una versión: de la caché o generado en el pool.
+     * IllegalArgumentException si la petición o la imagen no son válidas,
+     * RejectedExecutionException si el pool está saturado.
+     */
+    public byte[] getDerivative(String contentHash, ImagePreset preset, String format) throws IOException {
+        validateRequest(contentHash, format);
+
+        String cacheKey = cacheKey(contentHash, preset, format);
+        byte[] cached = cache.read(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = inFlight.putIfAbsent(cacheKey, future);
+        if (existing == null) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        byte[] content = render(contentHash, preset, format);
+                        cache.write(cacheKey, content);
+                        future.complete(content);
+                    } catch (Throwable e) {
+                        future.completeExceptionally(e);
+                    } finally {
+                        inFlight.remove(cacheKey, future);
+                    }
+                });
+            } catch (RuntimeException e) {
+                inFlight.remove(cacheKey, future);
+                throw e;
+            }
+            existing = future;
+        }
+
+        try {
+            return existing.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating image derivative", e);
+        } catch (TimeoutException e) {
+            throw new IOException("Timed out generating image derivative " + cacheKey);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("Error generating image derivative " + cacheKey, cause);
+        }
+    }
+
+    /**
+     * Al borrarse una imagen del almacenamiento se borran también sus versiones
+     */
+    @EventListener
+    public void onBlobPurged(BlobStorageService.BlobPurgedEvent event) {
+        if (event.getMediaType() == MediaType.IMAGE) {
+            cache.removeAll(event.getContentHash() + "/");
+        }
+    }
+
+    private byte[] render(String contentHash, ImagePreset preset, String format) throws IOException {
+        BufferedImage source = loadSource(contentHash, List.of(preset));
+        return encode(resize(source, preset, FORMAT_JPEG.equals(format)), format);
+    }
+
+    private void validateRequest(String contentHash, String format) {
+        if (!HASH_PATTERN.matcher(contentHash).matches()) {
+            throw new ResourceNotFoundException("Image not found: " + contentHash);
+        }
+        if (!getSupportedFormats().contains(format)) {
+            throw new IllegalArgumentException("Unsupported image format: " + format);
+        }
+    }
+
+    private static String cacheKey(String contentHash, ImagePreset preset, String format) {
+        return contentHash + "/" + preset.getName() + "." + format;
+    }
+
+    private BufferedImage loadSource(String contentHash, Collection<ImagePreset> presets) throws IOException {
+        StoredBlob blob = storedBlobRepository.findByContentHash(contentHash)
+                .filter(found -> found.getMediaType() == MediaType.IMAGE)
+                .orElseThrow(() -> new ResourceNotFoundException("Image not found: " + contentHash));
+
+        try (InputStream in = storageBackend.getRange(blobStorageService.getKey(blob), 0, -1);
+             ImageInputStream imageIn = ImageIO.createImageInputStream(in)) {
+            return decode(imageIn, presets);
+        }
+    }
+
+    // Decodifica submuestreando al leer: una imagen grande no se carga entera para sacar un avatar
+    private BufferedImage decode(ImageInputStream imageIn, Collection<ImagePreset> presets) throws IOException {
+        Iterator<ImageReader> readers = imageIn != null ? ImageIO.getImageReaders(imageIn) : null;
+        if (readers == null || !readers.hasNext()) {
+            throw new IllegalArgumentException("Unsupported source image format");
+        }
+
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(imageIn, true, true);
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            if ((long) width * height > maxSourcePixels) {
+                throw new IllegalArgumentException("Source image too large: " + width + "x" + height);
+            }
+
+            // Se conserva al menos el doble del mayor tamaño pedido para que la reducción no pierda calidad
+            int subsampling = Integer.MAX_VALUE;
+            for (ImagePreset preset : presets) {
+                int reference = preset.isSquare() ? Math.min(width, height) : Math.max(width, height);
+                subsampling = Math.min(subsampling, Math.max(1, reference / (preset.getSize() * 2)));
+            }
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            return reader.read(0, param);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    private BufferedImage resize(BufferedImage source, ImagePreset preset, boolean opaque) {
+        BufferedImage image = source;
+        if (preset.isSquare()) {
+            int side = Math.min(image.getWidth(), image.getHeight());
+            image = image.getSubimage((image.getWidth() - side) / 2, (image.getHeight() - side) / 2, side, side);
+        }
+
+        // Nunca se amplía
+        double scale = Math.min(1.0, (double) preset.getSize() / Math.max(image.getWidth(), image.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        // Reducción por mitades: un solo paso bilineal con mucha reducción pierde detalle
+        int width = image.getWidth();
+        int height = image.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            image = draw(image, width, height, opaque);
+        } while (width != targetWidth || height != targetHeight);
+        return image;
+    }
+
+    private BufferedImage draw(BufferedImage source, int width, int height, boolean opaque) {
+        BufferedImage target = new BufferedImage(width, height,
+                opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            // JPEG no tiene transparencia: fondo blanco
+            if (opaque) {
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+            }
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encode(BufferedImage image, String format) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(FORMAT_JPEG.equals(format) ? "jpeg" : format);
+        if (!writers.hasNext()) {
+            throw new IOException("No image writer for " + format);
+        }
+
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(imageOut);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (!FORMAT_PNG.equals(format) && param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                String[] types = param.getCompressionTypes();
+                if (types != null && types.length > 0) {
+                    param.setCompressionType(Arrays.stream(types)
+                            .filter(type -> type.toLowerCase(Locale.ROOT).contains("lossy"))
+                            .findFirst()
+                            .orElse(types[0]));
+                }
+                param.setCompressionQuality(quality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
@@ -5,6 +5,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Set;
+
 @Service
 @Transactional
 public class LikeService {
@@ -21,6 +24,18 @@ public class LikeService {
     @Autowired
     private PlaylistRepository playlistRepository;
 
+    @Autowired
+    private TrackRepository trackRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private EntityCacheService entityCacheService;
+
 
     public boolean toggleCommentLike(Long commentId, Long userId) {
         User user = userRepository.findById(userId)
@@ -33,11 +48,13 @@ public class LikeService {
         if (existingLike != null) {
             // Unlike
             likeRepository.delete(existingLike);
+            commentRepository.adjustLikesCount(commentId, -1);
             return false;
         } else {
             // Like
             Like like = new Like(user, comment);
             likeRepository.save(like);
+            commentRepository.adjustLikesCount(commentId, 1);
 
             return true;
         }
@@ -53,10 +70,14 @@ public class LikeService {
 
         if (existingLike != null) {
             likeRepository.delete(existingLike);
+            playlistRepository.adjustLikesCount(playlistId, -1);
+            entityCacheService.evict(Playlist.class, playlistId);
             return false;
         } else {
             Like like = new Like(user, playlist);
             likeRepository.save(like);
+            playlistRepository.adjustLikesCount(playlistId, 1);
+            entityCacheService.evict(Playlist.class, playlistId);
             return true;
         }
     }
@@ -69,23 +90,85 @@ public class LikeService {
         return likeRepository.existsByUserIdAndPlaylistId(userId, playlistId);
     }
 
-    public boolean isTrackLikedByUser(Long id, Long id2) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'isTrackLikedByUser'");
+    /**
+     * Ids de posts (de la lista dada) que el usuario ha marcado con like, en una sola consulta
+     */
+    public Set<Long> getLikedPostIds(Long userId, Collection<Long> postIds) {
+        if (userId == null || postIds.isEmpty()) {
+            return Set.of();
+        }
+        return likeRepository.findLikedPostIds(userId, postIds);
+    }
+
+    public Set<Long> getLikedTrackIds(Long userId, Collection<Long> trackIds) {
+        if (userId == null || trackIds.isEmpty()) {
+            return Set.of();
+        }
+        return likeRepository.findLikedTrackIds(userId, trackIds);
+    }
+
+    public Set<Long> getLikedCommentIds(Long userId, Collection<Long> commentIds) {
+        if (userId == null || commentIds.isEmpty()) {
+            return Set.of();
+        }
+        return likeRepository.findLikedCommentIds(userId, commentIds);
     }
 
-    public boolean isPostLikedByUser(Long id, Long id2) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'isPostLikedByUser'");
+    public Set<Long> getLikedPlaylistIds(Long userId, Collection<Long> playlistIds) {
+        if (userId == null || playlistIds.isEmpty()) {
+            return Set.of();
+        }
+        return likeRepository.findLikedPlaylistIds(userId, playlistIds);
     }
 
-    public boolean togglePostLike(Long id, Long id2) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'togglePostLike'");
+    public boolean isTrackLikedByUser(Long trackId, Long userId) {
+        return likeRepository.existsByUserIdAndTrackId(userId, trackId);
     }
 
-    public boolean toggleTrackLike(Long id, Long id2) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'toggleTrackLike'");
+    public boolean isPostLikedByUser(Long postId, Long userId) {
+        return likeRepository.existsByUserIdAndPostId(userId, postId);
+    }
+
+    public boolean togglePostLike(Long postId, Long userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        Post post = postRepository.findById(postId)
+                .orElseThrow(() -> new RuntimeException("Post not found"));
+
+        Like existingLike = likeRepository.findByUserIdAndPostId(userId, postId).orElse(null);
+
+        if (existingLike != null) {
+            likeRepository.delete(existingLike);
+            postRepository.adjustLikesCount(postId, -1);
+            return false;
+        } else {
+            Like like = new Like(user, post);
+            likeRepository.save(like);
+            postRepository.adjustLikesCount(postId, 1);
+            return true;
+        }
+    }
+
+    public boolean toggleTrackLike(Long trackId, Long userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        Track track = trackRepository.findById(trackId)
+                .orElseThrow(() -> new RuntimeException("Track not found"));
+
+        Like existingLike = likeRepository.findByUserIdAndTrackId(userId, trackId).orElse(null);
+
+        if (existingLike != null) {
+            likeRepository.delete(existingLike);
+            trackRepository.adjustLikesCount(trackId, -1);
+            entityCacheService.evict(Track.class, trackId);
+            return false;
+        } else {
+            Like like = new Like(user, track);
+            likeRepository.save(like);
+            trackRepository.adjustLikesCount(trackId, 1);
+            entityCacheService.evict(Track.class, trackId);
+            trendingService.recordLike(trackId);
+            return true;
+        }
     }
-}
\ No newline at end of file
+}
@@ -27,34 +27,24 @@ public class MediaFileService {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private OrphanSweeperService orphanSweeperService;
+
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+
     /**
      * Subir archivo multimedia
      */
     public MediaFile uploadMediaFile(MultipartFile file, MediaType mediaType, User user) throws IOException {
-        String fileUrl;
-
         switch (mediaType) {
             case AUDIO:
-                fileUrl = fileStorageService.uploadAudioFile(file, user);
-                break;
+                return fileStorageService.storeAudioFile(file, user);
             case IMAGE:
-                fileUrl = fileStorageService.uploadImageFile(file, null);
-                break;
+                return fileStorageService.storeImageFile(file, user);
             default:
                 throw new IllegalArgumentException("Unsupported media type: " + mediaType);
         }
-
-        MediaFile mediaFile = new MediaFile(
-                file.getOriginalFilename(),
-                extractStoredFileName(fileUrl),
-                fileUrl,
-                file.getContentType(),
-                file.getSize(),
-                mediaType,
-                user
-        );
-
-        return mediaFileRepository.save(mediaFile);
     }
 
     /**
@@ -83,11 +73,12 @@ public class MediaFileService {
             throw new SecurityException("You can only delete your own files");
         }
 
-        // Eliminar archivo del sistema de archivos
-        fileStorageService.deleteFile(mediaFile.getFileUrl());
-
         // Eliminar registro de la base de datos
         mediaFileRepository.delete(mediaFile);
+        storageQuotaService.recordDelete(mediaFile);
+
+        // Liberar el archivo (se borra cuando no quedan referencias)
+        fileStorageService.releaseFile(mediaFile.getFileUrl());
     }
 
     /**
@@ -104,33 +95,29 @@ public class MediaFileService {
     }
 
     /**
-     * Obtener estadísticas de almacenamiento del usuario
+     * Obtener estadísticas de almacenamiento del usuario (desde el registro de uso, sin agregaciones)
      */
     public Map<String, Object> getStorageStats(Long userId) {
+        StorageQuotaService.Usage usage = storageQuotaService.getUsage(userId);
         Map<String, Object> stats = new HashMap<>();
 
-        // Uso total de almacenamiento
-        Long totalStorage = mediaFileRepository.getTotalStorageUsedByUser(userId);
-        stats.put("totalStorageUsed", totalStorage != null ? totalStorage : 0L);
+        stats.put("totalStorageUsed", usage.getTotalBytes());
 
         // Conteo de archivos por tipo
-        Long audioCount = mediaFileRepository.countByUploadedByIdAndMediaType(userId, MediaType.AUDIO);
-        Long imageCount = mediaFileRepository.countByUploadedByIdAndMediaType(userId, MediaType.IMAGE);
-        Long videoCount = mediaFileRepository.countByUploadedByIdAndMediaType(userId, MediaType.VIDEO);
-
-        stats.put("audioFilesCount", audioCount);
-        stats.put("imageFilesCount", imageCount);
-        stats.put("videoFilesCount", videoCount);
-        stats.put("totalFilesCount", audioCount + imageCount + videoCount);
+        stats.put("audioFilesCount", usage.getFiles(MediaType.AUDIO));
+        stats.put("imageFilesCount", usage.getFiles(MediaType.IMAGE));
+        stats.put("videoFilesCount", usage.getFiles(MediaType.VIDEO));
+        stats.put("totalFilesCount", usage.getTotalFiles());
 
         // Uso de almacenamiento por tipo
-        Long audioStorage = mediaFileRepository.getTotalStorageUsedByUserAndMediaType(userId, MediaType.AUDIO);
-        Long imageStorage = mediaFileRepository.getTotalStorageUsedByUserAndMediaType(userId, MediaType.IMAGE);
-        Long videoStorage = mediaFileRepository.getTotalStorageUsedByUserAndMediaType(userId, MediaType.VIDEO);
+        stats.put("audioStorageUsed", usage.getBytes(MediaType.AUDIO));
+        stats.put("imageStorageUsed", usage.getBytes(MediaType.IMAGE));
+        stats.put("videoStorageUsed", usage.getBytes(MediaType.VIDEO));
 
-        stats.put("audioStorageUsed", audioStorage != null ? audioStorage : 0L);
-        stats.put("imageStorageUsed", imageStorage != null ? imageStorage : 0L);
-        stats.put("videoStorageUsed", videoStorage != null ? videoStorage : 0L);
+        // Cuota (0 = sin límite)
+        long quota = storageQuotaService.getMaxBytesPerUser();
+        stats.put("storageQuota", quota);
+        stats.put("storageRemaining", quota > 0 ? Math.max(0, quota - usage.getTotalBytes()) : null);
 
         return stats;
     }
@@ -162,23 +149,11 @@ public class MediaFileService {
      * Obtener archivos huérfanos (no referenciados)
      */
     public void cleanupOrphanedFiles() {
-        // Buscar archivos huérfanos (más de 7 días sin referencias)
-        var cutoffDate = java.time.LocalDateTime.now().minusDays(7);
-        var orphanedFiles = mediaFileRepository.findOrphanedFiles(cutoffDate);
-
-        for (MediaFile file : orphanedFiles) {
-            // Eliminar archivo del sistema de archivos
-            fileStorageService.deleteFile(file.getFileUrl());
-            // Eliminar registro de la base de datos
-            mediaFileRepository.delete(file);
-        }
+        // Barrido por lotes de archivos sin referencias
+        orphanSweeperService.sweep();
     }
 
     // Métodos utilitarios
-    private String extractStoredFileName(String fileUrl) {
-        return fileUrl.substring(fileUrl.lastIndexOf('/') + 1);
-    }
-
     private Long countByUploadedByIdAndMediaType(Long userId, MediaType mediaType) {
         return mediaFileRepository.findByUploadedByIdAndMediaTypeOrderByCreatedAtDesc(userId, mediaType, Pageable.unpaged())
                 .getTotalElements();
@@ -0,0 +1,296 @@
+package com.uv.backend.service;
+
+import com.uv.backend.entity.MediaType;
+import com.uv.backend.repository.MediaFileRepository;
+import com.uv.backend.storage.StorageBackend;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Barrido periódico de archivos subidos que ninguna entidad referencia.
+ *
+ * Recorre media_files por keyset sobre el id (lotes de batch-size, sin OFFSET), cuenta las
+ * referencias a las URLs de cada lote en todas las columnas que las usan con una sola consulta,
+ * decide fila a fila cuáles sobran (ver findReferencedRows) y borra las filas huérfanas y sus
+ * referencias en una transacción corta por lote. Entre lotes se hace
+ * una pausa para no competir con el tráfico normal.
+ */
+@Service
+public class OrphanSweeperService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrphanSweeperService.class);
+
+    // Progreso en el log cada tantos lotes
+    private static final int PROGRESS_LOG_INTERVAL = 20;
+
+    @Autowired
+    private MediaFileRepository mediaFileRepository;
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.storage.cleanup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.storage.cleanup.orphaned-files-days:7}")
+    private int orphanedFilesDays;
+
+    @Value("${app.storage.cleanup.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.storage.cleanup.batch-pause-ms:200}")
+    private long batchPauseMs;
+
+    @Value("${app.storage.cleanup.staging-max-age-hours:24}")
+    private long stagingMaxAgeHours;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private volatile SweepStats currentRun;
+    private volatile SweepStats lastRun;
+
+    @Scheduled(cron = "${app.storage.cleanup.cron:0 0 5 * * *}")
+    public void scheduledSweep() {
+        if (enabled) {
+            sweep();
+        }
+    }
+
+    /**
+     * Ejecutar un barrido completo; retorna null si ya hay uno en curso
+     */
+    public SweepStats sweep() {
+        if (!running.compareAndSet(false, true)) {
+            logger.info("Orphan sweep already running, skipping");
+            return null;
+        }
+
+        SweepStats stats = new SweepStats();
+        currentRun = stats;
+        try {
+            sweepMediaFiles(stats, LocalDateTime.now().minusDays(orphanedFilesDays));
+            stats.staleTempFilesDeleted = blobStorageService.deleteStaleTempFiles(Duration.ofHours(stagingMaxAgeHours));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Orphan sweep interrupted after {} rows", stats.scanned);
+        } catch (Exception e) {
+            logger.error("Orphan sweep failed after {} rows: {}", stats.scanned, e.getMessage());
+        } finally {
+            stats.finish();
+            lastRun = stats;
+            currentRun = null;
+            running.set(false);
+        }
+
+        logger.info("Orphan sweep finished in {} ms: {} scanned, {} orphaned rows deleted, {} references released, " +
+                        "{} unmanaged files deleted, {} stale temp files deleted, {} failed batches",
+                stats.getDurationMs(), stats.scanned, stats.rowsDeleted, stats.referencesReleased,
+                stats.unmanagedFilesDeleted, stats.staleTempFilesDeleted, stats.failedBatches);
+        return stats;
+    }
+
+    /**
+     * Barrido en curso, o null si no hay ninguno
+     */
+    public SweepStats getCurrentRun() {
+        return currentRun;
+    }
+
+    /**
+     * Resultado del último barrido terminado, o null si todavía no se ha ejecutado
+     */
+    public SweepStats getLastRun() {
+        return lastRun;
+    }
+
+    private void sweepMediaFiles(SweepStats stats, LocalDateTime cutoffDate) throws InterruptedException {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long afterId = 0;
+
+        while (true) {
+            List<Object[]> candidates = mediaFileRepository.findSweepCandidates(afterId, cutoffDate,
+                    PageRequest.of(0, batchSize));
+            if (candidates.isEmpty()) {
+                break;
+            }
+            afterId = (Long) candidates.get(candidates.size() - 1)[0];
+            stats.scanned += candidates.size();
+            stats.batches++;
+            stats.lastId = afterId;
+
+            try {
+                sweepBatch(candidates, transactionTemplate, stats);
+            } catch (Exception e) {
+                // El lote se revierte entero; se reintenta en el próximo barrido
+                stats.failedBatches++;
+                logger.error("Error sweeping media files up to id {}: {}", afterId, e.getMessage());
+            }
+
+            if (stats.batches % PROGRESS_LOG_INTERVAL == 0) {
+                logger.info("Orphan sweep progress: {} scanned, {} deleted, last id {}",
+                        stats.scanned, stats.rowsDeleted, stats.lastId);
+            }
+            if (candidates.size() < batchSize) {
+                break;
+            }
+            if (batchPauseMs > 0) {
+                Thread.sleep(batchPauseMs);
+            }
+        }
+    }
+
+    private void sweepBatch(List<Object[]> candidates, TransactionTemplate transactionTemplate, SweepStats stats) {
+        Set<String> urls = new HashSet<>();
+        for (Object[] candidate : candidates) {
+            if (candidate[1] != null) {
+                urls.add((String) candidate[1]);
+            }
+        }
+        Set<Long> kept = urls.isEmpty() ? Set.of() : findReferencedRows(urls);
+
+        List<Long> orphanIds = new ArrayList<>();
+        List<String> orphanUrls = new ArrayList<>();
+        List<StorageQuotaService.DeletedFile> deletedFiles = new ArrayList<>();
+        for (Object[] candidate : candidates) {
+            String fileUrl = (String) candidate[1];
+            if (fileUrl == null || !kept.contains((Long) candidate[0])) {
+                orphanIds.add((Long) candidate[0]);
+                deletedFiles.add(new StorageQuotaService.DeletedFile(
+                        (Long) candidate[2], (MediaType) candidate[3], (Long) candidate[4]));
+                if (fileUrl != null && !isExternal(fileUrl)) {
+                    orphanUrls.add(fileUrl);
+                }
+            }
+        }
+        if (orphanIds.isEmpty()) {
+            return;
+        }
+
+        // Filas y referencias en la misma transacción; los objetos se borran después del commit
+        List<String> unmanaged = transactionTemplate.execute(status -> {
+            mediaFileRepository.deleteAllByIdInBatch(orphanIds);
+            storageQuotaService.recordDeletes(deletedFiles);
+            return blobStorageService.releaseAll(orphanUrls);
+        });
+        stats.rowsDeleted += orphanIds.size();
+        stats.referencesReleased += orphanUrls.size() - unmanaged.size();
+
+        for (String fileUrl : unmanaged) {
+            try {
+                if (storageBackend.delete(StorageBackend.keyForUrl(fileUrl))) {
+                    stats.unmanagedFilesDeleted++;
+                }
+            } catch (IOException e) {
+                logger.warn("Could not delete orphaned file {}: {}", fileUrl, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Filas que se conservan: varias subidas del mismo contenido comparten URL, así que la URL no
+     * basta. Se conserva una fila por referencia, primero las del dueño de la entidad que la usa
+     * (las más recientes) y, para las referencias cuyo dueño no tiene fila, cualquier otra. El
+     * resultado no depende del lote: se miran todas las filas de cada URL.
+     */
+    private Set<Long> findReferencedRows(Set<String> urls) {
+        Map<String, Map<Long, Long>> references = new HashMap<>();
+        for (Object[] row : mediaFileRepository.countReferencesByOwner(urls)) {
+            references.computeIfAbsent((String) row[0], url -> new HashMap<>())
+                    .put(((Number) row[1]).longValue(), ((Number) row[2]).longValue());
+        }
+
+        if (references.isEmpty()) {
+            return Set.of();
+        }
+
+        // Filas de cada URL, de la más reciente a la más antigua
+        Map<String, List<Object[]>> rowsByUrl = new HashMap<>();
+        for (Object[] row : mediaFileRepository.findOwnersByFileUrlIn(references.keySet())) {
+            rowsByUrl.computeIfAbsent((String) row[1], url -> new ArrayList<>()).add(row);
+        }
+
+        Set<Long> kept = new HashSet<>();
+        references.forEach((url, byOwner) -> {
+            List<Object[]> rows = rowsByUrl.getOrDefault(url, List.of());
+            List<Object[]> spare = new ArrayList<>();
+            for (Object[] row : rows) {
+                Long remaining = byOwner.get((Long) row[2]);
+                if (remaining != null && remaining > 0) {
+                    byOwner.put((Long) row[2], remaining - 1);
+                    kept.add((Long) row[0]);
+                } else {
+                    spare.add(row);
+                }
+            }
+            long unassigned = byOwner.values().stream().mapToLong(Long::longValue).sum();
+            for (int i = 0; i < spare.size() && i < unassigned; i++) {
+                kept.add((Long) spare.get(i)[0]);
+            }
+        });
+        return kept;
+    }
+
+    private boolean isExternal(String fileUrl) {
+        return fileUrl.startsWith("http://") || fileUrl.startsWith("https://");
+    }
+
+    /**
+     * Contadores de un barrido
+     */
+    public static class SweepStats {
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final long startNanos = System.nanoTime();
+        private volatile long durationMs = -1;
+        private volatile long lastId;
+        private volatile long batches;
+        private volatile long failedBatches;
+        private volatile long scanned;
+        private volatile long rowsDeleted;
+        private volatile long referencesReleased;
+        private volatile long unmanagedFilesDeleted;
+        private volatile int staleTempFilesDeleted;
+
+        private void finish() {
+            durationMs = (System.nanoTime() - startNanos) / 1_000_000;
+        }
+
+        public LocalDateTime getStartedAt() { return startedAt; }
+        public long getDurationMs() { return durationMs; }
+        public boolean isFinished() { return durationMs >= 0; }
+        public long getLastId() { return lastId; }
+        public long getBatches() { return batches; }
+        public long getFailedBatches() { return failedBatches; }
+        public long getScanned() { return scanned; }
+        public long getRowsDeleted() { return rowsDeleted; }
+        public long getReferencesReleased() { return referencesReleased; }
+        public long getUnmanagedFilesDeleted() { return unmanagedFilesDeleted; }
+        public int getStaleTempFilesDeleted() { return staleTempFilesDeleted; }
+    }
+}
@@ -0,0 +1,212 @@
+package com.uv.backend.service;
+
+import com.uv.backend.entity.Track;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Contador de reproducciones con escritura diferida (write-behind).
+ *
+ * Cada reproducción solo incrementa un LongAdder en memoria; periódicamente los deltas
+ * acumulados se vuelcan a tracks.plays_count con UPDATE ... SET plays_count = plays_count + ?
+ * por lotes. Ante una caída se pierden como máximo las reproducciones de un intervalo de volcado.
+ * En la misma transacción se acumulan en track_play_buckets por hora, de donde TrendingService
+ * reconstruye las tendencias tras un reinicio.
+ */
+@Service
+public class PlayCountService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlayCountService.class);
+
+    private static final String INCREMENT_SQL = "UPDATE tracks SET plays_count = plays_count + ? WHERE id = ?";
+
+    private static final String SCHEMA_SCRIPT = "db/track-plays.sql";
+
+    private static final String RECORD_BUCKET_SQL = "INSERT INTO track_play_buckets (plays, track_id, bucket) " +
+            "VALUES (?, ?, ?) ON CONFLICT (track_id, bucket) DO UPDATE SET plays = track_play_buckets.plays + EXCLUDED.plays";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityCacheService entityCacheService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${app.plays.max-pending-tracks:50000}")
+    private int maxPendingTracks;
+
+    @Value("${app.plays.batch-size:500}")
+    private int batchSize;
+
+    // Las horas de reproducciones se guardan lo mismo que mira atrás el arranque de las tendencias
+    @Value("${app.trending.seed-days:7}")
+    private int historyDays;
+
+    private final Map<Long, LongAdder> pendingPlays = new ConcurrentHashMap<>();
+
+    // Un volcado a la vez; ReentrantLock para no fijar el hilo portador durante el UPDATE con hilos virtuales
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    // Volcados adelantados por exceso de tracks pendientes, fuera del hilo de la petición
+    private final ExecutorService overflowFlusher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "play-count-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Como mucho un volcado adelantado en cola
+    private final AtomicBoolean overflowFlushQueued = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        new ResourceDatabasePopulator(new ClassPathResource(SCHEMA_SCRIPT)).execute(dataSource);
+    }
+
+    /**
+     * Registrar una reproducción (sin acceso a base de datos)
+     */
+    public void recordPlay(Long trackId) {
+        pendingPlays.computeIfAbsent(trackId, id -> new LongAdder()).increment();
+
+        // Limitar la memoria ante muchos tracks distintos entre volcados, sin esperar al UPDATE
+        if (pendingPlays.size() > maxPendingTracks && overflowFlushQueued.compareAndSet(false, true)) {
+            try {
+                overflowFlusher.execute(() -> {
+                    try {
+                        flush();
+                    } finally {
+                        overflowFlushQueued.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Apagando: el volcado final recoge lo pendiente
+                overflowFlushQueued.set(false);
+            }
+        }
+    }
+
+    /**
+     * Reproducciones aún no volcadas para un track
+     */
+    public long getPendingPlays(Long trackId) {
+        LongAdder adder = pendingPlays.get(trackId);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    /**
+     * Volcar los deltas acumulados a la base de datos
+     */
+    @Scheduled(fixedDelayString = "${app.plays.flush-interval-ms:5000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushPending() {
+        List<Object[]> deltas = drain();
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        // Orden por id para que volcados concurrentes bloqueen las filas en el mismo orden
+        deltas.sort((a, b) -> Long.compare((Long) a[1], (Long) b[1]));
+
+        Timestamp bucket = Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.HOURS));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int from = 0; from < deltas.size(); from += batchSize) {
+            List<Object[]> batch = deltas.subList(from, Math.min(from + batchSize, deltas.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.batchUpdate(INCREMENT_SQL, batch);
+                    jdbcTemplate.batchUpdate(RECORD_BUCKET_SQL, batch.stream()
+                            .map(delta -> new Object[]{delta[0], delta[1], bucket})
+                            .toList());
+                    // El UPDATE por JDBC no pasa por Hibernate: desalojar los tracks de la caché L2
+                    entityCacheService.evictAll(Track.class, batch.stream().map(delta -> delta[1]).toList());
+                });
+            } catch (Exception e) {
+                // Devolver los deltas al buffer para el siguiente intento
+                logger.error("Error flushing play counts, re-queueing {} tracks: {}", batch.size(), e.getMessage());
+                for (Object[] delta : batch) {
+                    pendingPlays.computeIfAbsent((Long) delta[1], id -> new LongAdder()).add((Long) delta[0]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Eliminar las horas de reproducciones que ya no se usan para las tendencias
+     */
+    @Scheduled(cron = "${app.plays.history-prune-cron:0 45 * * * *}")
+    public void pruneHistory() {
+        try {
+            int deleted = jdbcTemplate.update("DELETE FROM track_play_buckets WHERE bucket < ?",
+                    Timestamp.valueOf(LocalDateTime.now().minusDays(historyDays)));
+            if (deleted > 0) {
+                logger.debug("Pruned {} play history rows", deleted);
+            }
+        } catch (Exception e) {
+            logger.error("Error pruning play history: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        overflowFlusher.shutdown();
+        flush();
+    }
+
+    // Extrae los deltas pendientes y elimina las entradas inactivas
+    private List<Object[]> drain() {
+        List<Object[]> deltas = new ArrayList<>();
+
+        for (Map.Entry<Long, LongAdder> entry : pendingPlays.entrySet()) {
+            LongAdder adder = entry.getValue();
+            long delta = adder.sumThenReset();
+
+            if (delta == 0 && pendingPlays.remove(entry.getKey(), adder)) {
+                // Recoger incrementos que hayan llegado entre la lectura y la eliminación
+                delta = adder.sumThenReset();
+            }
+            if (delta > 0) {
+                deltas.add(new Object[]{delta, entry.getKey()});
+            }
+        }
+        return deltas;
+    }
+}
@@ -3,15 +3,22 @@ package com.uv.backend.service;
 
 import com.uv.backend.dto.PlaylistDto;
 import com.uv.backend.dto.TrackDto;
+import com.uv.backend.entity.MediaFile;
+import com.uv.backend.entity.MediaType;
 import com.uv.backend.entity.Playlist;
-import com.uv.backend.entity.Track;
+import com.uv.backend.entity.PlaylistTrack;
+import com.uv.backend.entity.ProcessingJobType;
 import com.uv.backend.entity.User;
 import com.uv.backend.exception.ResourceNotFoundException;
 import com.uv.backend.repository.PlaylistRepository;
+import com.uv.backend.repository.PlaylistTrackRepository;
 import com.uv.backend.repository.TrackRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -19,6 +26,15 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -36,6 +52,41 @@ public class PlaylistService {
     @Autowired
     private FileUploadService fileUploadService;
 
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private EntityCacheService entityCacheService;
+
+    @Autowired
+    private PlaylistTrackRepository playlistTrackRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    @Autowired
+    private ProcessingJobService processingJobService;
+
+    // Separación entre posiciones consecutivas: deja sitio para insertar sin tocar las demás filas
+    private static final long POSITION_GAP = 1024;
+
+    // Las filas que ya existen se saltan sin error; el recuento de filas insertadas sale del lote
+    private static final String INSERT_TRACK_SQL = "INSERT INTO playlist_tracks (playlist_id, track_id, position, added_at) " +
+            "VALUES (?, ?, ?, now()) ON CONFLICT (playlist_id, track_id) DO NOTHING";
+
+    @Value("${app.playlists.batch.max-size:5000}")
+    private int maxBatchSize;
+
+    // Ids por lote JDBC y por lista IN
+    @Value("${app.playlists.batch.chunk-size:1000}")
+    private int batchChunkSize;
+
     // Crear nueva playlist
     public PlaylistDto createPlaylist(String title, String description, Boolean isPublic) {
         User currentUser = userService.getCurrentUser();
@@ -47,6 +98,7 @@ public class PlaylistService {
         playlist.setUser(currentUser);
 
         Playlist savedPlaylist = playlistRepository.save(playlist);
+        searchIndexService.indexPlaylist(savedPlaylist.getId());
         return new PlaylistDto(savedPlaylist);
     }
 
@@ -73,6 +125,7 @@ public class PlaylistService {
         }
 
         Playlist savedPlaylist = playlistRepository.save(playlist);
+        searchIndexService.indexPlaylist(savedPlaylist.getId());
         return new PlaylistDto(savedPlaylist);
     }
 
@@ -81,13 +134,14 @@ public class PlaylistService {
         Playlist playlist = playlistRepository.findById(playlistId)
                 .orElseThrow(() -> new ResourceNotFoundException("Playlist not found with id: " + playlistId));
 
-        // Eliminar imagen anterior si existe
+        // Eliminar imagen anterior si existe (su registro devuelve la cuota antes de cobrar la nueva)
         if (playlist.hasCoverImage()) { // CORREGIDO
-            fileUploadService.deleteFile(playlist.getCoverImageUrl()); // CORREGIDO
+            fileStorageService.deleteFile(playlist.getCoverImageUrl(), playlist.getUser().getId());
         }
 
-        // Subir nueva imagen
-        String coverImageUrl = fileUploadService.uploadImage(file, "covers");
+        // Subir nueva imagen: con su MediaFile y a cargo de la cuota del dueño de la playlist
+        MediaFile cover = fileUploadService.uploadAndSaveMediaFile(file, MediaType.IMAGE, playlist.getUser());
+        String coverImageUrl = cover.getFileUrl();
 
         playlist.setCoverImageUrl(coverImageUrl); // CORREGIDO
         playlist.setCoverImageFileName(file.getOriginalFilename());
@@ -95,6 +149,11 @@ public class PlaylistService {
         playlist.setCoverImageFileSize(file.getSize());
 
         Playlist savedPlaylist = playlistRepository.save(playlist);
+
+        // Versiones reducidas de la portada (las URLs van en coverImageDerivatives del DTO)
+        if (imageDerivativeService.accepts(coverImageUrl)) {
+            processingJobService.enqueue(ProcessingJobType.IMAGE_DERIVATIVES, null, coverImageUrl);
+        }
         return new PlaylistDto(savedPlaylist);
     }
 
@@ -105,36 +164,121 @@ public class PlaylistService {
 
         // CORREGIDO - Eliminar imagen de portada si existe
         if (playlist.hasCoverImage()) { // CORREGIDO
-            fileUploadService.deleteFile(playlist.getCoverImageUrl()); // CORREGIDO
+            fileStorageService.deleteFile(playlist.getCoverImageUrl(), playlist.getUser().getId());
         }
 
+        playlistTrackRepository.deleteByPlaylistId(id);
         playlistRepository.delete(playlist);
     }
 
-    // Agregar track a playlist
+    // Agregar track a playlist (al final)
     public PlaylistDto addTrackToPlaylist(Long playlistId, Long trackId) {
+        if (!trackRepository.existsById(trackId)) {
+            throw new ResourceNotFoundException("Track not found with id: " + trackId);
+        }
+        return toPlaylistDto(playlistId, addTracksToPlaylist(playlistId, List.of(trackId), null));
+    }
+
+    // Remover track de playlist
+    public PlaylistDto removeTrackFromPlaylist(Long playlistId, Long trackId) {
+        if (!trackRepository.existsById(trackId)) {
+            throw new ResourceNotFoundException("Track not found with id: " + trackId);
+        }
+        return toPlaylistDto(playlistId, removeTracksFromPlaylist(playlistId, List.of(trackId)));
+    }
+
+    /**
+     * Agregar tracks en bloque (hasta app.playlists.batch.max-size ids) en el índice indicado
+     * (null = al final), en el orden recibido. Se valida por bloques de ids y se inserta por lotes
+     * JDBC; los ids inexistentes se devuelven en el resumen en lugar de fallar y los que ya están
+     * en la playlist se ignoran
+     */
+    public TrackBatchResult addTracksToPlaylist(Long playlistId, List<Long> trackIds, Integer position) {
         Playlist playlist = playlistRepository.findById(playlistId)
                 .orElseThrow(() -> new ResourceNotFoundException("Playlist not found with id: " + playlistId));
 
-        Track track = trackRepository.findById(trackId)
-                .orElseThrow(() -> new ResourceNotFoundException("Track not found with id: " + trackId));
+        List<Long> ids = distinctBatchIds(trackIds);
+        Set<Long> existing = new HashSet<>(ids.size());
+        Set<Long> alreadyAdded = new HashSet<>();
+        for (List<Long> chunk : chunks(ids)) {
+            existing.addAll(trackRepository.findExistingIds(chunk));
+            alreadyAdded.addAll(playlistTrackRepository.findTrackIdsInPlaylist(playlistId, chunk));
+        }
+        List<Long> notFound = ids.stream().filter(id -> !existing.contains(id)).collect(Collectors.toList());
+        ids.removeIf(id -> !existing.contains(id) || alreadyAdded.contains(id));
+
+        int added = 0;
+        if (!ids.isEmpty()) {
+            long[] positions = allocatePositions(playlistId, ids, position);
+            List<Object[]> rows = new ArrayList<>(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                rows.add(new Object[]{playlistId, ids.get(i), positions[i]});
+            }
+            int[][] counts = jdbcTemplate.batchUpdate(INSERT_TRACK_SQL, rows, batchChunkSize, (ps, row) -> {
+                ps.setLong(1, (Long) row[0]);
+                ps.setLong(2, (Long) row[1]);
+                ps.setLong(3, (Long) row[2]);
+            });
+            added = (int) Arrays.stream(counts).flatMapToInt(Arrays::stream).filter(count -> count > 0).count();
+        }
 
-        playlist.addTrack(track);
-        Playlist savedPlaylist = playlistRepository.save(playlist);
-        return new PlaylistDto(savedPlaylist);
+        if (added > 0) {
+            playlistRepository.adjustTracksCount(playlistId, added);
+            entityCacheService.evict(Playlist.class, playlistId);
+        }
+        return new TrackBatchResult(trackIds.size(), added, 0, existing.size() - added, notFound,
+                playlist.getTracksCount() + added);
     }
 
-    // Remover track de playlist
-    public PlaylistDto removeTrackFromPlaylist(Long playlistId, Long trackId) {
+    /**
+     * Quitar tracks en bloque (hasta app.playlists.batch.max-size ids): un DELETE por bloque de ids
+     */
+    public TrackBatchResult removeTracksFromPlaylist(Long playlistId, List<Long> trackIds) {
         Playlist playlist = playlistRepository.findById(playlistId)
                 .orElseThrow(() -> new ResourceNotFoundException("Playlist not found with id: " + playlistId));
 
-        Track track = trackRepository.findById(trackId)
-                .orElseThrow(() -> new ResourceNotFoundException("Track not found with id: " + trackId));
+        List<Long> ids = distinctBatchIds(trackIds);
+        int removed = 0;
+        for (List<Long> chunk : chunks(ids)) {
+            removed += playlistTrackRepository.deleteByPlaylistIdAndTrackIdIn(playlistId, chunk);
+        }
 
-        playlist.removeTrack(track);
-        Playlist savedPlaylist = playlistRepository.save(playlist);
-        return new PlaylistDto(savedPlaylist);
+        if (removed > 0) {
+            playlistRepository.adjustTracksCount(playlistId, -removed);
+            entityCacheService.evict(Playlist.class, playlistId);
+        }
+        return new TrackBatchResult(trackIds.size(), 0, removed, ids.size() - removed, List.of(),
+                playlist.getTracksCount() - removed);
+    }
+
+    /**
+     * Mover tracks de la playlist al índice indicado (null = al final), en el orden recibido.
+     * Solo se actualizan las filas movidas, salvo cuando hay que renumerar la playlist
+     */
+    public PlaylistDto moveTracksInPlaylist(Long playlistId, List<Long> trackIds, Integer position) {
+        Playlist playlist = playlistRepository.findById(playlistId)
+                .orElseThrow(() -> new ResourceNotFoundException("Playlist not found with id: " + playlistId));
+
+        List<Long> ids = distinctBatchIds(trackIds);
+        if (ids.isEmpty()) {
+            return new PlaylistDto(playlist);
+        }
+        // Primero las posiciones (pueden renumerar la playlist) y después se cargan las filas
+        long[] positions = allocatePositions(playlistId, ids, position);
+        Map<Long, PlaylistTrack> rows = new HashMap<>(ids.size());
+        for (List<Long> chunk : chunks(ids)) {
+            playlistTrackRepository.findByPlaylistIdAndTrackIdIn(playlistId, chunk)
+                    .forEach(row -> rows.put(row.getTrackId(), row));
+        }
+
+        for (int i = 0; i < ids.size(); i++) {
+            PlaylistTrack row = rows.get(ids.get(i));
+            if (row == null) {
+                throw new ResourceNotFoundException("Track " + ids.get(i) + " is not in playlist " + playlistId);
+            }
+            row.setPosition(positions[i]);
+        }
+        return new PlaylistDto(playlist);
     }
 
     // Obtener playlists del usuario
@@ -151,24 +295,133 @@ public class PlaylistService {
 
     // Buscar playlists
     public Page<PlaylistDto> searchPlaylists(String query, Pageable pageable) {
-        return playlistRepository.searchPlaylists(query, pageable)
+        return searchIndexService.searchPlaylists(query, pageable)
                 .map(PlaylistDto::new);
     }
 
+    /**
+     * Tracks de la playlist en orden: una consulta paginada sobre playlist_tracks (con el autor).
+     * El total es el contador denormalizado, así que no se cuentan las filas
+     */
     public Page<TrackDto> getPlaylistTracks(Long playlistId, Pageable pageable) {
         Playlist playlist = playlistRepository.findById(playlistId)
                 .orElseThrow(() -> new ResourceNotFoundException("Playlist not found with id: " + playlistId));
 
-        return playlist.getTracks()
-                .stream()
+        List<TrackDto> tracks = playlistTrackRepository.findTracksPage(playlistId, pageable).stream()
                 .map(TrackDto::new)
-                .collect(java.util.stream.Collectors.toList())
-                .stream()
-                .skip(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .collect(java.util.stream.Collectors.collectingAndThen(
-                        java.util.stream.Collectors.toList(),
-                        list -> new org.springframework.data.domain.PageImpl<>(list, pageable, playlist.getTracks().size())
-                ));
+                .collect(Collectors.toList());
+        return new PageImpl<>(tracks, pageable, playlist.getTracksCount());
+    }
+
+    /**
+     * Posiciones para colocar n tracks seguidos en el índice dado, sin contar esos mismos tracks.
+     * Se reparte el hueco entre los vecinos; si no cabe, se renumera la playlist y se repite
+     */
+    private long[] allocatePositions(Long playlistId, List<Long> placedIds, Integer index) {
+        int n = placedIds.size();
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Long previous;
+            Long next = null;
+            if (index == null) {
+                previous = playlistTrackRepository.findMaxPositionExcluding(playlistId, placedIds);
+            } else if (index == 0) {
+                previous = null;
+                List<Long> around = playlistTrackRepository.findPositionsExcluding(playlistId, placedIds, 0, 1);
+                next = around.isEmpty() ? null : around.get(0);
+            } else {
+                List<Long> around = playlistTrackRepository.findPositionsExcluding(playlistId, placedIds, index - 1, 2);
+                previous = around.isEmpty()
+                        ? playlistTrackRepository.findMaxPositionExcluding(playlistId, placedIds)
+                        : around.get(0);
+                next = around.size() > 1 ? around.get(1) : null;
+            }
+
+            long[] positions = new long[n];
+            if (next == null) {
+                long base = previous != null ? previous : 0;
+                for (int i = 0; i < n; i++) {
+                    positions[i] = base + POSITION_GAP * (i + 1);
+                }
+                return positions;
+            }
+            if (previous == null) {
+                for (int i = 0; i < n; i++) {
+                    positions[i] = next - POSITION_GAP * (n - i);
+                }
+                return positions;
+            }
+            long step = (next - previous) / (n + 1);
+            if (step >= 1) {
+                for (int i = 0; i < n; i++) {
+                    positions[i] = previous + step * (i + 1);
+                }
+                return positions;
+            }
+            // Sin hueco suficiente: renumerar con espacio para todo el bloque
+            playlistTrackRepository.renumber(playlistId, Math.max(POSITION_GAP, n + 1L));
+        }
+        throw new IllegalStateException("Could not allocate positions in playlist " + playlistId);
+    }
+
+    // Ids sin nulos ni repetidos, conservando el orden
+    private List<Long> distinctIds(List<Long> trackIds) {
+        return trackIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private List<Long> distinctBatchIds(List<Long> trackIds) {
+        List<Long> ids = distinctIds(trackIds);
+        if (ids.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Too many track ids: " + ids.size() + " (maximum " + maxBatchSize + ")");
+        }
+        return ids;
+    }
+
+    private List<List<Long>> chunks(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += batchChunkSize) {
+            chunks.add(ids.subList(from, Math.min(from + batchChunkSize, ids.size())));
+        }
+        return chunks;
+    }
+
+    private PlaylistDto toPlaylistDto(Long playlistId, TrackBatchResult result) {
+        Playlist playlist = playlistRepository.findById(playlistId)
+                .orElseThrow(() -> new ResourceNotFoundException("Playlist not found with id: " + playlistId));
+        PlaylistDto dto = new PlaylistDto(playlist);
+        dto.setTracksCount(result.getTracksCount());
+        return dto;
+    }
+
+    /**
+     * Resumen de una operación en bloque sobre los tracks de una playlist
+     */
+    public static class TrackBatchResult {
+        private final int requested;
+        private final int added;
+        private final int removed;
+        // Ya estaban (altas) o no estaban (bajas) en la playlist
+        private final int unchanged;
+        private final List<Long> notFoundTrackIds;
+        private final int tracksCount;
+
+        public TrackBatchResult(int requested, int added, int removed, int unchanged,
+                                List<Long> notFoundTrackIds, int tracksCount) {
+            this.requested = requested;
+            this.added = added;
+            this.removed = removed;
+            this.unchanged = unchanged;
+            this.notFoundTrackIds = notFoundTrackIds;
+            this.tracksCount = tracksCount;
+        }
+
+        public int getRequested() { return requested; }
+        public int getAdded() { return added; }
+        public int getRemoved() { return removed; }
+        public int getUnchanged() { return unchanged; }
+        public List<Long> getNotFoundTrackIds() { return notFoundTrackIds; }
+        public int getTracksCount() { return tracksCount; }
     }
 }
@@ -1,19 +1,25 @@
 package com.uv.backend.service;
 
 import com.uv.backend.dto.request.PostRequest;
+import com.uv.backend.dto.response.KeysetCursor;
 import com.uv.backend.entity.Post;
 import com.uv.backend.entity.PostType;
 import com.uv.backend.entity.Track;
 import com.uv.backend.entity.User;
 import com.uv.backend.repository.PostRepository;
 import com.uv.backend.repository.TrackRepository;
+import com.uv.backend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @Transactional
@@ -25,8 +31,22 @@ public class PostService {
     @Autowired
     private TrackRepository trackRepository;
 
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TimelineService timelineService;
 
-    public Post createPost(PostRequest postRequest, User user) {
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private EntityCacheService entityCacheService;
+
+
+    public Post createPost(PostRequest postRequest, Long userId) {
+        // Referencia sin cargar el usuario: solo hace falta su id para la FK
+        User user = userRepository.getReferenceById(userId);
         Post post = new Post(postRequest.getType(), user);
         post.setContent(postRequest.getContent());
 
@@ -41,48 +61,70 @@ public class PostService {
                     .orElseThrow(() -> new RuntimeException("Original post not found"));
             post.setOriginalPost(originalPost);
         }
-        return postRepository.save(post);
+
+        Post savedPost = postRepository.save(post);
+        adjustRepostCounters(savedPost, 1);
+        timelineService.fanOut(savedPost);
+        return savedPost;
     }
 
     public Post getPostById(Long id) {
         return postRepository.findById(id).orElse(null);
     }
 
-    public Page<Post> getFeedPosts(Long userId, Pageable pageable) {
-        return postRepository.findFeedPosts(userId, pageable);
-    }
-
     public Page<Post> getUserPosts(Long userId, Pageable pageable) {
         return postRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
     }
 
-    public Post repost(Long postId, User user) {
+    public Slice<Post> getUserPosts(Long userId, KeysetCursor cursor, int size) {
+        return postRepository.findByUserIdBefore(userId, cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, size));
+    }
+
+    /**
+     * Ids de posts (de la lista dada) que el usuario ya ha reposteado, en una sola consulta
+     */
+    public Set<Long> getRepostedPostIds(Long userId, Collection<Long> postIds) {
+        if (userId == null || postIds.isEmpty()) {
+            return Set.of();
+        }
+        return postRepository.findRepostedPostIds(userId, postIds);
+    }
+
+    public Post repost(Long postId, Long userId) {
         Post originalPost = postRepository.findById(postId)
                 .orElseThrow(() -> new RuntimeException("Post not found"));
 
-        Post repost = new Post(PostType.REPOST, user);
+        Post repost = new Post(PostType.REPOST, userRepository.getReferenceById(userId));
         repost.setOriginalPost(originalPost);
-        return postRepository.save(repost);
+
+        Post savedRepost = postRepository.save(repost);
+        adjustRepostCounters(savedRepost, 1);
+        timelineService.fanOut(savedRepost);
+        return savedRepost;
     }
 
-    public void deletePost(Long id, User user) {
+    public void deletePost(Long id, Long userId) {
         Post post = postRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Post not found"));
 
-        if (!post.getUser().getId().equals(user.getId())) {
+        if (!post.getUser().getId().equals(userId)) {
             throw new RuntimeException("You can only delete your own posts");
         }
 
+        adjustRepostCounters(post, -1);
+        timelineService.removePost(post.getId());
         postRepository.delete(post);
     }
 
-    public boolean removeRepost(Long trackId, User user) {
+    public boolean removeRepost(Long trackId, Long userId) {
         // Buscar el repost del usuario para este track
         List<Post> reposts = postRepository.findByUserIdAndTrackIdAndType(
-                user.getId(), trackId, PostType.REPOST);
+                userId, trackId, PostType.REPOST);
 
         if (!reposts.isEmpty()) {
             Post repost = reposts.get(0);
+            adjustRepostCounters(repost, -1);
+            timelineService.removePost(repost.getId());
             postRepository.delete(repost);
             return true;
         }
@@ -90,17 +132,36 @@ public class PostService {
         return false;
     }
 
-    public boolean removePostRepost(Long originalPostId, User user) {
+    public boolean removePostRepost(Long originalPostId, Long userId) {
         // Buscar el repost del usuario para este post
         List<Post> reposts = postRepository.findByUserIdAndOriginalPostIdAndType(
-                user.getId(), originalPostId, PostType.REPOST);
+                userId, originalPostId, PostType.REPOST);
 
         if (!reposts.isEmpty()) {
             Post repost = reposts.get(0);
+            adjustRepostCounters(repost, -1);
+            timelineService.removePost(repost.getId());
             postRepository.delete(repost);
             return true;
         }
 
         return false;
     }
-}
\ No newline at end of file
+
+    // Mantiene los contadores de reposts del track / post original
+    private void adjustRepostCounters(Post post, int delta) {
+        if (post.getType() != PostType.REPOST) {
+            return;
+        }
+        if (post.getTrack() != null) {
+            trackRepository.adjustRepostsCount(post.getTrack().getId(), delta);
+            entityCacheService.evict(Track.class, post.getTrack().getId());
+            if (delta > 0) {
+                trendingService.recordRepost(post.getTrack().getId());
+            }
+        }
+        if (post.getOriginalPost() != null) {
+            postRepository.adjustRepostsCount(post.getOriginalPost().getId(), delta);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.uv.backend.service;
+
+import com.uv.backend.entity.ProcessingJob;
+import com.uv.backend.entity.ProcessingJobType;
+
+/**
+ * Ejecuta los trabajos de un tipo de la cola de procesamiento.
+ *
+ * handle() debe poder repetirse: un trabajo interrumpido se vuelve a ejecutar entero. Una excepción
+ * programa un reintento; si no hay nada que hacer (archivo borrado, formato sin soporte) se vuelve sin error.
+ */
+public interface ProcessingJobHandler {
+
+    ProcessingJobType getType();
+
+    void handle(ProcessingJob job) throws Exception;
+}
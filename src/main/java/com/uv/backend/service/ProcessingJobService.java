@@ -0,0 +1,349 @@
+package com.uv.backend.service;
+
+import com.uv.backend.entity.ProcessingJob;
+import com.uv.backend.entity.ProcessingJobType;
+import com.uv.backend.repository.ProcessingJobRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cola de procesamiento posterior a las subidas, persistida en processing_jobs.
+ *
+ * Los trabajos se insertan en la transacción de la subida y se despachan al confirmarse (y en
+ * cada sondeo, por si se perdió el aviso o había reintentos vencidos). Cada tipo tiene un número
+ * fijo de huecos (app.jobs.concurrency.<tipo>): solo se reclaman tantos trabajos como huecos
+ * libres, con FOR UPDATE SKIP LOCKED, y el pool tiene un hilo por hueco. Un fallo se reintenta
+ * con espera exponencial hasta max-attempts. Mientras un trabajo corre, su instancia renueva
+ * updatedAt cada heartbeat-interval-ms; uno en RUNNING sin latido durante lease-minutes (caída
+ * del proceso) vuelve a la cola, por mucho que dure un trabajo vivo.
+ */
+@Service
+public class ProcessingJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessingJobService.class);
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private static final String SCHEMA_SCRIPT = "db/processing-jobs.sql";
+
+    @Autowired
+    private ProcessingJobRepository processingJobRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private List<ProcessingJobHandler> handlers;
+
+    @Value("${app.jobs.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.jobs.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.jobs.backoff.initial-ms:10000}")
+    private long initialBackoffMs;
+
+    @Value("${app.jobs.backoff.max-ms:3600000}")
+    private long maxBackoffMs;
+
+    @Value("${app.jobs.lease-minutes:5}")
+    private long leaseMinutes;
+
+    @Value("${app.jobs.retention-days:7}")
+    private int retentionDays;
+
+    private final Map<ProcessingJobType, ProcessingJobHandler> handlersByType = new EnumMap<>(ProcessingJobType.class);
+    private final Map<ProcessingJobType, Semaphore> freeSlots = new EnumMap<>(ProcessingJobType.class);
+
+    // Trabajos reclamados por esta instancia que aún no han terminado (ver heartbeat)
+    private final Set<Long> runningJobs = ConcurrentHashMap.newKeySet();
+
+    // Varios avisos seguidos se agrupan en una sola pasada del despachador
+    private final AtomicBoolean dispatchScheduled = new AtomicBoolean();
+
+    private TransactionTemplate transactionTemplate;
+    private ExecutorService dispatcher;
+    private ThreadPoolExecutor workers;
+
+    @PostConstruct
+    public void init() {
+        // Antes de despachar nada: el esquema antiguo rechaza los tipos añadidos después
+        new ResourceDatabasePopulator(new ClassPathResource(SCHEMA_SCRIPT)).execute(dataSource);
+
+        for (ProcessingJobHandler handler : handlers) {
+            handlersByType.put(handler.getType(), handler);
+        }
+
+        int threads = 0;
+        for (ProcessingJobType type : ProcessingJobType.values()) {
+            int slots = environment.getProperty(
+                    "app.jobs.concurrency." + type.name().toLowerCase(Locale.ROOT), Integer.class, 1);
+            freeSlots.put(type, new Semaphore(slots));
+            threads += slots;
+        }
+
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jobs-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Nunca hay más trabajos reclamados que huecos, así que la cola no crece
+        AtomicInteger counter = new AtomicInteger();
+        workers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "jobs-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+        workers.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Los trabajos interrumpidos quedan en RUNNING y se recuperan al vencer su lease
+        dispatcher.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Encolar un trabajo dentro de la transacción actual; se despacha al confirmarse
+     */
+    @Transactional
+    public ProcessingJob enqueue(ProcessingJobType type, Long trackId, String payload) {
+        ProcessingJob job = processingJobRepository.save(new ProcessingJob(type, trackId, payload, maxAttempts));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUp();
+                }
+            });
+        } else {
+            wakeUp();
+        }
+        return job;
+    }
+
+    /**
+     * Trabajos de un track, del más reciente al más antiguo
+     */
+    @Transactional(readOnly = true)
+    public List<ProcessingJob> getTrackJobs(Long trackId) {
+        return processingJobRepository.findByTrackIdOrderByCreatedAtDesc(trackId);
+    }
+
+    /**
+     * Eliminar los trabajos de un track borrado (los que estén en curso terminan sin efecto)
+     */
+    @Transactional
+    public void deleteTrackJobs(Long trackId) {
+        processingJobRepository.deleteByTrackId(trackId);
+    }
+
+    /**
+     * Sondeo periódico: reintentos vencidos y trabajos cuyo aviso se perdió
+     */
+    @Scheduled(fixedDelayString = "${app.jobs.poll-interval-ms:5000}")
+    public void poll() {
+        wakeUp();
+    }
+
+    /**
+     * Renovar updatedAt de los trabajos que siguen corriendo en esta instancia
+     */
+    @Scheduled(fixedDelayString = "${app.jobs.heartbeat-interval-ms:60000}")
+    public void heartbeat() {
+        if (runningJobs.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    processingJobRepository.heartbeat(List.copyOf(runningJobs), LocalDateTime.now()));
+        } catch (Exception e) {
+            logger.error("Error refreshing running processing jobs: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Devolver a la cola los trabajos abandonados en RUNNING
+     */
+    @Scheduled(fixedDelayString = "${app.jobs.recover-interval-ms:60000}")
+    @Transactional
+    public void recoverStaleJobs() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minusMinutes(leaseMinutes);
+        int requeued = processingJobRepository.requeueStale(cutoff, now);
+        int failed = processingJobRepository.failStale(cutoff, now);
+        if (requeued > 0 || failed > 0) {
+            logger.warn("Recovered stale processing jobs: {} requeued, {} failed", requeued, failed);
+        }
+    }
+
+    /**
+     * Borrar los trabajos terminados hace más de retention-days
+     */
+    @Scheduled(cron = "${app.jobs.purge-cron:0 45 4 * * *}")
+    @Transactional
+    public void purgeFinishedJobs() {
+        int deleted = processingJobRepository.deleteFinishedBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            logger.info("Purged {} finished processing jobs", deleted);
+        }
+    }
+
+    private void wakeUp() {
+        if (!enabled || !dispatchScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            dispatcher.execute(() -> {
+                dispatchScheduled.set(false);
+                dispatch();
+            });
+        } catch (RejectedExecutionException e) {
+            // Apagando
+            dispatchScheduled.set(false);
+        }
+    }
+
+    // Solo corre en el hilo del despachador
+    private void dispatch() {
+        for (ProcessingJobType type : ProcessingJobType.values()) {
+            ProcessingJobHandler handler = handlersByType.get(type);
+            Semaphore slots = freeSlots.get(type);
+            if (handler == null) {
+                continue;
+            }
+
+            int available = slots.drainPermits();
+            if (available == 0) {
+                continue;
+            }
+
+            List<ProcessingJob> claimed;
+            try {
+                claimed = claim(type, available);
+            } catch (Exception e) {
+                slots.release(available);
+                logger.error("Error claiming {} jobs: {}", type, e.getMessage());
+                continue;
+            }
+            slots.release(available - claimed.size());
+
+            for (ProcessingJob job : claimed) {
+                runningJobs.add(job.getId());
+                workers.execute(() -> {
+                    try {
+                        run(handler, job);
+                    } finally {
+                        runningJobs.remove(job.getId());
+                        slots.release();
+                        wakeUp();
+                    }
+                });
+            }
+        }
+    }
+
+    private List<ProcessingJob> claim(ProcessingJobType type, int limit) {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> ids = processingJobRepository.findDueIdsForUpdate(type.name(), now, limit);
+            if (ids.isEmpty()) {
+                return List.of();
+            }
+            processingJobRepository.markRunning(ids, now);
+            return processingJobRepository.findAllById(ids);
+        });
+    }
+
+    private void run(ProcessingJobHandler handler, ProcessingJob job) {
+        try {
+            handler.handle(job);
+            updateStatus(job, () -> processingJobRepository.markSucceeded(job.getId(), LocalDateTime.now()));
+        } catch (Exception e) {
+            String error = describe(e);
+            LocalDateTime now = LocalDateTime.now();
+            if (job.getAttempts() < job.getMaxAttempts()) {
+                long delayMs = backoffMs(job.getAttempts());
+                logger.warn("Processing job {} ({}) failed on attempt {}/{}, retrying in {}s: {}",
+                        job.getId(), job.getType(), job.getAttempts(), job.getMaxAttempts(), delayMs / 1000, error);
+                updateStatus(job, () -> processingJobRepository.reschedule(
+                        job.getId(), error, now.plus(delayMs, ChronoUnit.MILLIS), now));
+            } else {
+                logger.error("Processing job {} ({}) failed after {} attempts: {}",
+                        job.getId(), job.getType(), job.getAttempts(), error);
+                updateStatus(job, () -> processingJobRepository.markFailed(job.getId(), error, now));
+            }
+        }
+    }
+
+    // Si no se puede guardar el resultado el trabajo sigue en RUNNING y se repite al vencer el lease
+    private void updateStatus(ProcessingJob job, Runnable update) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> update.run());
+        } catch (Exception e) {
+            logger.error("Error updating processing job {}: {}", job.getId(), e.getMessage());
+        }
+    }
+
+    // Espera exponencial con variación aleatoria (entre la mitad y el total) para no reintentar en bloque
+    private long backoffMs(int attempt) {
+        long delay = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private String describe(Exception e) {
+        String error = e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : "");
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+}
@@ -0,0 +1,228 @@
+package com.uv.backend.service;
+
+import com.uv.backend.entity.Playlist;
+import com.uv.backend.entity.Track;
+import com.uv.backend.entity.User;
+import com.uv.backend.repository.PlaylistRepository;
+import com.uv.backend.repository.TrackRepository;
+import com.uv.backend.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Índice de búsqueda de texto completo sobre PostgreSQL.
+ *
+ * Cada track, usuario y playlist guarda un documento de búsqueda en minúsculas
+ * (search_document) que se recalcula al crear o modificar la fila; de él se genera
+ * search_vector. Ambas columnas tienen índice GIN: tsvector para coincidencias por
+ * prefijo y trigramas para tolerar errores de escritura. Los resultados se ordenan por relevancia.
+ */
+@Service
+@Transactional
+public class SearchIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndexService.class);
+
+    private static final String SCHEMA_SCRIPT = "db/search-index.sql";
+
+    @Autowired
+    private TrackRepository trackRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlaylistRepository playlistRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.search.max-query-length:100}")
+    private int maxQueryLength;
+
+    @Value("${app.search.backfill-chunk-size:1000}")
+    private int backfillChunkSize;
+
+    /**
+     * Buscar tracks públicos
+     */
+    @Transactional(readOnly = true)
+    public Page<Track> searchTracks(String query, Pageable pageable) {
+        SearchQuery searchQuery = parse(query);
+        if (searchQuery == null) {
+            return Page.empty(pageable);
+        }
+        return trackRepository.searchTracks(searchQuery.text, searchQuery.tsQuery, pageable);
+    }
+
+    /**
+     * Buscar usuarios
+     */
+    @Transactional(readOnly = true)
+    public Page<User> searchUsers(String query, Pageable pageable) {
+        SearchQuery searchQuery = parse(query);
+        if (searchQuery == null) {
+            return Page.empty(pageable);
+        }
+        return userRepository.searchUsers(searchQuery.text, searchQuery.tsQuery, pageable);
+    }
+
+    /**
+     * Buscar usuarios con avatar o portada
+     */
+    @Transactional(readOnly = true)
+    public Page<User> searchUsersWithMedia(String query, Pageable pageable) {
+        SearchQuery searchQuery = parse(query);
+        if (searchQuery == null) {
+            return Page.empty(pageable);
+        }
+        return userRepository.searchUsersWithMedia(searchQuery.text, searchQuery.tsQuery, pageable);
+    }
+
+    /**
+     * Buscar playlists públicas
+     */
+    @Transactional(readOnly = true)
+    public Page<Playlist> searchPlaylists(String query, Pageable pageable) {
+        SearchQuery searchQuery = parse(query);
+        if (searchQuery == null) {
+            return Page.empty(pageable);
+        }
+        return playlistRepository.searchPlaylists(searchQuery.text, searchQuery.tsQuery, pageable);
+    }
+
+    /**
+     * Buscar entre las playlists de un usuario
+     */
+    @Transactional(readOnly = true)
+    public Page<Playlist> searchUserPlaylists(Long userId, String query, Pageable pageable) {
+        SearchQuery searchQuery = parse(query);
+        if (searchQuery == null) {
+            return Page.empty(pageable);
+        }
+        return playlistRepository.searchUserPlaylists(userId, searchQuery.text, searchQuery.tsQuery, pageable);
+    }
+
+    // Actualización incremental (dentro de la transacción que modifica la fila)
+
+    public void indexTrack(Long trackId) {
+        trackRepository.refreshSearchDocument(trackId);
+    }
+
+    public void indexPlaylist(Long playlistId) {
+        playlistRepository.refreshSearchDocument(playlistId);
+    }
+
+    /**
+     * Reindexar un usuario; su nombre forma parte del documento de sus tracks y playlists
+     */
+    public void indexUser(Long userId, boolean includeContent) {
+        userRepository.refreshSearchDocument(userId);
+        if (includeContent) {
+            trackRepository.refreshSearchDocumentsByUser(userId);
+            playlistRepository.refreshSearchDocumentsByUser(userId);
+        }
+    }
+
+    /**
+     * Crear columnas e índices de búsqueda antes de atender peticiones. Sin ellos todas las
+     * búsquedas fallan, así que si el script no se puede aplicar (por ejemplo, sin permiso para
+     * crear la extensión pg_trgm) no se arranca; el script se puede ejecutar a mano antes del despliegue
+     */
+    @PostConstruct
+    public void init() {
+        try {
+            new ResourceDatabasePopulator(new ClassPathResource(SCHEMA_SCRIPT)).execute(dataSource);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not apply the search index schema (" + SCHEMA_SCRIPT + "): "
+                    + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Completar los documentos que falten
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void initializeIndex() {
+        backfill("tracks", trackRepository::backfillSearchDocuments);
+        backfill("users", userRepository::backfillSearchDocuments);
+        backfill("playlists", playlistRepository::backfillSearchDocuments);
+    }
+
+    // Rellenar por bloques con una transacción corta por bloque
+    private void backfill(String table, IntUnaryOperator chunk) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long total = 0;
+        try {
+            Integer updated;
+            do {
+                updated = transactionTemplate.execute(status -> chunk.applyAsInt(backfillChunkSize));
+                total += updated != null ? updated : 0;
+            } while (updated != null && updated > 0);
+        } catch (Exception e) {
+            logger.error("Error backfilling search documents for {}: {}", table, e.getMessage());
+        }
+        if (total > 0) {
+            logger.info("Indexed {} {} for search", total, table);
+        }
+    }
+
+    // Normaliza la consulta y construye el tsquery por prefijos ('rock:* & lati:*')
+    private SearchQuery parse(String query) {
+        if (query == null) {
+            return null;
+        }
+        String text = query.trim().toLowerCase(Locale.ROOT);
+        if (text.length() > maxQueryLength) {
+            text = text.substring(0, maxQueryLength);
+        }
+
+        // Solo letras y dígitos: evita errores de sintaxis en to_tsquery
+        List<String> terms = Arrays.stream(text.split("[^\\p{L}\\p{N}]+"))
+                .filter(term -> !term.isEmpty())
+                .collect(Collectors.toList());
+        if (terms.isEmpty()) {
+            return null;
+        }
+
+        String tsQuery = terms.stream()
+                .map(term -> term + ":*")
+                .collect(Collectors.joining(" & "));
+        return new SearchQuery(String.join(" ", terms), tsQuery);
+    }
+
+    private static class SearchQuery {
+        private final String text;
+        private final String tsQuery;
+
+        SearchQuery(String text, String tsQuery) {
+            this.text = text;
+            this.tsQuery = tsQuery;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.uv.backend.service;
+
+import com.uv.backend.entity.MediaFile;
+import com.uv.backend.entity.MediaType;
+import com.uv.backend.entity.StorageUsage;
+import com.uv.backend.exception.StorageQuotaExceededException;
+import com.uv.backend.repository.StorageUsageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cuotas de almacenamiento por usuario.
+ *
+ * El uso por usuario y tipo de media se lleva en storage_usage (una fila por par), que se
+ * ajusta en la misma transacción que crea o borra el MediaFile. checkQuota es solo un aviso
+ * temprano con el uso en memoria; el límite se hace cumplir al registrar la subida, con un
+ * UPDATE condicional con el usuario bloqueado. Las lecturas se sirven desde
+ * memoria; la entrada de un usuario se descarta tras cada commit que cambia su uso y se vuelve
+ * a cargar (una consulta por clave primaria) en la siguiente lectura.
+ */
+@Service
+public class StorageQuotaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageQuotaService.class);
+
+    @Autowired
+    private StorageUsageRepository storageUsageRepository;
+
+    @Value("${app.storage.quota.enabled:true}")
+    private boolean enabled;
+
+    // 0 = sin límite
+    @Value("${app.storage.quota.max-bytes-per-user:10737418240}")
+    private long maxBytesPerUser;
+
+    @Value("${app.storage.quota.max-files-per-user:0}")
+    private long maxFilesPerUser;
+
+    @Value("${app.storage.quota.cache-size:100000}")
+    private int cacheSize;
+
+    private final Map<Long, Usage> ledger = new ConcurrentHashMap<>();
+
+    /**
+     * Uso actual del usuario
+     */
+    public Usage getUsage(Long userId) {
+        Usage usage = ledger.get(userId);
+        if (usage != null) {
+            return usage;
+        }
+        if (ledger.size() >= cacheSize) {
+            // Se vacía entera: volver a cargar una entrada cuesta una consulta por clave
+            ledger.clear();
+        }
+        return ledger.computeIfAbsent(userId, this::load);
+    }
+
+    /**
+     * Comprobar antes de escribir que la subida cabe en la cuota del usuario
+     */
+    public void checkQuota(Long userId, long incomingBytes) {
+        if (!enabled) {
+            return;
+        }
+
+        Usage usage = getUsage(userId);
+        if (maxFilesPerUser > 0 && usage.getTotalFiles() + 1 > maxFilesPerUser) {
+            throw new StorageQuotaExceededException("Storage quota exceeded: maximum of " +
+                    maxFilesPerUser + " files reached");
+        }
+        if (maxBytesPerUser > 0 && usage.getTotalBytes() + incomingBytes > maxBytesPerUser) {
+            throw new StorageQuotaExceededException("Storage quota exceeded: " +
+                    formatFileSize(usage.getTotalBytes()) + " of " + formatFileSize(maxBytesPerUser) + " used");
+        }
+    }
+
+    /**
+     * Bytes que todavía puede subir el usuario (Long.MAX_VALUE si no hay límite)
+     */
+    public long getRemainingBytes(Long userId) {
+        if (!enabled || maxBytesPerUser <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, maxBytesPerUser - getUsage(userId).getTotalBytes());
+    }
+
+    public long getMaxBytesPerUser() {
+        return enabled ? maxBytesPerUser : 0;
+    }
+
+    /**
+     * Registrar un MediaFile nuevo (en la transacción que lo guarda). Si ya no cabe en la cuota
+     * (otra subida simultánea la ha llenado) lanza StorageQuotaExceededException y la transacción
+     * se revierte.
+     */
+    @Transactional
+    public void recordUpload(MediaFile mediaFile) {
+        Long userId = mediaFile.getUploadedBy().getId();
+        long bytes = sizeOf(mediaFile);
+        if (!enabled || (maxBytesPerUser <= 0 && maxFilesPerUser <= 0)) {
+            adjust(userId, mediaFile.getMediaType(), 1, bytes);
+            return;
+        }
+
+        storageUsageRepository.lockUser(userId);
+        int charged = storageUsageRepository.chargeWithinQuota(userId, mediaFile.getMediaType().name(),
+                1, bytes, maxFilesPerUser, maxBytesPerUser);
+        evictAfterCommit(userId);
+        if (charged == 0) {
+            throw new StorageQuotaExceededException("Storage quota exceeded: no room left for " +
+                    formatFileSize(bytes));
+        }
+    }
+
+    /**
+     * Registrar un MediaFile eliminado (en la transacción que lo borra)
+     */
+    public void recordDelete(MediaFile mediaFile) {
+        adjust(mediaFile.getUploadedBy().getId(), mediaFile.getMediaType(), -1, -sizeOf(mediaFile));
+    }
+
+    /**
+     * Registrar varios borrados agrupados por usuario y tipo (una sentencia por grupo)
+     */
+    public void recordDeletes(Collection<DeletedFile> deletedFiles) {
+        Map<StorageUsage.Key, long[]> deltas = new HashMap<>();
+        for (DeletedFile file : deletedFiles) {
+            StorageUsage.Key key = new StorageUsage.Key(file.getUserId(), file.getMediaType());
+            long[] delta = deltas.computeIfAbsent(key, k -> new long[2]);
+            delta[0]--;
+            delta[1] -= file.getFileSize();
+        }
+        deltas.forEach((key, delta) -> adjust(key.getUserId(), key.getMediaType(), delta[0], delta[1]));
+    }
+
+    /**
+     * Eliminar el uso registrado de un usuario borrado
+     */
+    public void removeUser(Long userId) {
+        storageUsageRepository.deleteByUserId(userId);
+        evictAfterCommit(userId);
+    }
+
+    /**
+     * Recalcular el uso desde media_files y descartar la memoria
+     */
+    public int reconcile() {
+        int repaired = storageUsageRepository.reconcileFromMediaFiles()
+                + storageUsageRepository.resetWithoutMediaFiles();
+        ledger.clear();
+        return repaired;
+    }
+
+    // La primera vez se rellena storage_usage con el uso existente
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeLedger() {
+        try {
+            if (storageUsageRepository.count() == 0) {
+                int rows = storageUsageRepository.reconcileFromMediaFiles();
+                logger.info("Storage usage ledger initialized with {} rows", rows);
+            }
+        } catch (Exception e) {
+            logger.error("Error initializing storage usage ledger: {}", e.getMessage());
+        }
+    }
+
+    private void adjust(Long userId, MediaType mediaType, long files, long bytes) {
+        storageUsageRepository.adjust(userId, mediaType.name(), files, bytes);
+        evictAfterCommit(userId);
+    }
+
+    private void evictAfterCommit(Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    ledger.remove(userId);
+                }
+            });
+        } else {
+            ledger.remove(userId);
+        }
+    }
+
+    private Usage load(Long userId) {
+        long[] files = new long[MediaType.values().length];
+        long[] bytes = new long[MediaType.values().length];
+        List<StorageUsage> rows = storageUsageRepository.findByUserId(userId);
+        for (StorageUsage row : rows) {
+            files[row.getMediaType().ordinal()] = row.getFileCount();
+            bytes[row.getMediaType().ordinal()] = row.getBytesUsed();
+        }
+        return new Usage(files, bytes);
+    }
+
+    private long sizeOf(MediaFile mediaFile) {
+        return mediaFile.getFileSize() != null ? mediaFile.getFileSize() : 0L;
+    }
+
+    private String formatFileSize(long fileSize) {
+        String[] units = {"B", "KB", "MB", "GB", "TB"};
+        int unitIndex = 0;
+        double size = fileSize;
+
+        while (size >= 1024 && unitIndex < units.length - 1) {
+            size /= 1024;
+            unitIndex++;
+        }
+
+        return String.format("%.1f %s", size, units[unitIndex]);
+    }
+
+    /**
+     * Uso de un usuario por tipo de media (inmutable)
+     */
+    public static class Usage {
+        private final long[] files;
+        private final long[] bytes;
+        private final long totalFiles;
+        private final long totalBytes;
+
+        private Usage(long[] files, long[] bytes) {
+            this.files = files;
+            this.bytes = bytes;
+            long fileSum = 0;
+            long byteSum = 0;
+            for (int i = 0; i < files.length; i++) {
+                fileSum += files[i];
+                byteSum += bytes[i];
+            }
+            this.totalFiles = fileSum;
+            this.totalBytes = byteSum;
+        }
+
+        public long getFiles(MediaType mediaType) { return files[mediaType.ordinal()]; }
+        public long getBytes(MediaType mediaType) { return bytes[mediaType.ordinal()]; }
+        public long getTotalFiles() { return totalFiles; }
+        public long getTotalBytes() { return totalBytes; }
+    }
+
+    /**
+     * Archivo borrado en bloque (sin entidad cargada)
+     */
+    public static class DeletedFile {
+        private final Long userId;
+        private final MediaType mediaType;
+        private final long fileSize;
+
+        public DeletedFile(Long userId, MediaType mediaType, Long fileSize) {
+            this.userId = userId;
+            this.mediaType = mediaType;
+            this.fileSize = fileSize != null ? fileSize : 0L;
+        }
+
+        public Long getUserId() { return userId; }
+        public MediaType getMediaType() { return mediaType; }
+        public long getFileSize() { return fileSize; }
+    }
+}
@@ -0,0 +1,367 @@
+package com.uv.backend.service;
+
+import com.uv.backend.config.MediaTypeConfig;
+import com.uv.backend.entity.MediaFile;
+import com.uv.backend.entity.MediaType;
+import com.uv.backend.entity.StoredBlob;
+import com.uv.backend.exception.FileUploadException;
+import com.uv.backend.exception.ResourceNotFoundException;
+import com.uv.backend.exception.StorageQuotaExceededException;
+import com.uv.backend.repository.MediaFileRepository;
+import com.uv.backend.repository.UserRepository;
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.tomcat.util.http.fileupload.FileItemIterator;
+import org.apache.tomcat.util.http.fileupload.FileItemStream;
+import org.apache.tomcat.util.http.fileupload.FileUpload;
+import org.apache.tomcat.util.http.fileupload.servlet.ServletRequestContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Ingesta de audio en streaming: el cuerpo multipart se lee parte por parte y el archivo
+ * se escribe en el mismo sistema de archivos que su ubicación final a través de un buffer directo
+ * de tamaño fijo, validando, calculando el hash y controlando el tamaño mientras llegan los bytes.
+ * Después se mueve a la ruta de su hash (o se descarta si ese contenido ya estaba almacenado).
+ */
+@Service
+public class StreamingUploadService {
+
+    private static final int MAX_FORM_FIELD_SIZE = 64 * 1024;
+    private static final int MAX_FORM_FIELDS = 100;
+    private static final int MAX_POOLED_BUFFERS = 32;
+    // Bytes necesarios para reconocer cualquiera de las firmas de contenedor admitidas
+    private static final int SIGNATURE_BYTES = 12;
+
+    @Value("${app.upload.streaming.buffer-size:65536}")
+    private int bufferSize;
+
+    @Autowired
+    private MediaFileRepository mediaFileRepository;
+
+    @Autowired
+    private AudioMetadataService audioMetadataService;
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Pool acotado de buffers directos reutilizados entre subidas
+    private final BlockingQueue<ByteBuffer> bufferPool = new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
+
+    /**
+     * Recibe una subida de audio multipart en streaming.
+     * Los campos de formulario se devuelven junto al MediaFile creado.
+     */
+    public StreamedUpload receiveAudio(HttpServletRequest request, String fileFieldName, Long userId) throws IOException {
+        String requestContentType = request.getContentType();
+        if (requestContentType == null || !requestContentType.toLowerCase().startsWith("multipart/")) {
+            throw new FileUploadException("Request must be multipart/form-data");
+        }
+
+        // Con Content-Length se rechaza antes de leer; sin él, al superar la cuota mientras llegan los bytes
+        storageQuotaService.checkQuota(userId, Math.max(0, request.getContentLengthLong()));
+
+        FileUpload upload = new FileUpload();
+        upload.setSizeMax(MediaTypeConfig.MAX_AUDIO_SIZE + (long) MAX_FORM_FIELD_SIZE * MAX_FORM_FIELDS);
+        upload.setFileCountMax(MAX_FORM_FIELDS);
+
+        Map<String, List<String>> fields = new HashMap<>();
+        MediaFile mediaFile = null;
+
+        try {
+            FileItemIterator iterator = upload.getItemIterator(new ServletRequestContext(request));
+            while (iterator.hasNext()) {
+                FileItemStream item = iterator.next();
+
+                if (item.isFormField()) {
+                    try (InputStream in = item.openStream()) {
+                        fields.computeIfAbsent(item.getFieldName(), k -> new ArrayList<>())
+                                .add(readFormField(in));
+                    }
+                } else if (fileFieldName.equals(item.getFieldName()) && mediaFile == null) {
+                    mediaFile = storeAudioItem(item, userId);
+                }
+                // Las partes no esperadas se descartan al avanzar el iterador
+            }
+        } catch (org.apache.tomcat.util.http.fileupload.FileUploadException e) {
+            throw new FileUploadException("Error reading multipart request: " + e.getMessage(), e);
+        }
+
+        if (mediaFile == null) {
+            throw new FileUploadException("Missing file part: " + fileFieldName);
+        }
+
+        // El MediaFile y su cargo en la cuota van juntos: si otra subida simultánea ha llenado la
+        // cuota no queda ninguno de los dos y se devuelve la referencia al contenido
+        MediaFile pending = mediaFile;
+        MediaFile saved;
+        try {
+            saved = new TransactionTemplate(transactionManager).execute(status -> {
+                MediaFile result = mediaFileRepository.save(pending);
+                storageQuotaService.recordUpload(result);
+                return result;
+            });
+        } catch (RuntimeException e) {
+            blobStorageService.release(pending.getFileUrl());
+            throw e;
+        }
+        return new StreamedUpload(saved, fields);
+    }
+
+    /**
+     * Deshacer una subida que no llega a usarse (formulario inválido, error al crear el track):
+     * elimina el MediaFile, libera la referencia al contenido y devuelve la cuota
+     */
+    @Transactional
+    public void discardUpload(StreamedUpload upload, Long userId) {
+        MediaFile mediaFile = upload.getMediaFile();
+        fileStorageService.deleteFile(mediaFile.getFileUrl(), userId);
+    }
+
+    private MediaFile storeAudioItem(FileItemStream item, Long userId) throws IOException {
+        String originalFileName = item.getName();
+        String contentType = item.getContentType();
+        validateAudioHeaders(originalFileName, contentType);
+
+        Path partialPath = blobStorageService.createTempFile();
+
+        MessageDigest digest = newSha256();
+        ByteBuffer buffer = acquireBuffer();
+        long totalBytes = 0;
+        long remainingQuota = storageQuotaService.getRemainingBytes(userId);
+
+        try (InputStream in = item.openStream();
+             ReadableByteChannel source = Channels.newChannel(in);
+             FileChannel target = FileChannel.open(partialPath,
+                     StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+
+            boolean validated = false;
+            boolean eof = false;
+            while (!eof) {
+                eof = source.read(buffer) == -1;
+                // La firma se comprueba con al menos SIGNATURE_BYTES: una lectura puede devolver menos
+                if (!validated && !eof && buffer.position() < SIGNATURE_BYTES) {
+                    continue;
+                }
+
+                buffer.flip();
+                if (!buffer.hasRemaining()) {
+                    buffer.clear();
+                    continue;
+                }
+
+                totalBytes += buffer.remaining();
+                if (!MediaTypeConfig.isValidAudioSize(totalBytes)) {
+                    throw new FileUploadException("Audio file too large. Maximum size: " +
+                            formatFileSize(MediaTypeConfig.MAX_AUDIO_SIZE));
+                }
+                if (totalBytes > remainingQuota) {
+                    throw new StorageQuotaExceededException("Storage quota exceeded: " +
+                            formatFileSize(remainingQuota) + " remaining");
+                }
+                if (!validated) {
+                    validateAudioSignature(buffer);
+                    validated = true;
+                }
+
+                buffer.mark();
+                digest.update(buffer);
+                buffer.reset();
+
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                buffer.clear();
+            }
+
+            if (totalBytes == 0) {
+                throw new FileUploadException("File is empty");
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partialPath);
+            throw e;
+        } finally {
+            releaseBuffer(buffer);
+        }
+
+        BlobStorageService.StagedBlob staged = new BlobStorageService.StagedBlob(
+                partialPath, HexFormat.of().formatHex(digest.digest()), totalBytes);
+
+        MediaFile mediaFile = new MediaFile(
+                originalFileName,
+                null,
+                null,
+                contentType,
+                totalBytes,
+                MediaType.AUDIO,
+                // La respuesta de la subida serializa el MediaFile: no vale una referencia sin cargar
+                userRepository.findById(userId)
+                        .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId))
+        );
+
+        try {
+            audioMetadataService.extract(mediaFile, partialPath);
+        } catch (RuntimeException e) {
+            blobStorageService.discard(staged);
+            throw e;
+        }
+
+        // Con almacenamiento local es un renombrado atómico: los bytes no se vuelven a copiar.
+        // Si el contenido ya estaba almacenado solo se suma una referencia.
+        StoredBlob blob = blobStorageService.commit(staged, getFileExtension(originalFileName),
+                MediaTypeConfig.getAudioContentType(originalFileName), MediaType.AUDIO);
+        blobStorageService.attach(mediaFile, blob);
+        return mediaFile;
+    }
+
+    // Validación previa a escribir cualquier byte (tipo y extensión declarados)
+    private void validateAudioHeaders(String originalFileName, String contentType) {
+        if (originalFileName == null || originalFileName.isBlank()) {
+            throw new FileUploadException("File name is required");
+        }
+
+        if (contentType == null || !MediaTypeConfig.isValidAudioType(contentType)) {
+            throw new FileUploadException("Invalid audio type. Allowed types: " +
+                    String.join(", ", MediaTypeConfig.ALLOWED_AUDIO_TYPES));
+        }
+
+        if (!MediaTypeConfig.isValidAudioExtension(originalFileName)) {
+            throw new FileUploadException("Invalid audio extension. Allowed extensions: " +
+                    String.join(", ", MediaTypeConfig.ALLOWED_AUDIO_EXTENSIONS));
+        }
+    }
+
+    // Comprueba la firma del contenedor en los primeros bytes recibidos
+    private void validateAudioSignature(ByteBuffer buffer) {
+        int p = buffer.position();
+        int available = buffer.remaining();
+
+        if (available >= 3 && buffer.get(p) == 'I' && buffer.get(p + 1) == 'D' && buffer.get(p + 2) == '3') return; // MP3 con ID3
+        if (available >= 2 && (buffer.get(p) & 0xFF) == 0xFF && (buffer.get(p + 1) & 0xE0) == 0xE0) return;         // MPEG / ADTS
+        if (available >= 4 && startsWith(buffer, "RIFF")) return;  // WAV
+        if (available >= 4 && startsWith(buffer, "fLaC")) return;  // FLAC
+        if (available >= 4 && startsWith(buffer, "OggS")) return;  // Ogg
+        if (available >= 4 && startsWith(buffer, "ADIF")) return;  // AAC ADIF
+        if (available >= 8 && buffer.get(p + 4) == 'f' && buffer.get(p + 5) == 't'
+                && buffer.get(p + 6) == 'y' && buffer.get(p + 7) == 'p') return; // M4A
+        if (available >= 4 && (buffer.get(p) & 0xFF) == 0x30 && (buffer.get(p + 1) & 0xFF) == 0x26
+                && (buffer.get(p + 2) & 0xFF) == 0xB2 && (buffer.get(p + 3) & 0xFF) == 0x75) return; // WMA (ASF)
+
+        throw new FileUploadException("File content is not a supported audio format");
+    }
+
+    private boolean startsWith(ByteBuffer buffer, String magic) {
+        int p = buffer.position();
+        for (int i = 0; i < magic.length(); i++) {
+            if (buffer.get(p + i) != magic.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String readFormField(InputStream in) throws IOException {
+        byte[] value = in.readNBytes(MAX_FORM_FIELD_SIZE + 1);
+        if (value.length > MAX_FORM_FIELD_SIZE) {
+            throw new FileUploadException("Form field too large");
+        }
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private ByteBuffer acquireBuffer() {
+        ByteBuffer buffer = bufferPool.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    private void releaseBuffer(ByteBuffer buffer) {
+        buffer.clear();
+        bufferPool.offer(buffer);
+    }
+
+    private MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private String getFileExtension(String fileName) {
+        if (fileName == null || fileName.lastIndexOf('.') == -1) {
+            return "";
+        }
+        return fileName.substring(fileName.lastIndexOf('.'));
+    }
+
+    private String formatFileSize(long fileSize) {
+        String[] units = {"B", "KB", "MB", "GB"};
+        int unitIndex = 0;
+        double size = fileSize;
+
+        while (size >= 1024 && unitIndex < units.length - 1) {
+            size /= 1024;
+            unitIndex++;
+        }
+
+        return String.format("%.1f %s", size, units[unitIndex]);
+    }
+
+    /**
+     * Resultado de una subida en streaming: archivo almacenado + campos del formulario
+     */
+    public static class StreamedUpload {
+        private final MediaFile mediaFile;
+        private final Map<String, List<String>> fields;
+
+        public StreamedUpload(MediaFile mediaFile, Map<String, List<String>> fields) {
+            this.mediaFile = mediaFile;
+            this.fields = fields;
+        }
+
+        public MediaFile getMediaFile() { return mediaFile; }
+
+        public String getField(String name) {
+            List<String> values = fields.get(name);
+            return values != null && !values.isEmpty() ? values.get(0) : null;
+        }
+
+        public List<String> getFields(String name) {
+            return fields.getOrDefault(name, List.of());
+        }
+    }
+}
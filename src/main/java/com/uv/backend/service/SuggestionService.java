@@ -0,0 +1,468 @@
+package com.uv.backend.service;
+
+import com.uv.backend.dto.SuggestionDto;
+import com.uv.backend.entity.Track;
+import com.uv.backend.entity.User;
+import com.uv.backend.repository.TrackRepository;
+import com.uv.backend.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Autocompletado en memoria sobre un trie de prefijos.
+ *
+ * Se indexan títulos de tracks, usernames, nombres visibles, géneros y etiquetas; se
+ * indexa el texto completo y también cada palabra inicial, de modo que "wor" encuentra
+ * "Hello World". Cada nodo guarda los k resultados más populares de su subárbol, así una
+ * consulta solo recorre tantos nodos como caracteres tenga el prefijo.
+ *
+ * Las escrituras de TrackService y UserService se aplican tras el commit. Las bajas y
+ * las caídas de popularidad pueden dejar nodos con menos de k resultados hasta la
+ * siguiente reconstrucción periódica, que además recalcula la popularidad y compacta el trie.
+ * Los cambios que llegan mientras se reconstruye se aplican al índice actual y se repiten
+ * sobre el nuevo antes de sustituirlo.
+ */
+@Service
+public class SuggestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionService.class);
+
+    public static final String TYPE_TRACK = "track";
+    public static final String TYPE_USER = "user";
+    public static final String TYPE_GENRE = "genre";
+    public static final String TYPE_TAG = "tag";
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    @Autowired
+    private TrackRepository trackRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.suggest.top-k:10}")
+    private int topK;
+
+    @Value("${app.suggest.max-entries:200000}")
+    private int maxEntries;
+
+    @Value("${app.suggest.max-key-length:40}")
+    private int maxKeyLength;
+
+    @Value("${app.suggest.max-words-per-entry:4}")
+    private int maxWordsPerEntry;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private SuggestionIndex index;
+
+    // Cambios aplicados durante la reconstrucción en curso (null si no hay ninguna)
+    private List<IndexUpdate> updatesDuringRebuild;
+
+    @PostConstruct
+    public void init() {
+        index = new SuggestionIndex(topK, maxEntries);
+    }
+
+    /**
+     * Máximo de sugerencias por consulta: cada nodo del trie solo guarda sus top-k entradas
+     */
+    public int getMaxLimit() {
+        return topK;
+    }
+
+    /**
+     * Sugerencias para un prefijo, ordenadas por popularidad (solo memoria)
+     */
+    public List<SuggestionDto> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        limit = Math.min(limit, topK);
+        if (key.length() > maxKeyLength) {
+            key = key.substring(0, maxKeyLength);
+        }
+
+        Entry[] top;
+        lock.readLock().lock();
+        try {
+            top = index.find(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<SuggestionDto> suggestions = new ArrayList<>(Math.min(limit, top.length));
+        for (int i = 0; i < top.length && i < limit; i++) {
+            Entry entry = top[i];
+            suggestions.add(new SuggestionDto(entry.type, entry.id, entry.text, entry.subtitle, entry.popularity));
+        }
+        return suggestions;
+    }
+
+    /**
+     * Indexar (o retirar si es privado) un track, con su género y etiquetas
+     */
+    public void indexTrack(Track track) {
+        if (!Boolean.TRUE.equals(track.getIsPublic())) {
+            removeTrack(track.getId());
+            return;
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        entries.add(trackEntry(track.getId(), track.getTitle(), track.getUser().getDisplayName(),
+                popularity(track.getPlaysCount(), track.getLikesCount())));
+        if (track.getGenre() != null) {
+            entries.add(termEntry(TYPE_GENRE, track.getGenre(), 1));
+        }
+        for (String tag : track.getTags()) {
+            entries.add(termEntry(TYPE_TAG, tag, 1));
+        }
+
+        afterCommit(current -> {
+            for (Entry entry : entries) {
+                // Géneros y etiquetas ya presentes conservan su popularidad hasta la reconstrucción
+                current.put(entry, entry.id == null);
+            }
+        });
+    }
+
+    public void removeTrack(Long trackId) {
+        afterCommit(current -> current.remove(TYPE_TRACK + ":" + trackId));
+    }
+
+    public void indexUser(User user) {
+        Entry entry = userEntry(user.getId(), user.getUsername(), user.getDisplayName(),
+                popularity(user.getFollowersCount(), 0));
+        afterCommit(current -> current.put(entry, false));
+    }
+
+    public void removeUser(Long userId) {
+        afterCommit(current -> current.remove(TYPE_USER + ":" + userId));
+    }
+
+    /**
+     * Reconstruir el índice completo con la popularidad actual
+     */
+    @Scheduled(fixedDelayString = "${app.suggest.rebuild-interval-ms:600000}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        SuggestionIndex rebuilt = new SuggestionIndex(topK, maxEntries);
+
+        // Antes de la primera consulta: lo que se confirme después puede no estar en la lectura
+        lock.writeLock().lock();
+        try {
+            updatesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            for (Object[] row : trackRepository.countTracksByGenre()) {
+                rebuilt.put(termEntry(TYPE_GENRE, (String) row[0], ((Number) row[1]).longValue()), false);
+            }
+            for (Object[] row : trackRepository.countTracksByTag(PageRequest.of(0, maxEntries / 10))) {
+                rebuilt.put(termEntry(TYPE_TAG, (String) row[0], ((Number) row[1]).longValue()), false);
+            }
+            for (Object[] row : userRepository.findSuggestionData(PageRequest.of(0, maxEntries / 4))) {
+                rebuilt.put(userEntry((Long) row[0], (String) row[1], (String) row[2],
+                        ((Number) row[3]).longValue()), false);
+            }
+            for (Object[] row : trackRepository.findSuggestionData(PageRequest.of(0, maxEntries / 2))) {
+                rebuilt.put(trackEntry((Long) row[0], (String) row[1], (String) row[2],
+                        ((Number) row[3]).longValue()), false);
+            }
+        } catch (Exception e) {
+            logger.error("Error rebuilding suggestion index: {}", e.getMessage());
+            lock.writeLock().lock();
+            try {
+                updatesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (IndexUpdate update : updatesDuringRebuild) {
+                update.apply(rebuilt);
+            }
+            updatesDuringRebuild = null;
+            index = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.debug("Suggestion index rebuilt with {} entries in {} ms",
+                rebuilt.size(), System.currentTimeMillis() - start);
+    }
+
+    // Aplicar el cambio tras el commit (una transacción revertida no ensucia el índice)
+    private void afterCommit(IndexUpdate update) {
+        Runnable apply = () -> {
+            lock.writeLock().lock();
+            try {
+                update.apply(index);
+                if (updatesDuringRebuild != null) {
+                    updatesDuringRebuild.add(update);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    private Entry trackEntry(Long id, String title, String artist, long popularity) {
+        return new Entry(TYPE_TRACK + ":" + id, TYPE_TRACK, id, title, artist, popularity, terms(title));
+    }
+
+    private Entry userEntry(Long id, String username, String displayName, long popularity) {
+        return new Entry(TYPE_USER + ":" + id, TYPE_USER, id, displayName, "@" + username, popularity,
+                terms(username, displayName));
+    }
+
+    private Entry termEntry(String type, String text, long popularity) {
+        return new Entry(type + ":" + normalize(text), type, null, text, null, popularity, terms(text));
+    }
+
+    private long popularity(Integer first, Integer second) {
+        return (first != null ? first : 0) + (second != null ? second : 0);
+    }
+
+    // Claves indexadas: el texto completo y el resto del texto a partir de cada palabra
+    private String[] terms(String... texts) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String text : texts) {
+            String normalized = normalize(text);
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            String[] words = normalized.split(" ");
+            for (int i = 0; i < words.length && i < maxWordsPerEntry; i++) {
+                String term = String.join(" ", Arrays.asList(words).subList(i, words.length));
+                terms.add(term.length() > maxKeyLength ? term.substring(0, maxKeyLength) : term);
+            }
+        }
+        return terms.toArray(new String[0]);
+    }
+
+    // Minúsculas, sin acentos y con separadores reducidos a un espacio
+    private String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(decomposed.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    @FunctionalInterface
+    private interface IndexUpdate {
+        void apply(SuggestionIndex index);
+    }
+
+    /**
+     * Resultado indexable; inmutable para poder compartirse entre nodos
+     */
+    private static class Entry {
+        private final String key;
+        private final String type;
+        private final Long id;
+        private final String text;
+        private final String subtitle;
+        private final long popularity;
+        private final String[] terms;
+
+        Entry(String key, String type, Long id, String text, String subtitle, long popularity, String[] terms) {
+            this.key = key;
+            this.type = type;
+            this.id = id;
+            this.text = text;
+            this.subtitle = subtitle;
+            this.popularity = popularity;
+            this.terms = terms;
+        }
+    }
+
+    /**
+     * Trie con los k mejores resultados precalculados en cada nodo (sin sincronización propia)
+     */
+    private static class SuggestionIndex {
+        private final Node root = new Node();
+        private final Map<String, Entry> entries = new HashMap<>();
+        private final int topK;
+        private final int maxEntries;
+
+        SuggestionIndex(int topK, int maxEntries) {
+            this.topK = topK;
+            this.maxEntries = maxEntries;
+        }
+
+        int size() {
+            return entries.size();
+        }
+
+        Entry[] find(String prefix) {
+            Node node = root;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                node = node.child(prefix.charAt(i));
+            }
+            return node != null ? node.top : Node.NO_ENTRIES;
+        }
+
+        void put(Entry entry, boolean keepExisting) {
+            Entry existing = entries.get(entry.key);
+            if (existing != null) {
+                if (keepExisting) {
+                    return;
+                }
+                unlink(existing);
+            } else if (entries.size() >= maxEntries) {
+                return;
+            }
+
+            entries.put(entry.key, entry);
+            for (String term : entry.terms) {
+                Node node = root;
+                for (int i = 0; i < term.length(); i++) {
+                    node = node.childOrCreate(term.charAt(i));
+                    node.offer(entry, topK);
+                }
+            }
+        }
+
+        void remove(String key) {
+            Entry existing = entries.remove(key);
+            if (existing != null) {
+                unlink(existing);
+            }
+        }
+
+        private void unlink(Entry entry) {
+            for (String term : entry.terms) {
+                Node node = root;
+                for (int i = 0; i < term.length() && node != null; i++) {
+                    node = node.child(term.charAt(i));
+                    if (node != null) {
+                        node.discard(entry.key);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Nodo compacto: hijos en arrays ordenados por carácter
+     */
+    private static class Node {
+        private static final char[] NO_LABELS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final Entry[] NO_ENTRIES = new Entry[0];
+
+        private char[] labels = NO_LABELS;
+        private Node[] children = NO_CHILDREN;
+        private Entry[] top = NO_ENTRIES;
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node childOrCreate(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            if (i >= 0) {
+                return children[i];
+            }
+            int at = -i - 1;
+            Node created = new Node();
+
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            newLabels[at] = c;
+            newChildren[at] = created;
+            System.arraycopy(labels, at, newLabels, at + 1, labels.length - at);
+            System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+
+            labels = newLabels;
+            children = newChildren;
+            return created;
+        }
+
+        // Insertar en el top-k (ordenado por popularidad); los arrays se reemplazan, nunca se modifican
+        void offer(Entry entry, int k) {
+            if (k <= 0) {
+                return;
+            }
+            Entry[] current = top;
+            for (Entry e : current) {
+                if (e.key.equals(entry.key)) {
+                    discard(entry.key);
+                    current = top;
+                    break;
+                }
+            }
+            if (current.length >= k && current[current.length - 1].popularity >= entry.popularity) {
+                return;
+            }
+
+            int at = 0;
+            while (at < current.length && current[at].popularity >= entry.popularity) {
+                at++;
+            }
+            int length = Math.min(current.length + 1, k);
+            Entry[] updated = new Entry[length];
+            System.arraycopy(current, 0, updated, 0, at);
+            updated[at] = entry;
+            System.arraycopy(current, at, updated, at + 1, length - at - 1);
+            top = updated;
+        }
+
+        void discard(String key) {
+            Entry[] current = top;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i].key.equals(key)) {
+                    Entry[] updated = new Entry[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, i);
+                    System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                    top = updated;
+                    return;
+                }
+            }
+        }
+    }
+}
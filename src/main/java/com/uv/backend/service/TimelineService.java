@@ -0,0 +1,216 @@
+package com.uv.backend.service;
+
+import com.uv.backend.dto.response.KeysetCursor;
+import com.uv.backend.entity.Post;
+import com.uv.backend.entity.ProcessingJob;
+import com.uv.backend.entity.ProcessingJobType;
+import com.uv.backend.entity.User;
+import com.uv.backend.repository.FollowRepository;
+import com.uv.backend.repository.PostRepository;
+import com.uv.backend.repository.TimelineEntryRepository;
+import com.uv.backend.repository.TimelineStateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Timeline materializado por usuario (fan-out on write).
+ *
+ * Al publicar, el id del post se inserta en el timeline de cada seguidor con una sola
+ * sentencia. Las cuentas con muchos seguidores no hacen fan-out: sus posts se mezclan
+ * al leer. Los cambios de seguimiento se encolan como trabajos TIMELINE_FOLLOW en la
+ * transacción del seguimiento y se aplican en segundo plano, también tras un reinicio.
+ */
+@Service
+@Transactional
+public class TimelineService implements ProcessingJobHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimelineService.class);
+
+    @Autowired
+    private TimelineEntryRepository timelineEntryRepository;
+
+    @Autowired
+    private TimelineStateRepository timelineStateRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private FollowRepository followRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.timeline.max-size:800}")
+    private int maxSize;
+
+    @Value("${app.timeline.fanout-threshold:10000}")
+    private int fanOutThreshold;
+
+    @Value("${app.timeline.backfill-size:100}")
+    private int backfillSize;
+
+    /**
+     * Publicar un post en el timeline del autor y de sus seguidores
+     */
+    public void fanOut(Post post) {
+        User author = post.getUser();
+        timelineEntryRepository.insertEntry(author.getId(), post.getId(), author.getId());
+
+        if (author.getFollowersCount() < fanOutThreshold) {
+            timelineEntryRepository.fanOutToFollowers(post.getId(), author.getId());
+        }
+    }
+
+    /**
+     * Retirar un post de todos los timelines
+     */
+    public void removePost(Long postId) {
+        timelineEntryRepository.deleteByPostId(postId);
+    }
+
+    /**
+     * Leer el timeline por cursor. El orden es por id de post (el de la inserción), así que de
+     * la posición del cursor solo se usa el id
+     */
+    public Slice<Post> getHomeTimeline(Long userId, KeysetCursor cursor, int size) {
+        return readTimeline(userId, cursor.getId(), 0, PageRequest.of(0, size));
+    }
+
+    /**
+     * Leer el timeline por número de página (clientes que aún no usan el cursor). Solo llega
+     * hasta el tamaño máximo del timeline materializado
+     */
+    public Slice<Post> getHomeTimeline(Long userId, int page, int size) {
+        int offset = (int) Math.min((long) page * size, maxSize);
+        return readTimeline(userId, Long.MAX_VALUE, offset, PageRequest.of(page, size));
+    }
+
+    private Slice<Post> readTimeline(Long userId, long before, int offset, PageRequest pageable) {
+        int size = pageable.getPageSize();
+
+        // Arranque en frío: el timeline todavía no se ha materializado
+        if (before == Long.MAX_VALUE && offset == 0 && !timelineStateRepository.existsById(userId)) {
+            rebuildTimeline(userId);
+        }
+
+        PageRequest window = PageRequest.of(0, offset + size + 1);
+        List<Long> postIds = timelineEntryRepository.findPostIds(userId, before, window);
+
+        List<Long> highFanOutAuthors = followRepository.findFollowedUserIdsWithMinFollowers(userId, fanOutThreshold);
+        if (!highFanOutAuthors.isEmpty()) {
+            postIds = mergeDescending(postIds,
+                    postRepository.findIdsByUserIdsBefore(highFanOutAuthors, before, window), offset + size + 1);
+        }
+
+        postIds = postIds.subList(Math.min(offset, postIds.size()), postIds.size());
+        boolean hasNext = postIds.size() > size;
+        if (hasNext) {
+            postIds = postIds.subList(0, size);
+        }
+
+        Map<Long, Post> postsById = postRepository.findAllWithDetailsByIdIn(postIds).stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+        List<Post> posts = postIds.stream()
+                .map(postsById::get)
+                .filter(post -> post != null)
+                .collect(Collectors.toList());
+
+        return new SliceImpl<>(posts, pageable, hasNext);
+    }
+
+    /**
+     * Payload de un trabajo TIMELINE_FOLLOW
+     */
+    public static String followChangePayload(Long followerId, Long followingId) {
+        return followerId + ":" + followingId;
+    }
+
+    @Override
+    public ProcessingJobType getType() {
+        return ProcessingJobType.TIMELINE_FOLLOW;
+    }
+
+    /**
+     * Aplicar un cambio de seguimiento (backfill al seguir, limpieza al dejar de seguir).
+     * Se decide por el estado actual del seguimiento, no por el cambio encolado: da igual el
+     * orden en que se ejecuten varios trabajos del mismo par o que uno se repita.
+     */
+    @Override
+    public void handle(ProcessingJob job) {
+        String[] ids = job.getPayload().split(":");
+        Long followerId = Long.valueOf(ids[0]);
+        Long followingId = Long.valueOf(ids[1]);
+
+        // Sin materializar: la reconstrucción al leer ya tendrá en cuenta el cambio
+        if (!timelineStateRepository.existsById(followerId)) {
+            return;
+        }
+        if (followRepository.existsByFollowerIdAndFollowingId(followerId, followingId)) {
+            timelineEntryRepository.backfillFromAuthor(followerId, followingId, backfillSize);
+        } else {
+            timelineEntryRepository.deleteByUserIdAndAuthorId(followerId, followingId);
+        }
+    }
+
+    /**
+     * Reconstruir por completo el timeline de un usuario
+     */
+    public void rebuildTimeline(Long userId) {
+        timelineEntryRepository.deleteByUserId(userId);
+        timelineEntryRepository.rebuild(userId, fanOutThreshold, maxSize);
+        timelineStateRepository.markBuilt(userId);
+    }
+
+    /**
+     * Recortar los timelines que superan el tamaño máximo
+     */
+    @Scheduled(cron = "${app.timeline.trim-cron:0 15 * * * *}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void trimTimelines() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<Long> userIds = timelineEntryRepository.findUserIdsExceeding(maxSize);
+        for (Long userId : userIds) {
+            transactionTemplate.executeWithoutResult(status -> timelineEntryRepository.trim(userId, maxSize));
+        }
+        if (!userIds.isEmpty()) {
+            logger.info("Trimmed {} timelines to {} entries", userIds.size(), maxSize);
+        }
+    }
+
+    private List<Long> mergeDescending(List<Long> first, List<Long> second, int limit) {
+        List<Long> merged = new ArrayList<>(Math.min(limit, first.size() + second.size()));
+        int i = 0;
+        int j = 0;
+
+        while (merged.size() < limit && (i < first.size() || j < second.size())) {
+            Long next;
+            if (j >= second.size() || (i < first.size() && first.get(i) >= second.get(j))) {
+                next = first.get(i++);
+            } else {
+                next = second.get(j++);
+            }
+            if (merged.isEmpty() || !merged.get(merged.size() - 1).equals(next)) {
+                merged.add(next);
+            }
+        }
+        return merged;
+    }
+}
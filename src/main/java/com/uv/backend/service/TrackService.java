@@ -1,19 +1,32 @@
 package com.uv.backend.service;
 
+import com.uv.backend.dto.ProcessingJobDto;
 import com.uv.backend.dto.TrackDto;
+import com.uv.backend.dto.response.KeysetCursor;
+import com.uv.backend.entity.MediaFile;
+import com.uv.backend.entity.Playlist;
+import com.uv.backend.entity.ProcessingJobType;
 import com.uv.backend.entity.Track;
 import com.uv.backend.entity.User;
 import com.uv.backend.exception.ResourceNotFoundException;
+import com.uv.backend.repository.PlaylistRepository;
+import com.uv.backend.repository.PlaylistTrackRepository;
 import com.uv.backend.repository.TrackRepository;
+import com.uv.backend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -25,27 +38,71 @@ public class TrackService {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserRepository userRepository;
+
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private PlayCountService playCountService;
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private SuggestionService suggestionService;
+
+    @Autowired
+    private WaveformService waveformService;
+
+    @Autowired
+    private AudioMetadataService audioMetadataService;
+
+    @Autowired
+    private EntityCacheService entityCacheService;
+
+    @Autowired
+    private PlaylistRepository playlistRepository;
+
+    @Autowired
+    private PlaylistTrackRepository playlistTrackRepository;
+
+    @Autowired
+    private ProcessingJobService processingJobService;
+
     /**
      * Crear nuevo track - Audio como archivo, imagen por URL
      */
     public TrackDto createTrack(String title, String description, MultipartFile audioFile,
                                 Integer duration, String genre, Set<String> tags,
-                                Boolean isPublic, String coverImageUrl, User currentUser) throws IOException {
+                                Boolean isPublic, String coverImageUrl, Long userId) throws IOException {
+
+        // Subir archivo de audio (con sus metadatos técnicos)
+        MediaFile storedAudio = fileStorageService.storeAudioFile(audioFile, getUser(userId));
 
-        // Subir archivo de audio
-        String audioUrl = fileStorageService.uploadAudioFile(audioFile, currentUser);
+        return createTrack(title, description, storedAudio, duration,
+                genre, tags, isPublic, coverImageUrl, userId);
+    }
 
+    /**
+     * Crear nuevo track a partir de un audio ya almacenado (subida en streaming)
+     */
+    public TrackDto createTrack(String title, String description, MediaFile audioFile,
+                                Integer duration, String genre, Set<String> tags,
+                                Boolean isPublic, String coverImageUrl, Long userId) {
+        User currentUser = getUser(userId);
         Track track = new Track();
         track.setTitle(title);
         track.setDescription(description);
-        track.setAudioUrl(audioUrl);
-        track.setAudioFileName(audioFile.getOriginalFilename());
-        track.setAudioFileType(audioFile.getContentType());
-        track.setAudioFileSize(audioFile.getSize());
-        track.setDuration(duration);
+        track.setAudioUrl(audioFile.getFileUrl());
+        track.setAudioFileName(audioFile.getOriginalFileName());
+        track.setAudioFileType(audioFile.getFileType());
+        track.setAudioFileSize(audioFile.getFileSize());
+        audioMetadataService.applyToTrack(track, audioFile, duration);
         track.setGenre(genre);
         track.setTags(tags != null ? tags : Set.of());
         track.setIsPublic(isPublic != null ? isPublic : true);
@@ -58,9 +115,23 @@ public class TrackService {
         }
 
         Track savedTrack = trackRepository.save(track);
+        userRepository.adjustTracksCount(currentUser.getId(), 1);
+        entityCacheService.evict(User.class, currentUser.getId());
+        searchIndexService.indexTrack(savedTrack.getId());
+        suggestionService.indexTrack(savedTrack);
+        // El trabajo pesado va a la cola: se ejecuta cuando la transacción confirma el track
+        if (waveformService.accepts(savedTrack.getAudioUrl())) {
+            processingJobService.enqueue(ProcessingJobType.WAVEFORM, savedTrack.getId(), savedTrack.getAudioUrl());
+        }
         return new TrackDto(savedTrack);
     }
 
+    // El autor se incluye en el TrackDto de la respuesta: se carga (normalmente desde la caché L2)
+    private User getUser(Long userId) {
+        return userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+    }
+
     /**
      * Obtener track por ID
      */
@@ -105,6 +176,8 @@ public class TrackService {
         }
 
         Track savedTrack = trackRepository.save(track);
+        searchIndexService.indexTrack(savedTrack.getId());
+        suggestionService.indexTrack(savedTrack);
         return new TrackDto(savedTrack);
     }
 
@@ -158,25 +231,49 @@ public class TrackService {
 
         // Eliminar archivos asociados
         if (track.getAudioUrl() != null) {
-            fileStorageService.deleteFile(track.getAudioUrl());
+            fileStorageService.deleteFile(track.getAudioUrl(), track.getUser().getId());
         }
         if (track.hasWaveform()) {
             fileStorageService.deleteFile(track.getWaveformUrl());
         }
         // No eliminar la imagen de portada porque es una URL externa
 
+        // Sacarlo de las playlists que lo contienen, descontándolo de su tracks_count
+        List<Long> playlistIds = playlistTrackRepository.findPlaylistIdsByTrackId(id);
+        if (!playlistIds.isEmpty()) {
+            playlistRepository.decrementTracksCountForTrack(id);
+            playlistTrackRepository.deleteByTrackId(id);
+            entityCacheService.evictAll(Playlist.class, playlistIds);
+        }
+
+        processingJobService.deleteTrackJobs(id);
+
+        Long ownerId = track.getUser().getId();
         trackRepository.delete(track);
+        userRepository.adjustTracksCount(ownerId, -1);
+        entityCacheService.evict(User.class, ownerId);
+        suggestionService.removeTrack(id);
     }
 
     /**
-     * Incrementar contador de reproducciones
+     * Estado del procesamiento posterior a la subida (waveform, etc.)
      */
-    public void incrementPlaysCount(Long trackId) {
-        Track track = trackRepository.findById(trackId)
-                .orElseThrow(() -> new ResourceNotFoundException("Track not found with id: " + trackId));
+    public List<ProcessingJobDto> getProcessingJobs(Long trackId) {
+        if (!trackRepository.existsById(trackId)) {
+            throw new ResourceNotFoundException("Track not found with id: " + trackId);
+        }
+        return processingJobService.getTrackJobs(trackId).stream()
+                .map(ProcessingJobDto::new)
+                .collect(Collectors.toList());
+    }
 
-        track.incrementPlaysCount();
-        trackRepository.save(track);
+    /**
+     * Incrementar contador de reproducciones (se acumula en memoria y se vuelca por lotes)
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void incrementPlaysCount(Long trackId) {
+        playCountService.recordPlay(trackId);
+        trendingService.recordPlay(trackId);
     }
 
     /**
@@ -195,11 +292,27 @@ public class TrackService {
                 .map(TrackDto::new);
     }
 
+    /**
+     * Obtener tracks públicos por cursor (sin COUNT)
+     */
+    public Slice<TrackDto> getPublicTracks(KeysetCursor cursor, int size) {
+        return trackRepository.findPublicBefore(cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, size))
+                .map(TrackDto::new);
+    }
+
+    /**
+     * Obtener tracks de un usuario por cursor (sin COUNT)
+     */
+    public Slice<TrackDto> getUserTracks(Long userId, KeysetCursor cursor, int size) {
+        return trackRepository.findByUserIdBefore(userId, cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, size))
+                .map(TrackDto::new);
+    }
+
     /**
      * Buscar tracks
      */
     public Page<TrackDto> searchTracks(String query, Pageable pageable) {
-        return trackRepository.searchTracks(query, pageable)
+        return searchIndexService.searchTracks(query, pageable)
                 .map(TrackDto::new);
     }
 
@@ -207,15 +320,7 @@ public class TrackService {
      * Obtener tracks trending
      */
     public Page<TrackDto> getTrendingTracks(Pageable pageable) {
-        return trackRepository.findTrendingTracks(pageable)
-                .stream()
-                .map(TrackDto::new)
-                .collect(java.util.stream.Collectors.toList())
-                .stream()
-                .collect(java.util.stream.Collectors.collectingAndThen(
-                        java.util.stream.Collectors.toList(),
-                        list -> new org.springframework.data.domain.PageImpl<>(list, pageable, list.size())
-                ));
+        return trendingService.getTrendingTracks(pageable);
     }
 
     /**
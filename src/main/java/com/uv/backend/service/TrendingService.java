@@ -0,0 +1,235 @@
+package com.uv.backend.service;
+
+import com.uv.backend.dto.TrackDto;
+import com.uv.backend.entity.Track;
+import com.uv.backend.repository.TrackRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Ranking de tendencias con puntuaciones que decaen en el tiempo.
+ *
+ * Cada reproducción, like, repost o comentario suma su peso a la puntuación del track,
+ * que decae exponencialmente con la vida media configurada. Un proceso en segundo plano
+ * genera una instantánea ordenada de los mejores tracks públicos; las lecturas de
+ * /api/tracks/trending solo paginan esa instantánea y no acceden a la base de datos.
+ */
+@Service
+public class TrendingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrendingService.class);
+
+    // Puntuaciones por debajo de este valor se descartan al recalcular
+    private static final double MIN_SCORE = 0.01;
+
+    @Autowired
+    private TrackRepository trackRepository;
+
+    @Value("${app.trending.half-life-hours:24}")
+    private double halfLifeHours;
+
+    @Value("${app.trending.snapshot-size:500}")
+    private int snapshotSize;
+
+    @Value("${app.trending.max-tracked:100000}")
+    private int maxTracked;
+
+    @Value("${app.trending.seed-days:7}")
+    private int seedDays;
+
+    @Value("${app.trending.weight.play:1}")
+    private double playWeight;
+
+    @Value("${app.trending.weight.like:4}")
+    private double likeWeight;
+
+    @Value("${app.trending.weight.repost:6}")
+    private double repostWeight;
+
+    @Value("${app.trending.weight.comment:3}")
+    private double commentWeight;
+
+    private final Map<Long, DecayedScore> scores = new ConcurrentHashMap<>();
+
+    // Instantánea inmutable servida a las lecturas
+    private volatile List<TrackDto> snapshot = List.of();
+
+    private volatile boolean seeded = false;
+
+    public void recordPlay(Long trackId) {
+        record(trackId, playWeight);
+    }
+
+    public void recordLike(Long trackId) {
+        record(trackId, likeWeight);
+    }
+
+    public void recordRepost(Long trackId) {
+        record(trackId, repostWeight);
+    }
+
+    public void recordComment(Long trackId) {
+        record(trackId, commentWeight);
+    }
+
+    /**
+     * Página de tracks en tendencia (solo memoria)
+     */
+    public Page<TrackDto> getTrendingTracks(Pageable pageable) {
+        List<TrackDto> current = snapshot;
+        int from = (int) Math.min(pageable.getOffset(), current.size());
+        int to = Math.min(from + pageable.getPageSize(), current.size());
+        return new PageImpl<>(current.subList(from, to), pageable, current.size());
+    }
+
+    /**
+     * Recalcular la instantánea a partir de las puntuaciones actuales
+     */
+    @Scheduled(fixedDelayString = "${app.trending.refresh-interval-ms:60000}")
+    @Transactional(readOnly = true)
+    public void refreshSnapshot() {
+        // Si la siembra falla se reintenta en el siguiente ciclo
+        if (!seeded) {
+            seeded = seedFromRecentActivity();
+        }
+
+        long now = System.currentTimeMillis();
+        scores.entrySet().removeIf(entry -> entry.getValue().valueAt(now, decayRate()) < MIN_SCORE);
+
+        // Se fija el valor de cada puntuación antes de ordenar (siguen llegando eventos)
+        List<Long> topIds = scores.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().valueAt(now, decayRate())))
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
+                .limit(snapshotSize)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+
+        Map<Long, Track> tracksById = trackRepository.findAllWithUserByIdIn(topIds).stream()
+                .collect(Collectors.toMap(Track::getId, Function.identity()));
+
+        snapshot = topIds.stream()
+                .map(tracksById::get)
+                .filter(track -> track != null && Boolean.TRUE.equals(track.getIsPublic()))
+                .map(TrackDto::new)
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    // Dentro de una transacción el evento solo puntúa si se confirma (un like revertido no cuenta)
+    private void record(Long trackId, double weight) {
+        if (trackId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(trackId, weight);
+                }
+            });
+        } else {
+            apply(trackId, weight);
+        }
+    }
+
+    private void apply(Long trackId, double weight) {
+        DecayedScore score = scores.get(trackId);
+        if (score == null) {
+            if (scores.size() >= maxTracked) {
+                return;
+            }
+            score = scores.computeIfAbsent(trackId, id -> new DecayedScore());
+        }
+        score.add(weight, System.currentTimeMillis(), decayRate());
+    }
+
+    /**
+     * Tras un reinicio se reconstruyen las puntuaciones con reproducciones, likes, comentarios y
+     * reposts recientes. Se leen todas las fuentes antes de sumar nada, así que un fallo no deja
+     * una siembra a medias que se duplicaría al reintentar
+     */
+    private boolean seedFromRecentActivity() {
+        LocalDateTime since = LocalDateTime.now().minusDays(seedDays);
+        List<Object[]> plays;
+        List<Object[]> likes;
+        List<Object[]> comments;
+        List<Object[]> reposts;
+        try {
+            plays = trackRepository.countRecentPlaysByHour(since);
+            likes = trackRepository.countRecentLikesByHour(since);
+            comments = trackRepository.countRecentCommentsByHour(since);
+            reposts = trackRepository.countRecentRepostsByHour(since);
+        } catch (Exception e) {
+            logger.error("Error seeding trending scores: {}", e.getMessage());
+            return false;
+        }
+
+        seed(plays, playWeight);
+        seed(likes, likeWeight);
+        seed(comments, commentWeight);
+        seed(reposts, repostWeight);
+        return true;
+    }
+
+    private void seed(List<Object[]> rows, double weight) {
+        for (Object[] row : rows) {
+            Long trackId = ((Number) row[0]).longValue();
+            long bucketMillis = toEpochMillis(row[1]);
+            long count = ((Number) row[2]).longValue();
+            scores.computeIfAbsent(trackId, id -> new DecayedScore())
+                    .add(weight * count, bucketMillis, decayRate());
+        }
+    }
+
+    private long toEpochMillis(Object value) {
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).getTime();
+        }
+        return ((LocalDateTime) value).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // Constante de decaimiento por milisegundo a partir de la vida media
+    private double decayRate() {
+        return Math.log(2) / (halfLifeHours * 3_600_000d);
+    }
+
+    /**
+     * Puntuación con decaimiento exponencial: se guarda el valor y el instante de la última actualización
+     */
+    private static class DecayedScore {
+        private double value;
+        private long updatedAt;
+
+        synchronized void add(double weight, long at, double rate) {
+            if (at >= updatedAt) {
+                value = value * Math.exp(-rate * (at - updatedAt)) + weight;
+                updatedAt = at;
+            } else {
+                // Evento anterior a la última actualización (arranque): se decae hasta ese instante
+                value += weight * Math.exp(-rate * (updatedAt - at));
+            }
+        }
+
+        synchronized double valueAt(long now, double rate) {
+            return value * Math.exp(-rate * Math.max(0, now - updatedAt));
+        }
+    }
+}
@@ -1,12 +1,22 @@
 package com.uv.backend.service;
 import com.uv.backend.entity.User;
 import com.uv.backend.repository.UserRepository;
+import com.uv.backend.security.AuthenticatedUser;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
@@ -14,6 +24,15 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     @Autowired
     private UserRepository userRepository;
 
+    @Value("${app.security.principal-cache.ttl-seconds:300}")
+    private long principalCacheTtlSeconds;
+
+    @Value("${app.security.principal-cache.max-size:10000}")
+    private int principalCacheMaxSize;
+
+    // Usuarios autenticados por subject del JWT, para no consultar la base de datos en cada petición
+    private final Map<String, CachedPrincipal> principals = new ConcurrentHashMap<>();
+
     @Override
     @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
@@ -30,4 +49,78 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 
         return user;
     }
-}
\ No newline at end of file
+
+    /**
+     * Principal del filtro JWT para tokens sin claims embebidos, o null si el usuario ya no existe:
+     * se sirve desde memoria hasta que caduca (ttl-seconds) o se invalida el usuario
+     */
+    public AuthenticatedUser loadCachedPrincipal(String username) {
+        return getCachedPrincipal(username).principal;
+    }
+
+    /**
+     * Si los claims de un token ya no valen: el usuario se ha eliminado o se ha invalidado después
+     * de emitirlo (iat tiene precisión de segundos, así que en el mismo segundo se considera
+     * invalidado). El momento de la invalidación está en users, así que lo ven todas las instancias
+     * en cuanto caduca su entrada de la caché
+     */
+    public boolean isInvalidatedSince(String username, Date issuedAt) {
+        CachedPrincipal cached = getCachedPrincipal(username);
+        if (cached.principal == null) {
+            return true;
+        }
+        Instant invalidBefore = cached.tokensInvalidBefore;
+        return invalidBefore != null && (issuedAt == null || issuedAt.getTime() <= invalidBefore.toEpochMilli());
+    }
+
+    /**
+     * Invalidar un usuario (deshabilitado o eliminado): los claims de sus tokens anteriores dejan de
+     * darse por buenos y se comprueban contra la base de datos. El desalojo se repite al terminar la
+     * transacción por si otra petición lo ha vuelto a cargar entre medias
+     */
+    public void invalidateUser(User user) {
+        user.setTokensInvalidBefore(Instant.now());
+
+        String username = user.getUsername();
+        principals.remove(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    principals.remove(username);
+                }
+            });
+        }
+    }
+
+    // Los usuarios que no existen también se guardan, para no consultar en cada petición con su token
+    private CachedPrincipal getCachedPrincipal(String username) {
+        long now = System.nanoTime();
+        CachedPrincipal cached = principals.get(username);
+        if (cached != null && now - cached.loadedAt < TimeUnit.SECONDS.toNanos(principalCacheTtlSeconds)) {
+            return cached;
+        }
+
+        cached = userRepository.findByUsername(username)
+                .map(user -> new CachedPrincipal(AuthenticatedUser.from(user), user.getTokensInvalidBefore(), now))
+                .orElseGet(() -> new CachedPrincipal(null, null, now));
+        if (principals.size() >= principalCacheMaxSize) {
+            // Se vacía entera: recargar una entrada cuesta una consulta
+            principals.clear();
+        }
+        principals.put(username, cached);
+        return cached;
+    }
+
+    private static class CachedPrincipal {
+        private final AuthenticatedUser principal;
+        private final Instant tokensInvalidBefore;
+        private final long loadedAt;
+
+        private CachedPrincipal(AuthenticatedUser principal, Instant tokensInvalidBefore, long loadedAt) {
+            this.principal = principal;
+            this.tokensInvalidBefore = tokensInvalidBefore;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
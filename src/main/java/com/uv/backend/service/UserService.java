@@ -6,8 +6,12 @@ import com.uv.backend.entity.User;
 import com.uv.backend.exception.ResourceNotFoundException;
 import com.uv.backend.repository.UserRepository;
 import com.uv.backend.repository.FollowRepository;
+import com.uv.backend.repository.PlaylistRepository;
+import com.uv.backend.repository.PlaylistTrackRepository;
+import com.uv.backend.security.AuthenticatedUser;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
@@ -15,6 +19,10 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @Service
 @Transactional
 public class UserService {
@@ -31,12 +39,36 @@ public class UserService {
     @Autowired
     private FollowService followService;
 
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private SuggestionService suggestionService;
+
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Autowired
+    private PlaylistRepository playlistRepository;
+
+    @Autowired
+    private PlaylistTrackRepository playlistTrackRepository;
+
     // Obtener usuario actual autenticado
     public User getCurrentUser() {
+        return getUserById(getCurrentUserId());
+    }
+
+    // Id del usuario autenticado, tomado del principal sin consultar la base de datos
+    public Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        return userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found: " + username));
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal.getId();
+        }
+        throw new ResourceNotFoundException("User not authenticated");
     }
 
     // Obtener usuario por ID
@@ -52,18 +84,46 @@ public class UserService {
     }
 
     // Convertir User a UserDto con información de seguimiento
-    public UserDto convertToDto(User user, User currentUser) {
+    public UserDto convertToDto(User user, Long currentUserId) {
         UserDto userDto = new UserDto(user);
 
-        if (currentUser != null && !currentUser.getId().equals(user.getId())) {
+        if (currentUserId != null && !currentUserId.equals(user.getId())) {
             boolean isFollowing = followRepository.existsByFollowerIdAndFollowingId(
-                    currentUser.getId(), user.getId());
+                    currentUserId, user.getId());
             userDto.setIsFollowing(isFollowing);
         }
 
         return userDto;
     }
 
+    // Convertir una página de usuarios resolviendo isFollowing con una sola consulta
+    public Page<UserDto> convertToDtos(Page<User> users, Long currentUserId) {
+        Set<Long> followedIds = findFollowedIds(users.getContent(), currentUserId);
+        return users.map(user -> toDto(user, currentUserId, followedIds));
+    }
+
+    // Igual que el anterior para una lista (páginas por cursor)
+    public List<UserDto> convertToDtos(List<User> users, Long currentUserId) {
+        Set<Long> followedIds = findFollowedIds(users, currentUserId);
+        return users.stream().map(user -> toDto(user, currentUserId, followedIds)).collect(Collectors.toList());
+    }
+
+    private Set<Long> findFollowedIds(List<User> users, Long currentUserId) {
+        if (currentUserId == null || users.isEmpty()) {
+            return Set.of();
+        }
+        List<Long> userIds = users.stream().map(User::getId).collect(Collectors.toList());
+        return followRepository.findFollowedUserIds(currentUserId, userIds);
+    }
+
+    private UserDto toDto(User user, Long currentUserId, Set<Long> followedIds) {
+        UserDto userDto = new UserDto(user);
+        if (currentUserId != null && !currentUserId.equals(user.getId())) {
+            userDto.setIsFollowing(followedIds.contains(user.getId()));
+        }
+        return userDto;
+    }
+
     /**
      * Actualizar perfil de usuario - Solo metadatos
      */
@@ -84,6 +144,13 @@ public class UserService {
         }
 
         User savedUser = userRepository.save(user);
+        if (request.getDisplayName() != null || request.getBio() != null) {
+            // El nombre visible también forma parte del documento de sus tracks y playlists
+            searchIndexService.indexUser(savedUser.getId(), request.getDisplayName() != null);
+        }
+        if (request.getDisplayName() != null) {
+            suggestionService.indexUser(savedUser);
+        }
         return new UserDto(savedUser);
     }
 
@@ -141,7 +208,7 @@ public class UserService {
 
         // Solo eliminar si es un archivo local, no una URL externa
         if (user.hasAvatar() && !user.getAvatarUrl().startsWith("http")) {
-            fileStorageService.deleteFile(user.getAvatarUrl());
+            fileStorageService.deleteFile(user.getAvatarUrl(), user.getId());
         }
 
         user.setAvatarUrl(null);
@@ -161,7 +228,7 @@ public class UserService {
 
         // Solo eliminar si es un archivo local, no una URL externa
         if (user.hasCoverImage() && !user.getCoverImageUrl().startsWith("http")) {
-            fileStorageService.deleteFile(user.getCoverImageUrl());
+            fileStorageService.deleteFile(user.getCoverImageUrl(), user.getId());
         }
 
         user.setCoverImageUrl(null);
@@ -177,43 +244,31 @@ public class UserService {
      * Buscar usuarios
      */
     public Page<UserDto> searchUsers(String query, Pageable pageable) {
-        User currentUser = getCurrentUser();
-        return userRepository.searchUsers(query, pageable)
-                .map(user -> convertToDto(user, currentUser));
+        return convertToDtos(searchIndexService.searchUsers(query, pageable), getCurrentUserId());
     }
 
     /**
      * Obtener usuarios sugeridos
      */
     public Page<UserDto> getSuggestedUsers(Long userId, int size) {
-        User currentUser = getUserById(userId);
         Pageable pageable = PageRequest.of(0, size);
 
-        return userRepository.findSuggestedUsers(currentUser.getId(), pageable)
-                .stream()
-                .map(user -> convertToDto(user, currentUser))
-                .collect(java.util.stream.Collectors.toList())
-                .stream()
-                .collect(java.util.stream.Collectors.collectingAndThen(
-                        java.util.stream.Collectors.toList(),
-                        list -> new org.springframework.data.domain.PageImpl<>(list, pageable, list.size())
-                ));
+        List<User> suggestedUsers = userRepository.findSuggestedUsers(userId, pageable);
+        return convertToDtos(new PageImpl<>(suggestedUsers, pageable, suggestedUsers.size()), userId);
     }
 
     /**
      * Obtener usuarios con multimedia
      */
     public Page<UserDto> getUsersWithMedia(Pageable pageable) {
-        User currentUser = getCurrentUser();
-        return userRepository.findUsersWithCompleteProfile(pageable)
-                .map(user -> convertToDto(user, currentUser));
+        return convertToDtos(userRepository.findUsersWithCompleteProfile(pageable), getCurrentUserId());
     }
 
     /**
      * Obtener estadísticas de almacenamiento del usuario
      */
     public Long getUserStorageUsage(Long userId) {
-        return userRepository.getTotalMediaStorageByUser(userId);
+        return storageQuotaService.getUsage(userId).getTotalBytes();
     }
 
     /**
@@ -224,13 +279,31 @@ public class UserService {
 
         // Eliminar archivos multimedia asociados (solo archivos locales)
         if (user.hasAvatar() && !user.getAvatarUrl().startsWith("http")) {
-            fileStorageService.deleteFile(user.getAvatarUrl());
+            fileStorageService.deleteFile(user.getAvatarUrl(), user.getId());
         }
         if (user.hasCoverImage() && !user.getCoverImageUrl().startsWith("http")) {
-            fileStorageService.deleteFile(user.getCoverImageUrl());
+            fileStorageService.deleteFile(user.getCoverImageUrl(), user.getId());
         }
 
+        // Sus tracks salen de las playlists de otros y sus playlists se vacían antes del borrado en cascada
+        playlistRepository.decrementTracksCountForUserTracks(userId);
+        playlistTrackRepository.deleteByUserId(userId);
+
         userRepository.delete(user);
+        storageQuotaService.removeUser(userId);
+        suggestionService.removeUser(userId);
+        userDetailsService.invalidateUser(user);
+    }
+
+    /**
+     * Habilitar o deshabilitar una cuenta (un usuario deshabilitado deja de autenticarse)
+     */
+    public UserDto setUserEnabled(Long userId, boolean enabled) {
+        User user = getUserById(userId);
+        user.setEnabled(enabled);
+        userDetailsService.invalidateUser(user);
+        User savedUser = userRepository.save(user);
+        return new UserDto(savedUser);
     }
 
     /**
@@ -239,9 +312,8 @@ public class UserService {
     public UserDto followUser(Long followerId, Long followingId) {
         followService.toggleFollow(followerId, followingId);
         User user = getUserById(followingId);
-        User currentUser = getUserById(followerId);
 
-        UserDto userDto = convertToDto(user, currentUser);
+        UserDto userDto = convertToDto(user, followerId);
         userDto.setIsFollowing(true);
         return userDto;
     }
@@ -252,9 +324,8 @@ public class UserService {
     public UserDto unfollowUser(Long followerId, Long followingId) {
         followService.toggleFollow(followerId, followingId);
         User user = getUserById(followingId);
-        User currentUser = getUserById(followerId);
 
-        UserDto userDto = convertToDto(user, currentUser);
+        UserDto userDto = convertToDto(user, followerId);
         userDto.setIsFollowing(false);
         return userDto;
     }
@@ -0,0 +1,290 @@
+package com.uv.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uv.backend.audio.AudioDecoders;
+import com.uv.backend.audio.PcmReader;
+import com.uv.backend.entity.ProcessingJob;
+import com.uv.backend.entity.ProcessingJobType;
+import com.uv.backend.entity.Track;
+import com.uv.backend.repository.TrackRepository;
+import com.uv.backend.storage.StorageBackend;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Generación de waveforms (picos min/max) en segundo plano.
+ *
+ * Tras crear un track se decodifica el audio a PCM (WAV/AIFF con javax.sound, FLAC con
+ * el decodificador propio) y se calculan los picos a varios niveles de zoom. El resultado
+ * es un JSON pequeño en /waveforms que el reproductor descarga en lugar del audio completo.
+ * Con almacenamiento remoto el audio se descarga a un temporal antes de decodificarlo.
+ * Se ejecuta desde la cola de procesamiento (trabajos WAVEFORM con la URL del audio);
+ * un error de E/S se reintenta y un formato sin decodificador se da por terminado.
+ */
+@Service
+public class WaveformService implements ProcessingJobHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(WaveformService.class);
+
+    private static final String CONTENT_TYPE = "application/json";
+    private static final int READ_BUFFER_FRAMES = 8192;
+
+    // Resolución inicial cuando el contenedor no indica la duración
+    private static final int DEFAULT_SAMPLES_PER_PIXEL = 256;
+
+    @Autowired
+    private TrackRepository trackRepository;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private EntityCacheService entityCacheService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.audio.waveform.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.audio.waveform.width:1800}")
+    private int width;
+
+    @Value("${app.audio.waveform.zoom-levels:3}")
+    private int zoomLevels;
+
+    /**
+     * Si hay que generar el waveform de este audio (solo audio subido, no URLs externas)
+     */
+    public boolean accepts(String audioUrl) {
+        return enabled && audioUrl != null && audioUrl.startsWith("/audio/");
+    }
+
+    @Override
+    public ProcessingJobType getType() {
+        return ProcessingJobType.WAVEFORM;
+    }
+
+    @Override
+    public void handle(ProcessingJob job) throws IOException {
+        generate(job.getTrackId(), job.getPayload());
+    }
+
+    /**
+     * Generar y asignar el waveform; no sobrescribe uno subido por el usuario
+     */
+    public void generate(Long trackId, String audioUrl) throws IOException {
+        String audioKey = StorageBackend.keyForUrl(audioUrl);
+        Path downloaded = null;
+
+        try {
+            Path audioFile = storageBackend.resolveLocal(audioKey);
+            if (audioFile == null) {
+                // Almacenamiento remoto: se comprueba la cabecera antes de descargar el archivo entero
+                byte[] header;
+                try (InputStream in = storageBackend.getRange(audioKey, 0, 4)) {
+                    header = in.readNBytes(4);
+                } catch (NoSuchFileException e) {
+                    logger.warn("Audio file not found for track {}: {}", trackId, audioUrl);
+                    return;
+                }
+                if (!AudioDecoders.canDecode(header)) {
+                    logger.info("Skipping waveform for track {}: no PCM decoder for {}", trackId, audioUrl);
+                    return;
+                }
+
+                downloaded = blobStorageService.createTempFile();
+                try (InputStream in = storageBackend.getRange(audioKey, 0, -1)) {
+                    Files.copy(in, downloaded);
+                }
+                audioFile = downloaded;
+            }
+
+            Map<String, Object> peaks = computePeaks(audioFile);
+            String storedFileName = UUID.randomUUID() + ".json";
+            String key = "waveforms/" + storedFileName;
+            writeAsset(key, objectMapper.writeValueAsBytes(peaks));
+
+            int updated = trackRepository.setGeneratedWaveform(trackId, "/" + key, storedFileName, CONTENT_TYPE);
+            if (updated == 0) {
+                // Track eliminado o con waveform propio mientras se procesaba
+                storageBackend.delete(key);
+            } else {
+                entityCacheService.evict(Track.class, trackId);
+            }
+        } catch (UnsupportedAudioFileException e) {
+            logger.info("Skipping waveform for track {}: {}", trackId, e.getMessage());
+        } catch (NoSuchFileException e) {
+            // Audio eliminado mientras esperaba en la cola
+            logger.warn("Audio file not found for track {}: {}", trackId, audioUrl);
+        } finally {
+            if (downloaded != null) {
+                try {
+                    Files.deleteIfExists(downloaded);
+                } catch (IOException e) {
+                    logger.warn("Could not delete temporary audio copy {}: {}", downloaded, e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Decodifica el audio en streaming y reduce a picos min/max de 8 bits
+    private Map<String, Object> computePeaks(Path audioFile) throws IOException, UnsupportedAudioFileException {
+        int maxBins = width << (Math.max(1, zoomLevels) - 1);
+
+        try (PcmReader reader = AudioDecoders.open(audioFile)) {
+            long totalFrames = reader.getTotalFrames();
+            int samplesPerPixel = totalFrames > 0
+                    ? (int) Math.max(1, (totalFrames + maxBins - 1) / maxBins)
+                    : DEFAULT_SAMPLES_PER_PIXEL;
+
+            PeakLevel level = new PeakLevel(samplesPerPixel, maxBins);
+            float[] buffer = new float[READ_BUFFER_FRAMES];
+            long frames = 0;
+            int count;
+            while ((count = reader.read(buffer)) != -1) {
+                for (int i = 0; i < count; i++) {
+                    level.add(buffer[i]);
+                }
+                frames += count;
+            }
+            level.finish();
+
+            // Del nivel más detallado al más general, fusionando pares de columnas
+            List<Map<String, Object>> levels = new ArrayList<>();
+            for (int i = 0; i < zoomLevels; i++) {
+                levels.add(level.toMap());
+                level = level.halve();
+            }
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("version", 1);
+            result.put("channels", 1);
+            result.put("sample_rate", reader.getSampleRate());
+            result.put("bits", 8);
+            result.put("duration", reader.getSampleRate() > 0 ? (double) frames / reader.getSampleRate() : 0);
+            result.put("levels", levels);
+            return result;
+        }
+    }
+
+    private void writeAsset(String key, byte[] content) throws IOException {
+        Path partial = blobStorageService.createTempFile();
+        try {
+            Files.write(partial, content);
+            storageBackend.put(key, partial, CONTENT_TYPE);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    /**
+     * Columnas min/max de un nivel de zoom; se compacta a la mitad si supera el máximo
+     */
+    private static class PeakLevel {
+        private int samplesPerPixel;
+        private final int maxBins;
+        private byte[] mins;
+        private byte[] maxs;
+        private int length;
+
+        private float currentMin = Float.MAX_VALUE;
+        private float currentMax = -Float.MAX_VALUE;
+        private int currentCount;
+
+        PeakLevel(int samplesPerPixel, int maxBins) {
+            this.samplesPerPixel = samplesPerPixel;
+            this.maxBins = maxBins;
+            this.mins = new byte[Math.max(16, maxBins)];
+            this.maxs = new byte[Math.max(16, maxBins)];
+        }
+
+        void add(float sample) {
+            if (sample < currentMin) {
+                currentMin = sample;
+            }
+            if (sample > currentMax) {
+                currentMax = sample;
+            }
+            if (++currentCount == samplesPerPixel) {
+                flush();
+            }
+        }
+
+        void finish() {
+            if (currentCount > 0) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (length == mins.length) {
+                // Duración desconocida: se duplica el número de muestras por columna
+                compact();
+            }
+            mins[length] = quantize(currentMin);
+            maxs[length] = quantize(currentMax);
+            length++;
+            currentMin = Float.MAX_VALUE;
+            currentMax = -Float.MAX_VALUE;
+            currentCount = 0;
+        }
+
+        private void compact() {
+            int merged = (length + 1) / 2;
+            for (int i = 0; i < merged; i++) {
+                int a = i * 2;
+                int b = Math.min(a + 1, length - 1);
+                mins[i] = (byte) Math.min(mins[a], mins[b]);
+                maxs[i] = (byte) Math.max(maxs[a], maxs[b]);
+            }
+            length = merged;
+            samplesPerPixel *= 2;
+        }
+
+        PeakLevel halve() {
+            PeakLevel next = new PeakLevel(samplesPerPixel, maxBins);
+            next.mins = Arrays.copyOf(mins, Math.max(length, 1));
+            next.maxs = Arrays.copyOf(maxs, Math.max(length, 1));
+            next.length = length;
+            next.compact();
+            return next;
+        }
+
+        Map<String, Object> toMap() {
+            int[] data = new int[length * 2];
+            for (int i = 0; i < length; i++) {
+                data[i * 2] = mins[i];
+                data[i * 2 + 1] = maxs[i];
+            }
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("samples_per_pixel", samplesPerPixel);
+            map.put("length", length);
+            map.put("data", data);
+            return map;
+        }
+
+        private static byte quantize(float value) {
+            return (byte) Math.max(-128, Math.min(127, Math.round(value * 127)));
+        }
+    }
+}
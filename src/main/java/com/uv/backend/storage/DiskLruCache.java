@@ -0,0 +1,239 @@
+package com.uv.backend.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Caché en disco acotada por tamaño, con expulsión del menos usado recientemente.
+ *
+ * Las claves son rutas relativas dentro del directorio ("&lt;hash&gt;/thumb.jpg"). El orden de uso se
+ * lleva en memoria y se guarda en la fecha de modificación de cada archivo, de modo que al
+ * arrancar se recupera a partir del contenido del directorio. Las escrituras se hacen sobre un
+ * temporal y se publican con un renombrado atómico: nunca se lee un archivo a medias.
+ */
+public class DiskLruCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskLruCache.class);
+
+    private static final String TEMP_PREFIX = ".tmp-";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Orden de acceso: el primero es el menos usado recientemente
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public DiskLruCache(Path directory, long maxBytes) {
+        this.directory = directory.toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Cargar las entradas existentes (de la más antigua a la más reciente) y borrar temporales abandonados
+     */
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+
+        List<Map.Entry<Path, BasicFileAttributes>> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                if (!attributes.isRegularFile()) {
+                    continue;
+                }
+                if (path.getFileName().toString().startsWith(TEMP_PREFIX)) {
+                    Files.deleteIfExists(path);
+                } else {
+                    files.add(Map.entry(path, attributes));
+                }
+            }
+        }
+        files.sort(Comparator.comparing(entry -> entry.getValue().lastModifiedTime()));
+
+        lock.lock();
+        try {
+            entries.clear();
+            totalBytes = 0;
+            for (Map.Entry<Path, BasicFileAttributes> file : files) {
+                String key = directory.relativize(file.getKey()).toString().replace('\\', '/');
+                entries.put(key, file.getValue().size());
+                totalBytes += file.getValue().size();
+            }
+            trimToSize();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean contains(String key) {
+        lock.lock();
+        try {
+            return entries.containsKey(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Contenido de una entrada, o null si no está (o se expulsó entretanto)
+     */
+    public byte[] read(String key) throws IOException {
+        Path file = resolve(key);
+        lock.lock();
+        try {
+            if (entries.get(key) == null) {
+                return null;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            byte[] content = Files.readAllBytes(file);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return content;
+        } catch (NoSuchFileException e) {
+            forget(key);
+            return null;
+        }
+    }
+
+    /**
+     * Guardar una entrada, sustituyendo la anterior si existía, y expulsar lo necesario para no pasar del límite
+     */
+    public void write(String key, byte[] content) throws IOException {
+        Path file = resolve(key);
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(TEMP_PREFIX + UUID.randomUUID());
+        try {
+            Files.write(temp, content);
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        lock.lock();
+        try {
+            Long previous = entries.put(key, (long) content.length);
+            totalBytes += content.length - (previous != null ? previous : 0);
+            trimToSize();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Eliminar todas las entradas bajo un directorio de la caché ("&lt;hash&gt;/")
+     */
+    public int removeAll(String prefix) {
+        List<String> removed = new ArrayList<>();
+        lock.lock();
+        try {
+            Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Long> entry = it.next();
+                if (entry.getKey().startsWith(prefix)) {
+                    totalBytes -= entry.getValue();
+                    removed.add(entry.getKey());
+                    it.remove();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        removed.forEach(this::deleteFile);
+
+        // El directorio de la imagen se borra con sus versiones (con la expulsión normal se conserva
+        // para no competir con una escritura en curso)
+        Path parent = resolve(prefix);
+        try (Stream<Path> rest = Files.list(parent)) {
+            if (rest.findAny().isEmpty()) {
+                Files.deleteIfExists(parent);
+            }
+        } catch (IOException e) {
+            // No existía o se ha vuelto a escribir entretanto
+        }
+        return removed.size();
+    }
+
+    public long getTotalBytes() {
+        lock.lock();
+        try {
+            return totalBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Con el bloqueo tomado
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            totalBytes -= eldest.getValue();
+            it.remove();
+            deleteFile(eldest.getKey());
+        }
+    }
+
+    private void forget(String key) {
+        lock.lock();
+        try {
+            Long size = entries.remove(key);
+            if (size != null) {
+                totalBytes -= size;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void deleteFile(String key) {
+        try {
+            Files.deleteIfExists(resolve(key));
+        } catch (IOException e) {
+            logger.warn("Could not delete cache entry {}: {}", key, e.getMessage());
+        }
+    }
+
+    private Path resolve(String key) {
+        Path file = directory.resolve(key).normalize();
+        if (!file.startsWith(directory) || file.equals(directory)) {
+            throw new IllegalArgumentException("Invalid cache key: " + key);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,118 @@
+package com.uv.backend.storage;
+
+import org.apache.commons.io.input.BoundedInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Almacenamiento en el sistema de archivos local.
+ *
+ * El primer segmento de la clave elige el directorio configurado (audio/ -> app.upload.audio.dir, ...);
+ * el resto se resuelve dentro de él sin permitir salir del directorio.
+ */
+public class LocalStorageBackend implements StorageBackend {
+
+    private final Map<String, Path> roots;
+    private final Path defaultRoot;
+
+    public LocalStorageBackend(Map<String, Path> roots, Path defaultRoot) {
+        this.roots = roots;
+        this.defaultRoot = defaultRoot.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        try {
+            // Mismo sistema de archivos: renombrado, los bytes no se copian
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Path partial = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".part");
+            try {
+                Files.copy(source, partial);
+                Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(partial);
+            }
+            Files.deleteIfExists(source);
+        }
+    }
+
+    @Override
+    public InputStream getRange(String key, long offset, long length) throws IOException {
+        Path file = resolve(key);
+        if (!Files.isRegularFile(file)) {
+            throw new NoSuchFileException(key);
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        channel.position(offset);
+        InputStream in = Channels.newInputStream(channel);
+        return length >= 0 ? new BoundedInputStream(in, length) : in;
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        return Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public StorageObject stat(String key) throws IOException {
+        Path file = resolve(key);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return new StorageObject(key, attributes.size(), attributes.lastModifiedTime().toMillis(),
+                Files.probeContentType(file), null);
+    }
+
+    @Override
+    public Optional<URI> presign(String key, Duration ttl, String contentDisposition) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Path resolveLocal(String key) {
+        try {
+            Path file = resolve(key);
+            return Files.isRegularFile(file) && Files.isReadable(file) ? file : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private Path resolve(String key) throws IOException {
+        int slash = key.indexOf('/');
+        Path root = slash > 0 ? roots.get(key.substring(0, slash)) : null;
+        String relative = key;
+        if (root != null) {
+            relative = key.substring(slash + 1);
+        } else {
+            root = defaultRoot;
+        }
+
+        Path base = root.toAbsolutePath().normalize();
+        Path file = base.resolve(relative).normalize();
+        if (!file.startsWith(base) || file.equals(base)) {
+            throw new IOException("Invalid storage key: " + key);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,195 @@
+package com.uv.backend.storage;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+/**
+ * Firma AWS Signature Version 4 para peticiones S3 (cabecera Authorization y URLs prefirmadas)
+ */
+class S3RequestSigner {
+
+    static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String SERVICE = "s3";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final DateTimeFormatter SCOPE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final String accessKey;
+    private final String secretKey;
+    private final String region;
+
+    S3RequestSigner(String accessKey, String secretKey, String region) {
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.region = region;
+    }
+
+    /**
+     * Cabeceras a enviar (x-amz-date, x-amz-content-sha256 y Authorization).
+     * headers debe contener todas las cabeceras que se envían y se quieren firmar, salvo host.
+     */
+    Map<String, String> sign(String method, URI uri, Map<String, String> headers, ZonedDateTime now) {
+        String amzDate = AMZ_DATE.format(now.withZoneSameInstant(ZoneOffset.UTC));
+        String scope = scope(now);
+
+        TreeMap<String, String> signed = new TreeMap<>();
+        headers.forEach((name, value) -> signed.put(name.toLowerCase(Locale.ROOT), value.trim()));
+        signed.put("host", hostHeader(uri));
+        signed.put("x-amz-date", amzDate);
+        signed.putIfAbsent("x-amz-content-sha256", UNSIGNED_PAYLOAD);
+
+        StringBuilder canonicalHeaders = new StringBuilder();
+        signed.forEach((name, value) -> canonicalHeaders.append(name).append(':').append(value).append('\n'));
+        String signedHeaders = String.join(";", signed.keySet());
+
+        String canonicalRequest = method + "\n" +
+                canonicalPath(uri) + "\n" +
+                canonicalQuery(uri.getRawQuery()) + "\n" +
+                canonicalHeaders + "\n" +
+                signedHeaders + "\n" +
+                signed.get("x-amz-content-sha256");
+
+        String signature = signature(amzDate, scope, canonicalRequest, now);
+
+        Map<String, String> result = new TreeMap<>();
+        result.put("x-amz-date", amzDate);
+        result.put("x-amz-content-sha256", signed.get("x-amz-content-sha256"));
+        result.put("Authorization", ALGORITHM + " Credential=" + accessKey + "/" + scope +
+                ", SignedHeaders=" + signedHeaders + ", Signature=" + signature);
+        return result;
+    }
+
+    /**
+     * URL prefirmada para GET; extraQuery se añade a la URL y entra en la firma
+     */
+    URI presign(URI uri, long expiresSeconds, Map<String, String> extraQuery, ZonedDateTime now) {
+        String amzDate = AMZ_DATE.format(now.withZoneSameInstant(ZoneOffset.UTC));
+        String scope = scope(now);
+
+        TreeMap<String, String> query = new TreeMap<>(extraQuery);
+        query.put("X-Amz-Algorithm", ALGORITHM);
+        query.put("X-Amz-Credential", accessKey + "/" + scope);
+        query.put("X-Amz-Date", amzDate);
+        query.put("X-Amz-Expires", Long.toString(expiresSeconds));
+        query.put("X-Amz-SignedHeaders", "host");
+
+        StringJoiner rawQuery = new StringJoiner("&");
+        query.forEach((name, value) -> rawQuery.add(encode(name) + "=" + encode(value)));
+
+        String canonicalRequest = "GET\n" +
+                canonicalPath(uri) + "\n" +
+                rawQuery + "\n" +
+                "host:" + hostHeader(uri) + "\n\n" +
+                "host\n" +
+                UNSIGNED_PAYLOAD;
+
+        String signature = signature(amzDate, scope, canonicalRequest, now);
+        return URI.create(uri.toString() + "?" + rawQuery + "&X-Amz-Signature=" + signature);
+    }
+
+    /**
+     * Codificación URI de AWS (RFC 3986; solo quedan sin codificar A-Z a-z 0-9 - _ . ~)
+     */
+    static String encode(String value) {
+        StringBuilder encoded = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~') {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(String.format("%02X", b & 0xFF));
+            }
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * Ruta codificada segmento a segmento (las barras se conservan)
+     */
+    static String encodePath(String path) {
+        StringJoiner joiner = new StringJoiner("/");
+        for (String segment : path.split("/", -1)) {
+            joiner.add(encode(segment));
+        }
+        return joiner.toString();
+    }
+
+    private String signature(String amzDate, String scope, String canonicalRequest, ZonedDateTime now) {
+        String stringToSign = ALGORITHM + "\n" +
+                amzDate + "\n" +
+                scope + "\n" +
+                sha256Hex(canonicalRequest);
+
+        byte[] key = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8),
+                SCOPE_DATE.format(now.withZoneSameInstant(ZoneOffset.UTC)));
+        key = hmac(key, region);
+        key = hmac(key, SERVICE);
+        key = hmac(key, "aws4_request");
+        return HexFormat.of().formatHex(hmac(key, stringToSign));
+    }
+
+    private String scope(ZonedDateTime now) {
+        return SCOPE_DATE.format(now.withZoneSameInstant(ZoneOffset.UTC)) + "/" + region + "/" + SERVICE + "/aws4_request";
+    }
+
+    // La ruta ya viene codificada en la URI; S3 no la vuelve a codificar
+    private String canonicalPath(URI uri) {
+        String path = uri.getRawPath();
+        return path == null || path.isEmpty() ? "/" : path;
+    }
+
+    private String canonicalQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return "";
+        }
+        TreeMap<String, String> params = new TreeMap<>();
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            params.put(eq == -1 ? pair : pair.substring(0, eq), eq == -1 ? "" : pair.substring(eq + 1));
+        }
+        StringJoiner joiner = new StringJoiner("&");
+        params.forEach((name, value) -> joiner.add(name + "=" + value));
+        return joiner.toString();
+    }
+
+    private String hostHeader(URI uri) {
+        int port = uri.getPort();
+        boolean defaultPort = port == -1
+                || ("http".equals(uri.getScheme()) && port == 80)
+                || ("https".equals(uri.getScheme()) && port == 443);
+        return defaultPort ? uri.getHost() : uri.getHost() + ":" + port;
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.uv.backend.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Almacenamiento en un servicio compatible con S3 (AWS S3, MinIO, Ceph RGW...).
+ *
+ * Habla el protocolo directamente con HttpClient y firma SigV4: PUT, GET con Range, HEAD,
+ * DELETE y URLs prefirmadas para que los clientes descarguen sin pasar por la JVM.
+ * Los objetos se suben con un único PUT (el límite de S3 es 5 GB, muy por encima de los
+ * tamaños máximos de subida).
+ */
+public class S3StorageBackend implements StorageBackend {
+
+    private static final Duration MAX_PRESIGN_TTL = Duration.ofDays(7);
+
+    private final HttpClient httpClient;
+    private final S3RequestSigner signer;
+    private final URI endpoint;
+    private final URI publicEndpoint;
+    private final String bucket;
+    private final boolean pathStyle;
+    private final Duration requestTimeout;
+
+    public S3StorageBackend(URI endpoint, URI publicEndpoint, String region, String bucket,
+                            String accessKey, String secretKey, boolean pathStyle, Duration requestTimeout) {
+        this.endpoint = endpoint;
+        this.publicEndpoint = publicEndpoint != null ? publicEndpoint : endpoint;
+        this.bucket = bucket;
+        this.pathStyle = pathStyle;
+        this.requestTimeout = requestTimeout;
+        this.signer = new S3RequestSigner(accessKey, secretKey, region);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        URI uri = objectUri(endpoint, key);
+        Map<String, String> headers = new HashMap<>();
+        if (contentType != null) {
+            headers.put("content-type", contentType);
+        }
+
+        HttpRequest.Builder request = newRequest("PUT", uri, headers)
+                .PUT(HttpRequest.BodyPublishers.ofFile(source));
+        HttpResponse<String> response = send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw error("PUT", key, response.statusCode(), response.body());
+        }
+    }
+
+    @Override
+    public InputStream getRange(String key, long offset, long length) throws IOException {
+        URI uri = objectUri(endpoint, key);
+        Map<String, String> headers = new HashMap<>();
+        if (offset > 0 || length >= 0) {
+            headers.put("range", "bytes=" + offset + "-" + (length >= 0 ? Long.toString(offset + length - 1) : ""));
+        }
+
+        HttpResponse<InputStream> response = send(newRequest("GET", uri, headers).GET(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        int status = response.statusCode();
+        if (status == 200 || status == 206) {
+            return response.body();
+        }
+
+        String body = new String(response.body().readNBytes(4096));
+        response.body().close();
+        if (status == 404) {
+            throw new NoSuchFileException(key);
+        }
+        throw error("GET", key, status, body);
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        // S3 responde 204 exista o no el objeto; se consulta antes para informar al llamador
+        boolean existed = stat(key) != null;
+        URI uri = objectUri(endpoint, key);
+        HttpResponse<String> response = send(newRequest("DELETE", uri, Map.of()).DELETE(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2 && response.statusCode() != 404) {
+            throw error("DELETE", key, response.statusCode(), response.body());
+        }
+        return existed;
+    }
+
+    @Override
+    public StorageObject stat(String key) throws IOException {
+        URI uri = objectUri(endpoint, key);
+        HttpResponse<Void> response = send(
+                newRequest("HEAD", uri, Map.of()).method("HEAD", HttpRequest.BodyPublishers.noBody()),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return null;
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw error("HEAD", key, response.statusCode(), null);
+        }
+
+        long size = response.headers().firstValueAsLong("content-length").orElse(-1);
+        long lastModified = response.headers().firstValue("last-modified")
+                .map(this::parseHttpDate)
+                .orElse(0L);
+        return new StorageObject(key, size, lastModified,
+                response.headers().firstValue("content-type").orElse(null),
+                response.headers().firstValue("etag").orElse(null));
+    }
+
+    @Override
+    public Optional<URI> presign(String key, Duration ttl, String contentDisposition) {
+        Duration expires = ttl.compareTo(MAX_PRESIGN_TTL) > 0 ? MAX_PRESIGN_TTL : ttl;
+        Map<String, String> query = new HashMap<>();
+        if (contentDisposition != null) {
+            query.put("response-content-disposition", contentDisposition);
+        }
+        return Optional.of(signer.presign(objectUri(publicEndpoint, key), expires.getSeconds(), query, ZonedDateTime.now()));
+    }
+
+    private HttpRequest.Builder newRequest(String method, URI uri, Map<String, String> headers) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).timeout(requestTimeout);
+        headers.forEach(builder::header);
+        signer.sign(method, uri, headers, ZonedDateTime.now()).forEach(builder::header);
+        return builder;
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest.Builder request, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return httpClient.send(request.build(), handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while calling object storage");
+        }
+    }
+
+    // Estilo ruta (http://host/bucket/clave, MinIO) o virtual host (http://bucket.host/clave)
+    private URI objectUri(URI base, String key) {
+        String basePath = base.getRawPath() == null ? "" : base.getRawPath().replaceAll("/+$", "");
+        String authority = base.getRawAuthority();
+        String path;
+        if (pathStyle) {
+            path = basePath + "/" + S3RequestSigner.encode(bucket) + "/" + S3RequestSigner.encodePath(key);
+        } else {
+            authority = bucket + "." + authority;
+            path = basePath + "/" + S3RequestSigner.encodePath(key);
+        }
+        return URI.create(base.getScheme() + "://" + authority + path);
+    }
+
+    private long parseHttpDate(String value) {
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return 0L;
+        }
+    }
+
+    private IOException error(String operation, String key, int status, String body) {
+        String detail = body != null && !body.isBlank() ? ": " + body.strip() : "";
+        return new IOException("Object storage " + operation + " " + key + " failed with status " + status + detail);
+    }
+}
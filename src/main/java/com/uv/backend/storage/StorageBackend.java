@@ -0,0 +1,66 @@
+package com.uv.backend.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Almacenamiento de objetos (audio, imágenes, waveforms...).
+ *
+ * Las claves coinciden con la URL pública sin la barra inicial: "audio/ab/cd/&lt;hash&gt;.mp3",
+ * "waveforms/&lt;uuid&gt;.json". Se selecciona con app.storage.type (local | s3).
+ */
+public interface StorageBackend {
+
+    /**
+     * Guarda el contenido de un archivo temporal. El backend puede mover el archivo en lugar de copiarlo.
+     */
+    void put(String key, Path source, String contentType) throws IOException;
+
+    /**
+     * Lee length bytes desde offset (length -1 = hasta el final).
+     * Lanza NoSuchFileException si el objeto no existe.
+     */
+    InputStream getRange(String key, long offset, long length) throws IOException;
+
+    /**
+     * Elimina el objeto; retorna false si no existía
+     */
+    boolean delete(String key) throws IOException;
+
+    /**
+     * Tamaño, fecha y tipo del objeto, o null si no existe
+     */
+    StorageObject stat(String key) throws IOException;
+
+    /**
+     * URL firmada y temporal para descargar el objeto directamente del almacenamiento,
+     * sin pasar por la JVM. Vacío si el backend no la soporta.
+     */
+    Optional<URI> presign(String key, Duration ttl, String contentDisposition);
+
+    /**
+     * Archivo local del objeto si el backend lo tiene en disco (permite sendfile); null en otro caso
+     */
+    default Path resolveLocal(String key) {
+        return null;
+    }
+
+    /**
+     * Clave de una URL local ("/audio/x.mp3" -> "audio/x.mp3"); los alias de imágenes
+     * (/avatars, /covers, /thumbnails) viven bajo images/ y /uploads apunta a la raíz
+     */
+    static String keyForUrl(String fileUrl) {
+        String key = fileUrl.startsWith("/") ? fileUrl.substring(1) : fileUrl;
+        if (key.startsWith("uploads/")) {
+            return key.substring("uploads/".length());
+        }
+        if (key.startsWith("avatars/") || key.startsWith("covers/") || key.startsWith("thumbnails/")) {
+            return "images/" + key;
+        }
+        return key;
+    }
+}
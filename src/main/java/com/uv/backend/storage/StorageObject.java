@@ -0,0 +1,36 @@
+package com.uv.backend.storage;
+
+/**
+ * Metadatos de un objeto almacenado
+ */
+public class StorageObject {
+    private final String key;
+    private final long size;
+    private final long lastModified; // epoch millis
+    private final String contentType;
+    private final String etag;
+
+    public StorageObject(String key, long size, long lastModified, String contentType, String etag) {
+        this.key = key;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.contentType = contentType;
+        this.etag = etag;
+    }
+
+    public String getKey() { return key; }
+    public long getSize() { return size; }
+    public long getLastModified() { return lastModified; }
+    public String getContentType() { return contentType; }
+    public String getEtag() { return etag; }
+
+    @Override
+    public String toString() {
+        return "StorageObject{" +
+                "key='" + key + '\'' +
+                ", size=" + size +
+                ", lastModified=" + lastModified +
+                ", contentType='" + contentType + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,7 @@
+-- Contadores ya reconciliados alguna vez (se ejecuta al arrancar, idempotente)
+-- Un contador sin fila se reconcilia al arrancar: columnas recién añadidas o bases anteriores a los contadores
+
+CREATE TABLE IF NOT EXISTS counter_reconciliations (
+    counter VARCHAR(100) PRIMARY KEY,
+    reconciled_at TIMESTAMP NOT NULL
+);
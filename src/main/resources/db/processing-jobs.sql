@@ -0,0 +1,5 @@
+-- Esquema de la cola de trabajos (se ejecuta al arrancar, idempotente)
+
+-- Las bases creadas cuando solo existía WAVEFORM tienen un CHECK con los tipos de entonces
+-- (Hibernate no lo amplía al añadir valores al enum); el tipo lo valida la aplicación
+ALTER TABLE processing_jobs DROP CONSTRAINT IF EXISTS processing_jobs_type_check;
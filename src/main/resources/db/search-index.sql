@@ -0,0 +1,25 @@
+-- Índice de búsqueda de texto completo (se ejecuta al arrancar, idempotente)
+-- search_document lo mantiene la aplicación; search_vector se genera a partir de él
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Tracks
+ALTER TABLE tracks ADD COLUMN IF NOT EXISTS search_document TEXT;
+ALTER TABLE tracks ADD COLUMN IF NOT EXISTS search_vector TSVECTOR
+    GENERATED ALWAYS AS (to_tsvector('simple', coalesce(search_document, ''))) STORED;
+CREATE INDEX IF NOT EXISTS idx_tracks_search_vector ON tracks USING GIN (search_vector);
+CREATE INDEX IF NOT EXISTS idx_tracks_search_trgm ON tracks USING GIN (search_document gin_trgm_ops);
+
+-- Usuarios
+ALTER TABLE users ADD COLUMN IF NOT EXISTS search_document TEXT;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS search_vector TSVECTOR
+    GENERATED ALWAYS AS (to_tsvector('simple', coalesce(search_document, ''))) STORED;
+CREATE INDEX IF NOT EXISTS idx_users_search_vector ON users USING GIN (search_vector);
+CREATE INDEX IF NOT EXISTS idx_users_search_trgm ON users USING GIN (search_document gin_trgm_ops);
+
+-- Playlists
+ALTER TABLE playlists ADD COLUMN IF NOT EXISTS search_document TEXT;
+ALTER TABLE playlists ADD COLUMN IF NOT EXISTS search_vector TSVECTOR
+    GENERATED ALWAYS AS (to_tsvector('simple', coalesce(search_document, ''))) STORED;
+CREATE INDEX IF NOT EXISTS idx_playlists_search_vector ON playlists USING GIN (search_vector);
+CREATE INDEX IF NOT EXISTS idx_playlists_search_trgm ON playlists USING GIN (search_document gin_trgm_ops);
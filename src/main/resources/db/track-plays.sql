@@ -0,0 +1,12 @@
+-- Reproducciones por track y hora (se ejecuta al arrancar, idempotente)
+-- Las escribe el volcado de PlayCountService; sirven para reconstruir las tendencias tras un reinicio
+-- y se eliminan pasados app.trending.seed-days. Sin clave foránea: un track borrado no hace fallar el volcado
+
+CREATE TABLE IF NOT EXISTS track_play_buckets (
+    track_id BIGINT NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    plays BIGINT NOT NULL,
+    PRIMARY KEY (track_id, bucket)
+);
+
+CREATE INDEX IF NOT EXISTS idx_track_play_buckets_bucket ON track_play_buckets (bucket);
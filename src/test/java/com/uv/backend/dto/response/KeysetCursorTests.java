@@ -0,0 +1,72 @@
+package com.uv.backend.dto.response;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Codificación del cursor opaco: ida y vuelta, primera página y cursores inválidos
+ */
+class KeysetCursorTests {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 5, 17, 10, 30, 15, 123456000);
+
+    @Test
+    void encodedCursorDecodesToTheSamePosition() {
+        String encoded = KeysetCursor.of(CREATED_AT, 42L).encode();
+
+        KeysetCursor descending = KeysetCursor.descending(encoded);
+        KeysetCursor ascending = KeysetCursor.ascending(encoded);
+
+        assertEquals(CREATED_AT, descending.getCreatedAt());
+        assertEquals(42L, descending.getId());
+        assertEquals(CREATED_AT, ascending.getCreatedAt());
+        assertEquals(42L, ascending.getId());
+        // Apto para la URL sin escapar
+        assertTrue(encoded.matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test
+    void emptyCursorStartsBeforeOrAfterEveryRow() {
+        KeysetCursor descending = KeysetCursor.descending("");
+        KeysetCursor ascending = KeysetCursor.ascending(null);
+
+        assertTrue(descending.getCreatedAt().isAfter(LocalDateTime.now().plusYears(100)));
+        assertEquals(Long.MAX_VALUE, descending.getId());
+        assertTrue(ascending.getCreatedAt().isBefore(LocalDateTime.of(2000, 1, 1, 0, 0)));
+        assertEquals(0L, ascending.getId());
+    }
+
+    @Test
+    void invalidCursorsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.descending("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.descending(encode("no-separator")));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.descending(encode("yesterday|1")));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.descending(encode(CREATED_AT + "|x")));
+    }
+
+    @Test
+    void nextCursorPointsAtTheLastRowOnlyWhenThereIsMore() {
+        List<LocalDateTime> rows = List.of(CREATED_AT.plusSeconds(1), CREATED_AT);
+
+        String next = KeysetCursor.next(new SliceImpl<>(rows, PageRequest.of(0, 2), true), row -> row, row -> 7L);
+        assertEquals(CREATED_AT, KeysetCursor.descending(next).getCreatedAt());
+        assertEquals(7L, KeysetCursor.descending(next).getId());
+
+        assertNull(KeysetCursor.next(new SliceImpl<>(rows, PageRequest.of(0, 2), false), row -> row, row -> 7L));
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,81 @@
+package com.uv.backend.repository;
+
+import com.uv.backend.dto.response.KeysetCursor;
+import com.uv.backend.entity.Post;
+import com.uv.backend.entity.PostType;
+import com.uv.backend.entity.User;
+import com.uv.backend.service.PostService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Paginación por keyset con filas que comparten createdAt: el id desempata, así que recorrer
+ * todas las páginas devuelve cada fila una sola vez y en orden
+ */
+@SpringBootTest(properties = "app.jobs.enabled=false")
+@Transactional
+class KeysetPaginationTests {
+
+    private static final int POSTS = 7;
+    private static final int PAGE_SIZE = 3;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void rowsWithTheSameCreatedAtArePagedOnceEach() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        User author = userRepository.save(new User("ks_" + suffix, "Keyset " + suffix,
+                "ks_" + suffix + "@example.com", "password1"));
+
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < POSTS; i++) {
+            Post post = new Post(PostType.TEXT, author);
+            post.setContent("Post " + i);
+            expected.add(0, postRepository.save(post).getId());
+        }
+        entityManager.flush();
+        // Todos en el mismo instante salvo el último, más reciente
+        jdbcTemplate.update("UPDATE posts SET created_at = TIMESTAMP '2024-01-01 12:00:00' WHERE user_id = ?",
+                author.getId());
+        jdbcTemplate.update("UPDATE posts SET created_at = TIMESTAMP '2024-01-02 12:00:00' WHERE id = ?",
+                expected.get(0));
+        entityManager.clear();
+
+        List<Long> paged = new ArrayList<>();
+        String cursor = "";
+        int pages = 0;
+        do {
+            Slice<Post> slice = postService.getUserPosts(author.getId(), KeysetCursor.descending(cursor), PAGE_SIZE);
+            slice.forEach(post -> paged.add(post.getId()));
+            cursor = KeysetCursor.next(slice, Post::getCreatedAt, Post::getId);
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(expected, paged);
+        assertEquals((POSTS + PAGE_SIZE - 1) / PAGE_SIZE, pages);
+    }
+}
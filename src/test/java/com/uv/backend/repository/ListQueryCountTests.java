@@ -0,0 +1,196 @@
+package com.uv.backend.repository;
+
+import com.uv.backend.dto.PlaylistDto;
+import com.uv.backend.dto.PostDto;
+import com.uv.backend.dto.TrackDto;
+import com.uv.backend.dto.response.KeysetCursor;
+import com.uv.backend.entity.Playlist;
+import com.uv.backend.entity.Post;
+import com.uv.backend.entity.PostType;
+import com.uv.backend.entity.Track;
+import com.uv.backend.entity.User;
+import com.uv.backend.service.PlaylistService;
+import com.uv.backend.service.PostService;
+import com.uv.backend.service.TrackService;
+import com.uv.backend.support.QueryCounter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Número de consultas por página de los listados: debe ser constante, no crecer con las filas.
+ * Cada página se mide con el contexto de persistencia y la caché L2 vacíos. La cola de
+ * procesamiento se desactiva: sus sondeos contarían en las estadísticas globales de Hibernate.
+ */
+@SpringBootTest(properties = {"app.jobs.enabled=false", "app.cache.stats.enabled=true"})
+@Transactional
+class ListQueryCountTests {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TrackRepository trackRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private PlaylistRepository playlistRepository;
+
+    @Autowired
+    private TrackService trackService;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private PlaylistService playlistService;
+
+    private QueryCounter queryCounter;
+    private User author;
+    private List<Track> tracks;
+
+    @BeforeEach
+    void seed() {
+        queryCounter = new QueryCounter(entityManagerFactory, entityManager);
+
+        // Un autor distinto por fila para que cualquier carga perezosa se note
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            users.add(newUser());
+        }
+        author = users.get(0);
+
+        tracks = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Track track = new Track("Track " + i, "/uploads/audio/qc-" + i + ".mp3", 180, users.get(i));
+            track.setTags(Set.of("tag-a-" + i, "tag-b-" + i));
+            tracks.add(trackRepository.save(track));
+        }
+
+        // Posts del autor: la mitad comparten un track, la otra mitad repostean un post con track
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Post post;
+            if (i % 2 == 0) {
+                post = new Post(PostType.TRACK, tracks.get(i), author);
+            } else {
+                Post original = postRepository.save(new Post(PostType.TRACK, tracks.get(i), users.get(i)));
+                post = new Post(PostType.REPOST, author);
+                post.setOriginalPost(original);
+            }
+            postRepository.save(post);
+        }
+
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            playlistRepository.save(new Playlist("Playlist " + i, users.get(i)));
+        }
+    }
+
+    @Test
+    void publicTracksPageUsesConstantQueries() {
+        queryCounter.start();
+
+        Page<TrackDto> page = trackService.getPublicTracks(PageRequest.of(0, PAGE_SIZE));
+        page.getContent().forEach(track -> assertEquals(2, track.getTags().size()));
+
+        assertEquals(PAGE_SIZE, page.getNumberOfElements());
+        // Tracks con su autor, COUNT y los tags de toda la página en un bloque
+        assertTrue(queryCounter.count() <= 3, "queries: " + queryCounter.count());
+    }
+
+    @Test
+    void userPostsPageUsesConstantQueries() {
+        queryCounter.start();
+
+        Page<Post> page = postService.getUserPosts(author.getId(), PageRequest.of(0, PAGE_SIZE));
+        List<PostDto> posts = page.getContent().stream().map(PostDto::new).collect(Collectors.toList());
+
+        assertEquals(PAGE_SIZE, posts.size());
+        // Posts con autor, track y post original, COUNT y tags
+        assertTrue(queryCounter.count() <= 3, "queries: " + queryCounter.count());
+    }
+
+    @Test
+    void userPostsCursorPageUsesConstantQueries() {
+        queryCounter.start();
+
+        List<PostDto> posts = postService.getUserPosts(author.getId(), KeysetCursor.descending(null), PAGE_SIZE)
+                .map(PostDto::new)
+                .getContent();
+
+        assertEquals(PAGE_SIZE, posts.size());
+        // Sin COUNT: posts con sus relaciones y tags
+        assertTrue(queryCounter.count() <= 2, "queries: " + queryCounter.count());
+    }
+
+    @Test
+    void timelinePostsByIdUseConstantQueries() {
+        List<Long> postIds = postRepository.findByUserIdOrderByCreatedAtDesc(author.getId(), PageRequest.of(0, PAGE_SIZE))
+                .map(Post::getId)
+                .getContent();
+        queryCounter.start();
+
+        List<PostDto> posts = postRepository.findAllWithDetailsByIdIn(postIds).stream()
+                .map(PostDto::new)
+                .collect(Collectors.toList());
+
+        assertEquals(PAGE_SIZE, posts.size());
+        assertTrue(queryCounter.count() <= 2, "queries: " + queryCounter.count());
+    }
+
+    @Test
+    void publicPlaylistsPageUsesConstantQueries() {
+        queryCounter.start();
+
+        Page<PlaylistDto> page = playlistService.getPublicPlaylists(PageRequest.of(0, PAGE_SIZE));
+
+        assertEquals(PAGE_SIZE, page.getNumberOfElements());
+        // Playlists con su autor y COUNT
+        assertTrue(queryCounter.count() <= 2, "queries: " + queryCounter.count());
+    }
+
+    @Test
+    void playlistTracksPageUsesConstantQueries() {
+        Playlist playlist = playlistRepository.save(new Playlist("Playlist tracks", author));
+        List<Long> trackIds = tracks.stream().map(Track::getId).collect(Collectors.toList());
+        playlistService.addTracksToPlaylist(playlist.getId(), trackIds, null);
+        queryCounter.start();
+
+        Page<TrackDto> page = playlistService.getPlaylistTracks(playlist.getId(), PageRequest.of(0, PAGE_SIZE));
+
+        assertEquals(trackIds, page.map(TrackDto::getId).getContent());
+        assertEquals(PAGE_SIZE, page.getTotalElements());
+        // Playlist, la página de tracks con su autor y los tags; sin COUNT
+        assertTrue(queryCounter.count() <= 3, "queries: " + queryCounter.count());
+    }
+
+    private User newUser() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        return userRepository.save(new User("qc_" + suffix, "Query Count " + suffix,
+                "qc_" + suffix + "@example.com", "password1"));
+    }
+}
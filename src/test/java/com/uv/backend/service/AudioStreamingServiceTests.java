@@ -0,0 +1,160 @@
+package com.uv.backend.service;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Respuestas a peticiones Range sobre un archivo local: rango simple, sufijo, varios rangos
+ * (multipart/byteranges), rangos que se ignoran y rangos no satisfacibles. Sin contexto de
+ * Spring: con el archivo ya resuelto el servicio no usa el almacenamiento.
+ */
+class AudioStreamingServiceTests {
+
+    private static final String DISPOSITION = "inline; filename=\"test.mp3\"";
+
+    @TempDir
+    Path tempDir;
+
+    private final AudioStreamingService service = new AudioStreamingService();
+    private Path file;
+    private byte[] content;
+
+    @BeforeEach
+    void writeFile() throws IOException {
+        content = new byte[100];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        file = tempDir.resolve("test.mp3");
+        Files.write(file, content);
+    }
+
+    @Test
+    void withoutRangeTheWholeFileIsServed() throws IOException {
+        MockHttpServletResponse response = stream(null);
+
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertEquals(100, response.getContentLengthLong());
+        assertArrayEquals(content, response.getContentAsByteArray());
+    }
+
+    @Test
+    void singleRangeIsServedAsPartialContent() throws IOException {
+        MockHttpServletResponse response = stream("bytes=10-19");
+
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+        assertEquals("bytes 10-19/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(10, response.getContentLengthLong());
+        assertArrayEquals(Arrays.copyOfRange(content, 10, 20), response.getContentAsByteArray());
+    }
+
+    @Test
+    void suffixRangeServesTheEndOfTheFile() throws IOException {
+        MockHttpServletResponse response = stream("bytes=-5");
+
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+        assertEquals("bytes 95-99/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(content, 95, 100), response.getContentAsByteArray());
+    }
+
+    @Test
+    void severalRangesAreServedAsMultipartByteranges() throws IOException {
+        MockHttpServletResponse response = stream("bytes=0-1,50-51");
+
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+        assertTrue(response.getContentType().startsWith("multipart/byteranges; boundary="));
+        String body = new String(response.getContentAsByteArray(), StandardCharsets.ISO_8859_1);
+        assertTrue(body.contains("Content-Range: bytes 0-1/100\r\n\r\n\u0000\u0001"));
+        assertTrue(body.contains("Content-Range: bytes 50-51/100\r\n\r\n23"));
+    }
+
+    @Test
+    void overlappingRangesLargerThanTheFileAreIgnored() throws IOException {
+        MockHttpServletResponse response = stream("bytes=0-79,20-99");
+
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(content, response.getContentAsByteArray());
+    }
+
+    @Test
+    void rangeBeyondTheEndIsNotSatisfiable() throws IOException {
+        MockHttpServletResponse response = stream("bytes=200-");
+
+        assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatus());
+        assertEquals("bytes */100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void unsatisfiableRangeIsDroppedWhenOthersCanBeServed() throws IOException {
+        MockHttpServletResponse response = stream("bytes=0-1,200-");
+
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+        assertEquals("bytes 0-1/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(content, 0, 2), response.getContentAsByteArray());
+    }
+
+    @Test
+    void malformedRangeIsNotSatisfiable() throws IOException {
+        MockHttpServletResponse response = stream("bytes=abc");
+
+        assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatus());
+    }
+
+    @Test
+    void staleIfRangeServesTheWholeFile() throws IOException {
+        MockHttpServletRequest request = request("bytes=10-19");
+        request.addHeader(HttpHeaders.IF_RANGE, "Thu, 01 Jan 1970 00:00:00 GMT");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.streamAudio(file, DISPOSITION, request, response);
+
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertArrayEquals(content, response.getContentAsByteArray());
+    }
+
+    @Test
+    void largeRegionsAreHandedToSendfile() throws IOException {
+        byte[] large = new byte[64 * 1024];
+        Files.write(file, large);
+        MockHttpServletRequest request = request("bytes=1024-");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.streamAudio(file, DISPOSITION, request, response);
+
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+        assertEquals(1024L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals((long) large.length, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    private MockHttpServletResponse stream(String range) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.streamAudio(file, DISPOSITION, request(range), response);
+        return response;
+    }
+
+    private MockHttpServletRequest request(String range) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/files/stream/audio/test.mp3");
+        if (range != null) {
+            request.addHeader(HttpHeaders.RANGE, range);
+        }
+        return request;
+    }
+}
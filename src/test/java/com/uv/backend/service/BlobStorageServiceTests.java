@@ -0,0 +1,141 @@
+package com.uv.backend.service;
+
+import com.uv.backend.entity.MediaType;
+import com.uv.backend.entity.StoredBlob;
+import com.uv.backend.repository.StoredBlobRepository;
+import com.uv.backend.storage.StorageBackend;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Contador de referencias del contenido direccionado por hash: altas y bajas, devolución de la
+ * referencia cuando la transacción que guardaba el MediaFile se revierte y reconciliación de las
+ * referencias que se han quedado sin dueño. Cada prueba usa contenido aleatorio y confirma sus
+ * transacciones, así que no se marca @Transactional.
+ */
+@SpringBootTest(properties = "app.jobs.enabled=false")
+class BlobStorageServiceTests {
+
+    @Autowired
+    private BlobStorageService blobStorageService;
+
+    @Autowired
+    private StoredBlobRepository storedBlobRepository;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void sameContentIsStoredOnceAndPurgedWithItsLastReference() throws IOException {
+        byte[] content = randomContent();
+
+        StoredBlob first = store(content);
+        StoredBlob second = store(content);
+        assertEquals(first.getId(), second.getId());
+        assertEquals(2, refCount(first));
+        assertNotNull(storageBackend.stat(blobStorageService.getKey(first)));
+
+        String url = blobStorageService.getUrl(first);
+        assertTrue(blobStorageService.release(url));
+        assertEquals(1, refCount(first));
+        assertNotNull(storageBackend.stat(blobStorageService.getKey(first)));
+
+        assertTrue(blobStorageService.release(url));
+        assertTrue(storedBlobRepository.findByContentHash(first.getContentHash()).isEmpty());
+        assertNull(storageBackend.stat(blobStorageService.getKey(first)));
+    }
+
+    @Test
+    void referenceIsReturnedWhenTheUploadTransactionRollsBack() throws IOException {
+        byte[] content = randomContent();
+        StoredBlob kept = store(content);
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        StoredBlob rolledBack = transactionTemplate.execute(status -> {
+            StoredBlob blob = storeUnchecked(content);
+            // La referencia se confirma aparte: dentro de la transacción ya cuenta
+            assertEquals(2, refCount(blob));
+            status.setRollbackOnly();
+            return blob;
+        });
+
+        assertEquals(kept.getId(), rolledBack.getId());
+        assertEquals(1, refCount(kept));
+        assertNotNull(storageBackend.stat(blobStorageService.getKey(kept)));
+
+        blobStorageService.release(blobStorageService.getUrl(kept));
+    }
+
+    @Test
+    void rollbackOfTheOnlyReferencePurgesTheContent() {
+        byte[] content = randomContent();
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        StoredBlob blob = transactionTemplate.execute(status -> {
+            StoredBlob stored = storeUnchecked(content);
+            status.setRollbackOnly();
+            return stored;
+        });
+
+        assertTrue(storedBlobRepository.findByContentHash(blob.getContentHash()).isEmpty());
+    }
+
+    @Test
+    void reconciliationDropsLeakedReferencesOutsideTheGraceWindow() throws IOException {
+        StoredBlob leaked = store(randomContent());
+        StoredBlob recent = store(randomContent());
+        // Ninguna fila de media_files ni columna apunta a ellos; solo el primero queda fuera del margen
+        jdbcTemplate.update("UPDATE stored_blobs SET acquired_at = now() - interval '1 day' WHERE id = ?",
+                leaked.getId());
+
+        blobStorageService.reconcileRefCounts(Math.min(leaked.getId(), recent.getId()) - 1,
+                Math.max(leaked.getId(), recent.getId()));
+
+        assertTrue(storedBlobRepository.findByContentHash(leaked.getContentHash()).isEmpty());
+        assertNull(storageBackend.stat(blobStorageService.getKey(leaked)));
+        assertEquals(1, refCount(recent));
+
+        blobStorageService.release(blobStorageService.getUrl(recent));
+    }
+
+    private StoredBlob store(byte[] content) throws IOException {
+        return blobStorageService.store(new ByteArrayInputStream(content), "txt", "text/plain", MediaType.IMAGE);
+    }
+
+    private StoredBlob storeUnchecked(byte[] content) {
+        try {
+            return store(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int refCount(StoredBlob blob) {
+        return jdbcTemplate.queryForObject("SELECT ref_count FROM stored_blobs WHERE id = ?", Integer.class, blob.getId());
+    }
+
+    private static byte[] randomContent() {
+        return ("blob-test-" + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,131 @@
+package com.uv.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Volcado diferido de reproducciones: los deltas se extraen por lotes ordenados por id y, si el
+ * lote falla, vuelven al buffer sumándose a lo recibido mientras tanto; el volcado adelantado por
+ * exceso de tracks no bloquea a quien registra la reproducción. Sin contexto de Spring:
+ * JdbcTemplate y el gestor de transacciones se simulan.
+ */
+class PlayCountServiceTests {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final List<List<Object[]>> batches = new ArrayList<>();
+    private PlayCountService service;
+
+    @BeforeEach
+    void createService() {
+        service = new PlayCountService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "entityCacheService", mock(EntityCacheService.class));
+        ReflectionTestUtils.setField(service, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(service, "maxPendingTracks", 1000);
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        // Solo se anotan los incrementos de tracks; las horas de track_play_buckets van en la misma transacción
+        when(jdbcTemplate.batchUpdate(any(String.class), anyList())).thenAnswer(invocation -> {
+            if (invocation.<String>getArgument(0).startsWith("UPDATE tracks")) {
+                batches.add(new ArrayList<>(invocation.<List<Object[]>>getArgument(1)));
+            }
+            return new int[0];
+        });
+    }
+
+    @Test
+    void pendingDeltasAreFlushedInIdOrderAndDrained() {
+        service.recordPlay(30L);
+        service.recordPlay(10L);
+        service.recordPlay(10L);
+        service.recordPlay(20L);
+
+        service.flush();
+
+        // Lotes de dos, ordenados por id: (10, 20) y (30)
+        assertEquals(2, batches.size());
+        assertEquals(List.of("2x10", "1x20"), describe(batches.get(0)));
+        assertEquals(List.of("1x30"), describe(batches.get(1)));
+        assertEquals(0, service.getPendingPlays(10L));
+
+        // Las entradas sin actividad se eliminan: el siguiente volcado no escribe nada
+        batches.clear();
+        service.flush();
+        service.flush();
+        assertEquals(0, batches.size());
+    }
+
+    @Test
+    void failedBatchIsReQueuedWithPlaysRecordedMeanwhile() {
+        service.recordPlay(1L);
+        service.recordPlay(1L);
+        service.recordPlay(2L);
+        service.recordPlay(3L);
+
+        // Falla el primer lote (1, 2) mientras llega otra reproducción del track 1; el segundo se escribe
+        doAnswer(invocation -> {
+            service.recordPlay(1L);
+            throw new QueryTimeoutException("timeout");
+        }).doAnswer(invocation -> {
+            batches.add(new ArrayList<>(invocation.<List<Object[]>>getArgument(1)));
+            return new int[0];
+        }).when(jdbcTemplate).batchUpdate(eq("UPDATE tracks SET plays_count = plays_count + ? WHERE id = ?"),
+                anyList());
+        service.flush();
+
+        assertEquals(3, service.getPendingPlays(1L));
+        assertEquals(1, service.getPendingPlays(2L));
+        assertEquals(0, service.getPendingPlays(3L));
+        assertEquals(List.of("1x3"), describe(batches.get(0)));
+        verify(transactionManager).rollback(any());
+
+        service.flush();
+
+        assertEquals(List.of("3x1", "1x2"), describe(batches.get(1)));
+        assertEquals(0, service.getPendingPlays(1L));
+    }
+
+    @Test
+    void overflowFlushRunsOffTheRecordingThread() {
+        ReflectionTestUtils.setField(service, "maxPendingTracks", 2);
+        List<String> flushThreads = new CopyOnWriteArrayList<>();
+        when(jdbcTemplate.batchUpdate(any(String.class), anyList())).thenAnswer(invocation -> {
+            flushThreads.add(Thread.currentThread().getName());
+            return new int[0];
+        });
+
+        service.recordPlay(1L);
+        service.recordPlay(2L);
+        service.recordPlay(3L);
+
+        verify(jdbcTemplate, timeout(5000).atLeastOnce()).batchUpdate(any(String.class), anyList());
+        assertTrue(flushThreads.stream().allMatch("play-count-flush"::equals));
+    }
+
+    private static List<String> describe(List<Object[]> batch) {
+        return batch.stream().map(delta -> delta[0] + "x" + delta[1]).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,124 @@
+package com.uv.backend.service;
+
+import com.uv.backend.entity.Playlist;
+import com.uv.backend.entity.Track;
+import com.uv.backend.entity.User;
+import com.uv.backend.repository.PlaylistRepository;
+import com.uv.backend.repository.TrackRepository;
+import com.uv.backend.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Posiciones dispersas de playlist_tracks: inserción y movimiento partiendo el hueco entre
+ * vecinos, y renumeración de la playlist cuando el hueco se agota
+ */
+@SpringBootTest(properties = "app.jobs.enabled=false")
+@Transactional
+class PlaylistPositionTests {
+
+    private static final long GAP = 1024;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TrackRepository trackRepository;
+
+    @Autowired
+    private PlaylistRepository playlistRepository;
+
+    @Autowired
+    private PlaylistService playlistService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Playlist playlist;
+    private List<Long> trackIds;
+
+    @BeforeEach
+    void seed() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        User user = userRepository.save(new User("pp_" + suffix, "Positions " + suffix,
+                "pp_" + suffix + "@example.com", "password1"));
+        trackIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            trackIds.add(trackRepository.save(new Track("Track " + i, "/uploads/audio/pp-" + i + ".mp3", 180, user)).getId());
+        }
+        playlist = playlistRepository.save(new Playlist("Positions " + suffix, user));
+        entityManager.flush();
+    }
+
+    @Test
+    void tracksAreAppendedWithAGapAndInsertedBetweenNeighbours() {
+        playlistService.addTracksToPlaylist(playlist.getId(), trackIds.subList(0, 3), null);
+        assertEquals(List.of(GAP, 2 * GAP, 3 * GAP), positions());
+
+        // Dos tracks en el índice 1: se reparte el hueco entre 1024 y 2048
+        playlistService.addTracksToPlaylist(playlist.getId(), trackIds.subList(3, 5), 1);
+        assertEquals(List.of(trackIds.get(0), trackIds.get(3), trackIds.get(4), trackIds.get(1), trackIds.get(2)),
+                order());
+        long third = GAP / 3;
+        assertEquals(List.of(GAP, GAP + third, GAP + 2 * third, 2 * GAP, 3 * GAP), positions());
+
+        // Al principio: por debajo del primero
+        playlistService.moveTracksInPlaylist(playlist.getId(), List.of(trackIds.get(2)), 0);
+        assertEquals(trackIds.get(2), order().get(0));
+        assertEquals(0L, positions().get(0));
+    }
+
+    @Test
+    void playlistIsRenumberedWhenTheGapIsExhausted() {
+        playlistService.addTracksToPlaylist(playlist.getId(), trackIds.subList(0, 3), null);
+        // Posiciones contiguas: no cabe nada entre ellas
+        jdbcTemplate.update("UPDATE playlist_tracks SET position = position / ? WHERE playlist_id = ?",
+                GAP, playlist.getId());
+        entityManager.clear();
+
+        playlistService.addTracksToPlaylist(playlist.getId(), trackIds.subList(3, 5), 2);
+
+        assertEquals(List.of(trackIds.get(0), trackIds.get(1), trackIds.get(3), trackIds.get(4), trackIds.get(2)),
+                order());
+        long third = GAP / 3;
+        assertEquals(List.of(GAP, 2 * GAP, 2 * GAP + third, 2 * GAP + 2 * third, 3 * GAP), positions());
+
+        // Mover también renumera si hace falta, sin perder el orden del resto
+        jdbcTemplate.update("UPDATE playlist_tracks pt SET position = r.rn FROM " +
+                "(SELECT track_id, row_number() OVER (ORDER BY position, track_id) AS rn " +
+                "FROM playlist_tracks WHERE playlist_id = ?) r " +
+                "WHERE pt.playlist_id = ? AND pt.track_id = r.track_id", playlist.getId(), playlist.getId());
+        entityManager.clear();
+        playlistService.moveTracksInPlaylist(playlist.getId(), List.of(trackIds.get(4), trackIds.get(3)), 1);
+
+        assertEquals(List.of(trackIds.get(0), trackIds.get(4), trackIds.get(3), trackIds.get(1), trackIds.get(2)),
+                order());
+        assertEquals(GAP, positions().get(0));
+    }
+
+    private List<Long> order() {
+        entityManager.flush();
+        return jdbcTemplate.queryForList("SELECT track_id FROM playlist_tracks WHERE playlist_id = ? " +
+                "ORDER BY position, track_id", Long.class, playlist.getId());
+    }
+
+    private List<Long> positions() {
+        entityManager.flush();
+        return jdbcTemplate.queryForList("SELECT position FROM playlist_tracks WHERE playlist_id = ? " +
+                "ORDER BY position, track_id", Long.class, playlist.getId());
+    }
+}
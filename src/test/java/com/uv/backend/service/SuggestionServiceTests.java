@@ -0,0 +1,121 @@
+package com.uv.backend.service;
+
+import com.uv.backend.dto.SuggestionDto;
+import com.uv.backend.entity.User;
+import com.uv.backend.repository.TrackRepository;
+import com.uv.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Trie de sugerencias: top-k por popularidad en cada prefijo, búsqueda por palabra inicial y
+ * normalización, y cambios que llegan durante una reconstrucción. Sin contexto de Spring: los
+ * repositorios se simulan y, sin transacción activa, los cambios se aplican al momento.
+ */
+class SuggestionServiceTests {
+
+    private static final int TOP_K = 3;
+
+    private final TrackRepository trackRepository = mock(TrackRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private SuggestionService service;
+
+    @BeforeEach
+    void createService() {
+        service = new SuggestionService();
+        ReflectionTestUtils.setField(service, "trackRepository", trackRepository);
+        ReflectionTestUtils.setField(service, "userRepository", userRepository);
+        ReflectionTestUtils.setField(service, "topK", TOP_K);
+        ReflectionTestUtils.setField(service, "maxEntries", 1000);
+        ReflectionTestUtils.setField(service, "maxKeyLength", 40);
+        ReflectionTestUtils.setField(service, "maxWordsPerEntry", 4);
+        service.init();
+
+        when(trackRepository.countTracksByGenre()).thenReturn(List.of());
+        when(trackRepository.countTracksByTag(any(Pageable.class))).thenReturn(List.of());
+        when(trackRepository.findSuggestionData(any(Pageable.class))).thenReturn(List.of());
+        when(userRepository.findSuggestionData(any(Pageable.class))).thenReturn(List.of());
+    }
+
+    @Test
+    void eachPrefixKeepsTheMostPopularEntries() {
+        for (int i = 1; i <= 5; i++) {
+            service.indexUser(user(i, "alice" + i, "Alice " + i, i * 10));
+        }
+
+        List<Long> ids = ids(service.suggest("ali", 10));
+        assertEquals(List.of(5L, 4L, 3L), ids);
+
+        // Un cambio de popularidad reordena el top-k del prefijo
+        service.indexUser(user(1, "alice1", "Alice 1", 100));
+        assertEquals(List.of(1L, 5L, 4L), ids(service.suggest("ali", 10)));
+        assertEquals(List.of(1L), ids(service.suggest("ali", 1)));
+        // El límite no pasa del top-k que guarda cada prefijo
+        assertEquals(TOP_K, service.suggest("ali", Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    void wordsInsideTheTextAndAccentsAreMatched() {
+        service.indexUser(user(1, "hw", "Héllo Wörld", 1));
+
+        assertEquals(List.of(1L), ids(service.suggest("wor", 10)));
+        assertEquals(List.of(1L), ids(service.suggest("HELLO w", 10)));
+        assertEquals(List.of(1L), ids(service.suggest("@hw", 10)));
+        assertTrue(service.suggest("xyz", 10).isEmpty());
+    }
+
+    @Test
+    void removedEntriesDisappearFromEveryPrefix() {
+        service.indexUser(user(1, "bob", "Bob", 1));
+        service.removeUser(1L);
+
+        assertTrue(service.suggest("b", 10).isEmpty());
+        assertTrue(service.suggest("bob", 10).isEmpty());
+    }
+
+    @Test
+    void changesDuringARebuildSurviveTheSwap() {
+        service.indexUser(user(1, "carol", "Carol", 1));
+
+        // La lectura de la reconstrucción ve a carol y dave; mientras tanto llega erin y se da de baja dave
+        List<Object[]> snapshot = new ArrayList<>();
+        snapshot.add(new Object[]{1L, "carol", "Carol", 1L});
+        snapshot.add(new Object[]{2L, "dave", "Dave", 2L});
+        when(userRepository.findSuggestionData(any(Pageable.class))).thenAnswer(invocation -> {
+            service.indexUser(user(3, "erin", "Erin", 3));
+            service.removeUser(2L);
+            return snapshot;
+        });
+
+        service.rebuild();
+
+        assertEquals(List.of(1L), ids(service.suggest("carol", 10)));
+        assertEquals(List.of(3L), ids(service.suggest("erin", 10)));
+        assertTrue(service.suggest("dave", 10).isEmpty());
+    }
+
+    private static User user(long id, String username, String displayName, int followers) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setDisplayName(displayName);
+        user.setFollowersCount(followers);
+        return user;
+    }
+
+    private static List<Long> ids(List<SuggestionDto> suggestions) {
+        return suggestions.stream().map(SuggestionDto::getId).collect(Collectors.toList());
+    }
+}